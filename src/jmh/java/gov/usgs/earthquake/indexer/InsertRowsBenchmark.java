@@ -0,0 +1,112 @@
+package gov.usgs.earthquake.indexer;
+
+import gov.usgs.util.JDBCUtils;
+
+import java.io.File;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare JDBCProductIndex multi-row inserts with a JDBC batch of single row
+ * inserts, for product summary properties.
+ *
+ * Uses a temporary SQLite index. Each operation runs in a transaction that is
+ * rolled back, so the table does not grow and disk syncs do not dominate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class InsertRowsBenchmark {
+
+	/** Number of property rows inserted per operation. */
+	@Param({ "10", "100", "1000" })
+	public int rows;
+
+	private static final String INSERT = "INSERT INTO productSummaryProperty"
+			+ " (productSummaryIndexId, name, value) VALUES ";
+
+	private static final int[] TYPES = {
+			Types.BIGINT, Types.VARCHAR, Types.VARCHAR};
+
+	private File indexFile;
+	private JDBCProductIndex index;
+	private List<Object[]> values;
+
+	@Setup
+	public void setup() throws Exception {
+		indexFile = File.createTempFile("benchmark", ".db");
+		// index copies schema when file does not exist
+		indexFile.delete();
+		index = new JDBCProductIndex(indexFile.getPath());
+		index.startup();
+
+		values = new ArrayList<Object[]>(rows);
+		for (int i = 0; i < rows; i++) {
+			values.add(new Object[] {1L, "property-" + i,
+					Double.toString(i * 1.5)});
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		index.shutdown();
+		indexFile.delete();
+	}
+
+	/**
+	 * Insert using JDBCProductIndex.insertRows, up to MAX_ROWS_PER_INSERT rows
+	 * per statement.
+	 */
+	@Benchmark
+	public void multiRow() throws Exception {
+		index.beginTransaction();
+		try {
+			index.insertRows(INSERT, TYPES, values);
+		} finally {
+			index.rollbackTransaction();
+		}
+	}
+
+	/**
+	 * Insert using a JDBC batch of single row statements.
+	 */
+	@Benchmark
+	public void batch() throws Exception {
+		index.beginTransaction();
+		try (
+			final PreparedStatement statement = index.getConnection()
+					.prepareStatement(INSERT + "(?, ?, ?)");
+		) {
+			statement.setQueryTimeout(60);
+			for (final Object[] row : values) {
+				for (int i = 0; i < TYPES.length; i++) {
+					JDBCUtils.setParameter(statement, i + 1, row[i], TYPES[i]);
+				}
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		} finally {
+			index.rollbackTransaction();
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+package gov.usgs.earthquake.product;
+
+import gov.usgs.util.CryptoUtils.Version;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measure ProductDigest for signature versions and product sizes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductDigestBenchmark {
+
+	/** Signature version. */
+	@Param({ "SIGNATURE_V1", "SIGNATURE_V2" })
+	public Version version;
+
+	/** Number of properties, and links, per product. */
+	@Param({ "10", "1000" })
+	public int properties;
+
+	/** Size of each of the product's 4 contents, in bytes. */
+	@Param({ "1024", "1048576" })
+	public int contentSize;
+
+	private Product product;
+
+	@Setup
+	public void setup() throws Exception {
+		product = SyntheticProducts.create(properties, properties, 4,
+				contentSize);
+	}
+
+	@Benchmark
+	public byte[] digest() throws Exception {
+		// v2 uses content hashes, which content caches
+		return ProductDigest.digestProduct(SyntheticProducts.copy(product),
+				version);
+	}
+
+}
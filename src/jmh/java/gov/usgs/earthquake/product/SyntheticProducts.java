@@ -0,0 +1,120 @@
+package gov.usgs.earthquake.product;
+
+import java.net.URI;
+import java.net.URL;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Generate reproducible products for benchmarks.
+ *
+ * Products generated with the same arguments are identical, including ids,
+ * property values and content bytes.
+ */
+public class SyntheticProducts {
+
+	/** Default random seed. */
+	public static final long DEFAULT_SEED = 20210505L;
+
+	/**
+	 * Create a product using the default seed.
+	 *
+	 * @param properties number of properties.
+	 * @param links number of links.
+	 * @param contents number of contents.
+	 * @param contentSize size of each content, in bytes.
+	 * @return generated product.
+	 * @throws Exception if error occurs
+	 */
+	public static Product create(final int properties, final int links,
+			final int contents, final int contentSize) throws Exception {
+		return create(properties, links, contents, contentSize, DEFAULT_SEED);
+	}
+
+	/**
+	 * Create a product.
+	 *
+	 * Content is random bytes mixed with runs of text, so compression has
+	 * something to find. The first content uses the empty path, like inline
+	 * content.
+	 *
+	 * @param properties number of properties.
+	 * @param links number of links.
+	 * @param contents number of contents.
+	 * @param contentSize size of each content, in bytes.
+	 * @param seed random seed.
+	 * @return generated product.
+	 * @throws Exception if error occurs
+	 */
+	public static Product create(final int properties, final int links,
+			final int contents, final int contentSize, final long seed)
+			throws Exception {
+		final Random random = new Random(seed);
+		final Product product = new Product(new ProductId("us", "benchmark",
+				"us" + Math.abs(random.nextInt()), new Date(1600000000000L)));
+		product.setTrackerURL(new URL("http://localhost/tracker"));
+
+		for (int i = 0; i < properties; i++) {
+			product.getProperties().put("property-" + i,
+					Double.toString(random.nextDouble() * 1000));
+		}
+		for (int i = 0; i < links; i++) {
+			product.addLink("relation-" + (i % 5),
+					new URI("http://localhost/link/" + random.nextInt()));
+		}
+
+		final byte[] text = "<value>123.456</value>\n".getBytes("UTF-8");
+		for (int i = 0; i < contents; i++) {
+			final byte[] bytes = new byte[contentSize];
+			for (int offset = 0; offset < contentSize; offset += 64) {
+				if (random.nextBoolean()) {
+					System.arraycopy(text, 0, bytes, offset,
+							Math.min(text.length, contentSize - offset));
+				} else {
+					for (int j = offset; j < Math.min(offset + 16, contentSize); j++) {
+						bytes[j] = (byte) random.nextInt();
+					}
+				}
+			}
+			final ByteContent content = new ByteContent(bytes);
+			content.setContentType("application/octet-stream");
+			content.setLastModified(new Date(1600000000000L));
+			// first content is inline content
+			product.getContents().put(i == 0 ? "" : "content-" + i + ".bin",
+					content);
+		}
+		return product;
+	}
+
+	/**
+	 * Copy a product, using new byte content objects that wrap the same bytes.
+	 *
+	 * Content objects cache computed hashes, so benchmarks that compute
+	 * hashes should use a copy for each operation.
+	 *
+	 * @param product product created by this class.
+	 * @return copy of product.
+	 */
+	public static Product copy(final Product product) {
+		final Product copy = new Product(product);
+		final Map<String, Content> contents = new HashMap<String, Content>();
+		for (final Map.Entry<String, Content> entry : product.getContents()
+				.entrySet()) {
+			final Content content = entry.getValue();
+			if (content instanceof ByteContent) {
+				final ByteContent copyContent = new ByteContent(
+						((ByteContent) content).getByteArray());
+				copyContent.setContentType(content.getContentType());
+				copyContent.setLastModified(content.getLastModified());
+				contents.put(entry.getKey(), copyContent);
+			} else {
+				contents.put(entry.getKey(), content);
+			}
+		}
+		copy.setContents(contents);
+		return copy;
+	}
+
+}
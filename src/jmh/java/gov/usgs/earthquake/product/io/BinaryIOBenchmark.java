@@ -0,0 +1,108 @@
+package gov.usgs.earthquake.product.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compare BinaryIO and BufferedBinaryIO encoding of product headers.
+ *
+ * Each operation writes or reads the values BinaryProductHandler uses for a
+ * product with the given number of properties.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BinaryIOBenchmark {
+
+	/** BinaryIO implementation. */
+	@Param({ "BinaryIO", "BufferedBinaryIO" })
+	public String implementation;
+
+	/** Number of properties per product. */
+	@Param({ "10", "100" })
+	public int properties;
+
+	private BinaryIO io;
+	private String[] names;
+	private String[] values;
+	private ByteArrayOutputStream out;
+	private byte[] encoded;
+
+	@Setup
+	public void setup() throws IOException {
+		io = "BufferedBinaryIO".equals(implementation) ? new BufferedBinaryIO()
+				: new BinaryIO();
+		names = new String[properties];
+		values = new String[properties];
+		for (int i = 0; i < properties; i++) {
+			names[i] = "property-name-" + i;
+			values[i] = "property value " + i + " with some text";
+		}
+		out = new ByteArrayOutputStream(properties * 64 + 1024);
+		writeProduct();
+		encoded = out.toByteArray();
+	}
+
+	@Benchmark
+	public int write() throws IOException {
+		out.reset();
+		writeProduct();
+		return out.size();
+	}
+
+	@Benchmark
+	public void read(final Blackhole blackhole) throws IOException {
+		final ByteArrayInputStream in = new ByteArrayInputStream(encoded);
+		blackhole.consume(io.readString(in));
+		blackhole.consume(io.readString(in));
+		blackhole.consume(io.readString(in));
+		blackhole.consume(io.readString(in));
+		for (int i = 0; i < properties; i++) {
+			blackhole.consume(io.readString(in));
+			blackhole.consume(io.readString(in));
+			blackhole.consume(io.readString(in));
+		}
+		blackhole.consume(io.readString(in));
+		blackhole.consume(io.readString(in));
+		blackhole.consume(io.readString(in));
+		blackhole.consume(io.readDate(in));
+		blackhole.consume(io.readLong(in));
+	}
+
+	private void writeProduct() throws IOException {
+		io.writeString(BinaryProductHandler.HEADER, out);
+		io.writeString("urn:usgs-product:us:origin:us7000abcd:1234567890123", out);
+		io.writeString("UPDATE", out);
+		io.writeString("http://localhost/tracker", out);
+		for (int i = 0; i < properties; i++) {
+			io.writeString(BinaryProductHandler.PROPERTY, out);
+			io.writeString(names[i], out);
+			io.writeString(values[i], out);
+		}
+		io.writeString(BinaryProductHandler.CONTENT, out);
+		io.writeString("contents.xml", out);
+		io.writeString("application/xml", out);
+		io.writeDate(new Date(1234567890123L), out);
+		io.writeLong(0L, out);
+	}
+
+}
@@ -0,0 +1,131 @@
+package gov.usgs.earthquake.product.io;
+
+import gov.usgs.earthquake.product.Product;
+import gov.usgs.earthquake.product.SyntheticProducts;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare product serialization formats.
+ *
+ * Products are generated by SyntheticProducts, and written to and read from
+ * memory so disk and network do not affect results. Run with the gc profiler
+ * (configured in build.gradle) to also report allocation rate.
+ *
+ * Json embeds only inline content, so products have one inline content for
+ * every format. Zip is read from a temporary file, since ZipProductSource
+ * does not read streams. Content hashes are cached after the first write in
+ * setup, so hashing is not measured (see ProductDigestBenchmark).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ProductFormatBenchmark {
+
+	/** Serialization format. */
+	@Param({ "binary", "xml", "json", "zip" })
+	public String format;
+
+	/** Number of properties, and links, per product. */
+	@Param({ "10", "1000" })
+	public int properties;
+
+	/** Size of the product's inline content, in bytes. */
+	@Param({ "1024", "1048576" })
+	public int contentSize;
+
+	private Product product;
+	private ByteArrayOutputStream out;
+	private byte[] encoded;
+	private File zipFile;
+
+	@Setup
+	public void setup() throws Exception {
+		product = SyntheticProducts.create(properties, properties, 1,
+				contentSize);
+		out = new ByteArrayOutputStream();
+		write();
+		encoded = out.toByteArray();
+		if ("zip".equals(format)) {
+			zipFile = File.createTempFile("benchmark", ".zip");
+			Files.write(zipFile.toPath(), encoded);
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		if (zipFile != null) {
+			Files.deleteIfExists(zipFile.toPath());
+			zipFile = null;
+		}
+	}
+
+	@Benchmark
+	public int write() throws Exception {
+		out.reset();
+		new ObjectProductSource(product).streamTo(getHandler(out));
+		return out.size();
+	}
+
+	@Benchmark
+	public Product read() throws Exception {
+		return ObjectProductHandler.getProduct(getSource(encoded));
+	}
+
+	/**
+	 * @param out stream where product is written.
+	 * @return handler for format.
+	 */
+	protected ProductHandler getHandler(final OutputStream out) {
+		if ("binary".equals(format)) {
+			return new BinaryProductHandler(out);
+		} else if ("xml".equals(format)) {
+			return new XmlProductHandler(out);
+		} else if ("json".equals(format)) {
+			return new JsonProductHandler(out);
+		} else if ("zip".equals(format)) {
+			return new ZipProductHandler(out);
+		}
+		throw new IllegalArgumentException("unknown format " + format);
+	}
+
+	/**
+	 * @param bytes product written in format.
+	 * @return source for format.
+	 */
+	protected ProductSource getSource(final byte[] bytes) {
+		if ("binary".equals(format)) {
+			return new BinaryProductSource(new ByteArrayInputStream(bytes));
+		} else if ("xml".equals(format)) {
+			return new XmlProductSource(new ByteArrayInputStream(bytes));
+		} else if ("json".equals(format)) {
+			return new JsonProductSource(new ByteArrayInputStream(bytes));
+		} else if ("zip".equals(format)) {
+			// same bytes, written to zipFile in setup
+			return new ZipProductSource(zipFile);
+		}
+		throw new IllegalArgumentException("unknown format " + format);
+	}
+
+}
@@ -0,0 +1,87 @@
+package gov.usgs.earthquake.qdm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.json.Json;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import gov.usgs.earthquake.geoserve.RegionsJSON;
+import gov.usgs.util.StreamUtils;
+
+/**
+ * Compare indexed and linear authoritative region lookup.
+ *
+ * Each operation checks both the default network and one regional network
+ * at a point, the same calls DefaultIndexerModule makes for a product.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RegionsBenchmark {
+
+    /** GeoJSON ANSS regions file, relative to the project directory. */
+    @Param({ "etc/config/example_regions.json" })
+    public String regionsFile;
+
+    private static final int POINTS = 1024;
+
+    private Regions regions;
+    private Point[] points;
+    private String[] netids;
+    private int next;
+
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream in = StreamUtils.getInputStream(new File(regionsFile))) {
+            regions = new RegionsJSON().parseRegions(Json.createReader(in).readObject());
+        }
+        regions.buildIndex();
+        // half of points near a region vertex, half anywhere
+        final Random random = new Random(1234);
+        points = new Point[POINTS];
+        netids = new String[POINTS];
+        for (int i = 0; i < POINTS; i++) {
+            final Region region = regions.regions.get(random.nextInt(regions.regions.size()));
+            netids[i] = region.netid;
+            if (i % 2 == 0 && region.points.size() > 0) {
+                final Point p = region.points.get(random.nextInt(region.points.size()));
+                points[i] = new Point(p.x + random.nextDouble() - 0.5, p.y + random.nextDouble() - 0.5);
+            } else {
+                points[i] = new Point(random.nextDouble() * 360 - 180, random.nextDouble() * 180 - 90);
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean indexed() {
+        final int i = next++ & (POINTS - 1);
+        return regions.isAuthor(netids[i], points[i])
+                ^ regions.isAuthor(regions.defaultNetid, points[i]);
+    }
+
+    @Benchmark
+    public boolean linear() {
+        final int i = next++ & (POINTS - 1);
+        return regions.isAuthorLinear(netids[i], points[i])
+                ^ regions.isAuthorLinear(regions.defaultNetid, points[i]);
+    }
+
+}
@@ -16,6 +16,9 @@ import java.io.StringReader;
 import java.net.URI;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -48,6 +51,10 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
   public static final String CONNECT_TIMEOUT_PROPERTY = "connectTimeout";
   /** Variable for initialCatchUpAge string */
   public static final String INITIAL_CATCHUP_AGE_PROPERTY = "initialCatchUpAge";
+  /** Variable for trackingWriteCount string */
+  public static final String TRACKING_WRITE_COUNT_PROPERTY = "trackingWriteCount";
+  /** Variable for trackingWriteInterval string */
+  public static final String TRACKING_WRITE_INTERVAL_PROPERTY = "trackingWriteInterval";
 
   /** Variable for tracking file. Links to data/AwsReceiver.json */
   public static final String DEFAULT_TRACKING_FILE_NAME = "data/AwsReceiver.json";
@@ -57,6 +64,10 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
   public static final String DEFAULT_CONNECT_TIMEOUT = "1000";
   /** Variable for catchup age. Set to 7.0 */
   public static final String DEFAULT_INITIAL_CATCHUP_AGE = "7.0";
+  /** Variable for notifications between tracking writes. Set to 1 */
+  public static final String DEFAULT_TRACKING_WRITE_COUNT = "1";
+  /** Variable for milliseconds between tracking writes. Set to 0 */
+  public static final String DEFAULT_TRACKING_WRITE_INTERVAL = "0";
 
   private URI uri;
   private String trackingFileName;
@@ -93,6 +104,17 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
   /** last catch up message sent (for response timeouts) */
   protected Instant lastCatchUpSent = null;
 
+  /** number of notifications processed before writing tracking data. */
+  protected int trackingWriteCount = Integer.valueOf(DEFAULT_TRACKING_WRITE_COUNT);
+  /** milliseconds after which tracking data is written, 0 to use count only. */
+  protected long trackingWriteInterval = Long.valueOf(DEFAULT_TRACKING_WRITE_INTERVAL);
+  /** number of notifications processed since tracking data was written. */
+  protected final AtomicInteger unwrittenTrackingCount = new AtomicInteger(0);
+  /** when tracking data was last written. */
+  protected volatile Instant lastTrackingWrite = null;
+  /** timer that writes tracking data when trackingWriteInterval elapses. */
+  protected Timer trackingWriteTimer = null;
+
   @Override
   public void configure(Config config) throws Exception {
     super.configure(config);
@@ -104,6 +126,15 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
         config.getProperty(CONNECT_TIMEOUT_PROPERTY, DEFAULT_CONNECT_TIMEOUT));
     initialCatchUpAge = Double.valueOf(
         config.getProperty(INITIAL_CATCHUP_AGE_PROPERTY, DEFAULT_INITIAL_CATCHUP_AGE));
+    trackingWriteCount = Integer.parseInt(
+        config.getProperty(TRACKING_WRITE_COUNT_PROPERTY, DEFAULT_TRACKING_WRITE_COUNT));
+    trackingWriteInterval = Long.parseLong(
+        config.getProperty(TRACKING_WRITE_INTERVAL_PROPERTY, DEFAULT_TRACKING_WRITE_INTERVAL));
+    if (trackingWriteCount > 1 || trackingWriteInterval > 0) {
+      LOGGER.config("[" + getName() + "] writing tracking data every "
+          + trackingWriteCount + " notifications or "
+          + trackingWriteInterval + " ms");
+    }
 
     final String trackingIndexName = config.getProperty(TRACKING_INDEX_PROPERTY);
     if (trackingIndexName != null) {
@@ -250,9 +281,11 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
     receiveNotification(notification);
     // update tracking file
     this.createdAfter = notification.created;
-    writeTrackingData();
+    unwrittenTrackingCount.incrementAndGet();
+    flushTrackingDataIfDue();
     // send heartbeat
     HeartbeatListener.sendHeartbeatMessage(getName(), "createdAfter", createdAfter.toString());
+    HeartbeatListener.incrementHeartbeatCounter(getName(), "notifications");
   }
 
   /**
@@ -288,6 +321,8 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
     // notify background thread that a response was received,
     // as well as pausing messages until restarted below (if needed)
     stopCatchUp();
+    // write progress once per response
+    flushTrackingData();
 
     // check whether caught up
     if (
@@ -495,6 +530,8 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
 
     // start catch up process
     startCatchUpThread();
+    // write tracking data even when no more notifications arrive
+    startTrackingWriteTimer();
   }
 
   /**
@@ -505,10 +542,18 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
   public void shutdown() throws Exception {
     // stop catch up process
     stopCatchUpThread();
+    stopTrackingWriteTimer();
     // close socket
     try {
       client.shutdown();
     } catch (Exception e) {}
+    // write any pending tracking data
+    try {
+      flushTrackingData();
+    } catch (Exception e) {
+      LOGGER.log(Level.WARNING,
+          "[" + getName() + "] exception writing tracking data", e);
+    }
     super.shutdown();
   }
 
@@ -523,6 +568,90 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
     return trackingIndex.getTrackingData(getName());
   }
 
+  /**
+   * Check whether enough notifications or time have passed since tracking data
+   * was last written.
+   *
+   * @return true if tracking data should be written.
+   */
+  protected boolean isTrackingWriteDue() {
+    if (unwrittenTrackingCount.get() >= trackingWriteCount) {
+      return true;
+    }
+    if (trackingWriteInterval > 0) {
+      if (lastTrackingWrite == null) {
+        // start interval at first unwritten notification
+        lastTrackingWrite = Instant.now();
+      }
+      return !Instant.now().isBefore(
+          lastTrackingWrite.plusMillis(trackingWriteInterval));
+    }
+    return false;
+  }
+
+  /**
+   * Writes tracking file if enough notifications or time have passed.
+   *
+   * @throws Exception Exception
+   */
+  public synchronized void flushTrackingDataIfDue() throws Exception {
+    if (unwrittenTrackingCount.get() > 0 && isTrackingWriteDue()) {
+      flushTrackingData();
+    }
+  }
+
+  /**
+   * Start timer that writes pending tracking data once trackingWriteInterval
+   * has passed, so the last notifications of a burst are not left unwritten.
+   *
+   * Does nothing when trackingWriteInterval is not positive.
+   */
+  protected synchronized void startTrackingWriteTimer() {
+    stopTrackingWriteTimer();
+    if (trackingWriteInterval <= 0) {
+      return;
+    }
+    trackingWriteTimer = new Timer(getName() + " tracking write", true);
+    trackingWriteTimer.schedule(new TimerTask() {
+      @Override
+      public void run() {
+        try {
+          flushTrackingDataIfDue();
+        } catch (Exception e) {
+          LOGGER.log(Level.WARNING,
+              "[" + getName() + "] exception writing tracking data", e);
+        }
+      }
+    }, trackingWriteInterval, trackingWriteInterval);
+  }
+
+  /**
+   * Stop timer started by startTrackingWriteTimer.
+   */
+  protected synchronized void stopTrackingWriteTimer() {
+    if (trackingWriteTimer != null) {
+      trackingWriteTimer.cancel();
+      trackingWriteTimer = null;
+    }
+  }
+
+  /**
+   * Writes tracking file if any processed notifications have not been written.
+   *
+   * Tracking data is only written after notifications are processed,
+   * so a restart may repeat (but not skip) notifications.
+   *
+   * @throws Exception Exception
+   */
+  public synchronized void flushTrackingData() throws Exception {
+    if (unwrittenTrackingCount.get() == 0 || createdAfter == null) {
+      return;
+    }
+    writeTrackingData();
+    unwrittenTrackingCount.set(0);
+    lastTrackingWrite = Instant.now();
+  }
+
   /**
    * Writes tracking file.
    *
@@ -585,6 +714,38 @@ public class AwsProductReceiver extends DefaultNotificationReceiver implements R
     this.createdAfter = createdAfter;
   }
 
+  /**
+   * Getter for trackingWriteCount
+   * @return number of notifications between tracking writes
+   */
+  public int getTrackingWriteCount() {
+    return trackingWriteCount;
+  }
+
+  /**
+   * Setter for trackingWriteCount
+   * @param trackingWriteCount number of notifications between tracking writes
+   */
+  public void setTrackingWriteCount(final int trackingWriteCount) {
+    this.trackingWriteCount = trackingWriteCount;
+  }
+
+  /**
+   * Getter for trackingWriteInterval
+   * @return milliseconds between tracking writes
+   */
+  public long getTrackingWriteInterval() {
+    return trackingWriteInterval;
+  }
+
+  /**
+   * Setter for trackingWriteInterval
+   * @param trackingWriteInterval milliseconds between tracking writes
+   */
+  public void setTrackingWriteInterval(final long trackingWriteInterval) {
+    this.trackingWriteInterval = trackingWriteInterval;
+  }
+
   /**
    * Getter for attempts
    * @return attempts
@@ -12,6 +12,7 @@ import gov.usgs.util.Config;
 import gov.usgs.util.CryptoUtils;
 import gov.usgs.util.DefaultConfigurable;
 import gov.usgs.util.FileUtils;
+import gov.usgs.util.HttpClient;
 import gov.usgs.util.StreamUtils;
 import gov.usgs.util.XmlUtils;
 import java.io.File;
@@ -21,8 +22,15 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.security.PrivateKey;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.json.Json;
@@ -40,6 +48,23 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
   public static final String PRIVATE_KEY_PROPERTY = "privateKey";
   /** Whether to sign products using private key. */
   public static final String SIGN_PRODUCTS_PROPERTY = "signProducts";
+  /** Number of contents to upload at the same time. */
+  public static final String UPLOAD_THREADS_PROPERTY = "uploadThreads";
+  /** Number of times to retry hub requests and uploads after server errors. */
+  public static final String MAX_RETRIES_PROPERTY = "maxRetries";
+  /** Initial delay in milliseconds before retrying, doubled for each retry. */
+  public static final String RETRY_DELAY_PROPERTY = "retryDelay";
+  /** Maximum delay in milliseconds before retrying. */
+  public static final String MAX_RETRY_DELAY_PROPERTY = "maxRetryDelay";
+
+  /** Default number of upload threads. Set to 10 */
+  public static final String DEFAULT_UPLOAD_THREADS = "10";
+  /** Default number of retries. Set to 3 */
+  public static final String DEFAULT_MAX_RETRIES = "3";
+  /** Default initial retry delay. Set to 1000 ms */
+  public static final String DEFAULT_RETRY_DELAY = "1000";
+  /** Default maximum retry delay. Set to 30000 ms */
+  public static final String DEFAULT_MAX_RETRY_DELAY = "30000";
 
   /**url where products are sent */
   protected URL hubUrl;
@@ -53,6 +78,17 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
   /** Server-side timeout. Called at getInputStream().read() */
   protected int readTimeout = 30000;
 
+  /** Number of contents to upload at the same time. */
+  protected int uploadThreads = Integer.valueOf(DEFAULT_UPLOAD_THREADS);
+  /** Number of retries after server errors. */
+  protected int maxRetries = Integer.valueOf(DEFAULT_MAX_RETRIES);
+  /** Initial retry delay in milliseconds. */
+  protected long retryDelay = Long.valueOf(DEFAULT_RETRY_DELAY);
+  /** Maximum retry delay in milliseconds. */
+  protected long maxRetryDelay = Long.valueOf(DEFAULT_MAX_RETRY_DELAY);
+  /** Executor for content uploads, created when first needed. */
+  protected ExecutorService uploadExecutor;
+
   /** Empty class constructor */
   public AwsProductSender() {}
 
@@ -81,6 +117,22 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
       LOGGER.config("[" + getName() + "] private key=" + key);
     }
 
+    uploadThreads = Integer.parseInt(
+        config.getProperty(UPLOAD_THREADS_PROPERTY, DEFAULT_UPLOAD_THREADS));
+    if (uploadThreads < 1) {
+      throw new ConfigurationException("[" + getName() + "] " + UPLOAD_THREADS_PROPERTY
+          + " must be at least 1");
+    }
+    maxRetries = Integer.parseInt(
+        config.getProperty(MAX_RETRIES_PROPERTY, DEFAULT_MAX_RETRIES));
+    retryDelay = Long.parseLong(
+        config.getProperty(RETRY_DELAY_PROPERTY, DEFAULT_RETRY_DELAY));
+    maxRetryDelay = Long.parseLong(
+        config.getProperty(MAX_RETRY_DELAY_PROPERTY, DEFAULT_MAX_RETRY_DELAY));
+    LOGGER.config("[" + getName() + "] upload threads=" + uploadThreads
+        + ", max retries=" + maxRetries
+        + ", retry delay=" + retryDelay + "-" + maxRetryDelay + " ms");
+
     if (signProducts && privateKey == null) {
       // no key configured
       throw new ConfigurationException("[" + getName() + "] " + SIGN_PRODUCTS_PROPERTY
@@ -107,7 +159,7 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
       product.sign(privateKey, CryptoUtils.Version.SIGNATURE_V2);
     }
     // convert to json
-    JsonObject json = new JsonProduct().getJsonObject(product);
+    final JsonObject json = new JsonProduct().getJsonObject(product);
 
     final long start = new Date().getTime();
     final long afterUploadContent;
@@ -121,47 +173,16 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
       ) {
         LOGGER.fine("Getting upload urls for " + json.toString());
         // get upload urls, response is product with signed content urls for upload
-        Product uploadProduct;
-        try {
-          uploadProduct = getUploadUrls(json);
-        } catch (HttpException e) {
-          HttpURLConnection connection = e.response.connection;
-          // check for server error
-          if (connection.getResponseCode() >= 500) {
-            LOGGER.log(Level.FINE,
-                "[" + getName() + "] get upload urls exception, trying again", e);
-            // try again after random back off (1-5 s)
-            Thread.sleep(1000 + Math.round(4000 * Math.random()));
-            uploadProduct = getUploadUrls(json);
-          } else {
-            // otherwise propagate exception as usual
-            throw e;
-          }
-        }
+        final Product uploadProduct = retry(
+            "get upload urls " + id.toString(),
+            () -> getUploadUrls(json));
 
         final long afterGetUploadUrls = new Date().getTime();
         LOGGER.fine("[" + getName() + "] get upload urls " + id.toString()
             + " (" + (afterGetUploadUrls - start) + " ms) ");
 
-        // upload contents
-        try {
-          uploadContents(product, uploadProduct);
-        } catch (HttpException e) {
-          HttpURLConnection connection = e.response.connection;
-          // check for S3 "503 Slow Down" error
-          if (
-            503 == connection.getResponseCode()
-            && "Slow Down".equals(connection.getResponseMessage())
-          ) {
-            LOGGER.fine("[" + getName() + "] 503 slow down exception, trying again");
-            // try again after random back off (1-5 s)
-            Thread.sleep(1000 + Math.round(4000 * Math.random()));
-            uploadContents(product, uploadProduct);
-          } else {
-            // otherwise propagate exception as usual
-            throw e;
-          }
-        }
+        // upload contents, each content is retried separately
+        uploadContents(product, uploadProduct);
 
         afterUploadContent = new Date().getTime();
         LOGGER.fine("[" + getName() + "] upload contents " + id.toString()
@@ -170,23 +191,8 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
         afterUploadContent = new Date().getTime();
       }
 
-      try {
-        // send product
-        sendProduct(json);
-      } catch (HttpException e) {
-        HttpURLConnection connection = e.response.connection;
-        // check for server error
-        if (connection.getResponseCode() >= 500) {
-          LOGGER.log(Level.FINE,
-              "[" + getName() + "] send product exception, trying again", e);
-          // try again after random back off (1-5 s)
-          Thread.sleep(1000 + Math.round(4000 * Math.random()));
-          sendProduct(json);
-        } else {
-          // otherwise propagate exception as usual
-          throw e;
-        }
-      }
+      // send product
+      retry("send product " + id.toString(), () -> sendProduct(json));
 
       final long afterSendProduct = new Date().getTime();
       LOGGER.fine("[" + getName() + "] send product " + id.toString()
@@ -204,6 +210,68 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
     }
   }
 
+  /**
+   * Call a hub request or upload, retrying after server errors.
+   *
+   * Server errors (5xx, including S3 "503 Slow Down") are retried up to
+   * maxRetries times, with exponential backoff and jitter between attempts.
+   * Other exceptions are propagated immediately.
+   *
+   * @param <T> result type.
+   * @param description description of call, for logging.
+   * @param call call to make.
+   * @return result of call.
+   * @throws Exception if call fails and is not retried.
+   */
+  protected <T> T retry(final String description, final Callable<T> call)
+      throws Exception {
+    int attempt = 0;
+    while (true) {
+      try {
+        return call.call();
+      } catch (HttpException e) {
+        if (attempt >= maxRetries || !isRetryable(e)) {
+          throw e;
+        }
+        final long delay = getRetryDelay(attempt);
+        attempt++;
+        LOGGER.log(Level.FINE, "[" + getName() + "] " + description
+            + " exception, retry " + attempt + " in " + delay + " ms", e);
+        Thread.sleep(delay);
+      }
+    }
+  }
+
+  /**
+   * Check whether a failed request should be retried.
+   *
+   * @param e exception from request.
+   * @return true for server errors.
+   */
+  protected boolean isRetryable(final HttpException e) {
+    try {
+      return e.response.connection.getResponseCode() >= 500;
+    } catch (Exception e2) {
+      return false;
+    }
+  }
+
+  /**
+   * Get delay before retrying.
+   *
+   * Delay doubles with each attempt, up to maxRetryDelay,
+   * and a random jitter of up to half the delay is subtracted
+   * so concurrent uploads do not retry at the same time.
+   *
+   * @param attempt number of previous retries.
+   * @return milliseconds to wait.
+   */
+  protected long getRetryDelay(final int attempt) {
+    final long delay = Math.min(maxRetryDelay, retryDelay << Math.min(attempt, 20));
+    final long jitter = delay / 2;
+    return delay - jitter + ThreadLocalRandom.current().nextLong(jitter + 1);
+  }
+
   /**
    * Get content upload urls.
    *
@@ -247,16 +315,17 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
   protected HttpResponse postProductJson(final URL url, final JsonObject product) throws Exception {
     // send as attribute, for extensibility
     final JsonObject json = Json.createObjectBuilder().add("product", product).build();
-    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-    connection.setConnectTimeout(connectTimeout);
-    connection.setReadTimeout(readTimeout);
-    connection.setDoOutput(true);
-    connection.setRequestMethod("POST");
-    connection.setRequestProperty("Content-Type", "application/json");
-    try (final OutputStream out = connection.getOutputStream()) {
-      out.write(json.toString().getBytes());
-    }
-    return new HttpResponse(connection);
+    return HttpClient.getDefault().execute(url, connectTimeout, readTimeout,
+        (conn) -> {
+          final HttpURLConnection connection = (HttpURLConnection) conn;
+          connection.setDoOutput(true);
+          connection.setRequestMethod("POST");
+          connection.setRequestProperty("Content-Type", "application/json");
+          try (final OutputStream out = connection.getOutputStream()) {
+            out.write(json.toString().getBytes());
+          }
+          return new HttpResponse(connection);
+        });
   }
 
   /**
@@ -311,26 +380,27 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
   protected HttpResponse uploadContent(final String path, final Content content, final URL signedUrl)
       throws Exception {
     final long start = new Date().getTime();
-    final HttpURLConnection connection = (HttpURLConnection) signedUrl.openConnection();
-    connection.setDoOutput(true);
-    connection.setConnectTimeout(connectTimeout);
-    connection.setReadTimeout(readTimeout);
-    // these values are part of signed url and are required
-    connection.setRequestMethod("PUT");
-    connection.addRequestProperty("Content-Length", content.getLength().toString());
-    connection.addRequestProperty("Content-Type", content.getContentType());
-    connection.addRequestProperty(
-        "x-amz-meta-modified", XmlUtils.formatDate(content.getLastModified()));
-    connection.addRequestProperty("x-amz-meta-sha256", content.getSha256());
-
-    // send content
-    try (final InputStream in = content.getInputStream();
-        final OutputStream out = connection.getOutputStream()) {
-      StreamUtils.transferStream(in, out);
-    }
-    final HttpResponse result = new HttpResponse(connection);
+    final HttpResponse result = HttpClient.getDefault().execute(
+        signedUrl, connectTimeout, readTimeout, (conn) -> {
+          final HttpURLConnection connection = (HttpURLConnection) conn;
+          connection.setDoOutput(true);
+          // these values are part of signed url and are required
+          connection.setRequestMethod("PUT");
+          connection.addRequestProperty("Content-Length", content.getLength().toString());
+          connection.addRequestProperty("Content-Type", content.getContentType());
+          connection.addRequestProperty(
+              "x-amz-meta-modified", XmlUtils.formatDate(content.getLastModified()));
+          connection.addRequestProperty("x-amz-meta-sha256", content.getSha256());
+
+          // send content
+          try (final InputStream in = content.getInputStream();
+              final OutputStream out = connection.getOutputStream()) {
+            StreamUtils.transferStream(in, out);
+          }
+          return new HttpResponse(connection);
+        });
     final long elapsed = (new Date().getTime() - start);
-    if (connection.getResponseCode() != 200) {
+    if (result.connection.getResponseCode() != 200) {
       throw new HttpException(result, "Error uploading content "
           + path + " (" + elapsed + " ms)");
     }
@@ -348,11 +418,8 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
   /**
    * Upload product contents.
    *
-   * Runs uploads in parallel using a parallel stream.
-   *
-   * This can be called within a custom ForkJoinPool to use a non-default pool,
-   * the default pool is shared by the process and based on number of available
-   * cores.
+   * Runs at most uploadThreads uploads at the same time,
+   * and retries each content separately after server errors.
    *
    * @param product product to upload.
    * @param uploadProduct product with signed upload urls.
@@ -361,45 +428,107 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
    */
   protected Map<String, HttpResponse> uploadContents(
       final Product product, final Product uploadProduct) throws Exception {
+    final String id = product.getId().toString();
+    final ExecutorService executor = getUploadExecutor();
     // collect results
-    final ConcurrentHashMap<String, HttpResponse> uploadResults =
-        new ConcurrentHashMap<String, HttpResponse>();
-    final ConcurrentHashMap<String, Exception> uploadExceptions =
-        new ConcurrentHashMap<String, Exception>();
-    // upload contents in parallel
-    uploadProduct.getContents().keySet().parallelStream()
-        .filter(path -> !"".equals(path))
-        .forEach(
-            path -> {
-              try {
-                Content uploadContent = uploadProduct.getContents().get(path);
-                if (!(uploadContent instanceof URLContent)) {
-                  throw new IllegalStateException(
-                      "Expected URLContent for " + product.getId().toString()
-                      + " path '" + path + "' but got " + uploadContent);
-                }
-                uploadResults.put(
-                    path,
-                    uploadContent(
-                        path,
-                        product.getContents().get(path),
-                        ((URLContent) uploadContent).getURL()));
-              } catch (Exception e) {
-                uploadExceptions.put(path, e);
-              }
-            });
-    if (uploadExceptions.size() > 0) {
-      Exception e = null;
-      // log all
-      for (final String path : uploadExceptions.keySet()) {
-        e = uploadExceptions.get(path);
-        LOGGER.log(Level.WARNING, "Exception uploading content " + path, e);
+    final Map<String, HttpResponse> uploadResults =
+        new LinkedHashMap<String, HttpResponse>();
+    final Map<String, Long> uploadTimes =
+        new ConcurrentHashMap<String, Long>();
+    final Map<String, Future<HttpResponse>> uploads =
+        new LinkedHashMap<String, Future<HttpResponse>>();
+    long totalBytes = 0L;
+    for (final String path : uploadProduct.getContents().keySet()) {
+      if ("".equals(path)) {
+        continue;
+      }
+      final Content uploadContent = uploadProduct.getContents().get(path);
+      if (!(uploadContent instanceof URLContent)) {
+        throw new IllegalStateException(
+            "Expected URLContent for " + id
+            + " path '" + path + "' but got " + uploadContent);
+      }
+      final Content content = product.getContents().get(path);
+      totalBytes += content.getLength();
+      uploads.put(path, executor.submit(() -> {
+        final long start = new Date().getTime();
+        final HttpResponse result = retry(
+            "upload content " + id + " path " + path,
+            () -> uploadContent(path, content, ((URLContent) uploadContent).getURL()));
+        uploadTimes.put(path, new Date().getTime() - start);
+        return result;
+      }));
+    }
+
+    // wait for uploads
+    Exception e = null;
+    try {
+      for (final String path : uploads.keySet()) {
+        try {
+          uploadResults.put(path, uploads.get(path).get());
+        } catch (ExecutionException ee) {
+          e = (ee.getCause() instanceof Exception)
+              ? (Exception) ee.getCause()
+              : ee;
+          // log all
+          LOGGER.log(Level.WARNING, "Exception uploading content " + path, e);
+        }
+      }
+    } finally {
+      // stop remaining uploads if interrupted
+      for (final Future<HttpResponse> upload : uploads.values()) {
+        upload.cancel(true);
       }
+    }
+    if (e != null) {
       // throw last
       throw e;
     }
+
+    if (LOGGER.isLoggable(Level.FINE) && uploadTimes.size() > 0) {
+      String slowestPath = null;
+      long slowestTime = -1L;
+      for (final Map.Entry<String, Long> entry : uploadTimes.entrySet()) {
+        if (entry.getValue() > slowestTime) {
+          slowestPath = entry.getKey();
+          slowestTime = entry.getValue();
+        }
+      }
+      LOGGER.fine("[" + getName() + "] uploaded " + uploadTimes.size()
+          + " contents " + id + " (size= " + totalBytes + " bytes)"
+          + " (slowest= " + slowestPath + ", " + slowestTime + " ms)");
+    }
     return uploadResults;
   }
+
+  /**
+   * Get executor for content uploads, creating it if needed.
+   *
+   * Threads are daemon threads, so senders that are not shutdown
+   * do not prevent the process from exiting.
+   *
+   * @return executor with uploadThreads threads.
+   */
+  protected synchronized ExecutorService getUploadExecutor() {
+    if (uploadExecutor == null) {
+      uploadExecutor = Executors.newFixedThreadPool(uploadThreads, (runnable) -> {
+        final Thread thread = new Thread(runnable, "AwsProductSender-upload");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+    return uploadExecutor;
+  }
+
+  @Override
+  public synchronized void shutdown() throws Exception {
+    if (uploadExecutor != null) {
+      uploadExecutor.shutdown();
+      uploadExecutor = null;
+    }
+    super.shutdown();
+  }
+
   /** Getter for signProducts
    * @return boolean
    */
@@ -428,4 +557,64 @@ public class AwsProductSender extends DefaultConfigurable implements ProductSend
     this.privateKey = key;
   }
 
+  /** getter for uploadThreads
+   * @return uploadThreads
+   */
+  public int getUploadThreads() {
+    return uploadThreads;
+  }
+
+  /** setter for uploadThreads, used by uploads started after this call
+   * @param uploadThreads number of concurrent uploads
+   */
+  public synchronized void setUploadThreads(final int uploadThreads) {
+    this.uploadThreads = uploadThreads;
+    if (uploadExecutor != null) {
+      uploadExecutor.shutdown();
+      uploadExecutor = null;
+    }
+  }
+
+  /** getter for maxRetries
+   * @return maxRetries
+   */
+  public int getMaxRetries() {
+    return maxRetries;
+  }
+
+  /** setter for maxRetries
+   * @param maxRetries number of retries after server errors
+   */
+  public void setMaxRetries(final int maxRetries) {
+    this.maxRetries = maxRetries;
+  }
+
+  /** getter for retryDelay
+   * @return retryDelay
+   */
+  public long getRetryDelay() {
+    return retryDelay;
+  }
+
+  /** setter for retryDelay
+   * @param retryDelay initial retry delay in milliseconds
+   */
+  public void setRetryDelay(final long retryDelay) {
+    this.retryDelay = retryDelay;
+  }
+
+  /** getter for maxRetryDelay
+   * @return maxRetryDelay
+   */
+  public long getMaxRetryDelay() {
+    return maxRetryDelay;
+  }
+
+  /** setter for maxRetryDelay
+   * @param maxRetryDelay maximum retry delay in milliseconds
+   */
+  public void setMaxRetryDelay(final long maxRetryDelay) {
+    this.maxRetryDelay = maxRetryDelay;
+  }
+
 }
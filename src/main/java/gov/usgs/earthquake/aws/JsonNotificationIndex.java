@@ -11,7 +11,10 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 
@@ -599,6 +602,170 @@ public class JsonNotificationIndex
     return new ArrayList<Notification>();
   }
 
+  /**
+   * Iterate over all notifications, loading one page at a time.
+   *
+   * Pages are loaded in id order, so memory use is limited by pageSize.
+   * Like findNotifications for all notifications, returns
+   * DefaultNotifications, and only one notification for each product id,
+   * from the row with the largest id.
+   *
+   * @param pageSize number of notifications to load at a time.
+   * @return iterator over notifications.
+   */
+  @Override
+  public Iterator<Notification> iterateNotifications(final int pageSize) {
+    return new NotificationPageIterator(null, pageSize);
+  }
+
+  /**
+   * Iterate over notifications present in this index but not present in
+   * another JsonNotificationIndex table in the same database, loading one page
+   * at a time.
+   *
+   * @param otherTable
+   *     name of table in same database.
+   * @param pageSize
+   *     number of notifications to load at a time.
+   * @return iterator over notifications in this indexes table, but not in the
+   *     other table.
+   * @see #getMissingNotifications(String)
+   */
+  public Iterator<Notification> iterateMissingNotifications(
+      final String otherTable, final int pageSize) {
+    return new NotificationPageIterator(otherTable, pageSize);
+  }
+
+  /**
+   * Load a page of notifications.
+   *
+   * @param otherTable
+   *     when not null, only notifications missing from this table.
+   * @param afterId
+   *     only notifications with id greater than this id.
+   * @param limit
+   *     maximum number of notifications to load.
+   * @return map of notifications by id, in id order.
+   * @throws Exception if error occurs
+   */
+  protected synchronized LinkedHashMap<Long, Notification> getNotificationPage(
+      final String otherTable, final long afterId, final int limit)
+      throws Exception {
+    // return default notifications, since full details are not needed
+    // during requeue
+    String sql = "SELECT t.id"
+        + ", '' as created, t.expires, t.source, t.type, t.code, t.updateTime"
+        + ", '' as url, null as data"
+        + " FROM " + this.table + " t"
+        + " WHERE t.id > ?"
+        // one notification per product, like SELECT DISTINCT
+        + " AND NOT EXISTS ("
+          + "SELECT * FROM " + this.table + " d"
+            + " WHERE d.source=t.source AND d.type=t.type"
+            + " AND d.code=t.code AND d.updateTime=t.updateTime"
+            + " AND d.id > t.id"
+        + ")";
+    if (otherTable != null) {
+      sql += " AND NOT EXISTS ("
+          + "SELECT * FROM " + otherTable
+            + " WHERE source=t.source AND type=t.type"
+            + " AND code=t.code AND updatetime=t.updateTime"
+          + ")";
+    }
+    sql += " ORDER BY t.id LIMIT ?";
+    final LinkedHashMap<Long, Notification> page =
+        new LinkedHashMap<Long, Notification>();
+    // prepare statement
+    beginTransaction();
+    try (final PreparedStatement statement = getConnection().prepareStatement(sql)) {
+      try {
+        statement.setQueryTimeout(1800);
+        statement.setLong(1, afterId);
+        statement.setInt(2, limit);
+        try (final ResultSet rs = statement.executeQuery()) {
+          while (rs.next()) {
+            page.put(rs.getLong("id"), parseNotification(
+                rs.getString("created"),
+                rs.getString("expires"),
+                rs.getString("source"),
+                rs.getString("type"),
+                rs.getString("code"),
+                rs.getLong("updatetime"),
+                rs.getString("url"),
+                rs.getString("data")));
+          }
+        }
+        commitTransaction();
+      } catch (SQLException e) {
+        LOGGER.log(Level.WARNING, "Exception finding notifications", e);
+        try {
+          // otherwise roll back
+          rollbackTransaction();
+        } catch (SQLException e2) {
+          // ignore
+        }
+        throw e;
+      }
+    }
+    return page;
+  }
+
+  /**
+   * Iterator that loads notifications one page at a time, using the id of the
+   * last notification in each page to load the next page.
+   */
+  private class NotificationPageIterator implements Iterator<Notification> {
+    /** When not null, only notifications missing from this table. */
+    private final String otherTable;
+    /** Number of notifications to load at a time. */
+    private final int pageSize;
+    /** Id of last loaded notification. */
+    private long lastId = 0L;
+    /** Current page. */
+    private Iterator<Notification> page = null;
+    /** Whether the current page is the last page. */
+    private boolean lastPage = false;
+
+    public NotificationPageIterator(final String otherTable, final int pageSize) {
+      if (pageSize < 1) {
+        throw new IllegalArgumentException("pageSize must be at least 1");
+      }
+      this.otherTable = otherTable;
+      this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (page != null && page.hasNext()) {
+        return true;
+      }
+      if (lastPage) {
+        return false;
+      }
+      final LinkedHashMap<Long, Notification> next;
+      try {
+        next = getNotificationPage(otherTable, lastId, pageSize);
+      } catch (Exception e) {
+        throw new RuntimeException("Exception loading notifications after id="
+            + lastId, e);
+      }
+      for (final Long id : next.keySet()) {
+        lastId = id;
+      }
+      lastPage = next.size() < pageSize;
+      page = next.values().iterator();
+      return page.hasNext();
+    }
+
+    @Override
+    public Notification next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      return page.next();
+    }
+  }
+
   /**
    * Parse notifications from a statement ready to be executed.
    * @param ps PreparedStatement to be parsed
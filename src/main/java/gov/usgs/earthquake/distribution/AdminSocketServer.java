@@ -98,6 +98,8 @@ public class AdminSocketServer extends DefaultConfigurable implements
 		String s = line.trim();
 		if (s.equals("status")) {
 			out.write(getStatus().getBytes());
+		} else if (s.equals("heartbeat")) {
+			out.write((HeartbeatListener.formatHeartbeats() + "\n").getBytes());
 		} else if (s.startsWith("reprocess")) {
 			out.write(("Reprocess not yet supported").getBytes());
 			// reprocess(out, s.replace("reprocess", "").split(" "));
@@ -108,6 +110,7 @@ public class AdminSocketServer extends DefaultConfigurable implements
 			throw new Exception("Bye");
 		} else {
 			out.write(("Help:\n" + "status - show server status\n"
+					+ "heartbeat - show heartbeat statuses, counters, and gauges\n"
 					+ "SOON search [source=SOURCE] [type=TYPE] [code=CODE]\n"
 					+ "SOON reprocess listener=LISTENER id=PRODUCTID")
 					.getBytes());
@@ -132,6 +135,17 @@ public class AdminSocketServer extends DefaultConfigurable implements
 					}
 				}
 			}
+			if (receiver instanceof SocketProductReceiver) {
+				SocketProductReceiver socketReceiver = (SocketProductReceiver) receiver;
+				buf.append(receiver.getName()).append(" - active connections = ")
+						.append(socketReceiver.getActiveConnections()).append("\n");
+				buf.append(receiver.getName()).append(" - rejected connections = ")
+						.append(socketReceiver.getRejectedCount()).append("\n");
+				buf.append(receiver.getName()).append(" - busy refusals = ")
+						.append(socketReceiver.getBusyCount()).append("\n");
+				buf.append(receiver.getName()).append(" - bytes received = ")
+						.append(socketReceiver.getBytesReceived()).append("\n");
+			}
 		}
 
 		String status = buf.toString();
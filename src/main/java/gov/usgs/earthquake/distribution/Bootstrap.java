@@ -5,7 +5,9 @@ package gov.usgs.earthquake.distribution;
 
 import gov.usgs.util.Config;
 import gov.usgs.util.Configurable;
+import gov.usgs.util.HttpClient;
 import gov.usgs.util.StreamUtils;
+import gov.usgs.util.logging.AsyncLogFileHandler;
 import gov.usgs.util.logging.LoggingOutputStream;
 import gov.usgs.util.logging.SimpleLogFileHandler;
 import gov.usgs.util.logging.SimpleLogFormatter;
@@ -79,6 +81,17 @@ public class Bootstrap {
 	/** Default log file pattern is "yyyyMMdd'.log'". */
 	public static final String DEFAULT_LOGFILE = "yyyyMMdd'.log'";
 
+	/** Property for whether log files are written from a background thread. */
+	public static final String LOGASYNC_PROPERTY_NAME = "logasync";
+	/** Default log async value is "true". */
+	public static final String DEFAULT_LOGASYNC = "true";
+
+	/** Property for number of log records queued before dropping. */
+	public static final String LOGQUEUESIZE_PROPERTY_NAME = "logqueuesize";
+	/** Default log queue size. */
+	public static final String DEFAULT_LOGQUEUESIZE = Integer.toString(
+			AsyncLogFileHandler.DEFAULT_QUEUE_SIZE);
+
 	/** Property for console redirect. */
 	public static final String CONSOLEREDIRECT_PROPERTY_NAME = "redirectconsole";
 	/** Default console redirect value is "false" (don't redirect). */
@@ -87,6 +100,17 @@ public class Bootstrap {
 	/** Property used to disable tracker updates. */
 	public static final String ENABLE_TRACKER_PROPERTY_NAME = "enableTracker";
 
+	/** Property for whether tracker updates are sent in the background. */
+	public static final String TRACKER_ASYNC_PROPERTY_NAME = "trackerAsync";
+
+	/** Milliseconds to wait for queued tracker updates at exit. */
+	public static final long TRACKER_FLUSH_TIMEOUT = 5000L;
+
+	/** Property for maximum http connections per host, unlimited by default. */
+	public static final String HTTP_MAX_CONNECTIONS_PROPERTY_NAME = "httpMaxConnectionsPerHost";
+	/** Property for whether to request gzip http transfer encoding. */
+	public static final String HTTP_GZIP_PROPERTY_NAME = "httpGzip";
+
 	/** Argument for mainclass. */
 	public static final String MAINCLASS_ARGUMENT = "--mainclass=";
 	/** Property for mainclass. */
@@ -200,8 +224,19 @@ public class Bootstrap {
 
 			// filepattern, maxBytesPerFile, maxFiles, append
 			// FileHandler handler = new FileHandler(logFile, 100000, 10, true);
-			Handler handler = new SimpleLogFileHandler(logDirectoryFile,
-					new SimpleDateFormat(DEFAULT_LOGFILE));
+			Handler handler;
+			if (Boolean.valueOf(config.getProperty(LOGASYNC_PROPERTY_NAME,
+					DEFAULT_LOGASYNC))) {
+				int queueSize = Integer.parseInt(config.getProperty(
+						LOGQUEUESIZE_PROPERTY_NAME, DEFAULT_LOGQUEUESIZE));
+				LOGGER.config("Log queue size " + queueSize);
+				handler = new AsyncLogFileHandler(logDirectoryFile,
+						new SimpleDateFormat(DEFAULT_LOGFILE), queueSize,
+						AsyncLogFileHandler.DEFAULT_FLUSH_INTERVAL);
+			} else {
+				handler = new SimpleLogFileHandler(logDirectoryFile,
+						new SimpleDateFormat(DEFAULT_LOGFILE));
+			}
 			handler.setLevel(level);
 			rootLogger.addHandler(handler);
 		} catch (Exception e) {
@@ -296,6 +331,35 @@ public class Bootstrap {
 			LOGGER.warning("Enabled tracker updates,"
 					+ " this is usually not a good idea.");
 			ProductTracker.setTrackerEnabled(true);
+
+			String trackerAsyncProperty = config
+					.getProperty(TRACKER_ASYNC_PROPERTY_NAME);
+			if (trackerAsyncProperty != null) {
+				ProductTracker.setTrackerAsync(
+						Boolean.valueOf(trackerAsyncProperty));
+			}
+			// send queued tracker updates before exiting
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				public void run() {
+					try {
+						ProductTrackerQueue.shutdownDefault(TRACKER_FLUSH_TIMEOUT);
+					} catch (Exception e) {
+						// ignore
+					}
+				}
+			});
+		}
+
+		// configure shared http client, before any connections are made
+		String httpMaxConnections = config
+				.getProperty(HTTP_MAX_CONNECTIONS_PROPERTY_NAME);
+		if (httpMaxConnections != null) {
+			HttpClient.getDefault().setMaxConnectionsPerHost(
+					Integer.parseInt(httpMaxConnections));
+		}
+		String httpGzip = config.getProperty(HTTP_GZIP_PROPERTY_NAME);
+		if (httpGzip != null) {
+			HttpClient.getDefault().setGzip(Boolean.valueOf(httpGzip));
 		}
 
 		// lookup main class
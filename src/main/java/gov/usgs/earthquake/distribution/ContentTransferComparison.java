@@ -0,0 +1,222 @@
+package gov.usgs.earthquake.distribution;
+
+import gov.usgs.earthquake.product.FileContent;
+import gov.usgs.earthquake.product.Product;
+import gov.usgs.earthquake.product.ProductId;
+import gov.usgs.earthquake.product.URLContent;
+import gov.usgs.earthquake.product.io.BinaryProductHandler;
+import gov.usgs.earthquake.product.io.ObjectProductSource;
+import gov.usgs.earthquake.util.ChannelOutputStream;
+import gov.usgs.util.StreamUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+
+/**
+ * Compare ways of sending and hashing file content.
+ *
+ * For each size, a temporary file is created and sent as product content to a
+ * local socket that discards input, first by copying through an output stream,
+ * then by transferring the file directly to a socket channel. The file is also
+ * hashed by streaming it, and using memory mapped regions.
+ */
+public class ContentTransferComparison {
+
+	/** Default content sizes, in megabytes. */
+	public static final int[] DEFAULT_SIZES = { 1, 16, 256, 1024 };
+
+	/** Server that reads and discards input. */
+	private final ServerSocket server;
+
+	/**
+	 * Start a local server that discards input.
+	 *
+	 * @throws IOException if unable to bind server
+	 */
+	public ContentTransferComparison() throws IOException {
+		server = new ServerSocket(0);
+		final Thread thread = new Thread(new Runnable() {
+			public void run() {
+				discardConnections();
+			}
+		}, "ContentTransferComparison");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Accept connections and discard input, until server is closed.
+	 */
+	private void discardConnections() {
+		final byte[] buffer = new byte[65536];
+		while (!server.isClosed()) {
+			try (Socket socket = server.accept()) {
+				final InputStream in = socket.getInputStream();
+				while (in.read(buffer) != -1) {
+					// discard
+				}
+			} catch (IOException e) {
+				// closed
+			}
+		}
+	}
+
+	/**
+	 * Send a product to the discarding server.
+	 *
+	 * @param product
+	 *            product to send.
+	 * @param transferFiles
+	 *            true to transfer files directly to a socket channel, false to
+	 *            copy through an output stream.
+	 * @return elapsed time in milliseconds.
+	 * @throws Exception if error occurs
+	 */
+	public long sendProduct(final Product product, final boolean transferFiles)
+			throws Exception {
+		final long start = System.currentTimeMillis();
+		try (Socket socket = transferFiles ? SocketChannel.open().socket()
+				: new Socket()) {
+			socket.connect(new InetSocketAddress("localhost",
+					server.getLocalPort()));
+			final OutputStream out = transferFiles
+					? new ChannelOutputStream(socket.getChannel())
+					: new StreamUtils.UnclosableOutputStream(
+							new BufferedOutputStream(socket.getOutputStream()));
+			new ObjectProductSource(product).streamTo(new BinaryProductHandler(
+					out));
+			out.flush();
+			socket.shutdownOutput();
+		}
+		return System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * Compare sending and hashing a file.
+	 *
+	 * @param file
+	 *            file to test.
+	 * @throws Exception if error occurs
+	 */
+	public void testFile(final File file) throws Exception {
+		final long totalBytes = file.length();
+		System.err.println(file.getName() + ", length = " + totalBytes
+				+ " bytes");
+
+		final Product product = new Product(new ProductId("test", "test",
+				"test"));
+		product.setTrackerURL(new URL("http://localhost/tracker"));
+		product.getContents().put(file.getName(), new FileContent(file));
+
+		// warm up file cache and connection code
+		sendProduct(product, false);
+
+		System.err.println("send using output stream");
+		formatResult(totalBytes, sendProduct(product, false));
+		System.err.println("send using file channel transfer");
+		formatResult(totalBytes, sendProduct(product, true));
+
+		long start = System.currentTimeMillis();
+		final String streamHash = new URLContent(new FileContent(file))
+				.getSha256();
+		System.err.println("hash using input stream");
+		formatResult(totalBytes, System.currentTimeMillis() - start);
+
+		start = System.currentTimeMillis();
+		final String mappedHash = new FileContent(file).getSha256();
+		System.err.println("hash using memory mapped file");
+		formatResult(totalBytes, System.currentTimeMillis() - start);
+
+		if (!streamHash.equals(mappedHash)) {
+			System.err.println("\thashes do not match");
+		}
+	}
+
+	/**
+	 * Format elapsed time and throughput.
+	 *
+	 * @param totalBytes
+	 *            number of bytes processed.
+	 * @param elapsedTime
+	 *            elapsed time in milliseconds.
+	 */
+	protected void formatResult(final long totalBytes, final long elapsedTime) {
+		System.err.printf("\t%.3fs, %.1f MB/s%n", elapsedTime / 1000.0,
+				totalBytes / (1024.0 * 1024.0)
+						/ Math.max(elapsedTime / 1000.0, 0.001));
+	}
+
+	/**
+	 * Stop the discarding server.
+	 *
+	 * @throws IOException if error occurs
+	 */
+	public void close() throws IOException {
+		server.close();
+	}
+
+	/**
+	 * Create a temporary file with pseudo random content.
+	 *
+	 * @param megabytes
+	 *            size of file in megabytes.
+	 * @return created file, which is deleted on exit.
+	 * @throws IOException if IO error occurs
+	 */
+	protected static File createFile(final int megabytes) throws IOException {
+		final File file = File.createTempFile("content" + megabytes + "mb",
+				".bin");
+		file.deleteOnExit();
+		final byte[] buffer = new byte[1024 * 1024];
+		final Random random = new Random(megabytes);
+		try (OutputStream out = new FileOutputStream(file)) {
+			for (int i = 0; i < megabytes; i++) {
+				random.nextBytes(buffer);
+				out.write(buffer);
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * A main method for running comparisons.
+	 *
+	 * @param args
+	 *            a list of content sizes in megabytes, default 1 16 256 1024.
+	 * @throws Exception if error occurs
+	 */
+	public static void main(final String[] args) throws Exception {
+		int[] sizes = DEFAULT_SIZES;
+		if (args.length > 0) {
+			sizes = new int[args.length];
+			for (int i = 0; i < args.length; i++) {
+				sizes[i] = Integer.parseInt(args[i]);
+			}
+		}
+
+		final ContentTransferComparison comparison = new ContentTransferComparison();
+		try {
+			for (final int size : sizes) {
+				final File file = createFile(size);
+				try {
+					comparison.testFile(file);
+				} finally {
+					file.delete();
+				}
+			}
+		} finally {
+			comparison.close();
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ import gov.usgs.earthquake.product.io.ProductSource;
 import gov.usgs.earthquake.util.SizeLimitInputStream;
 import gov.usgs.util.Config;
 import gov.usgs.util.DefaultConfigurable;
+import gov.usgs.util.HttpClient;
 import gov.usgs.util.StreamUtils;
 import gov.usgs.util.ObjectLock;
 
@@ -103,6 +104,8 @@ public class DefaultNotificationReceiver extends DefaultConfigurable implements
 	public static final String FUTURE_LISTENER_NOTIFIER = "future";
 	/** Property to listener notifier to set to roundrobin */
 	public static final String ROUNDROBIN_LISTENER_NOTIFIER = "roundrobin";
+	/** Property to listener notifier to set to striped */
+	public static final String STRIPED_LISTENER_NOTIFIER = "striped";
 
 	/** The notification index where received notifications are stored. */
 	private NotificationIndex notificationIndex;
@@ -338,7 +341,7 @@ public class DefaultNotificationReceiver extends DefaultConfigurable implements
 							LOGGER.finer("[" + getName() + "] notification url "
 									+ productURL.toString());
 
-							in = StreamUtils.getURLInputStream(productURL,
+							in = HttpClient.getDefault().getInputStream(productURL,
 									connectTimeout, readTimeout);
 							beginDownload = new Date();
 							// use size limit with negative limit to count transfer size
@@ -584,6 +587,10 @@ public class DefaultNotificationReceiver extends DefaultConfigurable implements
 				notifier = new RoundRobinListenerNotifier(this);
 				LOGGER.config("[" + getName()
 						+ "] using round-robin listener notifier");
+			} else if (notifierType.equals(STRIPED_LISTENER_NOTIFIER)) {
+				notifier = new StripedListenerNotifier(this);
+				LOGGER.config("[" + getName()
+						+ "] using striped listener notifier");
 			} else {
 				throw new ConfigurationException("Unknown notifier type "
 						+ notifierType);
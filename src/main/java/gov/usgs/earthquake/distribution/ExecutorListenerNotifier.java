@@ -57,6 +57,9 @@ public class ExecutorListenerNotifier extends DefaultConfigurable implements
 	/** When throttling, wait this many milliseconds between queue size checks. */
 	protected long throttleWaitInterval = 5000L;
 
+	/** Number of notifications loaded at a time when requeueing at startup. */
+	protected int requeuePageSize = 1000;
+
 	/**
 	 * Constructor
 	 * @param receiver DefaultNotificationReceiver
@@ -168,7 +171,7 @@ public class ExecutorListenerNotifier extends DefaultConfigurable implements
 			retryDelay = ((AbstractListener) listener).getRetryDelay();
 		}
 
-		ExecutorService listenerExecutor = notificationListeners.get(listener);
+		ExecutorService listenerExecutor = getListenerExecutor(listener, event);
 		ExecutorTask<Void> listenerTask = new ExecutorTask<Void>(
 				listenerExecutor, listener.getMaxTries(),
 				listener.getTimeout(), new NotificationListenerCallable(
@@ -186,6 +189,20 @@ public class ExecutorListenerNotifier extends DefaultConfigurable implements
 	}
 
 
+	/**
+	 * Get the executor where a listener processes an event.
+	 *
+	 * Tasks are resubmitted to the same executor when retried.
+	 *
+	 * @param listener NotificationListener
+	 * @param event NotificationEvent
+	 * @return executor for listener.
+	 */
+	protected ExecutorService getListenerExecutor(
+			final NotificationListener listener, final NotificationEvent event) {
+		return notificationListeners.get(listener);
+	}
+
 	@Override
 	public void shutdown() throws Exception {
 		// remove all listeners
@@ -228,8 +245,8 @@ public class ExecutorListenerNotifier extends DefaultConfigurable implements
 
 		LOGGER.info("[" + receiver.getName()
 				+ "] requeueing notification index '" + index.getName() + "'");
-		// find all existing notifications
-		List<Notification> allNotifications = null;
+		// find all existing notifications, one page at a time
+		Iterator<Notification> allNotifications = null;
 
 		// for json index, push intersection into database if only one listener
 		if (index instanceof JsonNotificationIndex && gracefulListeners.size() == 1) {
@@ -240,36 +257,63 @@ public class ExecutorListenerNotifier extends DefaultConfigurable implements
 				// get intersection
 				try {
 					allNotifications =
-							((JsonNotificationIndex) index).getMissingNotifications(
-									((JsonNotificationIndex) listenerIndex).getTable());
+							((JsonNotificationIndex) index).iterateMissingNotifications(
+									((JsonNotificationIndex) listenerIndex).getTable(),
+									requeuePageSize);
+					// load first page, so errors fall back below
+					allNotifications.hasNext();
 				} catch (Exception e) {
 					LOGGER.log(Level.INFO, "Exception loading intersection, continuing", e);
+					allNotifications = null;
 				}
 			}
 		}
 
 		if (allNotifications == null) {
 			// fallback to previous behavior
-			allNotifications = index.findNotifications(
-					(List<String>) null, (List<String>) null, (List<String>) null);
+			try {
+				allNotifications = index.iterateNotifications(requeuePageSize);
+				// load first page, so errors fall back below
+				allNotifications.hasNext();
+			} catch (Exception e) {
+				LOGGER.log(Level.INFO, "Exception loading notification page, continuing", e);
+				allNotifications = index.findNotifications(
+						(List<String>) null, (List<String>) null, (List<String>) null)
+						.iterator();
+			}
 		}
-		LOGGER.info("Done finding existing notifications");
 
 		// queue them for processing in case they were previous missed
 		Date now = new Date();
 		int count = 0;
-		for (final Notification notification : allNotifications) {
-			NotificationEvent event = new NotificationEvent(receiver, notification);
-			count += 1;
-			if (event.getNotification().getExpirationDate().after(now)) {
-				// still valid
-				this.notifyListeners(event, gracefulListeners);
-			}
+		try {
+			while (allNotifications.hasNext()) {
+				final Notification notification = allNotifications.next();
+				NotificationEvent event = new NotificationEvent(receiver, notification);
+				count += 1;
+				if (event.getNotification().getExpirationDate().after(now)) {
+					// still valid
+					this.notifyListeners(event, gracefulListeners);
+				}
 
-			// try to keep queue size managable during restart
-			throttleQueues(allNotifications.size() - count);
+				if (count % requeuePageSize == 0) {
+					LOGGER.fine("[" + receiver.getName() + "] requeued "
+							+ count + " notifications");
+				}
+				// try to keep queue size managable during restart
+				throttleQueues();
+			}
+		} catch (RuntimeException e) {
+			// fail startup, and leave index unmarked so remaining
+			// notifications are requeued next time
+			LOGGER.log(Level.WARNING, "[" + receiver.getName()
+					+ "] exception requeueing notifications after " + count, e);
+			for (final NotificationListener listener : gracefulListeners) {
+				AUTOLOADED_INDEXES.remove(listener.getName() + '|' + index.getName());
+			}
+			throw e;
 		}
-		LOGGER.info("All notifications queued");
+		LOGGER.info("All notifications queued (" + count + ")");
 
 		// keep track that we've processed this notification index
 		AUTOLOADED_INDEXES.add(index.getName());
@@ -395,4 +439,9 @@ public class ExecutorListenerNotifier extends DefaultConfigurable implements
 	/** @param ms long throttle wait interval in ms */
 	public void setThrottleWaitInterval(final long ms) { this.throttleWaitInterval = ms; }
 
+	/** @return int requeue page size */
+	public int getRequeuePageSize() { return this.requeuePageSize; }
+	/** @param n int requeue page size */
+	public void setRequeuePageSize(final int n) { this.requeuePageSize = n; }
+
 }
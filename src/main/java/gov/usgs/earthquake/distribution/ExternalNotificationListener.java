@@ -7,7 +7,8 @@ import gov.usgs.earthquake.product.Content;
 import gov.usgs.earthquake.product.Product;
 import gov.usgs.earthquake.product.ProductId;
 import gov.usgs.util.Config;
-import gov.usgs.util.StreamUtils;
+import gov.usgs.util.ProcessRunner;
+import gov.usgs.util.ProcessTimeoutException;
 import gov.usgs.util.XmlUtils;
 
 import java.io.File;
@@ -38,6 +39,10 @@ import java.util.logging.Logger;
  * <dd>(Required) A directory used to store all products. Each product is
  * extracted into a separate directory within this directory and is referenced
  * by the --directory=/path/to/directory argument when command is executed.</dd>
+ *
+ * <dt>maxConcurrentCommands</dt>
+ * <dd>(Optional, Default = 0) Maximum number of commands to run at once, or
+ * 0 for no limit.</dd>
  * </dl>
  *
  */
@@ -58,12 +63,20 @@ public class ExternalNotificationListener extends DefaultNotificationListener {
 
 	private static final String STORAGE_DIRECTORY_PROPERTY = "storageDirectory";
 
+	/** Configuration parameter for maximum concurrent commands. */
+	public static final String MAX_CONCURRENT_COMMANDS_PROPERTY = "maxConcurrentCommands";
+	/** Default maximum concurrent commands, no limit */
+	public static final String DEFAULT_MAX_CONCURRENT_COMMANDS = "0";
+
 	/** Where products are stored in extracted form. */
 	private FileProductStorage storage;
 
 	/** Command that is executed after a product is stored. */
 	private String command;
 
+	/** Runs commands. */
+	private ProcessRunner processRunner = new ProcessRunner();
+
 	/**
 	 * Construct a new ExternalNotificationListener.
 	 *
@@ -112,6 +125,13 @@ public class ExternalNotificationListener extends DefaultNotificationListener {
 					+ storageDirectory + "'");
 			storage = new FileProductStorage(new File(storageDirectory));
 		}
+
+		int maxConcurrentCommands = Integer.parseInt(config.getProperty(
+				MAX_CONCURRENT_COMMANDS_PROPERTY, DEFAULT_MAX_CONCURRENT_COMMANDS));
+		processRunner = new ProcessRunner(maxConcurrentCommands,
+				ProcessRunner.DEFAULT_MAX_OUTPUT);
+		LOGGER.config("[" + getName() + "] maxConcurrentCommands = "
+				+ maxConcurrentCommands);
 	}
 
 	/**
@@ -290,39 +310,38 @@ public class ExternalNotificationListener extends DefaultNotificationListener {
 
 		// now run command
 		String productCommand = null;
-		Process process = null;
 		int exitValue = -1;
 
 		try {
 			productCommand = getProductCommand(product);
 			LOGGER.info("[" + getName() + "] running command " + productCommand);
-			process = Runtime.getRuntime().exec(productCommand);
 
 			// inline product content, may or may not be null
 			Content content = product.getContents().get("");
-			if (content != null) {
-				StreamUtils.transferStream(content.getInputStream(),
-						process.getOutputStream());
-			} else {
-				// need to close process stdin either way
-				StreamUtils.closeStream(process.getOutputStream());
-			}
-
-			// maybe log/capture process input/error streams
-			// or switch to "Command"
 
-			exitValue = process.waitFor();
-		} catch (Exception e) {
-			if (process != null) {
-				// make sure to kill zombies
-				process.destroy();
+			// output is drained while command runs, process is destroyed
+			// if interrupted or timed out
+			ProcessRunner.Result result = processRunner.run(productCommand,
+					content == null ? null : content.getInputStream(),
+					getTimeout());
+			exitValue = result.getExitValue();
+			LOGGER.fine("[" + getName() + "] command completed in "
+					+ result.getElapsed() + "ms");
+			HeartbeatListener.sendHeartbeatMessage(getName(), "command time",
+					Long.toString(result.getElapsed()));
+			if (exitValue != 0) {
+				LOGGER.fine("[" + getName() + "] command '" + productCommand
+						+ "' stderr output '"
+						+ new String(result.getErrorOutput()) + "'");
 			}
-
+		} catch (Exception e) {
 			// signal that process did not exit normally
 			exitValue = -1;
 
 			// give subclasses chance to handle exception
 			commandException(product, productCommand, e);
+		} finally {
+			HeartbeatListener.updateProcessRunnerStatus(getName(), processRunner);
 		}
 
 		// if process exited normally
@@ -376,7 +395,8 @@ public class ExternalNotificationListener extends DefaultNotificationListener {
 	 *            command that was built
 	 * @param exception
 	 *            exception that was thrown during execution. This will be an
-	 *            InterruptedException if the process timed out.
+	 *            InterruptedException or ProcessTimeoutException if the
+	 *            process timed out.
 	 * @throws Exception
 	 *             When re-notification should occur, based on maxTries, or none
 	 *             if done.
@@ -384,7 +404,8 @@ public class ExternalNotificationListener extends DefaultNotificationListener {
 	public void commandException(final Product product,
 			final String productCommand, final Exception exception)
 			throws Exception {
-		if (exception instanceof InterruptedException) {
+		if (exception instanceof InterruptedException
+				|| exception instanceof ProcessTimeoutException) {
 			LOGGER.warning("[" + getName() + "] command '" + productCommand
 					+ "' timed out");
 		} else {
@@ -417,6 +438,13 @@ public class ExternalNotificationListener extends DefaultNotificationListener {
 		this.storage = storage;
 	}
 
+	/**
+	 * @return runner used for commands, with run time and exit value counts.
+	 */
+	public ProcessRunner getProcessRunner() {
+		return processRunner;
+	}
+
 	/**
 	 * @return the command
 	 */
@@ -63,6 +63,10 @@ import java.util.logging.Logger;
  *
  * <dt>keychain</dt>
  * <dd>(Optional) List of key section names to load for signature verification.</dd>
+ *
+ * <dt>digestCache</dt>
+ * <dd>(Optional, default = true) Whether to reuse digests of verified
+ * products, shared with other storages and the indexer.</dd>
  * </dl>
  *
  * An attempt is made to make storage operations atomic by using read and write
@@ -637,10 +641,14 @@ public class FileProductStorage extends DefaultConfigurable implements
 	 */
 	public ProductId storeProductSource(ProductSource source) throws Exception {
 		StorageProductOutput output = new StorageProductOutput();
+		// verify signature while content is written, instead of reading
+		// stored product again
+		SignatureVerifierProductHandler verifierOutput =
+				new SignatureVerifierProductHandler(verifier, output);
 		// output acquires the storageLock during onBeginProduct, once the
 		// product id is known.
 		try {
-			source.streamTo(output);
+			source.streamTo(verifierOutput);
 			// close output so file(s) are written
 			output.close();
 
@@ -648,7 +656,16 @@ public class FileProductStorage extends DefaultConfigurable implements
 			LOGGER.finer("[" + getName() + "] product stored id=" + id
 					+ ", status=" + output.getStatus());
 
-			verifier.verifySignature(getProduct(id));
+			if (verifierOutput.isSignatureChecked()) {
+				// invalid signatures were rejected before output finished
+				LOGGER.fine("[" + getName() + "] signature checked while storing"
+						+ ", verified=" + verifierOutput.isSignatureVerified()
+						+ ", id=" + id);
+			} else {
+				// not streamed in digest order, or content not read.
+				// content was not verified, so don't use cached digests
+				verifier.verifySignature(getProduct(id), false);
+			}
 
 		} catch (Exception e) {
 			if (!(e instanceof ProductAlreadyInStorageException)
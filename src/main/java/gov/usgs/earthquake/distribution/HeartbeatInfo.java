@@ -14,8 +14,9 @@ import javax.json.JsonObject;
  */
 public class HeartbeatInfo {
 
-	private String message = null;
-	private Date date = null;
+	private volatile String message = null;
+	/** Timestamp in milliseconds, stored as a primitive so updates do not allocate. */
+	private volatile long time = 0L;
 
 	/**
 	 * Message constructor
@@ -25,7 +26,18 @@ public class HeartbeatInfo {
 	 */
 	public HeartbeatInfo(String message, Date date) {
 		this.message = message;
-		this.date = date;
+		this.time = date.getTime();
+	}
+
+	/**
+	 * Update message content and timestamp.
+	 *
+	 * @param message string to set
+	 * @param time timestamp in milliseconds
+	 */
+	public void update(String message, long time) {
+		this.message = message;
+		this.time = time;
 	}
 
 	/**
@@ -39,7 +51,14 @@ public class HeartbeatInfo {
 	 * @return message timestamp
 	 */
 	public Date getDate() {
-		return date;
+		return new Date(time);
+	}
+
+	/**
+	 * @return message timestamp in milliseconds
+	 */
+	public long getTime() {
+		return time;
 	}
 
 	/**
@@ -57,7 +76,7 @@ public class HeartbeatInfo {
 	 * @param date to set
 	 */
 	public void setDate(Date date) {
-		this.date = date;
+		this.time = date.getTime();
 	}
 
 	/**
@@ -67,7 +86,7 @@ public class HeartbeatInfo {
 	 * @return true if {@link #getDate()} is before purgeDate
 	 */
 	public boolean isExpired(Date purgeDate) {
-		return date.before(purgeDate);
+		return time < purgeDate.getTime();
 	}
 
 	/**
@@ -76,7 +95,7 @@ public class HeartbeatInfo {
 	public JsonObject toJsonObject() {
 		JsonObject object = Json.createObjectBuilder()
 				.add("message", message)
-				.add("date", String.valueOf(date.getTime()))
+				.add("date", String.valueOf(time))
 				.build();
 		return object;
 	}
@@ -2,6 +2,8 @@ package gov.usgs.earthquake.distribution;
 
 import gov.usgs.earthquake.product.Product;
 import gov.usgs.util.Config;
+import gov.usgs.util.HttpClient;
+import gov.usgs.util.ProcessRunner;
 
 import java.util.Date;
 import java.util.Map;
@@ -12,6 +14,9 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.MemoryMXBean;
 import java.lang.management.MemoryUsage;
 import java.util.Iterator;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.json.Json;
@@ -22,6 +27,11 @@ import javax.json.JsonObjectBuilder;
  * Heartbeat Listener stores heartbeat messages and writes them to a heartbeat
  * file when a product is received
  *
+ * Components report last-value messages, counters, and gauges using the static
+ * methods of this class, from any thread. When heartbeatInterval is greater
+ * than zero, the heartbeat file is instead written by a background thread at
+ * that interval.
+ *
  * @author tene
  *
  */
@@ -51,8 +61,17 @@ public class HeartbeatListener extends DefaultNotificationListener {
 	/** Configurable property for heartbeat key/value expiration */
 	public static final String HEARTBEAT_TIMEOUT_PROPERTY = "heartbeatTimeout";
 
+	/** Configurable property for milliseconds between heartbeat file writes. */
+	public static final String HEARTBEAT_INTERVAL_PROPERTY = "heartbeatInterval";
+
+	/** Default heartbeat interval. Zero = write when a product is received */
+	public static final String DEFAULT_HEARTBEAT_INTERVAL = "0";
+
+	/** Heartbeat component for the shared HttpClient. */
+	public static final String HTTP_CLIENT_COMPONENT = "HttpClient";
+
 	/** Flag listeners are listening */
-	private static boolean LISTENING = false;
+	private static volatile boolean LISTENING = false;
 
 	/** Hearbeat registered file. */
 	private File heartbeatFile;
@@ -60,6 +79,12 @@ public class HeartbeatListener extends DefaultNotificationListener {
 	/** Timeout for expiration of key/value pairs */
 	private long storageTimeout;
 
+	/** Milliseconds between heartbeat file writes, or zero. */
+	private long heartbeatInterval;
+
+	/** Timer that writes the heartbeat file. */
+	private Timer heartbeatTimer = null;
+
 	/**
 	 * Create a new HeartbeatListener.
 	 *
@@ -70,6 +95,7 @@ public class HeartbeatListener extends DefaultNotificationListener {
 		LISTENING = true;
 		heartbeatFile = new File(DEFAULT_HEARTBEAT_FILENAME);
 		storageTimeout = Long.valueOf(DEFAULT_STORAGE_TIMEOUT);
+		heartbeatInterval = Long.valueOf(DEFAULT_HEARTBEAT_INTERVAL);
 		this.getIncludeTypes().add("heartbeat");
 	}
 
@@ -105,16 +131,54 @@ public class HeartbeatListener extends DefaultNotificationListener {
 		long totalCommitted = heapCommitted + nonHeapCommitted;
 		long totalMax = heapMax + nonHeapMax;
 
-		sendHeartbeatMessage(this.getName(), "totalUsed", Long
-				.toString(totalUsed));
-		sendHeartbeatMessage(this.getName(), "totalCommitted", Long
-				.toString(totalCommitted));
-		sendHeartbeatMessage(this.getName(), "totalMax", Long
-				.toString(totalMax));
+		setHeartbeatGauge(this.getName(), "totalUsed", totalUsed);
+		setHeartbeatGauge(this.getName(), "totalCommitted", totalCommitted);
+		setHeartbeatGauge(this.getName(), "totalMax", totalMax);
 
-		// write heartbeat information to file
-		this.writeHeartbeat();
+		// write heartbeat information to file, unless timer is writing
+		if (heartbeatTimer == null) {
+			this.writeHeartbeat();
+		}
+
+	}
+
+	/**
+	 * Start writing the heartbeat file every heartbeatInterval milliseconds.
+	 */
+	@Override
+	public void startup() throws Exception {
+		super.startup();
+		if (heartbeatInterval > 0 && heartbeatTimer == null) {
+			heartbeatTimer = new Timer(getName() + " heartbeat", true);
+			heartbeatTimer.scheduleAtFixedRate(new TimerTask() {
+				public void run() {
+					try {
+						writeHeartbeat();
+					} catch (Exception e) {
+						LOGGER.log(Level.WARNING, "[" + getName()
+								+ "] exception writing heartbeat file", e);
+					}
+				}
+			}, heartbeatInterval, heartbeatInterval);
+		}
+	}
 
+	/**
+	 * Stop the heartbeat timer, and write a final heartbeat file.
+	 */
+	@Override
+	public void shutdown() throws Exception {
+		if (heartbeatTimer != null) {
+			heartbeatTimer.cancel();
+			heartbeatTimer = null;
+			try {
+				writeHeartbeat();
+			} catch (Exception e) {
+				LOGGER.log(Level.WARNING, "[" + getName()
+						+ "] exception writing heartbeat file", e);
+			}
+		}
+		super.shutdown();
 	}
 
 	/**
@@ -130,23 +194,66 @@ public class HeartbeatListener extends DefaultNotificationListener {
 		if (!LISTENING) {
 			return;
 		}
-		HeartbeatStatus objHeartbeat;
 
-		String heartbeatKey = component;
-		if (heartbeatKey == null) {
-			heartbeatKey = "<null>";
+		// store the heartbeat key/value in temporary storage
+		getHeartbeatStatus(component).updateStatus(key, value);
+	}
+
+	/**
+	 * Add one to a heartbeat counter.
+	 *
+	 * @param component String component
+	 * @param key Heartbeat key
+	 */
+	public static void incrementHeartbeatCounter(final String component,
+			final String key) {
+		incrementHeartbeatCounter(component, key, 1L);
+	}
+
+	/**
+	 * Add to a heartbeat counter.
+	 *
+	 * @param component String component
+	 * @param key Heartbeat key
+	 * @param delta amount to add
+	 */
+	public static void incrementHeartbeatCounter(final String component,
+			final String key, final long delta) {
+		if (!LISTENING) {
+			return;
 		}
+		getHeartbeatStatus(component).incrementCounter(key, delta);
+	}
 
-		// register this heartbeat in temporary storage
-		if (HASH_HEARTBEATS.containsKey(heartbeatKey)) {
-			objHeartbeat = HASH_HEARTBEATS.get(heartbeatKey);
-		} else {
-			objHeartbeat = new HeartbeatStatus();
-			HASH_HEARTBEATS.put(heartbeatKey, objHeartbeat);
+	/**
+	 * Set a heartbeat gauge.
+	 *
+	 * @param component String component
+	 * @param key Heartbeat key
+	 * @param value current value
+	 */
+	public static void setHeartbeatGauge(final String component,
+			final String key, final long value) {
+		if (!LISTENING) {
+			return;
 		}
+		getHeartbeatStatus(component).setGauge(key, value);
+	}
 
-		// store the heartbeat key/value in temporary storage
-		objHeartbeat.updateStatus(key, value);
+	/**
+	 * Get or register the heartbeat status for a component.
+	 *
+	 * @param component String component, may be null
+	 * @return heartbeat status for component
+	 */
+	private static HeartbeatStatus getHeartbeatStatus(final String component) {
+		final String heartbeatKey = (component == null ? "<null>" : component);
+		HeartbeatStatus objHeartbeat = HASH_HEARTBEATS.get(heartbeatKey);
+		if (objHeartbeat == null) {
+			objHeartbeat = HASH_HEARTBEATS.computeIfAbsent(heartbeatKey,
+					k -> new HeartbeatStatus());
+		}
+		return objHeartbeat;
 	}
 
 	/**
@@ -155,9 +262,11 @@ public class HeartbeatListener extends DefaultNotificationListener {
 	 * @return true
 	 * @throws IOException if IO error occurs
 	 */
-	public boolean writeHeartbeat() throws IOException {
-		String tempFileName = heartbeatFile.getName() + "-temp";
-		File tempFile = new File(tempFileName);
+	public synchronized boolean writeHeartbeat() throws IOException {
+		updateHttpClientStatus();
+
+		// same directory, so move replaces file atomically
+		File tempFile = new File(heartbeatFile.getPath() + "-temp");
 
 		gov.usgs.util.FileUtils.writeFileThenMove(tempFile, heartbeatFile, this
 				.formatHeartbeatOutput().getBytes());
@@ -182,20 +291,98 @@ public class HeartbeatListener extends DefaultNotificationListener {
 				HEARTBEAT_TIMEOUT_PROPERTY, DEFAULT_STORAGE_TIMEOUT));
 		LOGGER.config("[" + getName() + "] heartbeat timeout = "
 				+ storageTimeout + "ms");
+
+		heartbeatInterval = Long.valueOf(config.getProperty(
+				HEARTBEAT_INTERVAL_PROPERTY, DEFAULT_HEARTBEAT_INTERVAL));
+		LOGGER.config("[" + getName() + "] heartbeat interval = "
+				+ heartbeatInterval + "ms");
 	}
 
 	/**
 	 * @return JSON-formatted output from the map of components and their values
 	 */
 	public String formatHeartbeatOutput() {
+		return formatHeartbeats();
+	}
+
+	/**
+	 * @return JSON-formatted output from the map of components and their values
+	 */
+	public static String formatHeartbeats() {
 		JsonObjectBuilder builder = Json.createObjectBuilder();
-		for (String key : HASH_HEARTBEATS.keySet()) {
-			HeartbeatStatus status = HASH_HEARTBEATS.get(key);
-			builder.add(key, status == null ? null : status.toJsonObject());
+		for (Map.Entry<String, HeartbeatStatus> entry : HASH_HEARTBEATS.entrySet()) {
+			builder.add(entry.getKey(), entry.getValue().toJsonObject());
 		}
 		return builder.build().toString();
 	}
 
+	/**
+	 * Copy totals from the shared HttpClient into heartbeat counters.
+	 */
+	private static synchronized void updateHttpClientStatus() {
+		if (!LISTENING) {
+			return;
+		}
+		final HttpClient client = HttpClient.getDefault();
+		final HeartbeatStatus status = getHeartbeatStatus(HTTP_CLIENT_COMPONENT);
+		updateCounter(status, "requests", client.getRequestCount());
+		updateCounter(status, "connect time", client.getConnectTime());
+		updateCounter(status, "download time", client.getDownloadTime());
+		updateCounter(status, "download bytes", client.getDownloadBytes());
+	}
+
+	/**
+	 * Copy totals from a listener's ProcessRunner into heartbeat counters and
+	 * gauges.
+	 *
+	 * Counters are kept for commands, timeouts, total command time and each
+	 * exit value. Run times are also kept for each executable.
+	 *
+	 * @param component listener name
+	 * @param runner process runner used by listener
+	 */
+	public static synchronized void updateProcessRunnerStatus(
+			final String component, final ProcessRunner runner) {
+		if (!LISTENING) {
+			return;
+		}
+		final HeartbeatStatus status = getHeartbeatStatus(component);
+		updateCounter(status, "commands", runner.getCommandCount());
+		updateCounter(status, "timeouts", runner.getTimeoutCount());
+		updateCounter(status, "total command time", runner.getTotalTime());
+		status.setGauge("average command time", runner.getAverageTime());
+		status.setGauge("max command time", runner.getMaxTime());
+		for (final Map.Entry<Integer, Long> entry :
+				runner.getExitValueCounts().entrySet()) {
+			updateCounter(status, "exit value " + entry.getKey(),
+					entry.getValue());
+		}
+		for (final Map.Entry<String, ProcessRunner.CommandTimes> entry :
+				runner.getCommandTimes().entrySet()) {
+			final String command = entry.getKey();
+			final ProcessRunner.CommandTimes times = entry.getValue();
+			updateCounter(status, "commands " + command, times.getCount());
+			updateCounter(status, "total command time " + command,
+					times.getTotalTime());
+			status.setGauge("average command time " + command,
+					times.getAverageTime());
+			status.setGauge("max command time " + command, times.getMaxTime());
+		}
+	}
+
+	/**
+	 * Add the change since the last update to a counter.
+	 *
+	 * @param status heartbeat status
+	 * @param key counter key
+	 * @param total current total
+	 */
+	private static void updateCounter(final HeartbeatStatus status,
+			final String key, final long total) {
+		final Long previous = status.getValue(key);
+		status.incrementCounter(key, total - (previous == null ? 0L : previous));
+	}
+
 	/**
 	 * purge heartbeat key/values older than storageTimeout, also purging empty
 	 * heartbeats
@@ -252,4 +439,14 @@ public class HeartbeatListener extends DefaultNotificationListener {
 		this.storageTimeout = storageTimeout;
 	}
 
+	/** @return heartbeatInterval */
+	public long getHeartbeatInterval() {
+		return heartbeatInterval;
+	}
+
+	/** @param heartbeatInterval to set */
+	public void setHeartbeatInterval(long heartbeatInterval) {
+		this.heartbeatInterval = heartbeatInterval;
+	}
+
 }
@@ -1,9 +1,10 @@
 package gov.usgs.earthquake.distribution;
 
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.json.Json;
 import javax.json.JsonObject;
@@ -12,17 +13,26 @@ import javax.json.JsonObjectBuilder;
 /**
  * Heartbeat status information for a single component
  *
+ * Holds last-value statuses, counters, and gauges. Updates are safe from any
+ * thread, and updating an existing key does not allocate new entries.
+ * Counters and gauges are written using the same format as statuses, with the
+ * current value as the message. Counters are running totals, and are not
+ * purged by clearDataOlderThanDate.
  */
 public class HeartbeatStatus {
 
 	private Map<String, HeartbeatInfo> statuses = null;
 
+	/** Counters and gauges. */
+	private final Map<String, HeartbeatValue> values =
+			new ConcurrentHashMap<String, HeartbeatValue>();
+
 	/**
 	 * Create a new HeartbeatStatus.
 	 *
 	 */
 	public HeartbeatStatus() {
-		statuses = new HashMap<String, HeartbeatInfo>();
+		statuses = new ConcurrentHashMap<String, HeartbeatInfo>();
 	}
 
 	/**
@@ -32,7 +42,49 @@ public class HeartbeatStatus {
 	 * @param value String value of heartbeat info
 	 */
 	public void updateStatus(String key, String value) {
-		statuses.put(key, new HeartbeatInfo(value, new Date()));
+		final long now = System.currentTimeMillis();
+		HeartbeatInfo info = statuses.get(key);
+		if (info == null) {
+			info = statuses.putIfAbsent(key, new HeartbeatInfo(value, new Date(now)));
+			if (info == null) {
+				return;
+			}
+		}
+		info.update(value, now);
+	}
+
+	/**
+	 * Add to a counter, creating it if needed.
+	 *
+	 * @param key String key
+	 * @param delta amount to add
+	 * @return counter value after adding delta
+	 */
+	public long incrementCounter(String key, long delta) {
+		final HeartbeatValue value = getOrCreateValue(key, true);
+		value.time = System.currentTimeMillis();
+		return value.value.addAndGet(delta);
+	}
+
+	/**
+	 * Set a gauge, creating it if needed.
+	 *
+	 * @param key String key
+	 * @param gauge current value
+	 */
+	public void setGauge(String key, long gauge) {
+		final HeartbeatValue value = getOrCreateValue(key, false);
+		value.time = System.currentTimeMillis();
+		value.value.set(gauge);
+	}
+
+	/**
+	 * @param key counter or gauge key
+	 * @return current value, or null if key is not a counter or gauge
+	 */
+	public Long getValue(String key) {
+		final HeartbeatValue value = values.get(key);
+		return value == null ? null : value.value.get();
 	}
 
 	/** @return statuses - map of string, heartbeatInfo */
@@ -42,12 +94,14 @@ public class HeartbeatStatus {
 
 	/** @return boolean - checking statuses */
 	public boolean isEmpty() {
-		return (statuses.size() == 0);
+		return (statuses.size() == 0 && values.size() == 0);
 	}
 
 	/**
 	 * Purge all heartbeatStatus data for this component older than given date
 	 *
+	 * Counters are kept, so their totals are not reset.
+	 *
 	 * @param purgeDate purge data until this date
 	 */
 	public void clearDataOlderThanDate(Date purgeDate) {
@@ -62,6 +116,8 @@ public class HeartbeatStatus {
 			}
 		}
 
+		final long purgeTime = purgeDate.getTime();
+		values.values().removeIf(value -> !value.counter && value.time < purgeTime);
 	}
 
 	/**
@@ -69,10 +125,39 @@ public class HeartbeatStatus {
 	 */
 	public JsonObject toJsonObject() {
 		JsonObjectBuilder builder = Json.createObjectBuilder();
-		for (String key : statuses.keySet()) {
-			builder.add(key, statuses.get(key).toJsonObject());
+		for (Map.Entry<String, HeartbeatInfo> entry : statuses.entrySet()) {
+			builder.add(entry.getKey(), entry.getValue().toJsonObject());
+		}
+		for (Map.Entry<String, HeartbeatValue> entry : values.entrySet()) {
+			final HeartbeatValue value = entry.getValue();
+			builder.add(entry.getKey(), Json.createObjectBuilder()
+					.add("message", String.valueOf(value.value.get()))
+					.add("date", String.valueOf(value.time)));
 		}
 		return builder.build();
 	}
 
+	private HeartbeatValue getOrCreateValue(final String key,
+			final boolean counter) {
+		HeartbeatValue value = values.get(key);
+		if (value == null) {
+			value = values.computeIfAbsent(key, k -> new HeartbeatValue(counter));
+		}
+		return value;
+	}
+
+	/**
+	 * A counter or gauge, with the time it was last updated.
+	 */
+	private static class HeartbeatValue {
+		final AtomicLong value = new AtomicLong(0L);
+		volatile long time = System.currentTimeMillis();
+		/** true for counters, false for gauges. */
+		final boolean counter;
+
+		HeartbeatValue(final boolean counter) {
+			this.counter = counter;
+		}
+	}
+
 }
@@ -19,7 +19,9 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.logging.Logger;
 
 /**
@@ -253,6 +255,24 @@ public class JDBCNotificationIndex extends JDBCConnection implements
 			PRODUCT_UPDATE_COLUMN, EXPIRATION_DATE_COLUMN, TRACKER_URL_COLUMN,
 			PRODUCT_URL_COLUMN, TABLE_NAME);
 
+	/**
+	 * SQL stub for loading a page of notifications, the latest notification
+	 * for each product id in id order, starting after an id.
+	 */
+	private static final String QUERY_NOTIFICATION_PAGE = String.format(
+			"SELECT n.%s, n.%s, n.%s, n.%s, n.%s, n.%s, n.%s, n.%s FROM %s n "
+					+ "WHERE n.%s > ? AND NOT EXISTS (SELECT 1 FROM %s d "
+					+ "WHERE d.%s = n.%s AND d.%s = n.%s AND d.%s = n.%s "
+					+ "AND d.%s = n.%s AND d.%s > n.%s) "
+					+ "ORDER BY n.%s LIMIT ?",
+			ID_COLUMN, PRODUCT_SOURCE_COLUMN, PRODUCT_TYPE_COLUMN,
+			PRODUCT_CODE_COLUMN, PRODUCT_UPDATE_COLUMN, EXPIRATION_DATE_COLUMN,
+			TRACKER_URL_COLUMN, PRODUCT_URL_COLUMN, TABLE_NAME, ID_COLUMN,
+			TABLE_NAME, PRODUCT_SOURCE_COLUMN, PRODUCT_SOURCE_COLUMN,
+			PRODUCT_TYPE_COLUMN, PRODUCT_TYPE_COLUMN, PRODUCT_CODE_COLUMN,
+			PRODUCT_CODE_COLUMN, PRODUCT_UPDATE_COLUMN, PRODUCT_UPDATE_COLUMN,
+			ID_COLUMN, ID_COLUMN, ID_COLUMN);
+
 	// These are for searching the DB index by specific parameters. */
 	private PreparedStatement _dml_createTmpTable = null;
 	private PreparedStatement _dml_addTmpSource = null;
@@ -267,6 +287,7 @@ public class JDBCNotificationIndex extends JDBCConnection implements
 	private PreparedStatement _query_searchByType = null;
 	private PreparedStatement _query_searchByCode = null;
 	private PreparedStatement _query_getAllNotifications = null;
+	private PreparedStatement _query_getNotificationPage = null;
 
 	/**
 	 * Default, no-arg constructor. This just ensures the JDBC SQLite driver is
@@ -390,6 +411,8 @@ public class JDBCNotificationIndex extends JDBCConnection implements
 		_query_searchByCode = conn.prepareStatement(QUERY_SEARCH_BY_CODE);
 		_query_getAllNotifications = conn
 				.prepareStatement(QUERY_LATEST_NOTIFICATIONS);
+		_query_getNotificationPage = conn
+				.prepareStatement(QUERY_NOTIFICATION_PAGE);
 
 	}
 
@@ -504,6 +527,12 @@ public class JDBCNotificationIndex extends JDBCConnection implements
 		} finally {
 			_query_getAllNotifications = null;
 		}
+		try {
+			_query_getNotificationPage.close();
+		} catch (Exception e) {
+		} finally {
+			_query_getNotificationPage = null;
+		}
 
 		// call super shutdown to disconnect
 		super.shutdown();
@@ -831,6 +860,108 @@ public class JDBCNotificationIndex extends JDBCConnection implements
 		return getNotifications(_query_findExpiredNotifications);
 	}
 
+	/**
+	 * Iterate over the latest notification for each ProductId in the index,
+	 * loading one page at a time.
+	 *
+	 * Pages are loaded in id order, using the id of the last notification in
+	 * each page to load the next page, so memory use is limited by pageSize.
+	 * Like findNotifications for all notifications, duplicate notifications
+	 * for the same ProductId are not returned.
+	 *
+	 * @param pageSize
+	 *            number of notifications to load at a time.
+	 * @return iterator over notifications.
+	 */
+	@Override
+	public Iterator<Notification> iterateNotifications(final int pageSize) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("pageSize must be at least 1");
+		}
+		return new Iterator<Notification>() {
+			/** Id of last loaded notification. */
+			private long lastId = 0L;
+			/** Current page. */
+			private Iterator<Notification> page = null;
+			/** Whether the current page is the last page. */
+			private boolean lastPage = false;
+
+			@Override
+			public boolean hasNext() {
+				if (page != null && page.hasNext()) {
+					return true;
+				}
+				if (lastPage) {
+					return false;
+				}
+				final LinkedHashMap<Long, Notification> next;
+				try {
+					next = getNotificationPage(lastId, pageSize);
+				} catch (Exception e) {
+					throw new RuntimeException(
+							"Exception loading notifications after id="
+									+ lastId, e);
+				}
+				for (final Long id : next.keySet()) {
+					lastId = id;
+				}
+				lastPage = next.size() < pageSize;
+				page = next.values().iterator();
+				return page.hasNext();
+			}
+
+			@Override
+			public Notification next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return page.next();
+			}
+		};
+	}
+
+	/**
+	 * Load a page of notifications.
+	 *
+	 * @param afterId
+	 *            only notifications with id greater than this id.
+	 * @param limit
+	 *            maximum number of notifications to load.
+	 * @return map of notifications by id, in id order.
+	 * @throws Exception
+	 *             if an error occurs while searching the index.
+	 */
+	protected synchronized LinkedHashMap<Long, Notification> getNotificationPage(
+			final long afterId, final int limit) throws Exception {
+		// verify connection
+		this.verifyConnection();
+
+		final LinkedHashMap<Long, Notification> page = new LinkedHashMap<Long, Notification>();
+		_query_getNotificationPage.setLong(1, afterId);
+		_query_getNotificationPage.setInt(2, limit);
+		ResultSet rs = null;
+		try {
+			rs = _query_getNotificationPage.executeQuery();
+			while (rs.next()) {
+				page.put(rs.getLong(ID_COLUMN), parseNotification(
+						rs.getString(PRODUCT_SOURCE_COLUMN),
+						rs.getString(PRODUCT_TYPE_COLUMN),
+						rs.getString(PRODUCT_CODE_COLUMN),
+						rs.getDate(PRODUCT_UPDATE_COLUMN),
+						rs.getDate(EXPIRATION_DATE_COLUMN),
+						rs.getString(TRACKER_URL_COLUMN),
+						rs.getString(PRODUCT_URL_COLUMN)));
+			}
+		} finally {
+			try {
+				rs.close();
+			} catch (Exception e) {
+				//ignore
+			}
+		}
+		return page;
+	}
+
 	/**
 	 * Executes a prepared statement and parses the result set into a list of
 	 * notifications. The prepared statement can have any set of criteria and
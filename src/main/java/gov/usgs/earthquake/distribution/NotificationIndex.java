@@ -6,6 +6,7 @@ package gov.usgs.earthquake.distribution;
 import gov.usgs.earthquake.product.ProductId;
 import gov.usgs.util.Configurable;
 
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -115,4 +116,27 @@ public interface NotificationIndex extends Configurable {
 	 */
 	public List<Notification> findExpiredNotifications() throws Exception;
 
+	/**
+	 * Iterate over a notification for each ProductId in the index.
+	 * 
+	 * This is used to requeue notifications at startup. Implementations should
+	 * load notifications in pages, instead of loading the entire index into
+	 * memory, and like findNotifications should not return duplicate
+	 * notifications.
+	 * 
+	 * The default implementation loads all notifications using
+	 * findNotifications.
+	 * 
+	 * @param pageSize
+	 *            number of notifications to load at a time.
+	 * @return iterator over notifications.
+	 * @throws Exception
+	 *             if an error occurs while searching the index.
+	 */
+	public default Iterator<Notification> iterateNotifications(
+			final int pageSize) throws Exception {
+		return findNotifications((List<String>) null, (List<String>) null,
+				(List<String>) null).iterator();
+	}
+
 }
@@ -5,13 +5,13 @@ package gov.usgs.earthquake.distribution;
 
 import gov.usgs.earthquake.product.ProductId;
 import gov.usgs.util.Config;
+import gov.usgs.util.HttpClient;
 import gov.usgs.util.StreamUtils;
 import gov.usgs.util.XmlUtils;
 
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
-import java.net.URLConnection;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
@@ -65,6 +65,9 @@ public class ProductTracker {
 	/** Whether tracker updates are enabled in this vm. */
 	private static boolean TRACKER_ENABLED = false;
 
+	/** Whether tracker updates are sent in the background. */
+	private static boolean TRACKER_ASYNC = true;
+
 	/**
 	 * Set whether sending tracker updates is enabled from this host.
 	 *
@@ -75,6 +78,27 @@ public class ProductTracker {
 		TRACKER_ENABLED = enabled;
 	}
 
+	/**
+	 * Set whether tracker updates are sent in the background.
+	 *
+	 * When true (the default), sendUpdate and the methods that call it queue
+	 * updates using the shared ProductTrackerQueue, and return null instead
+	 * of waiting for the tracker response.
+	 *
+	 * @param async
+	 *            true to queue updates, false to send on the calling thread.
+	 */
+	public static void setTrackerAsync(final boolean async) {
+		TRACKER_ASYNC = async;
+	}
+
+	/**
+	 * @return whether tracker updates are sent in the background.
+	 */
+	public static boolean isTrackerAsync() {
+		return TRACKER_ASYNC;
+	}
+
 	/** Location of tracker. */
 	private URL trackerURL;
 
@@ -107,7 +131,7 @@ public class ProductTracker {
 	 * @param update
 	 *            the update to send to the tracker.
 	 * @return the update object processed by the tracker, including sequence
-	 *         number, or null if unable to send.
+	 *         number, or null if unable to send or sent in the background.
 	 * @throws Exception if error occurs
 	 */
 	public ProductTrackerUpdate sendUpdate(final ProductTrackerUpdate update)
@@ -117,6 +141,10 @@ public class ProductTracker {
 				update.getMessage(), // key
 				update.getId().toString() // value
 				);
+		if (TRACKER_ASYNC) {
+			queueUpdate(update);
+			return null;
+		}
 		String response = sendUpdateXML(update);
 		try {
 			List<ProductTrackerUpdate> updates = parseTrackerResponse(
@@ -142,7 +170,45 @@ public class ProductTracker {
 	 */
 	public String sendUpdateXML(final ProductTrackerUpdate update)
 			throws Exception {
+		if (!checkUpdate(update)) {
+			// didn't send update
+			return null;
+		}
+
+		try {
+			String response = post(update.getTrackerURL(),
+					getUpdateRequest(update));
+			return response;
+		} catch (Exception e) {
+			LOGGER.log(Level.INFO, "Unable to post to tracker", e);
+		}
+		return null;
+	}
 
+	/**
+	 * Queue an update to be sent by the shared ProductTrackerQueue.
+	 *
+	 * @param update
+	 *            the update to send to the tracker.
+	 * @return true if queued, false if disabled or queue is full.
+	 */
+	public boolean queueUpdate(final ProductTrackerUpdate update) {
+		if (!checkUpdate(update) || update.getTrackerURL() == null) {
+			return false;
+		}
+		return ProductTrackerQueue.getDefault().offer(update);
+	}
+
+	/**
+	 * Log an update, and check whether it should be sent.
+	 *
+	 * @param update
+	 *            the update to check.
+	 * @return true if tracker updates are enabled.
+	 * @throws IllegalArgumentException
+	 *             if update already has a sequence number.
+	 */
+	private boolean checkUpdate(final ProductTrackerUpdate update) {
 		// make sure this update hasn't already been sent
 		Long sequenceNumber = update.getSequenceNumber();
 		if (sequenceNumber != null && sequenceNumber > 0) {
@@ -161,11 +227,21 @@ public class ProductTracker {
 
 		if (!TRACKER_ENABLED) {
 			LOGGER.finest("Tracker updates disabled, not sent");
-			// didn't send update
-			return null;
+			return false;
 		}
+		return true;
+	}
 
-		// build update request
+	/**
+	 * Build the request used to send an update.
+	 *
+	 * @param update
+	 *            the update to send.
+	 * @return post data for update.
+	 */
+	public static Map<String, String> getUpdateRequest(
+			final ProductTrackerUpdate update) {
+		ProductId id = update.getId();
 		Map<String, String> request = new HashMap<String, String>();
 		request.put("action", "update");
 		request.put("source", id.getSource());
@@ -174,14 +250,7 @@ public class ProductTracker {
 		request.put("updateTime", Long.toString(id.getUpdateTime().getTime()));
 		request.put("className", update.getClassName());
 		request.put("message", update.getMessage());
-
-		try {
-			String response = post(update.getTrackerURL(), request);
-			return response;
-		} catch (Exception e) {
-			LOGGER.log(Level.INFO, "Unable to post to tracker", e);
-		}
-		return null;
+		return request;
 	}
 
 	/**
@@ -467,27 +536,24 @@ public class ProductTracker {
 	 */
 	public static String post(final URL url, final Map<String, String> data)
 			throws Exception {
-		InputStream in = null;
-		OutputStream out = null;
-		String response = null;
-
-		try {
-			URLConnection connection = url.openConnection();
-			if (data != null) {
-				String encodedData = encodeURLData(data);
-				connection.setDoOutput(true);
-				out = connection.getOutputStream();
-				StreamUtils.transferStream(encodedData, out);
+		return HttpClient.getDefault().execute(url, (connection) -> {
+			InputStream in = null;
+			OutputStream out = null;
+			try {
+				if (data != null) {
+					String encodedData = encodeURLData(data);
+					connection.setDoOutput(true);
+					out = connection.getOutputStream();
+					StreamUtils.transferStream(encodedData, out);
+				}
+
+				in = connection.getInputStream();
+				return new String(StreamUtils.readStream(in));
+			} finally {
+				StreamUtils.closeStream(out);
+				StreamUtils.closeStream(in);
 			}
-
-			in = connection.getInputStream();
-			response = new String(StreamUtils.readStream(in));
-		} finally {
-			StreamUtils.closeStream(out);
-			StreamUtils.closeStream(in);
-		}
-
-		return response;
+		});
 	}
 
 	/**
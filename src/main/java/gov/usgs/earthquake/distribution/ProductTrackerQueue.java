@@ -0,0 +1,277 @@
+/*
+ * ProductTrackerQueue
+ */
+package gov.usgs.earthquake.distribution;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Send ProductTracker updates in the background.
+ *
+ * Updates are added to a bounded queue, and never block the caller. When the
+ * queue is full, updates are dropped and counted. A background thread takes
+ * updates in batches and sends them grouped by tracker URL. The tracker API
+ * accepts one update per request, so each group is sent using sequential
+ * (keep-alive) requests. When a request to a tracker fails, the rest of that
+ * tracker's group is dropped so an unavailable tracker costs at most one
+ * timeout per batch.
+ */
+public class ProductTrackerQueue implements Runnable {
+
+	/** Logging object. */
+	private static final Logger LOGGER = Logger
+			.getLogger(ProductTrackerQueue.class.getName());
+
+	/** Default maximum number of queued updates. */
+	public static final int DEFAULT_CAPACITY = 10000;
+
+	/** Default maximum number of updates taken from queue at once. */
+	public static final int DEFAULT_BATCH_SIZE = 100;
+
+	/** Shared queue, created when first used. */
+	private static ProductTrackerQueue DEFAULT_QUEUE = null;
+
+	private final LinkedBlockingQueue<ProductTrackerUpdate> queue;
+	private final int batchSize;
+	private final Thread thread;
+	private volatile boolean stopped = false;
+	/** Number of updates queued and not yet processed. */
+	private int pending = 0;
+
+	private long queuedCount = 0L;
+	private long sentCount = 0L;
+	private long failedCount = 0L;
+	private long droppedCount = 0L;
+
+	/**
+	 * Create a queue using default capacity and batch size.
+	 */
+	public ProductTrackerQueue() {
+		this(DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Create a queue and start its background thread.
+	 *
+	 * @param capacity
+	 *            maximum number of queued updates.
+	 * @param batchSize
+	 *            maximum number of updates taken from queue at once.
+	 */
+	public ProductTrackerQueue(final int capacity, final int batchSize) {
+		this.queue = new LinkedBlockingQueue<ProductTrackerUpdate>(capacity);
+		this.batchSize = Math.max(1, batchSize);
+
+		thread = new Thread(this, "ProductTrackerQueue");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * @return shared queue used by ProductTracker.
+	 */
+	public static synchronized ProductTrackerQueue getDefault() {
+		if (DEFAULT_QUEUE == null) {
+			DEFAULT_QUEUE = new ProductTrackerQueue();
+		}
+		return DEFAULT_QUEUE;
+	}
+
+	/**
+	 * Flush and stop the shared queue, if it was used.
+	 *
+	 * @param timeout
+	 *            maximum time to wait for queued updates, in milliseconds.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public static void shutdownDefault(final long timeout)
+			throws InterruptedException {
+		final ProductTrackerQueue defaultQueue;
+		synchronized (ProductTrackerQueue.class) {
+			defaultQueue = DEFAULT_QUEUE;
+			DEFAULT_QUEUE = null;
+		}
+		if (defaultQueue != null) {
+			defaultQueue.shutdown(timeout);
+		}
+	}
+
+	/**
+	 * Queue an update without blocking.
+	 *
+	 * @param update
+	 *            update to send.
+	 * @return true if queued, false if queue is full or stopped.
+	 */
+	public boolean offer(final ProductTrackerUpdate update) {
+		synchronized (this) {
+			if (!stopped && queue.offer(update)) {
+				queuedCount++;
+				pending++;
+				return true;
+			}
+			droppedCount++;
+		}
+		LOGGER.fine("Tracker queue full, dropped update " + update.getMessage()
+				+ " for " + update.getId());
+		return false;
+	}
+
+	/**
+	 * Wait for queued updates to be sent.
+	 *
+	 * @param timeout
+	 *            maximum time to wait, in milliseconds.
+	 * @return true if all queued updates were processed.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public synchronized boolean flush(final long timeout)
+			throws InterruptedException {
+		final long end = System.currentTimeMillis() + timeout;
+		while (pending > 0) {
+			final long remaining = end - System.currentTimeMillis();
+			if (remaining <= 0 || !thread.isAlive()) {
+				return false;
+			}
+			wait(remaining);
+		}
+		return true;
+	}
+
+	/**
+	 * Flush queued updates and stop the background thread.
+	 *
+	 * Updates still queued after timeout are dropped.
+	 *
+	 * @param timeout
+	 *            maximum time to wait for queued updates, in milliseconds.
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	public void shutdown(final long timeout) throws InterruptedException {
+		if (!flush(timeout)) {
+			LOGGER.warning("Tracker queue not flushed, dropping "
+					+ queue.size() + " updates");
+		}
+		synchronized (this) {
+			stopped = true;
+			droppedCount += queue.size();
+			pending -= queue.size();
+			queue.clear();
+		}
+		thread.interrupt();
+		thread.join(timeout);
+	}
+
+	/**
+	 * Take updates in batches and send them until stopped.
+	 */
+	@Override
+	public void run() {
+		final List<ProductTrackerUpdate> batch = new ArrayList<ProductTrackerUpdate>(
+				batchSize);
+		while (!stopped) {
+			try {
+				batch.add(queue.take());
+				queue.drainTo(batch, batchSize - 1);
+				sendBatch(batch);
+			} catch (InterruptedException e) {
+				break;
+			} finally {
+				synchronized (this) {
+					pending -= batch.size();
+					batch.clear();
+					notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send a batch of updates, grouped by tracker URL.
+	 *
+	 * @param batch
+	 *            updates to send.
+	 */
+	protected void sendBatch(final List<ProductTrackerUpdate> batch) {
+		// group by url string, URL.equals may resolve hosts
+		final Map<String, List<ProductTrackerUpdate>> groups =
+				new LinkedHashMap<String, List<ProductTrackerUpdate>>();
+		for (final ProductTrackerUpdate update : batch) {
+			final String trackerURL = String.valueOf(update.getTrackerURL());
+			List<ProductTrackerUpdate> group = groups.get(trackerURL);
+			if (group == null) {
+				group = new ArrayList<ProductTrackerUpdate>();
+				groups.put(trackerURL, group);
+			}
+			group.add(update);
+		}
+
+		for (final String trackerURL : groups.keySet()) {
+			final List<ProductTrackerUpdate> group = groups.get(trackerURL);
+			int sent = 0;
+			try {
+				for (final ProductTrackerUpdate update : group) {
+					send(update);
+					sent++;
+				}
+			} catch (Exception e) {
+				LOGGER.log(Level.INFO, "Unable to post to tracker " + trackerURL
+						+ ", dropping " + (group.size() - sent) + " updates", e);
+			}
+			synchronized (this) {
+				sentCount += sent;
+				if (sent < group.size()) {
+					failedCount++;
+					droppedCount += group.size() - sent - 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Send one update.
+	 *
+	 * @param update
+	 *            update to send.
+	 * @throws Exception if unable to send
+	 */
+	protected void send(final ProductTrackerUpdate update) throws Exception {
+		ProductTracker.post(update.getTrackerURL(),
+				ProductTracker.getUpdateRequest(update));
+	}
+
+	/** @return number of updates waiting to be sent. */
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	/** @return number of updates queued. */
+	public synchronized long getQueuedCount() {
+		return queuedCount;
+	}
+
+	/** @return number of updates sent. */
+	public synchronized long getSentCount() {
+		return sentCount;
+	}
+
+	/** @return number of updates that could not be sent. */
+	public synchronized long getFailedCount() {
+		return failedCount;
+	}
+
+	/**
+	 * @return number of updates dropped because queue was full, or because an
+	 *         earlier update to the same tracker failed.
+	 */
+	public synchronized long getDroppedCount() {
+		return droppedCount;
+	}
+
+}
@@ -19,6 +19,14 @@ import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+/**
+ * Replicate a FileProductStorage to other hosts.
+ *
+ * By default each stored or removed product is replicated by running rsync
+ * once per target host. When transport is "socket", targetHosts are
+ * host:port of SocketProductReceivers, and changes are sent in batches by a
+ * SocketReplicationSender for each host, without running external processes.
+ */
 public class ReplicationStorageListener extends DefaultStorageListener {
 
 	private static final Logger LOGGER = Logger
@@ -54,6 +62,30 @@ public class ReplicationStorageListener extends DefaultStorageListener {
 	 */
 	public static final String REPL_HOSTS_PROPERTY = "targetHosts";
 
+	/**
+	 * Name of property specifying how products are replicated, "rsync" or
+	 * "socket".
+	 */
+	public static final String REPL_TRANSPORT_PROPERTY = "transport";
+
+	/** Transport that runs the replication command. */
+	public static final String TRANSPORT_RSYNC = "rsync";
+
+	/** Transport that sends products to SocketProductReceivers. */
+	public static final String TRANSPORT_SOCKET = "socket";
+
+	/**
+	 * Name of property specifying the maximum number of changes sent per
+	 * connection, when using socket transport.
+	 */
+	public static final String REPL_BATCH_SIZE_PROPERTY = "batchSize";
+
+	/**
+	 * Name of property specifying the key shared with SocketProductReceivers,
+	 * when using socket transport.
+	 */
+	public static final String REPL_KEY_PROPERTY = "replicationKey";
+
 	/** Default. Use archiving. */
 	private static final boolean ARCHIVE_FLAG_DEFAULT = true;
 
@@ -66,6 +98,12 @@ public class ReplicationStorageListener extends DefaultStorageListener {
 	/** Default replication timeout (milliseconds). */
 	private static final long REPL_TIMEOUT_DEFAULT = 30000L;
 
+	/** Default replication transport */
+	private static final String REPL_TRANSPORT_DEFAULT = TRANSPORT_RSYNC;
+
+	/** Default number of changes sent per connection. */
+	private static final int REPL_BATCH_SIZE_DEFAULT = 100;
+
 	/** Default replication hosts. None. */
 	private static final Map<String, ExecutorService> REPL_HOSTS_DEFAULT = new HashMap<String, ExecutorService>();
 
@@ -74,6 +112,10 @@ public class ReplicationStorageListener extends DefaultStorageListener {
 	private int replMaxTries = REPL_MAX_TRIES_DEFAULT;
 	private long replTimeout = REPL_TIMEOUT_DEFAULT;
 	private Map<String, ExecutorService> replHosts = REPL_HOSTS_DEFAULT;
+	private String replTransport = REPL_TRANSPORT_DEFAULT;
+	private int replBatchSize = REPL_BATCH_SIZE_DEFAULT;
+	private String replKey = null;
+	private Map<String, SocketReplicationSender> replSenders = new HashMap<String, SocketReplicationSender>();
 
 	/**
 	 * Default constructor used when this object is instantiated via
@@ -102,6 +144,10 @@ public class ReplicationStorageListener extends DefaultStorageListener {
 	 * @param replHosts string list of new hosts
 	 */
 	protected void setReplHosts(List<String> replHosts) {
+		if (TRANSPORT_SOCKET.equals(replTransport)) {
+			setReplSenders(replHosts);
+			return;
+		}
 		this.replHosts = new HashMap<String, ExecutorService>();
 		Iterator<String> replHostsIter = replHosts.iterator();
 		while (replHostsIter.hasNext()) {
@@ -111,6 +157,44 @@ public class ReplicationStorageListener extends DefaultStorageListener {
 		}
 	}
 
+	/**
+	 * Set new replication hosts for socket transport.
+	 *
+	 * @param replHosts string list of host:port, port defaults to 11235
+	 */
+	protected void setReplSenders(List<String> replHosts) {
+		stopReplSenders();
+		for (final String replHost : replHosts) {
+			final int index = replHost.lastIndexOf(':');
+			final String host = index == -1 ? replHost : replHost.substring(0, index);
+			final int port = Integer.parseInt(index == -1
+					? SocketProductSender.DEFAULT_SENDER_PORT
+					: replHost.substring(index + 1));
+			replSenders.put(replHost, new SocketReplicationSender(host, port,
+					(int) replTimeout, replMaxTries, replBatchSize, replKey));
+		}
+	}
+
+	/**
+	 * Stop socket transport senders.
+	 */
+	protected void stopReplSenders() {
+		for (final SocketReplicationSender sender : replSenders.values()) {
+			try {
+				sender.stop();
+			} catch (InterruptedException e) {
+				LOGGER.warning("[" + getName() + "] interrupted stopping sender");
+			}
+		}
+		replSenders.clear();
+	}
+
+	@Override
+	public void shutdown() throws Exception {
+		stopReplSenders();
+		super.shutdown();
+	}
+
 	@Override
 	public void configure(Config config) {
 
@@ -170,6 +254,34 @@ public class ReplicationStorageListener extends DefaultStorageListener {
 			replTimeout = REPL_TIMEOUT_DEFAULT;
 		}
 
+		// -- Configure the replication transport and batch size properties
+		replTransport = config.getProperty(REPL_TRANSPORT_PROPERTY,
+				REPL_TRANSPORT_DEFAULT);
+		if (!TRANSPORT_RSYNC.equals(replTransport)
+				&& !TRANSPORT_SOCKET.equals(replTransport)) {
+			LOGGER.warning("[" + getName()
+					+ "] replicationStorageListener::Unknown transport \""
+					+ replTransport + "\". Using default.");
+			replTransport = REPL_TRANSPORT_DEFAULT;
+		}
+		try {
+			replBatchSize = Integer.parseInt(config.getProperty(
+					REPL_BATCH_SIZE_PROPERTY, Integer.toString(REPL_BATCH_SIZE_DEFAULT)));
+		} catch (NumberFormatException npx) {
+			LOGGER.warning("[" + getName()
+					+ "] replicationStorageListener::Bad value for "
+					+ "replication batch size. Using default.");
+			replBatchSize = REPL_BATCH_SIZE_DEFAULT;
+		}
+		replKey = config.getProperty(REPL_KEY_PROPERTY);
+		if (TRANSPORT_SOCKET.equals(replTransport)
+				&& (replKey == null || replKey.isEmpty())) {
+			LOGGER.warning("[" + getName()
+					+ "] replicationStorageListener::" + REPL_KEY_PROPERTY
+					+ " is required for socket transport, receivers will"
+					+ " refuse changes.");
+		}
+
 		// -- Configure the replication hosts property
 		try {
 			setReplHosts(StringUtils.split(
@@ -219,6 +331,13 @@ public class ReplicationStorageListener extends DefaultStorageListener {
 	protected void syncProductContents(FileProductStorage storage,
 			ProductId id, boolean deleting) throws IOException {
 
+		if (TRANSPORT_SOCKET.equals(replTransport)) {
+			for (final SocketReplicationSender sender : replSenders.values()) {
+				sender.replicate(storage, id, deleting);
+			}
+			return;
+		}
+
 		final File baseDir = storage.getBaseDirectory();
 		final String path = storage.getProductPath(id);
 
@@ -7,10 +7,13 @@ import java.util.Optional;
 import java.util.logging.Logger;
 
 import gov.usgs.earthquake.product.Product;
+import gov.usgs.earthquake.product.ProductDigest;
+import gov.usgs.earthquake.product.ProductDigestCache;
 import gov.usgs.earthquake.product.ProductId;
 import gov.usgs.util.Config;
 import gov.usgs.util.DefaultConfigurable;
 import gov.usgs.util.StreamUtils;
+import gov.usgs.util.CryptoUtils.Version;
 
 public class SignatureVerifier extends DefaultConfigurable {
 
@@ -34,6 +37,11 @@ public class SignatureVerifier extends DefaultConfigurable {
 	/** Property for a file of keys. */
 	public static final String KEYCHAIN_FILE_PROPERTY_NAME = "keychainFile";
 
+	/** Property for whether to reuse verified digests. */
+	public static final String DIGEST_CACHE_PROPERTY_NAME = "digestCache";
+	/** Reuse verified digests (Default). */
+	public static final String DEFAULT_DIGEST_CACHE = "true";
+
 	/** Whether or not to reject invalid signatures. */
 	private boolean rejectInvalidSignatures = false;
 
@@ -49,8 +57,17 @@ public class SignatureVerifier extends DefaultConfigurable {
 	/** List of candidate keys. */
 	private ProductKeyChain keychain;
 
+	/** Verified digests, or null to always compute digests. */
+	private ProductDigestCache digestCache = ProductDigestCache.getDefault();
+
 	@Override
 	public void configure(final Config config) throws Exception {
+		if (!Boolean.valueOf(config.getProperty(DIGEST_CACHE_PROPERTY_NAME,
+				DEFAULT_DIGEST_CACHE))) {
+			digestCache = null;
+			LOGGER.config("[" + getName() + "] digest cache disabled");
+		}
+
 		String verifySignatures = config
 				.getProperty(VERIFY_SIGNATURES_PROPERTY_NAME);
 		// configured
@@ -119,6 +136,16 @@ public class SignatureVerifier extends DefaultConfigurable {
 		this.keychain = keychain;
 	}
 
+	/** @return digest cache, or null if disabled */
+	public ProductDigestCache getDigestCache() {
+		return digestCache;
+	}
+
+	/** @param digestCache ProductDigestCache to set, or null to disable */
+	public void setDigestCache(ProductDigestCache digestCache) {
+		this.digestCache = digestCache;
+	}
+
 	/** @return boolean AllowUnknownSigner */
 	public boolean isAllowUnknownSigner() {
 		return allowUnknownSigner;
@@ -132,6 +159,9 @@ public class SignatureVerifier extends DefaultConfigurable {
 	/**
 	 * Attempt to verify a products signature.
 	 *
+	 * A cached digest is only used when every content has a known sha256 that
+	 * matches the cached digest.
+	 *
 	 * @param product
 	 *            product to verify.
 	 * @return true if the signature is from a key in the keychain.
@@ -142,6 +172,54 @@ public class SignatureVerifier extends DefaultConfigurable {
 	 * @throws Exception if error occurs
 	 */
 	public boolean verifySignature(final Product product) throws Exception {
+		return verifySignature(product, true, true);
+	}
+
+	/**
+	 * Attempt to verify a products signature.
+	 *
+	 * @param product
+	 *            product to verify.
+	 * @param contentVerified
+	 *            true when content bytes were already verified, such as
+	 *            products read from a FileProductStorage that verifies
+	 *            signatures, so a cached digest may be used when product
+	 *            attributes match. Use false to compute the digest from
+	 *            content bytes.
+	 * @return true if the signature is from a key in the keychain.
+	 * @throws InvalidSignatureException
+	 *             if rejectInvalidSignatures=true, and signature was not
+	 *             verified; allowUnknownSigner=true prevents this exception
+	 *             when no keys are found in the keychain for the product.
+	 * @throws Exception if error occurs
+	 * @see #verifySignature(Product)
+	 */
+	public boolean verifySignature(final Product product,
+			final boolean contentVerified) throws Exception {
+		return verifySignature(product, contentVerified, false);
+	}
+
+	/**
+	 * Attempt to verify a products signature.
+	 *
+	 * Digests that verify are added to the digest cache.
+	 *
+	 * @param product
+	 *            product to verify.
+	 * @param useDigestCache
+	 *            whether a cached digest may be used.
+	 * @param verifyContent
+	 *            whether a cached digest requires matching content sha256.
+	 * @return true if the signature is from a key in the keychain.
+	 * @throws InvalidSignatureException
+	 *             if rejectInvalidSignatures=true, and signature was not
+	 *             verified; allowUnknownSigner=true prevents this exception
+	 *             when no keys are found in the keychain for the product.
+	 * @throws Exception if error occurs
+	 */
+	protected boolean verifySignature(final Product product,
+			final boolean useDigestCache, final boolean verifyContent)
+			throws Exception {
 		boolean verified = false;
 		String verifiedKeyName = null;
 
@@ -153,12 +231,23 @@ public class SignatureVerifier extends DefaultConfigurable {
 				candidateKeys = keychain.getProductKeys(id);
 				LOGGER.finer("[" + getName() + "] number of candidate keys="
 						+ candidateKeys.length);
-				if (candidateKeys.length > 0) {
+				if (candidateKeys.length > 0 && product.getSignature() != null) {
+					Version version = product.getSignatureVersion();
+					byte[] digest = null;
+					if (useDigestCache && digestCache != null) {
+						digest = digestCache.getDigest(product, version, verifyContent);
+					}
+					boolean cached = (digest != null);
+					if (!cached) {
+						digest = ProductDigest.digestProduct(product, version);
+					}
 					PublicKey publicKey = product.verifySignatureKey(
-							candidateKeys,
-							product.getSignatureVersion());
+							candidateKeys, version, digest);
 					if (publicKey != null) {
 						verified = true;
+						if (!cached && digestCache != null) {
+							digestCache.put(product, version, digest);
+						}
 						// find key that verified
 						Optional<ProductKey> verifiedKey = keychain.getKeychain()
 								.stream().filter(key -> {
@@ -0,0 +1,494 @@
+/*
+ * SignatureVerifierProductHandler
+ */
+package gov.usgs.earthquake.distribution;
+
+import gov.usgs.earthquake.product.Content;
+import gov.usgs.earthquake.product.InputStreamContent;
+import gov.usgs.earthquake.product.Product;
+import gov.usgs.earthquake.product.ProductDigest;
+import gov.usgs.earthquake.product.ProductDigestCache;
+import gov.usgs.earthquake.product.ProductId;
+import gov.usgs.earthquake.product.io.FilterProductHandler;
+import gov.usgs.earthquake.product.io.ProductHandler;
+import gov.usgs.util.CryptoUtils;
+import gov.usgs.util.CryptoUtils.Version;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Verify a product signature while it is passed to another handler.
+ *
+ * Content bytes are digested as the wrapped handler reads them, so a product
+ * can be stored and verified without reading contents a second time.
+ * Signature v2 uses a sha256 computed from content bytes, signature v1 is
+ * digested in a single pass when properties and links arrive before contents,
+ * and contents arrive in path order (as sent by ObjectProductSource).
+ *
+ * When the verifier has a digest cache, and a digest for the same product id
+ * is cached with content sha256 values, the signature v1 digest is not
+ * computed. The product is verified using the cached digest when all
+ * attributes and content sha256 values match, and verified digests are added
+ * to the cache.
+ *
+ * Verification is attempted in onEndProduct, before the wrapped handler
+ * finishes the product. When the signature is checked and not verified, and
+ * the verifier rejects invalid signatures, onEndProduct throws an
+ * InvalidSignatureException instead of finishing the product. When
+ * {@link #isSignatureChecked()} is false, the digest could not be computed
+ * while streaming (signature v1 out of order, or content not read), and
+ * callers should use
+ * {@link SignatureVerifier#verifySignature(gov.usgs.earthquake.product.Product, boolean)}
+ * to verify (or reject) the stored product.
+ */
+public class SignatureVerifierProductHandler extends FilterProductHandler {
+
+	/** Logging object. */
+	private static final Logger LOGGER = Logger
+			.getLogger(SignatureVerifierProductHandler.class.getName());
+
+	/** Verifier with configured keys. */
+	private final SignatureVerifier verifier;
+
+	/** Keys that may have signed product, empty when not verifying. */
+	private PublicKey[] candidateKeys = new PublicKey[] {};
+
+	/** Product attributes. */
+	private ProductId id;
+	private String status;
+	private URL trackerURL;
+	private final Map<String, String> properties = new TreeMap<String, String>();
+	private final Map<String, TreeSet<URI>> links = new TreeMap<String, TreeSet<URI>>();
+	private final Map<String, Content> contents = new TreeMap<String, Content>();
+	private Version signatureVersion = Version.SIGNATURE_V1;
+	private String signature;
+
+	/** Signature v1 digest, computed while streaming. */
+	private ProductDigest v1Digest;
+	/** Whether calls have arrived in signature v1 order so far. */
+	private boolean v1Streaming = true;
+	/** Whether any content has arrived. */
+	private boolean contentsStarted = false;
+	/** Path of most recent content. */
+	private String lastPath = null;
+	/** Whether all content was read by wrapped handler. */
+	private boolean contentsComplete = true;
+
+	/** Whether product signature was checked while streaming. */
+	private boolean signatureChecked = false;
+	/** Whether product signature was verified. */
+	private boolean signatureVerified = false;
+
+	/** Verified digests, or null. */
+	private final ProductDigestCache digestCache;
+
+	/**
+	 * Create a new SignatureVerifierProductHandler.
+	 *
+	 * @param verifier
+	 *            verifier with configured keys.
+	 * @param output
+	 *            handler that receives product.
+	 */
+	public SignatureVerifierProductHandler(final SignatureVerifier verifier,
+			final ProductHandler output) {
+		super(output);
+		this.verifier = verifier;
+		this.digestCache = verifier.getDigestCache();
+	}
+
+	/**
+	 * @return true if product signature was checked while streaming, and
+	 *         does not need to be verified again.
+	 */
+	public boolean isSignatureChecked() {
+		return signatureChecked;
+	}
+
+	/**
+	 * @return true if product signature was verified while streaming.
+	 */
+	public boolean isSignatureVerified() {
+		return signatureVerified;
+	}
+
+	/**
+	 * Find candidate keys, and begin signature v1 digest.
+	 */
+	@Override
+	public void onBeginProduct(final ProductId id, final String status,
+			final URL trackerURL) throws Exception {
+		super.onBeginProduct(id, status, trackerURL);
+		this.id = id;
+		this.status = status;
+		this.trackerURL = trackerURL;
+
+		ProductKeyChain keychain = verifier.getKeychain();
+		if ((verifier.isTestSignatures() || verifier.isRejectInvalidSignatures())
+				&& keychain != null) {
+			candidateKeys = keychain.getProductKeys(id);
+		}
+		if (isVerifying()) {
+			v1Digest = new ProductDigest(Version.SIGNATURE_V1);
+			v1Digest.onBeginProduct(id, status, trackerURL);
+			if (digestCache != null && digestCache.hasContentSha256(id)) {
+				// content sha256 is enough to use cached digest
+				v1Streaming = false;
+			}
+		}
+	}
+
+	/**
+	 * Save property for digest.
+	 */
+	@Override
+	public void onProperty(final ProductId id, final String name,
+			final String value) throws Exception {
+		super.onProperty(id, name, value);
+		if (contentsStarted) {
+			v1Streaming = false;
+		}
+		properties.put(name, value);
+	}
+
+	/**
+	 * Save link for digest.
+	 */
+	@Override
+	public void onLink(final ProductId id, final String relation,
+			final URI href) throws Exception {
+		super.onLink(id, relation, href);
+		if (contentsStarted) {
+			v1Streaming = false;
+		}
+		TreeSet<URI> relationLinks = links.get(relation);
+		if (relationLinks == null) {
+			relationLinks = new TreeSet<URI>();
+			links.put(relation, relationLinks);
+		}
+		relationLinks.add(href);
+	}
+
+	/**
+	 * Digest content bytes while the wrapped handler reads content.
+	 */
+	@Override
+	public void onContent(final ProductId id, final String path,
+			final Content content) throws Exception {
+		if (!isVerifying()) {
+			super.onContent(id, path, content);
+			return;
+		}
+
+		startContents();
+		if (lastPath != null && path.compareTo(lastPath) <= 0) {
+			v1Streaming = false;
+		}
+		lastPath = path;
+
+		// copy attributes, rounding last modified the same as storage
+		final DigestInputStream in = new DigestInputStream(
+				content.getInputStream());
+		final InputStreamContent streamContent = new InputStreamContent(in);
+		streamContent.setContentType(content.getContentType());
+		streamContent.setLastModified(content.getLastModified());
+		streamContent.setLength(content.getLength());
+		if (v1Streaming && streamContent.getLength() > 0) {
+			v1Digest.onContentAttributes(id, path, streamContent);
+			in.setV1Digest(v1Digest);
+		} else {
+			v1Streaming = false;
+		}
+
+		super.onContent(id, path, streamContent);
+
+		if (!in.isComplete()) {
+			// wrapped handler did not read content
+			contentsComplete = false;
+			return;
+		}
+		if (in.getCount() != streamContent.getLength()) {
+			// signature v1 digest used declared length
+			v1Streaming = false;
+		}
+		// attributes used by signature v2 digest
+		final InputStreamContent digested = new InputStreamContent(
+				(InputStream) null);
+		digested.setContentType(streamContent.getContentType());
+		digested.setLastModified(streamContent.getLastModified());
+		digested.setLength(in.getCount());
+		digested.setSha256(in.getSha256());
+		contents.put(path, digested);
+	}
+
+	/**
+	 * Save signature version for verification.
+	 */
+	@Override
+	public void onSignatureVersion(final ProductId id, final Version version)
+			throws Exception {
+		super.onSignatureVersion(id, version);
+		if (version != null) {
+			signatureVersion = version;
+		}
+	}
+
+	/**
+	 * Save signature for verification.
+	 */
+	@Override
+	public void onSignature(final ProductId id, final String signature)
+			throws Exception {
+		super.onSignature(id, signature);
+		this.signature = signature;
+	}
+
+	/**
+	 * Verify signature, before wrapped handler finishes product.
+	 *
+	 * @throws InvalidSignatureException
+	 *             if signature was checked and not verified, and the verifier
+	 *             rejects invalid signatures.
+	 */
+	@Override
+	public void onEndProduct(final ProductId id) throws Exception {
+		final boolean testing = verifier.isTestSignatures()
+				|| verifier.isRejectInvalidSignatures();
+		if (testing) {
+			if (!isVerifying()) {
+				// no candidate keys, content is not needed
+				if (verifier.getKeychain() == null) {
+					LOGGER.warning("[" + verifier.getName()
+							+ "] missing Signature Keychain");
+				}
+				signatureChecked = true;
+			} else if (signature == null) {
+				signatureChecked = true;
+			} else if (contentsComplete) {
+				final Boolean verified = verifySignature();
+				if (verified != null) {
+					signatureChecked = true;
+					signatureVerified = verified;
+				}
+			}
+		} else {
+			// signatures are not verified
+			signatureChecked = true;
+		}
+		if (testing && signatureChecked) {
+			LOGGER.fine("[" + verifier.getName() + "] signature verified="
+					+ signatureVerified + " while storing, id=" + id);
+			if (!signatureVerified && verifier.isRejectInvalidSignatures()
+					&& !(verifier.isAllowUnknownSigner() && !isVerifying())) {
+				throw new InvalidSignatureException("[" + verifier.getName()
+						+ "] bad signature for id=" + id);
+			}
+		}
+		super.onEndProduct(id);
+	}
+
+	/**
+	 * @return whether there are candidate keys to verify.
+	 */
+	private boolean isVerifying() {
+		return candidateKeys.length > 0;
+	}
+
+	/**
+	 * Digest properties and links before first content, in signature v1
+	 * order.
+	 *
+	 * @throws Exception if error occurs
+	 */
+	private void startContents() throws Exception {
+		if (contentsStarted) {
+			return;
+		}
+		contentsStarted = true;
+		if (v1Streaming) {
+			digestAttributes(v1Digest);
+		}
+	}
+
+	/**
+	 * Digest properties and links in ObjectProductSource order.
+	 *
+	 * @param digest
+	 *            digest to update.
+	 * @throws Exception if error occurs
+	 */
+	private void digestAttributes(final ProductDigest digest) throws Exception {
+		for (final String name : properties.keySet()) {
+			digest.onProperty(id, name, properties.get(name));
+		}
+		for (final String relation : links.keySet()) {
+			for (final URI href : links.get(relation)) {
+				digest.onLink(id, relation, href);
+			}
+		}
+	}
+
+	/**
+	 * Compute digest and check signature against candidate keys.
+	 *
+	 * @return true if a candidate key verified signature, or null if the
+	 *         digest could not be computed while streaming.
+	 * @throws Exception if error occurs
+	 */
+	private Boolean verifySignature() throws Exception {
+		final Product product = getDigestedProduct();
+		byte[] digest = null;
+		if (digestCache != null) {
+			digest = digestCache.getDigest(product, signatureVersion, true);
+		}
+		final boolean cached = (digest != null);
+		if (cached) {
+			LOGGER.finer("[" + verifier.getName() + "] using cached digest, id="
+					+ id);
+		} else if (signatureVersion == Version.SIGNATURE_V2) {
+			ProductDigest v2Digest = new ProductDigest(Version.SIGNATURE_V2);
+			v2Digest.onBeginProduct(id, status, trackerURL);
+			digestAttributes(v2Digest);
+			for (final String path : contents.keySet()) {
+				v2Digest.onContent(id, path, contents.get(path));
+			}
+			v2Digest.onEndProduct(id);
+			digest = v2Digest.getDigest();
+		} else if (v1Streaming) {
+			// products without content
+			startContents();
+			v1Digest.onEndProduct(id);
+			digest = v1Digest.getDigest();
+		} else {
+			return null;
+		}
+
+		for (final PublicKey key : candidateKeys) {
+			try {
+				if (CryptoUtils.verify(key, digest, signature, signatureVersion)) {
+					if (!cached && digestCache != null) {
+						digestCache.put(product, signatureVersion, digest);
+					}
+					return true;
+				}
+			} catch (Exception e) {
+				LOGGER.log(Level.FINEST, "Exception while verifying signature", e);
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return product with streamed attributes, and contents with sha256
+	 *         computed from content bytes.
+	 */
+	private Product getDigestedProduct() {
+		final Product product = new Product(id, status);
+		product.setTrackerURL(trackerURL);
+		product.getProperties().putAll(properties);
+		for (final String relation : links.keySet()) {
+			product.getLinks().put(relation,
+					new ArrayList<URI>(links.get(relation)));
+		}
+		product.getContents().putAll(contents);
+		product.setSignatureVersion(signatureVersion);
+		product.setSignature(signature);
+		return product;
+	}
+
+	/**
+	 * Compute content sha256, and optionally signature v1 digest, as content
+	 * is read.
+	 */
+	private static class DigestInputStream extends FilterInputStream {
+
+		private final MessageDigest sha256;
+		private ProductDigest v1Digest = null;
+		private long count = 0L;
+		private boolean complete = false;
+
+		/**
+		 * @param in
+		 *            content stream.
+		 * @throws Exception if SHA-256 is not available.
+		 */
+		public DigestInputStream(final InputStream in) throws Exception {
+			super(in);
+			sha256 = MessageDigest.getInstance("SHA-256");
+		}
+
+		/**
+		 * @param v1Digest
+		 *            digest that also receives content bytes.
+		 */
+		public void setV1Digest(final ProductDigest v1Digest) {
+			this.v1Digest = v1Digest;
+		}
+
+		/** @return number of bytes read. */
+		public long getCount() {
+			return count;
+		}
+
+		/** @return whether stream was read to end. */
+		public boolean isComplete() {
+			return complete;
+		}
+
+		/** @return base64 encoded sha256 of content. */
+		public String getSha256() {
+			return Base64.getEncoder().encodeToString(sha256.digest());
+		}
+
+		@Override
+		public int read() throws IOException {
+			final byte[] b = new byte[1];
+			final int read = read(b, 0, 1);
+			return read == -1 ? -1 : (b[0] & 0xFF);
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len)
+				throws IOException {
+			final int read = in.read(b, off, len);
+			if (read == -1) {
+				complete = true;
+			} else if (read > 0) {
+				sha256.update(b, off, read);
+				if (v1Digest != null) {
+					v1Digest.onContentBytes(b, off, read);
+				}
+				count += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+			// bytes must be digested
+			final byte[] b = new byte[(int) Math.min(n, 4096L)];
+			final int read = read(b, 0, b.length);
+			return read == -1 ? 0L : read;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+	}
+
+}
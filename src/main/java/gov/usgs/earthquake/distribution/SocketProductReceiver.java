@@ -3,9 +3,17 @@
  */
 package gov.usgs.earthquake.distribution;
 
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -33,6 +41,15 @@ import gov.usgs.util.SocketListenerInterface;
  *
  * Each listener has a separate queue of notifications. Each listener is
  * allocated one thread to process notifications from this queue.
+ *
+ * Accepted connections are processed by a pool of threads. When
+ * connectionQueueSize is greater than zero, connections that cannot be queued
+ * are closed immediately. When busyQueueSize is greater than zero, and a
+ * listener queue is longer, senders using the PDL protocol are told the
+ * receiver is busy instead of sending products.
+ *
+ * When replicationEnabled is true, products and removals are also accepted
+ * from SocketReplicationSenders that authenticate using replicationKey.
  */
 public class SocketProductReceiver extends DefaultNotificationReceiver
 		implements SocketListenerInterface {
@@ -49,6 +66,23 @@ public class SocketProductReceiver extends DefaultNotificationReceiver
 
 	private static final String DEFAULT_SIZE_LIMIT = "-1";
 
+	private static final String BACKLOG_PROPERTY = "backlog";
+
+	private static final String DEFAULT_BACKLOG = "50";
+
+	private static final String CONNECTION_QUEUE_SIZE_PROPERTY = "connectionQueueSize";
+
+	private static final String DEFAULT_CONNECTION_QUEUE_SIZE = "-1";
+
+	private static final String BUSY_QUEUE_SIZE_PROPERTY = "busyQueueSize";
+
+	private static final String DEFAULT_BUSY_QUEUE_SIZE = "-1";
+
+	private static final String REPLICATION_ENABLED_PROPERTY = "replicationEnabled";
+
+	private static final String DEFAULT_REPLICATION_ENABLED = "false";
+
+	private static final String REPLICATION_KEY_PROPERTY = "replicationKey";
 
 	private static final Logger LOGGER = Logger
 			.getLogger(SocketProductReceiver.class.getName());
@@ -56,9 +90,23 @@ public class SocketProductReceiver extends DefaultNotificationReceiver
 	private int port = -1;
 	private int threads = -1;
 	private long sizeLimit = -1;
+	private int backlog = -1;
+	private int connectionQueueSize = -1;
+	private int busyQueueSize = -1;
+	private boolean replicationEnabled = false;
+	private String replicationKey = null;
 
 	private SocketAcceptor acceptor = null;
 
+	/** Number of connections being processed. */
+	private final AtomicInteger activeConnections = new AtomicInteger();
+	/** Number of connections processed. */
+	private final AtomicLong connectionCount = new AtomicLong();
+	/** Number of products refused because receiver was busy. */
+	private final AtomicLong busyCount = new AtomicLong();
+	/** Number of bytes read from connections. */
+	private final AtomicLong bytesReceived = new AtomicLong();
+
 	/**
 	 * Default constructor setting port, threads, and sizeLimit to default
 	 * @throws Exception if error occurs
@@ -68,6 +116,9 @@ public class SocketProductReceiver extends DefaultNotificationReceiver
 		this.port = Integer.parseInt(DEFAULT_PRODUCT_PORT);
 		this.threads = Integer.parseInt(DEFAULT_THREAD_POOL_SIZE);
 		this.sizeLimit = Long.parseLong(DEFAULT_SIZE_LIMIT);
+		this.backlog = Integer.parseInt(DEFAULT_BACKLOG);
+		this.connectionQueueSize = Integer.parseInt(DEFAULT_CONNECTION_QUEUE_SIZE);
+		this.busyQueueSize = Integer.parseInt(DEFAULT_BUSY_QUEUE_SIZE);
 	}
 
 	/**
@@ -95,16 +146,50 @@ public class SocketProductReceiver extends DefaultNotificationReceiver
 				SIZE_LIMIT_PROPERTY, DEFAULT_SIZE_LIMIT));
 		LOGGER.config("[" + getName() + "] size limite is '"
 				+ this.sizeLimit + "'");
+
+		this.backlog = Integer.parseInt(config.getProperty(BACKLOG_PROPERTY,
+				DEFAULT_BACKLOG));
+		LOGGER.config("[" + getName() + "] backlog is '" + this.backlog + "'");
+
+		this.connectionQueueSize = Integer.parseInt(config.getProperty(
+				CONNECTION_QUEUE_SIZE_PROPERTY, DEFAULT_CONNECTION_QUEUE_SIZE));
+		LOGGER.config("[" + getName() + "] connection queue size is '"
+				+ this.connectionQueueSize + "'");
+
+		this.busyQueueSize = Integer.parseInt(config.getProperty(
+				BUSY_QUEUE_SIZE_PROPERTY, DEFAULT_BUSY_QUEUE_SIZE));
+		LOGGER.config("[" + getName() + "] busy queue size is '"
+				+ this.busyQueueSize + "'");
+
+		this.replicationEnabled = Boolean.valueOf(config.getProperty(
+				REPLICATION_ENABLED_PROPERTY, DEFAULT_REPLICATION_ENABLED));
+		this.replicationKey = config.getProperty(REPLICATION_KEY_PROPERTY);
+		if (this.replicationEnabled
+				&& (this.replicationKey == null || this.replicationKey.isEmpty())) {
+			throw new ConfigurationException("[" + getName() + "] "
+					+ REPLICATION_KEY_PROPERTY + " is required when "
+					+ REPLICATION_ENABLED_PROPERTY + " is true");
+		}
+		LOGGER.config("[" + getName() + "] replication enabled is '"
+				+ this.replicationEnabled + "'");
 	}
 
 	public void startup() throws Exception {
 		// call DefaultNotificationReceiver startup first
 		super.startup();
 
-		ServerSocket socket = new ServerSocket(port);
+		ServerSocket socket = new ServerSocket();
+		// must be set before binding to have any effect
 		socket.setReuseAddress(true);
+		socket.bind(new InetSocketAddress(port), backlog);
+
+		// bounded queue when configured, connections that don't fit are closed
+		BlockingQueue<Runnable> queue = connectionQueueSize > 0
+				? new ArrayBlockingQueue<Runnable>(connectionQueueSize)
+				: new LinkedBlockingQueue<Runnable>();
 		acceptor = new SocketAcceptor(socket, this,
-				Executors.newFixedThreadPool(threads));
+				new ThreadPoolExecutor(threads, threads, 0L,
+						TimeUnit.MILLISECONDS, queue));
 		// start accepting connections via socket
 		acceptor.start();
 	}
@@ -121,8 +206,14 @@ public class SocketProductReceiver extends DefaultNotificationReceiver
 		LOGGER.info("[" + getName() + "] accepted connection "
 				+ socket.toString());
 
+		final int active = activeConnections.incrementAndGet();
+		HeartbeatListener.setHeartbeatGauge(getName(), "active connections",
+				active);
+		final long start = System.currentTimeMillis();
+		SocketProductReceiverHandler handler = null;
 		try {
-			new SocketProductReceiverHandler(this, socket).run();
+			handler = new SocketProductReceiverHandler(this, socket);
+			handler.run();
 		} catch (Exception e) {
 			LOGGER.log(Level.WARNING,
 					"[" + getName() + "] uncaught exception processing "
@@ -144,10 +235,51 @@ public class SocketProductReceiver extends DefaultNotificationReceiver
 			} catch (Exception e) {
 				// ignore
 			}
+
+			HeartbeatListener.setHeartbeatGauge(getName(), "active connections",
+					activeConnections.decrementAndGet());
+			connectionCount.incrementAndGet();
 		}
 
+		final long bytes = handler == null ? 0L : handler.getBytesRead();
+		final long elapsed = Math.max(1L, System.currentTimeMillis() - start);
+		final long bytesPerSecond = bytes * 1000L / elapsed;
+		bytesReceived.addAndGet(bytes);
+		HeartbeatListener.sendHeartbeatMessage(getName(), "bytes per second",
+				Long.toString(bytesPerSecond));
 		LOGGER.info("[" + getName() + "] closed connection "
-				+ socket.toString());
+				+ socket.toString() + ", read " + bytes + " bytes in "
+				+ elapsed + "ms (" + bytesPerSecond + " bytes/s)");
+	}
+
+	/**
+	 * Check whether listener queues are too long to accept more products.
+	 *
+	 * @return true if busyQueueSize is greater than zero, and at least one
+	 *         listener queue is longer.
+	 */
+	public boolean isBusy() {
+		if (busyQueueSize <= 0) {
+			return false;
+		}
+		final Map<String, Integer> status = getQueueStatus();
+		if (status != null) {
+			for (final Integer size : status.values()) {
+				if (size != null && size > busyQueueSize) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Called by SocketProductReceiverHandler when a product is refused because
+	 * receiver is busy.
+	 */
+	protected void onBusy() {
+		busyCount.incrementAndGet();
+		HeartbeatListener.incrementHeartbeatCounter(getName(), "busy count");
 	}
 
 	/**
@@ -208,4 +340,79 @@ public class SocketProductReceiver extends DefaultNotificationReceiver
 		this.threads = threads;
 	}
 
+	/** @return backlog */
+	public int getBacklog() {
+		return backlog;
+	}
+
+	/** @param backlog int to set */
+	public void setBacklog(int backlog) {
+		this.backlog = backlog;
+	}
+
+	/** @return connectionQueueSize */
+	public int getConnectionQueueSize() {
+		return connectionQueueSize;
+	}
+
+	/** @param connectionQueueSize int to set */
+	public void setConnectionQueueSize(int connectionQueueSize) {
+		this.connectionQueueSize = connectionQueueSize;
+	}
+
+	/** @return busyQueueSize */
+	public int getBusyQueueSize() {
+		return busyQueueSize;
+	}
+
+	/** @param busyQueueSize int to set */
+	public void setBusyQueueSize(int busyQueueSize) {
+		this.busyQueueSize = busyQueueSize;
+	}
+
+	/** @return whether replicated products and removals are accepted */
+	public boolean isReplicationEnabled() {
+		return replicationEnabled;
+	}
+
+	/** @param replicationEnabled boolean to set */
+	public void setReplicationEnabled(boolean replicationEnabled) {
+		this.replicationEnabled = replicationEnabled;
+	}
+
+	/** @return key shared with replication senders */
+	public String getReplicationKey() {
+		return replicationKey;
+	}
+
+	/** @param replicationKey String to set */
+	public void setReplicationKey(String replicationKey) {
+		this.replicationKey = replicationKey;
+	}
+
+	/** @return number of connections being processed */
+	public int getActiveConnections() {
+		return activeConnections.get();
+	}
+
+	/** @return number of connections processed */
+	public long getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	/** @return number of products refused because receiver was busy */
+	public long getBusyCount() {
+		return busyCount.get();
+	}
+
+	/** @return number of connections closed because queue was full */
+	public long getRejectedCount() {
+		return acceptor == null ? 0L : acceptor.getRejectedCount();
+	}
+
+	/** @return number of bytes read from connections */
+	public long getBytesReceived() {
+		return bytesReceived.get();
+	}
+
 }
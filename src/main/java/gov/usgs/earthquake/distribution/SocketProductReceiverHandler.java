@@ -5,11 +5,23 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.crypto.Mac;
+
 import gov.usgs.earthquake.product.ProductId;
 import gov.usgs.earthquake.product.io.BinaryIO;
+import gov.usgs.earthquake.product.io.BinaryProductSource;
+import gov.usgs.earthquake.product.io.BufferedBinaryIO;
 import gov.usgs.earthquake.product.io.IOUtil;
 import gov.usgs.earthquake.util.SizeLimitInputStream;
 import gov.usgs.util.ObjectLock;
@@ -22,14 +34,25 @@ public class SocketProductReceiverHandler implements Runnable {
 	/** buffer for PDL protocol. Set to 1024 */
 	public static final int PDL_PROTOCOL_BUFFER = 1024;
 
+	/** maximum number of changes in one replication batch. */
+	public static final int MAX_REPLICATION_BATCH = 10000;
+
+	/** number of random bytes in a replication challenge. */
+	public static final int REPLICATION_CHALLENGE_BYTES = 32;
+
+	/** source of replication challenges. */
+	private static final SecureRandom RANDOM = new SecureRandom();
+
 	/** Protected Variable for BinaryIO */
-	protected final BinaryIO io = new BinaryIO();
+	protected final BinaryIO io = new BufferedBinaryIO();
 	/** Protected Variable for SocketProductReceiver */
 	protected final SocketProductReceiver receiver;
 	/** Protected Variable for Socket */
 	protected final Socket socket;
 	/** Protected Variable for a string of protocolVersion */
 	protected String protocolVersion;
+	/** Counts bytes read from socket */
+	protected SizeLimitInputStream countingIn;
 
 	/**
 	 * Constructor
@@ -75,6 +98,13 @@ public class SocketProductReceiverHandler implements Runnable {
 		}
 	}
 
+	/**
+	 * @return number of bytes read from socket.
+	 */
+	public long getBytesRead() {
+		return countingIn == null ? 0L : countingIn.getRead();
+	}
+
 	/**
 	 * Read PDL protocol version.
 	 *
@@ -111,7 +141,10 @@ public class SocketProductReceiverHandler implements Runnable {
 
 		try {
 			socket.setSoTimeout(receiver.getReadTimeout());
-			in = new BufferedInputStream(socket.getInputStream());
+			// no limit, only counts bytes
+			countingIn = new SizeLimitInputStream(socket.getInputStream(),
+					Long.MAX_VALUE);
+			in = new BufferedInputStream(countingIn);
 			out = socket.getOutputStream();
 
 			in.mark(PDL_PROTOCOL_BUFFER);
@@ -145,11 +178,24 @@ public class SocketProductReceiverHandler implements Runnable {
 						// have product, don't send
 						sendString(out, SocketProductSender.ALREADY_HAVE_PRODUCT);
 						return;
+					} else if (receiver.isBusy()) {
+						// shed load until listener queues are shorter
+						LOGGER.fine("[" + receiver.getName() + "] busy, refusing "
+								+ productId + " from " + socket);
+						receiver.onBusy();
+						sendString(out, SocketProductSender.RECEIVER_BUSY);
+						return;
 					} else {
 						// don't have product
 						sendString(out, SocketProductSender.UNKNOWN_PRODUCT);
 						out.flush();
 					}
+				} else if (SocketReplicationSender.PROTOCOL_VERSION.equals(protocolVersion)) {
+					if (!receiver.isReplicationEnabled()) {
+						throw new IOException("replication not enabled");
+					}
+					receiveReplication(in, out);
+					return;
 				} else {
 					throw new IOException("unsupported protocol version");
 				}
@@ -187,6 +233,127 @@ public class SocketProductReceiverHandler implements Runnable {
 		}
 	}
 
+	/**
+	 * Receive a batch of changes from a SocketReplicationSender.
+	 *
+	 * The batch is only applied after its MAC is verified using the
+	 * receiver replication key. Only the last change for each product id is
+	 * applied, earlier changes are superseded, so changes are applied in
+	 * order. Removed products are removed from receiver storage and
+	 * notification index, and stored products are added to receiver storage
+	 * and notification index. Listeners are not notified.
+	 *
+	 * @param in input stream to read
+	 * @param out output stream to write replies
+	 * @throws Exception if unable to read or authenticate changes, or store a
+	 *         product
+	 */
+	protected void receiveReplication(final InputStream in, final OutputStream out)
+			throws Exception {
+		final ProductStorage storage = receiver.getProductStorage();
+		final byte[] challengeBytes = new byte[REPLICATION_CHALLENGE_BYTES];
+		RANDOM.nextBytes(challengeBytes);
+		final String challenge = Base64.getEncoder().encodeToString(challengeBytes);
+		io.writeString(challenge, out);
+		out.flush();
+
+		final Mac mac = SocketReplicationSender.createMac(
+				receiver.getReplicationKey(), challenge);
+		final int count = io.readInt(in);
+		if (count < 0 || count > MAX_REPLICATION_BATCH) {
+			throw new IOException("bad replication batch size " + count);
+		}
+		final String[] changes = new String[count];
+		final ProductId[] ids = new ProductId[count];
+		// index of last change for each product
+		final Map<ProductId, Integer> last = new HashMap<ProductId, Integer>();
+		for (int i = 0; i < count; i++) {
+			changes[i] = io.readString(in, PDL_PROTOCOL_BUFFER);
+			final String id = io.readString(in, PDL_PROTOCOL_BUFFER);
+			if (!SocketReplicationSender.REMOVE.equals(changes[i])
+					&& !SocketReplicationSender.STORE.equals(changes[i])) {
+				throw new IOException("unknown replication change '" + changes[i] + "'");
+			}
+			SocketReplicationSender.updateMac(mac, changes[i], id);
+			ids[i] = ProductId.parse(id);
+			last.put(ids[i], i);
+		}
+		final byte[] expected = mac.doFinal();
+		final byte[] actual = Base64.getDecoder().decode(
+				io.readString(in, PDL_PROTOCOL_BUFFER).getBytes(StandardCharsets.UTF_8));
+		if (!MessageDigest.isEqual(expected, actual)) {
+			throw new IOException("replication not authorized");
+		}
+
+		final List<ProductId> send = new ArrayList<ProductId>();
+		for (int i = 0; i < count; i++) {
+			final ProductId id = ids[i];
+			if (last.get(id) != i) {
+				io.writeString(SocketReplicationSender.SUPERSEDED, out);
+			} else if (SocketReplicationSender.REMOVE.equals(changes[i])) {
+				try {
+					removeReplicatedProduct(id);
+					io.writeString(SocketReplicationSender.REMOVED, out);
+					LOGGER.fine("[" + receiver.getName() + "] replicated removal of "
+							+ id);
+				} catch (Exception e) {
+					io.writeString(SocketProductSender.RECEIVE_ERROR + " '"
+							+ e.getMessage() + "'", out);
+				}
+			} else if (storage.hasProduct(id)) {
+				io.writeString(SocketReplicationSender.HAVE_PRODUCT, out);
+			} else {
+				io.writeString(SocketReplicationSender.SEND_PRODUCT, out);
+				send.add(id);
+			}
+		}
+		out.flush();
+
+		for (final ProductId id : send) {
+			InputStream productIn = new StreamUtils.UnclosableInputStream(in);
+			if (receiver.getSizeLimit() > 0) {
+				productIn = new SizeLimitInputStream(productIn, receiver.getSizeLimit());
+			}
+			final Notification notification;
+			acquireWriteLock(id);
+			try {
+				// product stream is not self-delimiting if storing fails,
+				// so any exception ends the batch
+				notification = receiver.storeProductSource(
+						new BinaryProductSource(productIn));
+			} finally {
+				releaseWriteLock(id);
+			}
+			if (notification == null || !id.equals(notification.getProductId())) {
+				throw new IOException("expected product " + id);
+			}
+			io.writeString(SocketReplicationSender.STORED, out);
+			LOGGER.info("[" + receiver.getName() + "] replicated product '" + id
+					+ "' from " + socket.toString());
+		}
+		out.flush();
+	}
+
+	/**
+	 * Remove a replicated product from receiver storage, and its
+	 * notifications from the receiver notification index.
+	 *
+	 * @param id product to remove
+	 * @throws Exception if unable to remove product or notifications
+	 */
+	protected void removeReplicatedProduct(final ProductId id) throws Exception {
+		acquireWriteLock(id);
+		try {
+			receiver.getProductStorage().removeProduct(id);
+			final NotificationIndex index = receiver.getNotificationIndex();
+			for (final Notification notification : index.findNotifications(id)) {
+				index.removeNotification(notification);
+			}
+		} finally {
+			releaseWriteLock(id);
+		}
+	}
+
 	/**
 	 * Send an exception to the user.
 	 *
@@ -6,8 +6,10 @@ package gov.usgs.earthquake.distribution;
 import gov.usgs.earthquake.product.Product;
 import gov.usgs.earthquake.product.io.BinaryIO;
 import gov.usgs.earthquake.product.io.BinaryProductHandler;
+import gov.usgs.earthquake.product.io.BufferedBinaryIO;
 import gov.usgs.earthquake.product.io.ObjectProductSource;
 import gov.usgs.earthquake.product.io.XmlProductHandler;
+import gov.usgs.earthquake.util.ChannelOutputStream;
 import gov.usgs.earthquake.util.TimeoutOutputStream;
 import gov.usgs.util.Config;
 import gov.usgs.util.DefaultConfigurable;
@@ -25,6 +27,7 @@ import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
+import java.nio.channels.SocketChannel;
 import java.util.logging.Logger;
 import java.util.zip.Deflater;
 import java.util.zip.DeflaterOutputStream;
@@ -106,6 +109,8 @@ public class SocketProductSender extends DefaultConfigurable implements
 	public static final String ALREADY_HAVE_PRODUCT = "Already have product";
 	/** Static var for a receive error */
 	public static final String RECEIVE_ERROR = "Error receiving product";
+	/** Static var for a receiver that is not accepting products */
+	public static final String RECEIVER_BUSY = "Receiver busy";
 
 	/** Whether to store in binary format (true), or xml format (false). */
 	private boolean binaryFormat = false;
@@ -196,14 +201,17 @@ public class SocketProductSender extends DefaultConfigurable implements
 	 * Updates may be retrieved from a ProductTracker.
 	 */
 	public void sendProduct(Product product) throws Exception {
-		BinaryIO io = new BinaryIO();
+		BinaryIO io = new BufferedBinaryIO();
 		boolean sendProduct = true;
 		String status = null;
 		ObjectProductSource productSource = null;
 		InputStream in = null;
 		OutputStream out = null;
+		// file content can be sent directly to socket when not wrapped
+		final boolean transferFiles = binaryFormat && !enableDeflate
+				&& writeTimeout <= 0;
 		try {
-			socket = new Socket();
+			socket = transferFiles ? SocketChannel.open().socket() : new Socket();
 			socket.setSoTimeout(readTimeout);
 			socket.connect(new InetSocketAddress(host, port), connectTimeout);
 			LOGGER.info("[" + getName() + "] sending product to "
@@ -212,7 +220,9 @@ public class SocketProductSender extends DefaultConfigurable implements
 			productSource = new ObjectProductSource(product);
 
 			in = new BufferedInputStream(socket.getInputStream());
-			out = new BufferedOutputStream(socket.getOutputStream());
+			out = transferFiles
+					? new ChannelOutputStream(socket.getChannel())
+					: new BufferedOutputStream(socket.getOutputStream());
 			if (writeTimeout > 0) {
 				out = new TimeoutOutputStream(out, writeTimeout);
 			}
@@ -232,6 +242,9 @@ public class SocketProductSender extends DefaultConfigurable implements
 					sendProduct = false;
 				} else if (UNKNOWN_PRODUCT.equals(status)) {
 					// hub doesn't have this product, send
+				} else if (RECEIVER_BUSY.equals(status)) {
+					// hub is shedding load, try again later
+					throw new Exception("Hub busy, not accepting products");
 				} else {
 					// unexpected reply, don't consider it success
 					throw new Exception("Unexpected hub reply '" + status + "'");
@@ -246,9 +259,10 @@ public class SocketProductSender extends DefaultConfigurable implements
 							deflateLevel));
 				}
 
-				// make sure product handler doesn't close stream before done
-				OutputStream productOut = new StreamUtils.UnclosableOutputStream(
-						out);
+				// make sure product handler doesn't close stream before done,
+				// ChannelOutputStream does not close socket
+				OutputStream productOut = transferFiles ? out
+						: new StreamUtils.UnclosableOutputStream(out);
 				if (binaryFormat) {
 					productSource
 							.streamTo(new BinaryProductHandler(productOut));
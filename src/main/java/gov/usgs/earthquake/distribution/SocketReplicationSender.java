@@ -0,0 +1,366 @@
+/*
+ * SocketReplicationSender
+ */
+package gov.usgs.earthquake.distribution;
+
+import gov.usgs.earthquake.product.ProductId;
+import gov.usgs.earthquake.product.io.BinaryIO;
+import gov.usgs.earthquake.product.io.BinaryProductHandler;
+import gov.usgs.earthquake.product.io.BufferedBinaryIO;
+import gov.usgs.earthquake.util.ChannelOutputStream;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Replicate products from a FileProductStorage to a SocketProductReceiver.
+ *
+ * Stored and removed products are queued, and a background thread sends
+ * queued changes in batches, using one connection per batch. Products are
+ * sent in binary format, so no external processes are used, and stored file
+ * contents are transferred directly from files to the socket.
+ *
+ * The protocol, after the PDL protocol header and PROTOCOL_VERSION:
+ * <ol>
+ * <li>receiver writes a random challenge.</li>
+ * <li>sender writes the number of changes, then STORE or REMOVE and a
+ * product id for each change, then a MAC of the challenge and changes using
+ * the shared replication key.</li>
+ * <li>receiver verifies the MAC, then replies to each change: SUPERSEDED
+ * when a later change in the batch has the same product id, REMOVED after
+ * removing a product, HAVE_PRODUCT when a stored product already exists, or
+ * SEND_PRODUCT.</li>
+ * <li>sender writes each product the receiver asked for.</li>
+ * <li>receiver replies STORED to each product it stored.</li>
+ * </ol>
+ * Any other reply is an error message.
+ *
+ * Changes are sent in the order they were queued. When a change is not
+ * confirmed, it and the rest of its batch are returned to the front of the
+ * queue in their original order, so a later change for the same product is
+ * never applied before an earlier one. A change is dropped after it has been
+ * tried maxTries times.
+ */
+public class SocketReplicationSender implements Runnable {
+
+	private static final Logger LOGGER = Logger
+			.getLogger(SocketReplicationSender.class.getName());
+
+	/** PDL protocol version used for replication. */
+	public static final String PROTOCOL_VERSION = "replication-v1.0";
+
+	/** Change that stores a product. */
+	public static final String STORE = "store";
+	/** Change that removes a product. */
+	public static final String REMOVE = "remove";
+
+	/** Reply when receiver needs product. */
+	public static final String SEND_PRODUCT = "send";
+	/** Reply when receiver already has product. */
+	public static final String HAVE_PRODUCT = "have";
+	/** Reply after receiver removes product. */
+	public static final String REMOVED = "removed";
+	/** Reply after receiver stores product. */
+	public static final String STORED = "stored";
+	/** Reply when a later change in the batch has the same product id. */
+	public static final String SUPERSEDED = "superseded";
+
+	/** Algorithm used to authenticate batches. */
+	public static final String MAC_ALGORITHM = "HmacSHA256";
+
+	/** Delay before sending again after an error, in milliseconds. */
+	private static final long ERROR_DELAY = 1000L;
+
+	private final String host;
+	private final int port;
+	private final int timeout;
+	private final int maxTries;
+	private final int batchSize;
+	private final String key;
+
+	private final BinaryIO io = new BufferedBinaryIO();
+	private final LinkedBlockingDeque<Change> queue = new LinkedBlockingDeque<Change>();
+	private final Thread thread;
+	private volatile boolean stopped = false;
+
+	/**
+	 * Create a sender and start its background thread.
+	 *
+	 * @param host
+	 *            host of SocketProductReceiver.
+	 * @param port
+	 *            port of SocketProductReceiver.
+	 * @param timeout
+	 *            connect and read timeout in milliseconds, or 0 for none.
+	 * @param maxTries
+	 *            number of times to try each change.
+	 * @param batchSize
+	 *            maximum number of changes sent per connection.
+	 * @param key
+	 *            replication key shared with receiver.
+	 */
+	public SocketReplicationSender(final String host, final int port,
+			final int timeout, final int maxTries, final int batchSize,
+			final String key) {
+		this.host = host;
+		this.port = port;
+		this.timeout = timeout;
+		this.maxTries = Math.max(1, maxTries);
+		this.batchSize = Math.max(1, batchSize);
+		this.key = key;
+
+		thread = new Thread(this, "SocketReplicationSender " + host + ":" + port);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Queue a change to replicate.
+	 *
+	 * @param storage
+	 *            storage where product was stored or removed.
+	 * @param id
+	 *            product that changed.
+	 * @param deleting
+	 *            true if product was removed.
+	 */
+	public void replicate(final FileProductStorage storage, final ProductId id,
+			final boolean deleting) {
+		queue.add(new Change(storage, id, deleting));
+	}
+
+	/**
+	 * Stop the background thread. Queued changes are not sent.
+	 *
+	 * @throws InterruptedException if interrupted while waiting for thread
+	 */
+	public void stop() throws InterruptedException {
+		stopped = true;
+		thread.interrupt();
+		thread.join();
+	}
+
+	/** @return number of changes waiting to be sent. */
+	public int getQueueSize() {
+		return queue.size();
+	}
+
+	/**
+	 * Send queued changes in batches until stopped.
+	 */
+	@Override
+	public void run() {
+		final List<Change> batch = new ArrayList<Change>(batchSize);
+		while (!stopped) {
+			try {
+				batch.add(queue.take());
+				queue.drainTo(batch, batchSize - 1);
+				if (!sendBatch(batch)) {
+					Thread.sleep(ERROR_DELAY);
+				}
+			} catch (InterruptedException e) {
+				break;
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	/**
+	 * Send a batch of changes using one connection.
+	 *
+	 * Changes that are not confirmed are returned to the front of the queue,
+	 * in order, unless they have been tried maxTries times.
+	 *
+	 * @param batch
+	 *            changes to send, in the order they were queued.
+	 * @return true if all changes were confirmed.
+	 */
+	protected boolean sendBatch(final List<Change> batch) {
+		final List<Change> pending = new ArrayList<Change>(batch);
+		Socket socket = null;
+		try {
+			socket = SocketChannel.open().socket();
+			socket.setSoTimeout(timeout);
+			socket.connect(new InetSocketAddress(host, port), timeout);
+			final InputStream in = new BufferedInputStream(socket.getInputStream());
+			// stored file contents are sent directly to socket
+			final OutputStream out = new ChannelOutputStream(socket.getChannel());
+
+			out.write(SocketProductSender.PROTOCOL_HEADER);
+			io.writeString(PROTOCOL_VERSION, out);
+			out.flush();
+
+			final Mac mac = createMac(key, io.readString(in));
+			io.writeInt(batch.size(), out);
+			for (final Change change : batch) {
+				final String type = change.deleting ? REMOVE : STORE;
+				final String id = change.id.toString();
+				io.writeString(type, out);
+				io.writeString(id, out);
+				updateMac(mac, type, id);
+			}
+			io.writeString(Base64.getEncoder().encodeToString(mac.doFinal()), out);
+			out.flush();
+
+			final List<Change> send = new ArrayList<Change>();
+			for (final Change change : batch) {
+				final String reply = io.readString(in);
+				if (SEND_PRODUCT.equals(reply)) {
+					send.add(change);
+				} else if (REMOVED.equals(reply) || HAVE_PRODUCT.equals(reply)
+						|| SUPERSEDED.equals(reply)) {
+					pending.remove(change);
+					onChangeComplete(change, true);
+				} else {
+					LOGGER.warning("[" + host + ":" + port + "] error replicating "
+							+ change.id + ", '" + reply + "'");
+				}
+			}
+
+			for (final Change change : send) {
+				// ChannelOutputStream does not close socket
+				change.storage.getProductSource(change.id).streamTo(
+						new BinaryProductHandler(out));
+			}
+			out.flush();
+
+			for (final Change change : send) {
+				final String reply = io.readString(in);
+				if (STORED.equals(reply)) {
+					pending.remove(change);
+					onChangeComplete(change, true);
+				} else {
+					LOGGER.warning("[" + host + ":" + port + "] error replicating "
+							+ change.id + ", '" + reply + "'");
+				}
+			}
+			LOGGER.fine("[" + host + ":" + port + "] replicated "
+					+ (batch.size() - pending.size()) + " of " + batch.size()
+					+ " changes");
+		} catch (Exception e) {
+			LOGGER.log(Level.WARNING, "[" + host + ":" + port
+					+ "] exception replicating batch", e);
+		} finally {
+			if (socket != null) {
+				try {
+					socket.close();
+				} catch (Exception e) {
+					// ignore
+				}
+			}
+		}
+
+		// return to front of queue in original order, ahead of later changes
+		for (int i = pending.size() - 1; i >= 0; i--) {
+			final Change change = pending.get(i);
+			if (++change.tries < maxTries) {
+				queue.addFirst(change);
+			} else {
+				LOGGER.warning("[" + host + ":" + port + "] giving up replicating "
+						+ change.id + " after " + change.tries + " tries");
+				onChangeComplete(change, false);
+			}
+		}
+		return pending.size() == 0;
+	}
+
+	/**
+	 * Called when a change is confirmed by the receiver, or dropped after
+	 * maxTries.
+	 *
+	 * @param change
+	 *            change that completed.
+	 * @param replicated
+	 *            true if confirmed, false if dropped.
+	 */
+	protected void onChangeComplete(final Change change,
+			final boolean replicated) {
+	}
+
+	/**
+	 * Create a MAC used to authenticate a batch.
+	 *
+	 * @param key
+	 *            replication key shared by sender and receiver.
+	 * @param challenge
+	 *            challenge sent by receiver.
+	 * @return MAC that has been updated with challenge.
+	 * @throws GeneralSecurityException
+	 *             if key is null or empty, or MAC_ALGORITHM is not available.
+	 */
+	public static Mac createMac(final String key, final String challenge)
+			throws GeneralSecurityException {
+		if (key == null || key.isEmpty()) {
+			throw new GeneralSecurityException("replication key not configured");
+		}
+		final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+		mac.init(new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8),
+				MAC_ALGORITHM));
+		mac.update(challenge.getBytes(StandardCharsets.UTF_8));
+		return mac;
+	}
+
+	/**
+	 * Add a change to a batch MAC.
+	 *
+	 * @param mac
+	 *            MAC from createMac.
+	 * @param type
+	 *            STORE or REMOVE.
+	 * @param id
+	 *            product id string.
+	 */
+	public static void updateMac(final Mac mac, final String type,
+			final String id) {
+		mac.update(("\n" + type + " " + id).getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * A stored or removed product.
+	 */
+	protected static class Change {
+		private final FileProductStorage storage;
+		private final ProductId id;
+		private final boolean deleting;
+		private int tries = 0;
+
+		/**
+		 * @param storage storage where product changed
+		 * @param id product that changed
+		 * @param deleting true if product was removed
+		 */
+		public Change(final FileProductStorage storage, final ProductId id,
+				final boolean deleting) {
+			this.storage = storage;
+			this.id = id;
+			this.deleting = deleting;
+		}
+
+		/** @return product that changed */
+		public ProductId getId() {
+			return id;
+		}
+
+		/** @return true if product was removed */
+		public boolean isDeleting() {
+			return deleting;
+		}
+	}
+
+}
@@ -0,0 +1,117 @@
+package gov.usgs.earthquake.distribution;
+
+import gov.usgs.earthquake.product.ProductId;
+import gov.usgs.util.StripedExecutorService;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+/**
+ * StripedListenerNotifier is similar to ExecutorListenerNotifier, but runs
+ * multiple single threaded stripes for each listener.
+ *
+ * Notifications are assigned to a stripe using the product source, type, and
+ * code; so updates to the same product are processed in order, while other
+ * products are processed concurrently.
+ *
+ * The number of stripes is the listener concurrentProducts, when the listener
+ * is a DefaultNotificationListener, otherwise 1.
+ */
+public class StripedListenerNotifier extends ExecutorListenerNotifier {
+
+	private static final Logger LOGGER = Logger
+			.getLogger(StripedListenerNotifier.class.getName());
+
+	/**
+	 * Constructor
+	 * @param receiver DefaultNotificationReceiver
+	 */
+	public StripedListenerNotifier(final DefaultNotificationReceiver receiver) {
+		super(receiver);
+	}
+
+	@Override
+	public void addNotificationListener(NotificationListener listener)
+			throws Exception {
+		if (!notificationListeners.containsKey(listener)) {
+			int concurrentProducts = 1;
+			if (listener instanceof DefaultNotificationListener) {
+				concurrentProducts =
+						((DefaultNotificationListener) listener).getConcurrentProducts();
+			}
+			LOGGER.config("[" + getReceiver().getName() + "] listener ("
+					+ listener.getName() + ") using " + concurrentProducts
+					+ " stripes");
+			notificationListeners.put(listener,
+					new StripedExecutorService(concurrentProducts));
+		}
+	}
+
+	/**
+	 * Get the stripe for a product.
+	 */
+	@Override
+	protected ExecutorService getListenerExecutor(
+			final NotificationListener listener, final NotificationEvent event) {
+		ExecutorService listenerExecutor = notificationListeners.get(listener);
+		if (listenerExecutor instanceof StripedExecutorService) {
+			return ((StripedExecutorService) listenerExecutor).getStripe(
+					getStripeKey(event.getNotification().getProductId()));
+		}
+		return listenerExecutor;
+	}
+
+	/**
+	 * @param id product id.
+	 * @return key that is the same for all updates of a product.
+	 */
+	protected String getStripeKey(final ProductId id) {
+		return id.getSource() + "|" + id.getType() + "|" + id.getCode();
+	}
+
+	/**
+	 * Includes queue length for each listener, and each listener stripe.
+	 *
+	 * @return map of status
+	 */
+	@Override
+	public Map<String, Integer> getStatus() {
+		Map<String, Integer> status = super.getStatus();
+
+		for (final NotificationListener listener : notificationListeners.keySet()) {
+			ExecutorService listenerExecutor = notificationListeners.get(listener);
+			if (listenerExecutor instanceof StripedExecutorService) {
+				StripedExecutorService striped = (StripedExecutorService) listenerExecutor;
+				String key = getReceiver().getName() + " - " + listener.getName();
+				int[] sizes = striped.getQueueSizes();
+				int total = 0;
+				for (int i = 0; i < sizes.length; i++) {
+					status.put(key + " - stripe " + i, sizes[i]);
+					total += sizes[i];
+				}
+				status.put(key, total);
+			}
+		}
+
+		return status;
+	}
+
+	/**
+	 * Uses total queue length of all stripes for each listener.
+	 */
+	@Override
+	public Integer getMaxQueueSize() {
+		Integer maxSize = super.getMaxQueueSize();
+		for (final ExecutorService listenerExecutor : notificationListeners.values()) {
+			if (listenerExecutor instanceof StripedExecutorService) {
+				int size = ((StripedExecutorService) listenerExecutor).getQueueSize();
+				if (maxSize == null || size > maxSize) {
+					maxSize = size;
+				}
+			}
+		}
+		return maxSize;
+	}
+
+}
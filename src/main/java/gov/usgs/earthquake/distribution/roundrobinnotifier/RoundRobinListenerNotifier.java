@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,6 +29,9 @@ public class RoundRobinListenerNotifier extends DefaultConfigurable implements
 	private static final Logger LOGGER = Logger
 			.getLogger(RoundRobinListenerNotifier.class.getName());
 
+	/** Number of notifications loaded at a time when requeueing. */
+	private static final int REQUEUE_PAGE_SIZE = 1000;
+
 	/** List of indexes that have already been requeued. */
 	private static final ArrayList<String> AUTOLOADED_INDEXES = new ArrayList<String>();
 
@@ -193,9 +195,8 @@ public class RoundRobinListenerNotifier extends DefaultConfigurable implements
 
 		LOGGER.fine("[" + receiver.getName()
 				+ "-notifier] requeuing notifications");
-		Iterator<Notification> notifications = index.findNotifications(
-				(List<String>) null, (List<String>) null, (List<String>) null)
-				.iterator();
+		Iterator<Notification> notifications = index.iterateNotifications(
+				REQUEUE_PAGE_SIZE);
 		while (notifications.hasNext()) {
 			Notification notification = notifications.next();
 			notifyListeners(new NotificationEvent(receiver, notification),
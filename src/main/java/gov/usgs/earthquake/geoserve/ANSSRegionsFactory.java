@@ -112,6 +112,7 @@ public class ANSSRegionsFactory {
      *
      * Writes out to "regions.json" in current working directory and,
      * if unable to update, reads in local copy.
+     * The spatial index of loaded regions is built before they are used.
      */
     public void fetchRegions () {
         try {
@@ -143,6 +144,7 @@ public class ANSSRegionsFactory {
         try (InputStream in = StreamUtils.getInputStream(this.localRegions)) {
             JsonObject json = Json.createReader(in).readObject();
             Regions regions = new RegionsJSON().parseRegions(json);
+            regions.buildIndex();
             // regions loaded
             LOGGER.fine("Loaded ANSS Authoritative Regions from "
                     + this.localRegions
@@ -161,6 +163,7 @@ public class ANSSRegionsFactory {
         LOGGER.fine("Fetching ANSS Authoritative Regions from Geoserve");
         JsonObject json = this.geoserveLayersService.getLayer("anss");
         Regions regions = new RegionsJSON().parseRegions(json);
+        regions.buildIndex();
         LOGGER.finer("Loaded ANSS Authoritative Regions from Geoserve");
         try {
             saveToFile(this.localRegions, json);
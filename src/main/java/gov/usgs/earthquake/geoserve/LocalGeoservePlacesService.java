@@ -0,0 +1,283 @@
+package gov.usgs.earthquake.geoserve;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
+
+import gov.usgs.util.StreamUtils;
+
+/**
+ * Find nearest places using a memory resident index loaded from a file.
+ *
+ * The places file is a GeoJSON FeatureCollection of Point features, with the
+ * same properties as Geoserve places (name, country_code, country_name,
+ * admin1_name). Places are indexed using a grid of one degree cells.
+ *
+ * {@link #getNearestPlace(BigDecimal, BigDecimal)} returns a feature in the
+ * same format as Geoserve, including distance (km) and azimuth (degrees from
+ * the event to the place), or null when no place is within searchDistance km.
+ * When no places are loaded, and fallback is enabled, the Geoserve places
+ * service is used.
+ */
+public class LocalGeoservePlacesService extends GeoservePlacesService {
+  private static final Logger LOGGER = Logger.getLogger(LocalGeoservePlacesService.class.getName());
+
+  /** Mean earth radius in km. */
+  public static final double EARTH_RADIUS = 6371.0;
+  /** Approximate km per degree of latitude. */
+  public static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS / 180.0;
+  /** Default search distance in km. */
+  public static final double DEFAULT_SEARCH_DISTANCE = 300.0;
+
+  private double searchDistance = DEFAULT_SEARCH_DISTANCE;
+  private boolean fallback = true;
+
+  /** Place latitudes, in degrees. */
+  private double[] latitudes = new double[0];
+  /** Place longitudes, in degrees. */
+  private double[] longitudes = new double[0];
+  /** Place properties. */
+  private JsonObject[] properties = new JsonObject[0];
+  /** Place indexes by grid cell. */
+  private Map<Integer, int[]> cells = new HashMap<Integer, int[]>();
+
+  /** Use default Geoserve places service for fallback. */
+  public LocalGeoservePlacesService() {
+    super();
+  }
+
+  /**
+   * Custom Geoserve places service for fallback.
+   * @param endpointUrl for Places service
+   * @param connectTimeout in ms
+   * @param readTimeout in ms
+   */
+  public LocalGeoservePlacesService(final String endpointUrl, final int connectTimeout, final int readTimeout) {
+    super(endpointUrl, connectTimeout, readTimeout);
+  }
+
+  /**
+   * Load places from a file, replacing any loaded places.
+   *
+   * @param file GeoJSON FeatureCollection of places
+   * @throws IOException if unable to read file
+   */
+  public void loadPlaces(final File file) throws IOException {
+    try (InputStream in = StreamUtils.getInputStream(file)) {
+      loadPlaces(Json.createReader(in).readObject());
+    }
+    LOGGER.fine("Loaded " + properties.length + " places from " + file);
+  }
+
+  /**
+   * Load places from a feature collection, replacing any loaded places.
+   *
+   * @param json GeoJSON FeatureCollection of places
+   */
+  public void loadPlaces(final JsonObject json) {
+    final JsonArray features = json.getJsonArray("features");
+    final int count = features.size();
+    final double[] lats = new double[count];
+    final double[] lons = new double[count];
+    final JsonObject[] props = new JsonObject[count];
+    final Map<Integer, List<Integer>> cellLists = new HashMap<Integer, List<Integer>>();
+    for (int i = 0; i < count; i++) {
+      final JsonObject feature = features.getJsonObject(i);
+      final JsonArray coordinates = feature.getJsonObject("geometry").getJsonArray("coordinates");
+      lons[i] = coordinates.getJsonNumber(0).doubleValue();
+      lats[i] = coordinates.getJsonNumber(1).doubleValue();
+      props[i] = feature.getJsonObject("properties");
+      final Integer cell = getCell(latCell(lats[i]), lonCell(lons[i]));
+      List<Integer> list = cellLists.get(cell);
+      if (list == null) {
+        list = new ArrayList<Integer>();
+        cellLists.put(cell, list);
+      }
+      list.add(i);
+    }
+    final Map<Integer, int[]> newCells = new HashMap<Integer, int[]>();
+    for (final Map.Entry<Integer, List<Integer>> entry : cellLists.entrySet()) {
+      final List<Integer> list = entry.getValue();
+      final int[] indexes = new int[list.size()];
+      for (int i = 0; i < indexes.length; i++) {
+        indexes[i] = list.get(i);
+      }
+      newCells.put(entry.getKey(), indexes);
+    }
+    synchronized (this) {
+      latitudes = lats;
+      longitudes = lons;
+      properties = props;
+      cells = newCells;
+    }
+  }
+
+  /** @return number of loaded places */
+  public synchronized int getPlaceCount() {
+    return properties.length;
+  }
+
+  /**
+   * Get nearest place within searchDistance km.
+   *
+   * @param latitude of event
+   * @param longitude of event
+   * @return GeoJSON feature of nearest place, or null if none within searchDistance.
+   * @throws IOException if no places are loaded, and fallback fails
+   * @throws MalformedURLException if fallback url is invalid
+   */
+  @Override
+  public JsonObject getNearestPlace(BigDecimal latitude, BigDecimal longitude)
+      throws IOException, MalformedURLException {
+    final double[] lats;
+    final double[] lons;
+    final JsonObject[] props;
+    final Map<Integer, int[]> grid;
+    synchronized (this) {
+      lats = latitudes;
+      lons = longitudes;
+      props = properties;
+      grid = cells;
+    }
+    if (props.length == 0) {
+      if (fallback) {
+        return super.getNearestPlace(latitude, longitude);
+      }
+      throw new IOException("no places loaded");
+    }
+
+    final double lat = latitude.doubleValue();
+    final double lon = longitude.doubleValue();
+    // cells that may contain places within search distance
+    final int latRange = (int) Math.ceil(searchDistance / KM_PER_DEGREE);
+    final int minLatCell = Math.max(0, latCell(lat) - latRange);
+    final int maxLatCell = Math.min(179, latCell(lat) + latRange);
+    final double maxAbsLat = Math.max(Math.abs(minLatCell - 90), Math.abs(maxLatCell + 1 - 90));
+    final int lonRange = maxAbsLat >= 89.0 ? 180
+        : (int) Math.min(180, Math.ceil(searchDistance
+            / (KM_PER_DEGREE * Math.cos(Math.toRadians(maxAbsLat)))));
+
+    int nearest = -1;
+    double nearestDistance = searchDistance;
+    for (int latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+      for (int offset = -lonRange; offset <= lonRange && offset < 360 - lonRange; offset++) {
+        final int[] indexes = grid.get(getCell(latCell, Math.floorMod(lonCell(lon) + offset, 360)));
+        if (indexes == null) {
+          continue;
+        }
+        for (final int i : indexes) {
+          final double distance = getDistance(lat, lon, lats[i], lons[i]);
+          if (distance <= nearestDistance) {
+            nearest = i;
+            nearestDistance = distance;
+          }
+        }
+      }
+    }
+    if (nearest == -1) {
+      return null;
+    }
+
+    final JsonObjectBuilder featureProperties = Json.createObjectBuilder();
+    for (final Map.Entry<String, JsonValue> entry : props[nearest].entrySet()) {
+      featureProperties.add(entry.getKey(), entry.getValue());
+    }
+    featureProperties.add("distance", Math.round(nearestDistance * 1000.0) / 1000.0);
+    featureProperties.add("azimuth", Math.round(
+        getAzimuth(lat, lon, lats[nearest], lons[nearest]) * 10.0) / 10.0);
+    return Json.createObjectBuilder()
+        .add("type", "Feature")
+        .add("geometry", Json.createObjectBuilder()
+            .add("type", "Point")
+            .add("coordinates", Json.createArrayBuilder()
+                .add(lons[nearest])
+                .add(lats[nearest])))
+        .add("properties", featureProperties)
+        .build();
+  }
+
+  /**
+   * Great circle distance between two points.
+   *
+   * @param lat1 latitude of first point, in degrees
+   * @param lon1 longitude of first point, in degrees
+   * @param lat2 latitude of second point, in degrees
+   * @param lon2 longitude of second point, in degrees
+   * @return distance in km
+   */
+  public static double getDistance(final double lat1, final double lon1,
+      final double lat2, final double lon2) {
+    final double dLat = Math.toRadians(lat2 - lat1);
+    final double dLon = Math.toRadians(lon2 - lon1);
+    final double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+        + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+        * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+    return 2 * EARTH_RADIUS * Math.asin(Math.min(1.0, Math.sqrt(a)));
+  }
+
+  /**
+   * Initial bearing from first point to second point.
+   *
+   * @param lat1 latitude of first point, in degrees
+   * @param lon1 longitude of first point, in degrees
+   * @param lat2 latitude of second point, in degrees
+   * @param lon2 longitude of second point, in degrees
+   * @return azimuth in degrees, clockwise from north, between 0 and 360
+   */
+  public static double getAzimuth(final double lat1, final double lon1,
+      final double lat2, final double lon2) {
+    final double phi1 = Math.toRadians(lat1);
+    final double phi2 = Math.toRadians(lat2);
+    final double dLon = Math.toRadians(lon2 - lon1);
+    final double y = Math.sin(dLon) * Math.cos(phi2);
+    final double x = Math.cos(phi1) * Math.sin(phi2)
+        - Math.sin(phi1) * Math.cos(phi2) * Math.cos(dLon);
+    return (Math.toDegrees(Math.atan2(y, x)) + 360.0) % 360.0;
+  }
+
+  private static int latCell(final double latitude) {
+    return Math.max(0, Math.min(179, (int) Math.floor(latitude + 90.0)));
+  }
+
+  private static int lonCell(final double longitude) {
+    return Math.floorMod((int) Math.floor(longitude + 180.0), 360);
+  }
+
+  private static Integer getCell(final int latCell, final int lonCell) {
+    return latCell * 360 + lonCell;
+  }
+
+  /** @return whether Geoserve is used when no places are loaded */
+  public boolean getFallback() {
+    return fallback;
+  }
+
+  /** @param fallback whether Geoserve is used when no places are loaded */
+  public void setFallback(final boolean fallback) {
+    this.fallback = fallback;
+  }
+
+  /** @return maximum distance to nearest place, in km */
+  public double getSearchDistance() {
+    return searchDistance;
+  }
+
+  /** @param searchDistance maximum distance to nearest place, in km */
+  public void setSearchDistance(final double searchDistance) {
+    this.searchDistance = searchDistance;
+  }
+
+}
@@ -0,0 +1,250 @@
+package gov.usgs.earthquake.geoserve;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import gov.usgs.util.StreamUtils;
+
+/**
+ * Find FE regions using a memory resident index loaded from a file.
+ *
+ * The regions file is a GeoJSON FeatureCollection of Polygon or MultiPolygon
+ * features, each with a name property. Each polygon is stored with its
+ * bounding box and rings as primitive arrays, and polygons are indexed using
+ * a grid of one degree cells. A point is inside a polygon when it crosses an
+ * odd number of ring edges, so holes are excluded.
+ *
+ * When no region contains a point, and fallback is enabled, the Geoserve
+ * regions service is used.
+ */
+public class LocalGeoserveRegionsService extends GeoserveRegionsService {
+  private static final Logger LOGGER = Logger.getLogger(LocalGeoserveRegionsService.class.getName());
+
+  private boolean fallback = true;
+
+  /** Loaded polygons. */
+  private RegionPolygon[] polygons = new RegionPolygon[0];
+  /** Polygon indexes by grid cell. */
+  private Map<Integer, int[]> cells = new HashMap<Integer, int[]>();
+
+  /** Use default Geoserve regions service for fallback. */
+  public LocalGeoserveRegionsService() {
+    super();
+  }
+
+  /**
+   * Custom Geoserve regions service for fallback.
+   * @param endpointUrl for Regions service
+   * @param connectTimeout in ms
+   * @param readTimeout in ms
+   */
+  public LocalGeoserveRegionsService(final String endpointUrl, final int connectTimeout, final int readTimeout) {
+    super(endpointUrl, connectTimeout, readTimeout);
+  }
+
+  /**
+   * Load regions from a file, replacing any loaded regions.
+   *
+   * @param file GeoJSON FeatureCollection of regions
+   * @throws IOException if unable to read file
+   */
+  public void loadRegions(final File file) throws IOException {
+    try (InputStream in = StreamUtils.getInputStream(file)) {
+      loadRegions(Json.createReader(in).readObject());
+    }
+    LOGGER.fine("Loaded " + getPolygonCount() + " region polygons from " + file);
+  }
+
+  /**
+   * Load regions from a feature collection, replacing any loaded regions.
+   *
+   * @param json GeoJSON FeatureCollection of regions
+   */
+  public void loadRegions(final JsonObject json) {
+    final List<RegionPolygon> list = new ArrayList<RegionPolygon>();
+    for (final JsonValue value : json.getJsonArray("features")) {
+      final JsonObject feature = value.asJsonObject();
+      final String name = feature.getJsonObject("properties").getString("name");
+      final JsonObject geometry = feature.getJsonObject("geometry");
+      final JsonArray coordinates = geometry.getJsonArray("coordinates");
+      if ("MultiPolygon".equals(geometry.getString("type"))) {
+        for (final JsonValue polygon : coordinates) {
+          list.add(new RegionPolygon(name, polygon.asJsonArray()));
+        }
+      } else {
+        list.add(new RegionPolygon(name, coordinates));
+      }
+    }
+
+    final RegionPolygon[] newPolygons = list.toArray(new RegionPolygon[list.size()]);
+    final Map<Integer, List<Integer>> cellLists = new HashMap<Integer, List<Integer>>();
+    for (int i = 0; i < newPolygons.length; i++) {
+      final RegionPolygon polygon = newPolygons[i];
+      for (int latCell = latCell(polygon.minY); latCell <= latCell(polygon.maxY); latCell++) {
+        for (int lonCell = lonCell(polygon.minX); lonCell <= lonCell(polygon.maxX); lonCell++) {
+          final Integer cell = latCell * 361 + lonCell;
+          List<Integer> indexes = cellLists.get(cell);
+          if (indexes == null) {
+            indexes = new ArrayList<Integer>();
+            cellLists.put(cell, indexes);
+          }
+          indexes.add(i);
+        }
+      }
+    }
+    final Map<Integer, int[]> newCells = new HashMap<Integer, int[]>();
+    for (final Map.Entry<Integer, List<Integer>> entry : cellLists.entrySet()) {
+      final List<Integer> indexes = entry.getValue();
+      final int[] array = new int[indexes.size()];
+      for (int i = 0; i < array.length; i++) {
+        array[i] = indexes.get(i);
+      }
+      newCells.put(entry.getKey(), array);
+    }
+
+    synchronized (this) {
+      polygons = newPolygons;
+      cells = newCells;
+    }
+  }
+
+  /** @return number of loaded polygons */
+  public synchronized int getPolygonCount() {
+    return polygons.length;
+  }
+
+  /**
+   * Get name of FE region containing a point.
+   *
+   * @param latitude of event
+   * @param longitude of event
+   * @return name of first region that contains point
+   * @throws IOException if no region contains point, and fallback fails
+   * @throws MalformedURLException if fallback url is invalid
+   */
+  @Override
+  public String getFeRegionName(BigDecimal latitude, BigDecimal longitude)
+      throws IOException, MalformedURLException {
+    final RegionPolygon[] loaded;
+    final Map<Integer, int[]> grid;
+    synchronized (this) {
+      loaded = polygons;
+      grid = cells;
+    }
+
+    final double x = longitude.doubleValue();
+    final double y = latitude.doubleValue();
+    final int[] indexes = grid.get(latCell(y) * 361 + lonCell(x));
+    if (indexes != null) {
+      for (final int i : indexes) {
+        if (loaded[i].contains(x, y)) {
+          return loaded[i].name;
+        }
+      }
+    }
+
+    if (fallback) {
+      return super.getFeRegionName(latitude, longitude);
+    }
+    throw new IOException("no region contains " + latitude + ", " + longitude);
+  }
+
+  private static int latCell(final double latitude) {
+    return Math.max(0, Math.min(180, (int) Math.floor(latitude + 90.0)));
+  }
+
+  private static int lonCell(final double longitude) {
+    return Math.max(0, Math.min(360, (int) Math.floor(longitude + 180.0)));
+  }
+
+  /** @return whether Geoserve is used when no region contains a point */
+  public boolean getFallback() {
+    return fallback;
+  }
+
+  /** @param fallback whether Geoserve is used when no region contains a point */
+  public void setFallback(final boolean fallback) {
+    this.fallback = fallback;
+  }
+
+  /**
+   * A named polygon, with its bounding box and rings as primitive arrays.
+   */
+  protected static class RegionPolygon {
+    /** Region name. */
+    public final String name;
+    /** Ring x (longitude) coordinates. */
+    public final double[][] xs;
+    /** Ring y (latitude) coordinates. */
+    public final double[][] ys;
+    /** Bounding box. */
+    public double minX = Double.POSITIVE_INFINITY;
+    /** Bounding box. */
+    public double maxX = Double.NEGATIVE_INFINITY;
+    /** Bounding box. */
+    public double minY = Double.POSITIVE_INFINITY;
+    /** Bounding box. */
+    public double maxY = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param name region name
+     * @param rings GeoJSON polygon coordinates, exterior ring then holes
+     */
+    public RegionPolygon(final String name, final JsonArray rings) {
+      this.name = name;
+      xs = new double[rings.size()][];
+      ys = new double[rings.size()][];
+      for (int r = 0; r < xs.length; r++) {
+        final JsonArray ring = rings.getJsonArray(r);
+        xs[r] = new double[ring.size()];
+        ys[r] = new double[ring.size()];
+        for (int i = 0; i < xs[r].length; i++) {
+          final JsonArray point = ring.getJsonArray(i);
+          xs[r][i] = point.getJsonNumber(0).doubleValue();
+          ys[r][i] = point.getJsonNumber(1).doubleValue();
+          minX = Math.min(minX, xs[r][i]);
+          maxX = Math.max(maxX, xs[r][i]);
+          minY = Math.min(minY, ys[r][i]);
+          maxY = Math.max(maxY, ys[r][i]);
+        }
+      }
+    }
+
+    /**
+     * @param x longitude
+     * @param y latitude
+     * @return true if point is inside polygon, and not inside a hole
+     */
+    public boolean contains(final double x, final double y) {
+      if (x < minX || x > maxX || y < minY || y > maxY) {
+        return false;
+      }
+      boolean inside = false;
+      for (int r = 0; r < xs.length; r++) {
+        final double[] rx = xs[r];
+        final double[] ry = ys[r];
+        for (int i = 0, j = rx.length - 1; i < rx.length; j = i++) {
+          if ((ry[i] > y) != (ry[j] > y)
+              && x < (rx[j] - rx[i]) * (y - ry[i]) / (ry[j] - ry[i]) + rx[i]) {
+            inside = !inside;
+          }
+        }
+      }
+      return inside;
+    }
+  }
+
+}
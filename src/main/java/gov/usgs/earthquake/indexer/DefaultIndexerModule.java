@@ -79,8 +79,10 @@ public class DefaultIndexerModule extends DefaultConfigurable implements Indexer
 		ProductSummary summary = new ProductSummary(product);
 
 		// allow sender to assign preferredWeight if we add them to the keychain
+		// (product was read from storage, which verified content)
 		String preferredWeight = product.getProperties().get("preferredWeight");
-		if (preferredWeight != null && signatureVerifier.verifySignature(product)) {
+		if (preferredWeight != null
+				&& signatureVerifier.verifySignature(product, true)) {
 			LOGGER.fine("Signature verified, using sender assigned preferredWeight " + preferredWeight);
 			summary.setPreferredWeight(Long.valueOf(preferredWeight));
 		} else {
@@ -7,6 +7,8 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.Types;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * ExtentIndex is a type of JDBCProductIndex that can also send updates to the
@@ -84,6 +86,24 @@ public class ExtentIndex extends JDBCProductIndex {
    * @throws Exception if something goes wrong with the database transaction
    */
   public void addExtentSummary(ExtentSummary product) throws Exception {
+    addExtentSummaries(Collections.singletonList(product));
+  }
+
+  /**
+   * Inserts valid ExtentSummary products into extentSummary table, using one
+   * transaction.
+   *
+   * Either all products are added, or none are added.
+   *
+   * @param products the products to be added
+   *
+   * @throws Exception if something goes wrong with the database transaction
+   */
+  public void addExtentSummaries(List<ExtentSummary> products) throws Exception {
+    if (products.isEmpty()) {
+      return;
+    }
+
     //Prepare statement
     String sql = "INSERT INTO " + EXTENT_TABLE +
         "(" +
@@ -98,42 +118,44 @@ public class ExtentIndex extends JDBCProductIndex {
 
     beginTransaction();
     try (PreparedStatement addProduct = getConnection().prepareStatement(sql)) {
-      //Add values
-      addProduct.setLong(1, product.getIndexId());
-      if (product.getStartTime() != null) {
-        addProduct.setLong(2, product.getStartTime().getTime());
-      } else {
-        addProduct.setNull(2, Types.BIGINT);
-      }
-      if (product.getEndTime() != null) {
-        addProduct.setLong(3, product.getEndTime().getTime());
-      } else {
-        addProduct.setNull(3, Types.BIGINT);
-      }
-      if (product.getMinLatitude() != null) {
-        addProduct.setBigDecimal(4, product.getMinLatitude());
-      } else {
-        addProduct.setNull(4, Types.DECIMAL);
-      }
-      if (product.getMaxLatitude() != null) {
-        addProduct.setBigDecimal(5, product.getMaxLatitude());
-      } else {
-        addProduct.setNull(5, Types.DECIMAL);
-      }
-      if (product.getMinLongitude() != null) {
-        addProduct.setBigDecimal(6, product.getMinLongitude());
-      } else {
-        addProduct.setNull(6, Types.DECIMAL);
-      }
-      if (product.getMaxLongitude() != null) {
-        addProduct.setBigDecimal(7, product.getMaxLongitude());
-      } else {
-        addProduct.setNull(7, Types.DECIMAL);
+      for (ExtentSummary product : products) {
+        //Add values
+        addProduct.setLong(1, product.getIndexId());
+        if (product.getStartTime() != null) {
+          addProduct.setLong(2, product.getStartTime().getTime());
+        } else {
+          addProduct.setNull(2, Types.BIGINT);
+        }
+        if (product.getEndTime() != null) {
+          addProduct.setLong(3, product.getEndTime().getTime());
+        } else {
+          addProduct.setNull(3, Types.BIGINT);
+        }
+        if (product.getMinLatitude() != null) {
+          addProduct.setBigDecimal(4, product.getMinLatitude());
+        } else {
+          addProduct.setNull(4, Types.DECIMAL);
+        }
+        if (product.getMaxLatitude() != null) {
+          addProduct.setBigDecimal(5, product.getMaxLatitude());
+        } else {
+          addProduct.setNull(5, Types.DECIMAL);
+        }
+        if (product.getMinLongitude() != null) {
+          addProduct.setBigDecimal(6, product.getMinLongitude());
+        } else {
+          addProduct.setNull(6, Types.DECIMAL);
+        }
+        if (product.getMaxLongitude() != null) {
+          addProduct.setBigDecimal(7, product.getMaxLongitude());
+        } else {
+          addProduct.setNull(7, Types.DECIMAL);
+        }
+        addProduct.addBatch();
       }
 
       //Add to extentSummary table
-      addProduct.executeUpdate();
-      addProduct.clearParameters();
+      addProduct.executeBatch();
       commitTransaction();
     } catch (Exception e) {
       try {
@@ -6,6 +6,10 @@ package gov.usgs.earthquake.indexer;
 import gov.usgs.util.Config;
 import gov.usgs.earthquake.distribution.ConfigurationException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -18,11 +22,17 @@ import java.util.logging.Logger;
  * <dt>index</dt>
  * <dd>(Required) the ExtentIndex used for querying and updates</dd>
  * </dl>
+ *
+ * Extents are added to the table once per batch, in one transaction, so the
+ * last index id in the extent table is a safe place to restart.
  */
 public class ExtentIndexerListener extends ReliableIndexerListener {
 
   private static final Logger LOGGER = Logger.getLogger(ExtentIndexerListener.class.getName());
 
+  /** Extents of processed products not yet added to table, by index id */
+  private final Map<Long, ExtentSummary> pendingExtents = new ConcurrentHashMap<Long, ExtentSummary>();
+
   /**
    * Configures listener, checking for correct type
    *
@@ -51,7 +61,7 @@ public class ExtentIndexerListener extends ReliableIndexerListener {
   }
 
   /**
-   * Hands product to index to be added to table
+   * Computes extent for product, to be added to table with its batch
    *
    * @param product the product to be added
    *
@@ -66,14 +76,31 @@ public class ExtentIndexerListener extends ReliableIndexerListener {
       LOGGER.log(Level.FINE, "[" + getName() + "] adding product "
           + product.getId().toString()
           + " to extent table");
-      ((ExtentIndex) productIndex).addExtentSummary(extent);
+      pendingExtents.put(product.getIndexId(), extent);
     } else {
       LOGGER.log(Level.FINE, "[" + getName() + "] product "
           + product.getId().toString()
           + " has no extent information; won't add to extent table");
     }
+  }
 
-    setLastIndexId(product.getIndexId());
+  /**
+   * Hands extents of processed products to index to be added to table
+   *
+   * @param products the processed products
+   *
+   * @throws Exception if ExtentIndex can't do database transaction
+   */
+  @Override
+  protected void onProductsProcessed(List<ProductSummary> products) throws Exception {
+    List<ExtentSummary> extents = new ArrayList<ExtentSummary>();
+    for (ProductSummary product : products) {
+      ExtentSummary extent = pendingExtents.remove(product.getIndexId());
+      if (extent != null) {
+        extents.add(extent);
+      }
+    }
+    ((ExtentIndex) productIndex).addExtentSummaries(extents);
   }
 
 }
\ No newline at end of file
@@ -15,17 +15,17 @@ import gov.usgs.earthquake.product.Content;
 import gov.usgs.earthquake.product.Product;
 import gov.usgs.earthquake.product.ProductId;
 import gov.usgs.util.Config;
-import gov.usgs.util.StreamUtils;
+import gov.usgs.util.ProcessRunner;
+import gov.usgs.util.ProcessTimeoutException;
 import gov.usgs.util.XmlUtils;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -62,6 +62,10 @@ import java.util.logging.Logger;
  * <dd>(Optional, Default = false) Whether or not to archive products from
  * storage when they are archived by the indexer.</dd>
  *
+ * <dt>maxConcurrentCommands</dt>
+ * <dd>(Optional, Default = 0) Maximum number of commands to run at once, or
+ * 0 for no limit.</dd>
+ *
  * </dl>
  */
 public class ExternalIndexerListener extends DefaultIndexerListener {
@@ -104,6 +108,11 @@ public class ExternalIndexerListener extends DefaultIndexerListener {
 	/** Default state for auto archive */
 	public static final String AUTO_ARCHIVE_DEFAULT = "true";
 
+	/** Configuration parameter for maximum concurrent commands. */
+	public static final String MAX_CONCURRENT_COMMANDS_PROPERTY = "maxConcurrentCommands";
+	/** Default maximum concurrent commands, no limit */
+	public static final String DEFAULT_MAX_CONCURRENT_COMMANDS = "0";
+
 	/** Argument used to pass signature to external process. */
 	public static final String SIGNATURE_ARGUMENT = "--signature=";
 
@@ -116,6 +125,9 @@ public class ExternalIndexerListener extends DefaultIndexerListener {
 	/** Archive products from listener storage when archived by indexer. */
 	private boolean autoArchive = false;
 
+	/** Runs commands. */
+	private ProcessRunner processRunner = new ProcessRunner();
+
 	/**
 	 * Construct a new ExternalIndexerListener object
 	 *
@@ -229,59 +241,43 @@ public class ExternalIndexerListener extends DefaultIndexerListener {
 	public void runProductCommand(final String command, final Product product) throws Exception {
 		// execute
 		LOGGER.info("[" + getName() + "] running command " + command);
-		final Process process = Runtime.getRuntime().exec(command);
 
 		// Stream content over stdin if it exists
+		InputStream stdin = null;
 		if (product != null) {
 			Content content = product.getContents().get("");
 			if (content != null) {
-				StreamUtils.transferStream(content.getInputStream(),
-						process.getOutputStream());
+				stdin = content.getInputStream();
 			}
 		}
 
-		// Close the output stream
-		StreamUtils.closeStream(process.getOutputStream());
-
-		final Timer commandTimer;
-		if (this.getTimeout() > 0) {
-			 commandTimer = new Timer();
-			// Schedule process destruction for commandTimeout
-			// milliseconds in the future
-			commandTimer.schedule(new TimerTask() {
-				public void run() {
-					LOGGER.warning("[" + getName()
-							+ "] command timeout '" + command
-							+ "', destroying process.");
-					process.destroy();
-				}
-			}, this.getTimeout());
-		} else {
-			commandTimer = null;
-		}
-
+		final ProcessRunner.Result result;
 		try {
-			// Wait for process to complete
-			process.waitFor();
+			result = processRunner.run(command, stdin, this.getTimeout());
+		} catch (ProcessTimeoutException e) {
+			LOGGER.warning("[" + getName() + "] command timeout '" + command
+					+ "', destroyed process.");
+			HeartbeatListener.sendHeartbeatMessage(getName(), "command", command);
+			HeartbeatListener.sendHeartbeatMessage(getName(), "exit value",
+					"timeout");
+			return;
 		} finally {
-			if (commandTimer != null) {
-				// Cancel the timer if it was not triggered
-				commandTimer.cancel();
-			}
+			HeartbeatListener.updateProcessRunnerStatus(getName(), processRunner);
 		}
 		LOGGER.info("[" + getName() + "] command '" + command
-				+ "' exited with status '" + process.exitValue() + "'");
-		if (process.exitValue() != 0) {
-			byte[] errorOutput = StreamUtils.readStream(process.getErrorStream());
+				+ "' exited with status '" + result.getExitValue() + "' in "
+				+ result.getElapsed() + "ms");
+		if (result.getExitValue() != 0) {
 			LOGGER.fine("[" + getName() + "] command '" + command + "' stderr output '" +
-					new String(errorOutput) + "'");
+					new String(result.getErrorOutput()) + "'");
 		}
-		StreamUtils.closeStream(process.getErrorStream());
 
 		// send heartbeat info
 		HeartbeatListener.sendHeartbeatMessage(getName(), "command", command);
 		HeartbeatListener.sendHeartbeatMessage(getName(), "exit value",
-				Integer.toString(process.exitValue()));
+				Integer.toString(result.getExitValue()));
+		HeartbeatListener.sendHeartbeatMessage(getName(), "command time",
+				Long.toString(result.getElapsed()));
 	}
 
 	/**
@@ -532,6 +528,13 @@ public class ExternalIndexerListener extends DefaultIndexerListener {
 		autoArchive = Boolean.valueOf(config.getProperty(AUTO_ARCHIVE_PROPERTY,
 				AUTO_ARCHIVE_DEFAULT));
 		LOGGER.config("[" + getName() + "] autoArchive = " + autoArchive);
+
+		int maxConcurrentCommands = Integer.parseInt(config.getProperty(
+				MAX_CONCURRENT_COMMANDS_PROPERTY, DEFAULT_MAX_CONCURRENT_COMMANDS));
+		processRunner = new ProcessRunner(maxConcurrentCommands,
+				ProcessRunner.DEFAULT_MAX_OUTPUT);
+		LOGGER.config("[" + getName() + "] maxConcurrentCommands = "
+				+ maxConcurrentCommands);
 	}
 
 	/**
@@ -584,6 +587,13 @@ public class ExternalIndexerListener extends DefaultIndexerListener {
 		this.command = command;
 	}
 
+	/**
+	 * @return runner used for commands, with run time and exit value counts.
+	 */
+	public ProcessRunner getProcessRunner() {
+		return processRunner;
+	}
+
 	/**
 	 * @return the autoArchive
 	 */
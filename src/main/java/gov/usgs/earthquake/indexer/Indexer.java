@@ -17,9 +17,11 @@ import gov.usgs.earthquake.util.CompareUtil;
 import gov.usgs.util.Config;
 import gov.usgs.util.Configurable;
 import gov.usgs.util.FutureExecutorTask;
+import gov.usgs.util.ObjectLock;
 import gov.usgs.util.StringUtils;
 
 import java.io.File;
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
@@ -27,10 +29,16 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -57,6 +65,23 @@ import java.util.logging.Logger;
  * <dt>listeners</dt>
  * <dd>A comma delimited list of objects that implement the IndexerListener
  * interface</dd>
+ *
+ * <dt>concurrentIndexing</dt>
+ * <dd>(Optional, default false) When true, and using a mysql index with more
+ * than one concurrentProducts, products are indexed in parallel using
+ * separate database connections. Each product locks the time/latitude cells
+ * it may associate or merge within, instead of the entire index. Products that may
+ * affect other events (associate, disassociate, trump, or products without a
+ * location) and any product that changes an event outside its locked cells
+ * are (re)indexed while holding an exclusive lock.</dd>
+ *
+ * <dt>indexLockTimeBucket</dt>
+ * <dd>(Optional, default 60000) Size of concurrent indexing lock cells in
+ * time, in milliseconds.</dd>
+ *
+ * <dt>indexLockLatitudeBand</dt>
+ * <dd>(Optional, default 10) Size of concurrent indexing lock cells in
+ * latitude, in degrees.</dd>
  * </dl>
  */
 public class Indexer extends DefaultNotificationListener {
@@ -116,6 +141,31 @@ public class Indexer extends DefaultNotificationListener {
 	/** Number of threads (concurrent searches) allowed. */
 	public static final String DEFAULT_SEARCH_THREADS = "5";
 
+	/** Property name to enable concurrent indexing. */
+	public static final String CONCURRENT_INDEXING_PROPERTY = "concurrentIndexing";
+	/** Property name for size of concurrent indexing lock cells in time. */
+	public static final String INDEX_LOCK_TIME_BUCKET_PROPERTY = "indexLockTimeBucket";
+	/** Property name for size of concurrent indexing lock cells in latitude. */
+	public static final String INDEX_LOCK_LATITUDE_BAND_PROPERTY = "indexLockLatitudeBand";
+
+	/** Default value whether to enable concurrent indexing. */
+	public static final String DEFAULT_CONCURRENT_INDEXING = "false";
+	/** Default size of lock cells in time, in milliseconds. */
+	public static final String DEFAULT_INDEX_LOCK_TIME_BUCKET = "60000";
+	/** Default size of lock cells in latitude, in degrees. */
+	public static final String DEFAULT_INDEX_LOCK_LATITUDE_BAND = "10";
+
+	/** Property name for age of events kept in memory for association. */
+	public static final String RECENT_EVENT_INDEX_AGE_PROPERTY = "recentEventIndexAge";
+	/** Default age of events kept in memory, in milliseconds (0 = disabled). */
+	public static final String DEFAULT_RECENT_EVENT_INDEX_AGE = "0";
+
+	/**
+	 * Maximum number of cells locked for one product,
+	 * products that would lock more use an exclusive lock.
+	 */
+	private static final int MAX_INDEX_LOCK_CELLS = 64;
+
 	/** Utility used for associating products to events. */
 	private Associator associator;
 
@@ -146,8 +196,41 @@ public class Indexer extends DefaultNotificationListener {
 	/** Task for archive policy thread. */
 	private TimerTask archiveTask = null;
 
-	/** Synchronization object for indexing. */
-	private final Object indexProductSync = new Object();
+	/**
+	 * Lock for indexing.
+	 *
+	 * The write lock is exclusive access to the index, and is used unless
+	 * concurrent indexing is enabled. Concurrent indexing holds the read lock,
+	 * and write locks on each of the keys in {@link #indexKeyLocks}.
+	 */
+	private final ReentrantReadWriteLock indexLock = new ReentrantReadWriteLock(true);
+
+	/** Per cell locks for concurrent indexing. */
+	private final ObjectLock<String> indexKeyLocks = new ObjectLock<String>();
+
+	/** Whether to index products concurrently. */
+	private boolean concurrentIndexing = false;
+
+	/** Size of concurrent indexing lock cells in time, in milliseconds. */
+	private long indexLockTimeBucket = Long.parseLong(DEFAULT_INDEX_LOCK_TIME_BUCKET);
+
+	/** Size of concurrent indexing lock cells in latitude, in degrees. */
+	private double indexLockLatitudeBand = Double.parseDouble(DEFAULT_INDEX_LOCK_LATITUDE_BAND);
+
+	/** Age of events kept in memory for association, in milliseconds. */
+	private long recentEventIndexAge = Long.parseLong(DEFAULT_RECENT_EVENT_INDEX_AGE);
+
+	/** In memory index of recent event locations, null when disabled. */
+	private RecentEventIndex recentEventIndex = null;
+
+	/** Separate index connections used during concurrent indexing. */
+	private BlockingQueue<ProductIndex> concurrentProductIndexes = null;
+
+	/** Index connection being used by the current indexing thread. */
+	private final ThreadLocal<ProductIndex> currentProductIndex = new ThreadLocal<ProductIndex>();
+
+	/** Keys locked by the current indexing thread, null when exclusive. */
+	private final ThreadLocal<Set<String>> currentIndexLockKeys = new ThreadLocal<Set<String>>();
 
 	/**
 	 * Service used by FutureExecutorTask for execution.
@@ -255,6 +338,44 @@ public class Indexer extends DefaultNotificationListener {
 		this.productIndex = productIndex;
 	}
 
+	/**
+	 * Returns the product index used by the current thread.
+	 *
+	 * During concurrent indexing, each indexing thread uses a separate
+	 * connection. Otherwise this is the same as {@link #getProductIndex()}.
+	 *
+	 * @return The product index for the current thread.
+	 */
+	protected ProductIndex getCurrentProductIndex() {
+		final ProductIndex index = currentProductIndex.get();
+		if (index != null) {
+			return index;
+		}
+		return productIndex;
+	}
+
+	/**
+	 * Create a product index connection for one concurrent indexing thread.
+	 *
+	 * Called during startup when concurrent indexing is enabled.
+	 *
+	 * @return started product index, or null if the product index does not
+	 *         support concurrent writes.
+	 * @throws Exception if error occurs
+	 */
+	protected ProductIndex createConcurrentProductIndex() throws Exception {
+		if (readProductIndex == productIndex) {
+			// only mysql indexes use a separate read index
+			return null;
+		}
+		JDBCProductIndex jdbcProductIndex = (JDBCProductIndex) productIndex;
+		JDBCProductIndex index = new JDBCProductIndex();
+		index.setDriver(jdbcProductIndex.getDriver());
+		index.setUrl(jdbcProductIndex.getUrl());
+		index.startup();
+		return index;
+	}
+
 	/**
 	 * Adds the give indexer module to the current list of modules used by the
 	 * indexer to handle products.
@@ -421,8 +542,9 @@ public class Indexer extends DefaultNotificationListener {
 	protected boolean hasProductBeenIndexed(final ProductId id) {
 		try {
 			if (readProductIndex == productIndex) {
-				// synchronize on this if read and product index are same
-				synchronized (indexProductSync) {
+				// lock index if read and product index are same
+				indexLock.writeLock().lockInterruptibly();
+				try {
 					readProductIndex.beginTransaction();
 					try {
 						boolean hasProduct = readProductIndex.hasProduct(id);
@@ -431,6 +553,8 @@ public class Indexer extends DefaultNotificationListener {
 					} catch (Exception e) {
 						readProductIndex.rollbackTransaction();
 					}
+				} finally {
+					indexLock.writeLock().unlock();
 				}
 			} else {
 				// otherwise synchronize on readProductIndex
@@ -554,9 +678,59 @@ public class Indexer extends DefaultNotificationListener {
 		// -------------------------------------------------------------------//
 
 		LOGGER.finer("[" + getName() + "] indexing product id=" + id.toString());
-		// measure time waiting to enter synchronized block
+		if (concurrentIndexing) {
+			final Set<String> lockKeys = getIndexLockKeys(productSummary);
+			if (lockKeys != null) {
+				try {
+					indexProductWithLock(productSummary, lockKeys, beginStore);
+					return;
+				} catch (IndexLockEscalationException e) {
+					LOGGER.fine("[" + getName() + "] " + e.getMessage()
+							+ ", reindexing product id=" + id.toString()
+							+ " with exclusive lock");
+				}
+			}
+		}
+		indexProductWithLock(productSummary, null, beginStore);
+	}
+
+	/**
+	 * Acquire index locks, then index a product summary.
+	 *
+	 * @param productSummary
+	 *            summary to index.
+	 * @param lockKeys
+	 *            keys to lock during concurrent indexing,
+	 *            or null to lock the entire index.
+	 * @param beginStore
+	 *            when processing of product started, for logging.
+	 * @throws Exception if error occurs
+	 */
+	private void indexProductWithLock(final ProductSummary productSummary,
+			final Set<String> lockKeys, final long beginStore) throws Exception {
+		final ProductId id = productSummary.getId();
+		final Lock lock = (lockKeys == null)
+				? indexLock.writeLock()
+				: indexLock.readLock();
+		final List<String> lockedKeys = new ArrayList<String>();
+		ProductIndex index = null;
+
+		// measure time waiting to acquire locks
 		final long beforeEnterSync = new Date().getTime();
-		synchronized (indexProductSync) {
+		lock.lockInterruptibly();
+		try {
+			if (lockKeys != null) {
+				// keys are sorted, so all threads lock in the same order
+				for (final String key : lockKeys) {
+					indexKeyLocks.acquireWriteLock(key);
+					lockedKeys.add(key);
+				}
+			}
+			if (concurrentProductIndexes != null) {
+				index = concurrentProductIndexes.take();
+				currentProductIndex.set(index);
+			}
+			currentIndexLockKeys.set(lockKeys);
 			final long afterEnterSync = new Date().getTime();
 
 			try {
@@ -568,6 +742,187 @@ public class Indexer extends DefaultNotificationListener {
 						(endIndex - beginStore) + " ms"
 						+ " (" + (afterEnterSync - beforeEnterSync) + " ms sync delay)");
 			}
+		} finally {
+			currentIndexLockKeys.remove();
+			currentProductIndex.remove();
+			if (index != null) {
+				concurrentProductIndexes.put(index);
+			}
+			for (final String key : lockedKeys) {
+				indexKeyLocks.releaseWriteLock(key);
+			}
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Get keys to lock while concurrently indexing a product summary.
+	 *
+	 * Keys include the time/latitude cells searched when associating the
+	 * summary, and when checking the associated event for merges and splits,
+	 * the product (source, type, code), and the event id when present.
+	 *
+	 * @param summary
+	 *            summary being indexed.
+	 * @return sorted set of keys, or null if the entire index must be locked.
+	 */
+	protected Set<String> getIndexLockKeys(final ProductSummary summary) {
+		final String type = summary.getType();
+		if (Event.ASSOCIATE_PRODUCT_TYPE.equals(type)
+				|| Event.DISASSOCIATE_PRODUCT_TYPE.equals(type)
+				|| type.startsWith(TRUMP_PRODUCT_TYPE)) {
+			// these may modify events anywhere
+			return null;
+		}
+
+		final Set<String> keys = getIndexLockCells(summary.getEventTime(),
+				summary.getEventLatitude(), summary.getEventLongitude(), true);
+		if (keys == null) {
+			return null;
+		}
+		keys.add("product:" + summary.getSource() + ":" + type + ":"
+				+ summary.getCode());
+		final String eventSource = summary.getEventSource();
+		final String eventSourceCode = summary.getEventSourceCode();
+		if (eventSource != null && eventSourceCode != null) {
+			keys.add("event:" + (eventSource + eventSourceCode).toLowerCase());
+		}
+		return keys;
+	}
+
+	/**
+	 * Get the time/latitude cells searched by the associator around a location.
+	 *
+	 * @param time
+	 *            event time.
+	 * @param latitude
+	 *            event latitude.
+	 * @param longitude
+	 *            event longitude.
+	 * @return sorted set of cell keys, or null if location is incomplete or
+	 *         the search covers too many cells.
+	 */
+	protected Set<String> getIndexLockCells(final Date time,
+			final BigDecimal latitude, final BigDecimal longitude) {
+		return getIndexLockCells(time, latitude, longitude, false);
+	}
+
+	/**
+	 * Get the time/latitude cells searched by the associator around a location,
+	 * optionally including cells searched around events found nearby.
+	 *
+	 * Merges and splits search around the location of the associated event,
+	 * which may be anywhere in the search window, so the window is extended
+	 * by its own size in each direction.
+	 *
+	 * @param time
+	 *            event time.
+	 * @param latitude
+	 *            event latitude.
+	 * @param longitude
+	 *            event longitude.
+	 * @param includeNearby
+	 *            whether to include cells searched around nearby events.
+	 * @return sorted set of cell keys, or null if location is incomplete or
+	 *         the search covers too many cells.
+	 */
+	protected Set<String> getIndexLockCells(final Date time,
+			final BigDecimal latitude, final BigDecimal longitude,
+			final boolean includeNearby) {
+		final ProductIndexQuery query = associator.getLocationQuery(time,
+				latitude, longitude);
+		if (query == null
+				|| query.getMinEventTime() == null
+				|| query.getMaxEventTime() == null
+				|| query.getMinEventLatitude() == null
+				|| query.getMaxEventLatitude() == null) {
+			return null;
+		}
+
+		long minEventTime = query.getMinEventTime().getTime();
+		long maxEventTime = query.getMaxEventTime().getTime();
+		double minEventLatitude = query.getMinEventLatitude().doubleValue();
+		double maxEventLatitude = query.getMaxEventLatitude().doubleValue();
+		if (includeNearby) {
+			final long timeWindow = maxEventTime - minEventTime;
+			final double latitudeWindow = maxEventLatitude - minEventLatitude;
+			minEventTime -= timeWindow;
+			maxEventTime += timeWindow;
+			minEventLatitude -= latitudeWindow;
+			maxEventLatitude += latitudeWindow;
+		}
+
+		final long minTime = Math.floorDiv(minEventTime, indexLockTimeBucket);
+		final long maxTime = Math.floorDiv(maxEventTime, indexLockTimeBucket);
+		final long minLatitude = getLatitudeBand(minEventLatitude);
+		final long maxLatitude = getLatitudeBand(maxEventLatitude);
+		if ((maxTime - minTime + 1) * (maxLatitude - minLatitude + 1)
+				> MAX_INDEX_LOCK_CELLS) {
+			return null;
+		}
+
+		final Set<String> cells = new TreeSet<String>();
+		for (long t = minTime; t <= maxTime; t++) {
+			for (long lat = minLatitude; lat <= maxLatitude; lat++) {
+				cells.add("cell:" + t + ":" + lat);
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * @param latitude latitude to convert.
+	 * @return index of latitude band containing latitude.
+	 */
+	private long getLatitudeBand(final double latitude) {
+		final double lat = Math.max(-90.0, Math.min(90.0, latitude));
+		return (long) Math.floor((lat + 90.0) / indexLockLatitudeBand);
+	}
+
+	/**
+	 * Make sure events changed during concurrent indexing are covered by
+	 * locks held by the current thread.
+	 *
+	 * Does nothing when the current thread holds an exclusive lock.
+	 *
+	 * @param notification
+	 *            changes made while indexing.
+	 * @throws IndexLockEscalationException
+	 *             if any changed event is outside the locked cells.
+	 */
+	private void checkIndexLockKeys(final IndexerEvent notification)
+			throws IndexLockEscalationException {
+		final Set<String> lockKeys = currentIndexLockKeys.get();
+		if (lockKeys == null) {
+			return;
+		}
+		for (final IndexerChange change : notification.getIndexerChanges()) {
+			checkIndexLockKeys(lockKeys, change.getOriginalEvent());
+			checkIndexLockKeys(lockKeys, change.getNewEvent());
+		}
+	}
+
+	/**
+	 * Make sure an event is covered by locked keys.
+	 *
+	 * @param lockKeys
+	 *            keys locked by current thread.
+	 * @param event
+	 *            event to check, may be null.
+	 * @throws IndexLockEscalationException
+	 *             if event is outside the locked cells.
+	 */
+	private void checkIndexLockKeys(final Set<String> lockKeys,
+			final Event event) throws IndexLockEscalationException {
+		if (event == null) {
+			return;
+		}
+		final EventSummary summary = event.getEventSummary();
+		final Set<String> eventKeys = getIndexLockCells(summary.getTime(),
+				summary.getLatitude(), summary.getLongitude());
+		if (eventKeys == null || !lockKeys.containsAll(eventKeys)) {
+			throw new IndexLockEscalationException("event "
+					+ event.getEventId() + " is outside locked cells");
 		}
 	}
 
@@ -626,7 +981,7 @@ public class Indexer extends DefaultNotificationListener {
 	 * @return Summary added to index
 	 * @throws Exception if error occurs
 	 */
-	protected synchronized ProductSummary indexProduct(
+	protected ProductSummary indexProduct(
 			ProductSummary productSummary) throws Exception {
 		LOGGER.finest("[" + getName() + "] beginning index transaction");
 
@@ -636,7 +991,7 @@ public class Indexer extends DefaultNotificationListener {
 		notification.setSummary(productSummary);
 
 		// Start the product index transaction, only proceed if able
-		productIndex.beginTransaction();
+		getCurrentProductIndex().beginTransaction();
 
 		try {
 			LOGGER.finer("[" + getName() + "] finding previous version");
@@ -665,7 +1020,7 @@ public class Indexer extends DefaultNotificationListener {
 				if (associateUsingCurrentProducts) {
 					prevEventQuery.setResultType(ProductIndexQuery.RESULT_TYPE_CURRENT);
 				}
-				List<Event> prevEvents = productIndex.getEvents(prevEventQuery);
+				List<Event> prevEvents = getCurrentProductIndex().getEvents(prevEventQuery);
 				if (prevEvents.size() != 0) {
 					// just use first (there can really only be one).
 					prevEvent = prevEvents.get(0);
@@ -687,7 +1042,7 @@ public class Indexer extends DefaultNotificationListener {
 				if (associateUsingCurrentProducts) {
 					otherEventQuery.setResultType(ProductIndexQuery.RESULT_TYPE_CURRENT);
 				}
-				List<Event> prevEvents = productIndex
+				List<Event> prevEvents = getCurrentProductIndex()
 						.getEvents(otherEventQuery);
 				if (prevEvents.size() != 0) {
 					// just use first (there can really only be one).
@@ -703,14 +1058,14 @@ public class Indexer extends DefaultNotificationListener {
 				// remove the previous version of this product summary
 				// so the new one can take its place
 				if (prevEvent != null) {
-					productIndex.removeAssociation(prevEvent, prevSummary);
+					getCurrentProductIndex().removeAssociation(prevEvent, prevSummary);
 				} else {
 					LOGGER.fine("[" + getName()
 							+ "] reprocessing unassociated summary");
 				}
-				productIndex.removeProductSummary(prevSummary);
+				getCurrentProductIndex().removeProductSummary(prevSummary);
 			}
-			productSummary = productIndex.addProductSummary(productSummary);
+			productSummary = getCurrentProductIndex().addProductSummary(productSummary);
 
 			Event event = null;
 			if (prevEvent == null) {
@@ -731,7 +1086,7 @@ public class Indexer extends DefaultNotificationListener {
 				prevEvent.log(LOGGER);
 
 				// Existing event found associate to it
-				event = productIndex.addAssociation(prevEvent, productSummary);
+				event = getCurrentProductIndex().addAssociation(prevEvent, productSummary);
 			}
 
 			// Can't split or merge a non-existent event
@@ -788,18 +1143,28 @@ public class Indexer extends DefaultNotificationListener {
 				}
 			}
 
+			// make sure concurrent indexing locked every changed event
+			checkIndexLockKeys(notification);
+
 			LOGGER.finer("[" + getName()
 					+ "] updating event summary parameters");
 			// update preferred event parameters in index
-			productIndex.eventsUpdated(notification.getEvents());
+			getCurrentProductIndex().eventsUpdated(notification.getEvents());
 
 			LOGGER.finer("[" + getName() + "] committing transaction");
 			// Commit our changes to the index (after updating summary attrs)
-			productIndex.commitTransaction();
+			getCurrentProductIndex().commitTransaction();
+
+			// update before releasing locks, so other threads see changes
+			updateRecentEventIndex(notification);
+		} catch (IndexLockEscalationException e) {
+			// caller reindexes with exclusive lock
+			getCurrentProductIndex().rollbackTransaction();
+			throw e;
 		} catch (Exception e) {
 			LOGGER.log(Level.FINE, "[" + getName() + "] rolling back transaction", e);
 			// just rollback since it wasn't successful
-			productIndex.rollbackTransaction();
+			getCurrentProductIndex().rollbackTransaction();
 
 			// send heartbeat info
 			HeartbeatListener.sendHeartbeatMessage(getName(),
@@ -1089,7 +1454,7 @@ public class Indexer extends DefaultNotificationListener {
 			throws Exception {
 		ProductIndexQuery query = new ProductIndexQuery();
 		query.getProductIds().add(id);
-		List<ProductSummary> summaries = productIndex.getProducts(query);
+		List<ProductSummary> summaries = getCurrentProductIndex().getProducts(query);
 		if (summaries.size() > 0) {
 			return summaries.get(0);
 		}
@@ -1121,13 +1486,13 @@ public class Indexer extends DefaultNotificationListener {
 				+ " (new)");
 
 		// remove existing summary from event
-		event = productIndex.removeAssociation(event, summary);
-		productIndex.removeProductSummary(summary);
+		event = getCurrentProductIndex().removeAssociation(event, summary);
+		getCurrentProductIndex().removeProductSummary(summary);
 		// set custom weight
 		summary.setPreferredWeight(preferredWeight);
 		// add updated summary to event
-		summary = productIndex.addProductSummary(summary);
-		event = productIndex.addAssociation(event, summary);
+		summary = getCurrentProductIndex().addProductSummary(summary);
+		event = getCurrentProductIndex().addAssociation(event, summary);
 		// return updated event
 		return event;
 	}
@@ -1147,8 +1512,8 @@ public class Indexer extends DefaultNotificationListener {
 		Event updatedEvent = null;
 		ProductSummary updatedSummary = null;
 		// remove existing summary from event
-		updatedEvent = productIndex.removeAssociation(event, summary);
-		productIndex.removeProductSummary(summary);
+		updatedEvent = getCurrentProductIndex().removeAssociation(event, summary);
+		getCurrentProductIndex().removeProductSummary(summary);
 		// use module to summarize original product
 		Product product = productStorage.getProduct(summary.getId());
 		if (product == null) {
@@ -1160,8 +1525,8 @@ public class Indexer extends DefaultNotificationListener {
 				+ ", weight " + summary.getPreferredWeight() + " (old) => "
 				+ updatedSummary.getPreferredWeight() + " (new)");
 		// add updated summary to event
-		updatedSummary = productIndex.addProductSummary(updatedSummary);
-		updatedEvent = productIndex
+		updatedSummary = getCurrentProductIndex().addProductSummary(updatedSummary);
+		updatedEvent = getCurrentProductIndex()
 				.addAssociation(updatedEvent, updatedSummary);
 		// return updated event
 		return updatedEvent;
@@ -1179,7 +1544,7 @@ public class Indexer extends DefaultNotificationListener {
 	 * @return List of changes made during this method.
 	 * @throws Exception if error occurs
 	 */
-	protected synchronized List<IndexerChange> checkForEventSplits(
+	protected List<IndexerChange> checkForEventSplits(
 			final ProductSummary summary, final Event originalEvent,
 			final Event updatedEvent) throws Exception {
 		List<IndexerChange> changes = new ArrayList<IndexerChange>();
@@ -1300,23 +1665,23 @@ public class Indexer extends DefaultNotificationListener {
 	 *         indexId property of leaf is updated to its new value.
 	 * @throws Exception if error occurs
 	 */
-	protected synchronized Event splitEvents(final Event root, final Event leaf)
+	protected Event splitEvents(final Event root, final Event leaf)
 			throws Exception {
 		Event updated = root;
 		Iterator<ProductSummary> leafProducts = leaf.getProductList()
 				.iterator();
 
 		// assign leaf indexId by reference
-		Event insertedLeafEvent = productIndex.addEvent(leaf);
+		Event insertedLeafEvent = getCurrentProductIndex().addEvent(leaf);
 		leaf.setIndexId(insertedLeafEvent.getIndexId());
 
 		while (leafProducts.hasNext()) {
 			ProductSummary product = leafProducts.next();
 			if (updated != null) {
-				updated = productIndex.removeAssociation(updated, product);
+				updated = getCurrentProductIndex().removeAssociation(updated, product);
 			}
 			// leaf already has the product in its list, not returning anyways.
-			productIndex.addAssociation(leaf, product);
+			getCurrentProductIndex().addAssociation(leaf, product);
 		}
 
 		return updated;
@@ -1338,7 +1703,7 @@ public class Indexer extends DefaultNotificationListener {
 	 * @return the updated event
 	 * @throws Exception if error occurs
 	 */
-	protected synchronized Event mergeEvents(final Event target,
+	protected Event mergeEvents(final Event target,
 			final Event child) throws Exception {
 		Iterator<ProductSummary> childProducts = child.getProductList()
 				.iterator();
@@ -1347,13 +1712,13 @@ public class Indexer extends DefaultNotificationListener {
 
 		while (childProducts.hasNext()) {
 			ProductSummary product = childProducts.next();
-			productIndex.removeAssociation(child, product);
-			updatedChild = productIndex
+			getCurrentProductIndex().removeAssociation(child, product);
+			updatedChild = getCurrentProductIndex()
 					.removeAssociation(updatedChild, product);
-			updatedEvent = productIndex.addAssociation(updatedEvent, product);
+			updatedEvent = getCurrentProductIndex().addAssociation(updatedEvent, product);
 		}
 
-		productIndex.removeEvent(updatedChild);
+		getCurrentProductIndex().removeEvent(updatedChild);
 
 		return updatedEvent;
 	}
@@ -1371,7 +1736,7 @@ public class Indexer extends DefaultNotificationListener {
 	 * @return list of any merge type changes.
 	 * @throws Exception if error occurs
 	 */
-	protected synchronized List<IndexerChange> checkForEventMerges(
+	protected List<IndexerChange> checkForEventMerges(
 			final ProductSummary summary, final Event originalEvent,
 			final Event updatedEvent) throws Exception {
 		List<IndexerChange> changes = new ArrayList<IndexerChange>();
@@ -1393,7 +1758,7 @@ public class Indexer extends DefaultNotificationListener {
 
 			LOGGER.finer("[" + getName() + "] searching for nearby events");
 			// do the search
-			Iterator<Event> events = productIndex.getEvents(nearbyEvents)
+			Iterator<Event> events = getCurrentProductIndex().getEvents(nearbyEvents)
 					.iterator();
 			LOGGER.finer("[" + getName()
 					+ "] search for nearby events complete");
@@ -1429,13 +1794,13 @@ public class Indexer extends DefaultNotificationListener {
 			// run the query
 			LOGGER.finer("[" + getName()
 					+ "] searching for unassociated products");
-			Iterator<ProductSummary> summaries = productIndex
+			Iterator<ProductSummary> summaries = getCurrentProductIndex()
 					.getUnassociatedProducts(unassociatedProducts).iterator();
 			LOGGER.finer("[" + getName()
 					+ "] search for unassociated products complete");
 			// add associations
 			while (summaries.hasNext()) {
-				mergedEvent = productIndex.addAssociation(mergedEvent,
+				mergedEvent = getCurrentProductIndex().addAssociation(mergedEvent,
 						summaries.next());
 			}
 		}
@@ -1471,7 +1836,7 @@ public class Indexer extends DefaultNotificationListener {
 				LOGGER.finer("[" + getName()
 						+ "] searching for associated event");
 				// do the search
-				Iterator<Event> events = productIndex.getEvents(associateQuery)
+				Iterator<Event> events = getCurrentProductIndex().getEvents(associateQuery)
 						.iterator();
 				LOGGER.finer("[" + getName()
 						+ "] search for associated event complete");
@@ -1520,7 +1885,7 @@ public class Indexer extends DefaultNotificationListener {
 	 * @return The previous summary
 	 * @throws Exception if error occurs
 	 */
-	protected synchronized ProductSummary getPrevProductVersion(
+	protected ProductSummary getPrevProductVersion(
 			ProductSummary summary) throws Exception {
 		ProductSummary prevSummary = null;
 		List<ProductSummary> candidateSummaries = null;
@@ -1532,11 +1897,11 @@ public class Indexer extends DefaultNotificationListener {
 		query.setProductSource(summary.getSource());
 
 		// Query the index (first look for associated products)
-		candidateSummaries = productIndex.getProducts(query);
+		candidateSummaries = getCurrentProductIndex().getProducts(query);
 
 		if (candidateSummaries == null || candidateSummaries.size() == 0) {
 			// No summaries found associated to events, try unassociated.
-			candidateSummaries = productIndex.getUnassociatedProducts(query);
+			candidateSummaries = getCurrentProductIndex().getUnassociatedProducts(query);
 		}
 
 		if (candidateSummaries != null && candidateSummaries.size() > 0) {
@@ -1563,7 +1928,7 @@ public class Indexer extends DefaultNotificationListener {
 	 *         found.
 	 * @throws Exception if error occurs
 	 */
-	protected synchronized Event getPrevEvent(ProductSummary summary)
+	protected Event getPrevEvent(ProductSummary summary)
 			throws Exception {
 		return getPrevEvent(summary, false);
 	}
@@ -1576,7 +1941,7 @@ public class Indexer extends DefaultNotificationListener {
 	 * @return previous event, or null if none found.
 	 * @throws Exception if error occurs
 	 */
-	protected synchronized Event getPrevEvent(ProductSummary summary,
+	protected Event getPrevEvent(ProductSummary summary,
 			boolean associating) throws Exception {
 		Event prevEvent = null;
 		List<Event> candidateEvents = null;
@@ -1590,6 +1955,10 @@ public class Indexer extends DefaultNotificationListener {
 			}
 		}
 
+		if (recentEventIndex != null) {
+			request = searchRecentEvents(request);
+		}
+
 		SearchResponse response = search(request);
 		if (response != null) {
 			candidateEvents = response.getEvents();
@@ -1603,6 +1972,63 @@ public class Indexer extends DefaultNotificationListener {
 		return prevEvent;
 	}
 
+	/**
+	 * Replace location queries with event index id queries, using the recent
+	 * event index.
+	 *
+	 * Queries the recent event index cannot answer are not modified, and
+	 * queries that match no recent events are removed.
+	 *
+	 * @param request the search request.
+	 * @return search request that loads matching events by index id.
+	 */
+	protected SearchRequest searchRecentEvents(final SearchRequest request) {
+		SearchRequest recentRequest = new SearchRequest();
+		for (SearchQuery query : request.getQueries()) {
+			List<Long> eventIndexIds = null;
+			if (query instanceof EventDetailQuery) {
+				eventIndexIds = recentEventIndex.getEventIndexIds(
+						query.getProductIndexQuery());
+			}
+			if (eventIndexIds == null) {
+				// search product index
+				recentRequest.addQuery(query);
+			} else if (eventIndexIds.size() > 0) {
+				ProductIndexQuery idQuery = new ProductIndexQuery();
+				idQuery.setEventSearchType(
+						ProductIndexQuery.SEARCH_EVENT_PREFERRED);
+				idQuery.setResultType(
+						query.getProductIndexQuery().getResultType());
+				idQuery.setEventIndexIds(eventIndexIds);
+				recentRequest.addQuery(new EventDetailQuery(idQuery));
+			}
+		}
+		return recentRequest;
+	}
+
+	/**
+	 * Update the recent event index with events that changed.
+	 *
+	 * Called after changes are committed.
+	 *
+	 * @param notification changes that were committed.
+	 */
+	protected void updateRecentEventIndex(final IndexerEvent notification) {
+		if (recentEventIndex == null) {
+			return;
+		}
+		for (IndexerChange change : notification.getIndexerChanges()) {
+			Event originalEvent = change.getOriginalEvent();
+			Event newEvent = change.getNewEvent();
+			if (newEvent != null) {
+				recentEventIndex.update(newEvent);
+			} else if (originalEvent != null) {
+				// merged or archived
+				recentEventIndex.remove(originalEvent.getIndexId());
+			}
+		}
+	}
+
 	/*
 	 * protected IndexerEvent createIndexerEvent(ProductSummary prevSummary,
 	 * Event prevEvent, ProductSummary summary, Event event) { IndexerType type
@@ -1815,6 +2241,30 @@ public class Indexer extends DefaultNotificationListener {
 				DEFAULT_ASSOCIATE_USING_CURRENT_PRODUCTS));
 		LOGGER.config("[" + getName() + "] associateUsingCurrentProducts = "
 				+ associateUsingCurrentProducts);
+
+		concurrentIndexing = Boolean.valueOf(
+				config.getProperty(CONCURRENT_INDEXING_PROPERTY,
+				DEFAULT_CONCURRENT_INDEXING));
+		indexLockTimeBucket = Long.parseLong(
+				config.getProperty(INDEX_LOCK_TIME_BUCKET_PROPERTY,
+				DEFAULT_INDEX_LOCK_TIME_BUCKET));
+		indexLockLatitudeBand = Double.parseDouble(
+				config.getProperty(INDEX_LOCK_LATITUDE_BAND_PROPERTY,
+				DEFAULT_INDEX_LOCK_LATITUDE_BAND));
+		if (indexLockTimeBucket <= 0 || indexLockLatitudeBand <= 0) {
+			throw new ConfigurationException("[" + getName() + "] "
+					+ INDEX_LOCK_TIME_BUCKET_PROPERTY + " and "
+					+ INDEX_LOCK_LATITUDE_BAND_PROPERTY + " must be positive");
+		}
+		LOGGER.config("[" + getName() + "] concurrentIndexing = "
+				+ concurrentIndexing + " (" + indexLockTimeBucket + " ms, "
+				+ indexLockLatitudeBand + " degree cells)");
+
+		recentEventIndexAge = Long.parseLong(
+				config.getProperty(RECENT_EVENT_INDEX_AGE_PROPERTY,
+				DEFAULT_RECENT_EVENT_INDEX_AGE));
+		LOGGER.config("[" + getName() + "] recentEventIndexAge = "
+				+ recentEventIndexAge + " ms");
 	}
 
 	/**
@@ -1832,6 +2282,17 @@ public class Indexer extends DefaultNotificationListener {
 			LOGGER.log(Level.WARNING, "[" + getName()
 					+ "] exception shutting down read product index", e);
 		}
+		if (concurrentProductIndexes != null) {
+			for (final ProductIndex index : concurrentProductIndexes) {
+				try {
+					index.shutdown();
+				} catch (Exception e) {
+					LOGGER.log(Level.WARNING, "[" + getName()
+							+ "] exception shutting down concurrent product index", e);
+				}
+			}
+			concurrentProductIndexes = null;
+		}
 		try {
 			productIndex.shutdown();
 		} catch (Exception e) {
@@ -1947,6 +2408,38 @@ public class Indexer extends DefaultNotificationListener {
 			readProductIndex = productIndex;
 		}
 
+		// concurrent indexing needs a connection per indexing thread,
+		// and a database that supports concurrent writes
+		concurrentProductIndexes = null;
+		if (concurrentIndexing) {
+			if (getConcurrentProducts() > 1) {
+				concurrentProductIndexes = new LinkedBlockingQueue<ProductIndex>();
+				for (int i = 0; i < getConcurrentProducts(); i++) {
+					ProductIndex index = createConcurrentProductIndex();
+					if (index == null) {
+						concurrentProductIndexes = null;
+						break;
+					}
+					concurrentProductIndexes.add(index);
+				}
+			}
+			if (concurrentProductIndexes == null) {
+				LOGGER.warning("[" + getName() + "] concurrentIndexing requires"
+						+ " a mysql index and concurrentProducts > 1, disabling");
+				concurrentIndexing = false;
+			}
+		}
+
+		// load recent events before indexing
+		recentEventIndex = null;
+		if (recentEventIndexAge > 0) {
+			RecentEventIndex index = new RecentEventIndex(recentEventIndexAge);
+			index.load(productIndex);
+			LOGGER.config("[" + getName() + "] loaded " + index.size()
+					+ " recent events for association");
+			recentEventIndex = index;
+		}
+
 		// Cleanup thread to purge old products
 		if (archivePolicies.size() > 0) {
 			// Instantiate a timer object
@@ -1995,14 +2488,33 @@ public class Indexer extends DefaultNotificationListener {
 	 */
 	public synchronized int[] purgeExpiredProducts() throws Exception {
 		int[] counts = { 0, 0 };
-		ProductIndexQuery query = null;
-		ArchivePolicy policy = null;
 
 		if (isDisableArchive()) {
 			LOGGER.info("Archiving disabled");
 			return counts;
 		}
 
+		// archiving may modify any event, lock entire index
+		indexLock.writeLock().lockInterruptibly();
+		try {
+			runArchivePolicies(counts);
+		} finally {
+			indexLock.writeLock().unlock();
+		}
+
+		return counts;
+	}
+
+	/**
+	 * Run each archive policy, called while holding the index lock.
+	 *
+	 * @param counts
+	 *            archived event and product counts, updated in place.
+	 */
+	private void runArchivePolicies(final int[] counts) {
+		ProductIndexQuery query = null;
+		ArchivePolicy policy = null;
+
 		for (int i = 0; i < archivePolicies.size(); i++) {
 			policy = archivePolicies.get(i);
 			query = policy.getIndexQuery();
@@ -2038,6 +2550,7 @@ public class Indexer extends DefaultNotificationListener {
 
 							++counts[0];
 							productIndex.commitTransaction();
+							updateRecentEventIndex(notification);
 						} catch (Exception e) {
 							LOGGER.log(Level.WARNING, "[" + getName()
 									+ "] exception archiving event "
@@ -2097,6 +2610,10 @@ public class Indexer extends DefaultNotificationListener {
 									+ "] exception archiving event "
 									+ product.getId().toString() + ", rolling back", e);
 							productIndex.rollbackTransaction();
+							if (recentEventIndex != null) {
+								// removeSummary may have updated event locations
+								recentEventIndex.load(productIndex);
+							}
 						}
 					}
 				} catch (Exception e) {
@@ -2107,8 +2624,6 @@ public class Indexer extends DefaultNotificationListener {
 
 			}
 		}
-
-		return counts;
 	}
 
 	/**
@@ -2118,7 +2633,7 @@ public class Indexer extends DefaultNotificationListener {
 	 * @throws Exception
 	 *             If errors occur while removing the event
 	 */
-	protected synchronized void removeEvent(Event event) throws Exception {
+	protected void removeEvent(Event event) throws Exception {
 		// Removing an "event" from storage is really just removing all its
 		// associated products
 		List<ProductSummary> summaries = event.getAllProductList();
@@ -2128,11 +2643,11 @@ public class Indexer extends DefaultNotificationListener {
 			// Remove product from storage
 			productStorage.removeProduct(summary.getId());
 			// Remove product summary from index
-			productIndex.removeProductSummary(summary);
+			getCurrentProductIndex().removeProductSummary(summary);
 		}
 
 		// Remove from index
-		productIndex.removeEvent(event);
+		getCurrentProductIndex().removeEvent(event);
 	}
 
 	/**
@@ -2143,7 +2658,7 @@ public class Indexer extends DefaultNotificationListener {
 	 * @throws Exception
 	 *             If errors occur while removing the summary
 	 */
-	protected synchronized void removeSummary(ProductSummary summary)
+	protected void removeSummary(ProductSummary summary)
 			throws Exception {
 
 		Event event = getPrevEvent(summary);
@@ -2161,7 +2676,7 @@ public class Indexer extends DefaultNotificationListener {
 		// Remove product from storage
 		productStorage.removeProduct(summary.getId());
 		// Remove product summary from index
-		productIndex.removeProductSummary(summary);
+		getCurrentProductIndex().removeProductSummary(summary);
 
 		// if product was associated to event need to update index
 		if (event != null) {
@@ -2171,7 +2686,10 @@ public class Indexer extends DefaultNotificationListener {
 			// update event table
 			ArrayList<Event> events = new ArrayList<Event>();
 			events.add(event);
-			productIndex.eventsUpdated(events);
+			getCurrentProductIndex().eventsUpdated(events);
+			if (recentEventIndex != null) {
+				recentEventIndex.update(event);
+			}
 		}
 	}
 
@@ -2195,11 +2713,11 @@ public class Indexer extends DefaultNotificationListener {
 	 *             happen if this method is called before the summary is added
 	 *             to the ProductIndex.
 	 */
-	private synchronized Event createEvent(ProductSummary summary)
+	private Event createEvent(ProductSummary summary)
 			throws Exception {
 		if (Event.productHasOriginProperties(summary)) {
-			Event event = productIndex.addEvent(new Event());
-			return productIndex.addAssociation(event, summary);
+			Event event = getCurrentProductIndex().addEvent(new Event());
+			return getCurrentProductIndex().addAssociation(event, summary);
 		} else {
 			return null;
 		}
@@ -2213,8 +2731,39 @@ public class Indexer extends DefaultNotificationListener {
 	 * @return the search response.
 	 * @throws Exception if error occurs
 	 */
-	public synchronized SearchResponse search(SearchRequest request)
+	public SearchResponse search(SearchRequest request)
 			throws Exception {
+		final ProductIndex index = currentProductIndex.get();
+		if (index != null) {
+			// current thread is indexing, and already holds locks
+			return search(request, index);
+		}
+
+		// concurrent indexing uses separate connections,
+		// otherwise wait for any indexing to complete
+		final Lock lock = concurrentIndexing
+				? indexLock.readLock()
+				: indexLock.writeLock();
+		lock.lockInterruptibly();
+		try {
+			return search(request, productIndex);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Search for products using a specific index.
+	 *
+	 * @param request
+	 *            the search request.
+	 * @param index
+	 *            the index to search.
+	 * @return the search response.
+	 * @throws Exception if error occurs
+	 */
+	private SearchResponse search(final SearchRequest request,
+			final ProductIndex index) throws Exception {
 		SearchResponse response = new SearchResponse();
 
 		// Execute each query
@@ -2224,7 +2773,7 @@ public class Indexer extends DefaultNotificationListener {
 
 			if (query instanceof EventsSummaryQuery) {
 				List<EventSummary> eventSummaries = new LinkedList<EventSummary>();
-				Iterator<Event> events = productIndex.getEvents(
+				Iterator<Event> events = index.getEvents(
 						query.getProductIndexQuery()).iterator();
 				// convert events to event summaries
 				while (events.hasNext()) {
@@ -2235,13 +2784,13 @@ public class Indexer extends DefaultNotificationListener {
 			}
 
 			else if (query instanceof EventDetailQuery) {
-				List<Event> events = productIndex.getEvents(query
+				List<Event> events = index.getEvents(query
 						.getProductIndexQuery());
 				((EventDetailQuery) query).setResult(events);
 			}
 
 			else if (query instanceof ProductsSummaryQuery) {
-				List<ProductSummary> products = productIndex.getProducts(query
+				List<ProductSummary> products = index.getProducts(query
 						.getProductIndexQuery());
 				((ProductsSummaryQuery) query).setResult(products);
 			}
@@ -2299,4 +2848,21 @@ public class Indexer extends DefaultNotificationListener {
 		return archivePolicies;
 	}
 
+	/**
+	 * Thrown during concurrent indexing when a product changes an event that
+	 * is not covered by the locks held by the indexing thread.
+	 */
+	private static class IndexLockEscalationException extends Exception {
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * @param message reason locks were not sufficient.
+		 */
+		public IndexLockEscalationException(final String message) {
+			super(message);
+		}
+
+	}
+
 }
@@ -21,12 +21,15 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -89,7 +92,7 @@ public class JDBCProductIndex extends JDBCConnection implements ProductIndex {
 	/** Public var for summary product index IDs */
 	public static final String SUMMARY_PRODUCT_INDEX_ID = "id";
 	private static final String SUMMARY_PRODUCT_ID = "productId";
-	// private static final String SUMMARY_EVENT_ID = "eventId";
+	private static final String SUMMARY_EVENT_ID = "eventId";
 	private static final String SUMMARY_TYPE = "type";
 	private static final String SUMMARY_SOURCE = "source";
 	private static final String SUMMARY_CODE = "code";
@@ -114,6 +117,22 @@ public class JDBCProductIndex extends JDBCConnection implements ProductIndex {
 	// private static final String SUMMARY_LINK_RELATION = "relation";
 	// private static final String SUMMARY_LINK_URL = "url";
 
+	/** Number of rows fetched at a time by streaming statements. */
+	private static final int STREAMING_FETCH_SIZE = 1000;
+
+	/** Number of events loaded at a time by getEvents. */
+	private static final int EVENT_PAGE_SIZE = 1000;
+
+	/**
+	 * Number of rows inserted by each multi-row insert statement.
+	 * SQLite allows at most 999 parameters per statement.
+	 */
+	private static final int MAX_ROWS_PER_INSERT = 100;
+
+	/** Column types of productSummaryProperty and productSummaryLink rows. */
+	private static final int[] CHILD_ROW_TYPES = {
+			Types.BIGINT, Types.VARCHAR, Types.VARCHAR};
+
 	private String index_file;
 
 	/**
@@ -202,69 +221,112 @@ public class JDBCProductIndex extends JDBCConnection implements ProductIndex {
 	@Override
 	public synchronized List<Event> getEvents(ProductIndexQuery query)
 			throws Exception {
+		final List<Event> events = new ArrayList<Event>();
+		getEvents(query, events::add);
+		return events;
+	}
+
+	/**
+	 * Pass each event that meets the parameters specified in the
+	 * ProductIndexQuery object to a callback, in index id order.
+	 *
+	 * Events are loaded EVENT_PAGE_SIZE at a time, so callers that process
+	 * events one at a time do not need to hold every event in memory.
+	 * The callback is called after each page is read, so it may use this
+	 * index.
+	 *
+	 * @param query
+	 *            A description of which events to retrieve.
+	 * @param callback
+	 *            called with each event.
+	 * @throws Exception if error occurs
+	 */
+	public synchronized void getEvents(final ProductIndexQuery query,
+			final Consumer<Event> callback) throws Exception {
 		if (query == null) {
-			return new ArrayList<Event>();
+			return;
 		}
-		// map of events (index id => event), so products can be added incrementally
-		final Map<Long, Event> events = new HashMap<>();
-		// all products for loading details
-		ArrayList<ProductSummary> products = new ArrayList<>();
 
 		// Build up our clause list like always
 		// These clauses may only match certain products within events,
 		// and are used to find a list of event ids
-		List<String> clauses = buildProductClauses(query);
-
-		// Build the SQL Query from our ProductIndexQuery object
-		String sql = "SELECT DISTINCT ps2.*"
-				+ " FROM productSummary ps2,"
-				+ " (SELECT DISTINCT e.id FROM event e, productSummary p"
-				+ " WHERE e.id=p.eventId";
-		// Add all appropriate where clauses
-		for (final String clause : clauses) {
-			sql = sql + " AND " + clause;
-		}
-		sql = sql + ") eventids"
-				+ " WHERE ps2.eventid=eventids.id";
-
-		// add current clause to outer query
-		if (query.getResultType() == ProductIndexQuery.RESULT_TYPE_CURRENT) {
-			sql = sql + " AND NOT EXISTS ("
-					+ " SELECT * FROM productSummary"
-					+ " WHERE source=ps2.source"
-					+ " AND type=ps2.type"
-					+ " AND code=ps2.code"
-					+ " AND updateTime>ps2.updateTime"
-					+ ")";
-		}
+		final List<String> clauses = buildProductClauses(query);
+
+		long afterId = 0L;
+		boolean lastPage = false;
+		while (!lastPage) {
+			// map of events (index id => event), so products can be added incrementally
+			final Map<Long, Event> events = new LinkedHashMap<>();
+			// all products for loading details
+			final ArrayList<ProductSummary> products = new ArrayList<>();
+
+			// Build the SQL Query from our ProductIndexQuery object.
+			// each product appears once, so DISTINCT is only needed for event ids
+			String sql = "SELECT eventids.id AS pageEventId, ps2.*"
+					+ " FROM (SELECT DISTINCT e.id FROM event e, productSummary p"
+					+ " WHERE e.id=p.eventId"
+					+ " AND e.id>" + afterId;
+			// Add all appropriate where clauses
+			for (final String clause : clauses) {
+				sql = sql + " AND " + clause;
+			}
+			sql = sql + " ORDER BY e.id LIMIT " + EVENT_PAGE_SIZE + ") eventids"
+					// left join, so page includes events without current products
+					+ " LEFT JOIN productSummary ps2 ON ps2.eventId=eventids.id";
+
+			// add current clause to outer query
+			if (query.getResultType() == ProductIndexQuery.RESULT_TYPE_CURRENT) {
+				sql = sql + " AND NOT EXISTS ("
+						+ " SELECT * FROM productSummary"
+						+ " WHERE source=ps2.source"
+						+ " AND type=ps2.type"
+						+ " AND code=ps2.code"
+						+ " AND updateTime>ps2.updateTime"
+						+ ")";
+			}
+			sql = sql + " ORDER BY eventids.id";
 
-		// load event products
-		try (
-			final PreparedStatement statement = getConnection().prepareStatement(sql);
-			final ResultSet results = statement.executeQuery();
-		) {
-			statement.setQueryTimeout(60);
-			while (results.next()) {
-				// eventid not part of product summary object,
-				// so need to do this as products are parsed...
-				final Long id = results.getLong("eventId");
-				Event event = events.get(id);
-				if (event == null) {
-					// create event to hold products
-					event = new Event();
-					event.setIndexId(id);
-					events.put(id, event);
+			// load event products
+			int pageEvents = 0;
+			try (
+				final PreparedStatement statement = prepareStreamingStatement(sql);
+				final ResultSet results = statement.executeQuery();
+			) {
+				while (results.next()) {
+					final long pageEventId = results.getLong("pageEventId");
+					if (pageEventId != afterId) {
+						afterId = pageEventId;
+						pageEvents++;
+					}
+					results.getLong(SUMMARY_PRODUCT_INDEX_ID);
+					if (results.wasNull()) {
+						// no matching products
+						continue;
+					}
+					// eventid not part of product summary object,
+					// so need to do this as products are parsed...
+					final Long id = results.getLong("eventId");
+					Event event = events.get(id);
+					if (event == null) {
+						// create event to hold products
+						event = new Event();
+						event.setIndexId(id);
+						events.put(id, event);
+					}
+					final ProductSummary productSummary = parseProductSummary(results);
+					event.addProduct(productSummary);
+					products.add(productSummary);
 				}
-				final ProductSummary productSummary = parseProductSummary(results);
-				event.addProduct(productSummary);
-				products.add(productSummary);
 			}
-		}
+			lastPage = (pageEvents < EVENT_PAGE_SIZE);
 
-		// load product details
-		loadProductSummaries(products);
+			// load product details, after results are closed
+			loadProductSummaries(products);
 
-		return events.values().stream().collect(Collectors.toList());
+			for (final Event event : events.values()) {
+				callback.accept(event);
+			}
+		}
 	}
 
 	/**
@@ -837,6 +899,19 @@ public class JDBCProductIndex extends JDBCConnection implements ProductIndex {
 			clauseList.add(clause.toString());
 		}
 
+		// Interested in "any" event index id in the query.
+		Iterator<Long> eventIter = query.getEventIndexIds().iterator();
+		if (eventIter.hasNext()) {
+			StringBuilder clause = new StringBuilder();
+			clause.append(String.format("%s.%s IN (%d", SUMMARY_TABLE_ALIAS,
+					SUMMARY_EVENT_ID, eventIter.next()));
+			while (eventIter.hasNext()) {
+				clause.append(", ").append(eventIter.next());
+			}
+			clause.append(")");
+			clauseList.add(clause.toString());
+		}
+
 		// Build clauses for all specified columns
 		String eventSource = query.getEventSource();
 		if (eventSource != null) {
@@ -1058,33 +1133,33 @@ public class JDBCProductIndex extends JDBCConnection implements ProductIndex {
 			return;
 		}
 
-		// index by id
-		final Map<Long, ProductSummary> summaryMap = new HashMap<>();
-		for (final ProductSummary summary : summaries) {
-			summaryMap.put(summary.getIndexId(), summary);
+		// sort by index id, so rows can be matched using binary search
+		final int count = summaries.size();
+		final ProductSummary[] sorted = summaries.toArray(new ProductSummary[count]);
+		Arrays.sort(sorted, Comparator.comparingLong(ProductSummary::getIndexId));
+		final long[] ids = new long[count];
+		final StringBuilder idList = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			ids[i] = sorted[i].getIndexId();
+			if (i > 0) {
+				idList.append(",");
+			}
+			idList.append(ids[i]);
 		}
 
 		// load all links in one query
 		final String linkSql = "SELECT productSummaryIndexId as id, relation, url"
 				+ " FROM productSummaryLink"
-				+ " WHERE productSummaryIndexId IN ("
-				+ StringUtils.join(
-						summaryMap.keySet().stream().collect(Collectors.toList()),
-						",")
-				+ ")";
+				+ " WHERE productSummaryIndexId IN (" + idList + ")";
 		try (
-			final PreparedStatement statement = getConnection().prepareStatement(linkSql);
+			final PreparedStatement statement = prepareStreamingStatement(linkSql);
+			final ResultSet results = statement.executeQuery();
 		) {
-			statement.setQueryTimeout(60);
-			try (
-				final ResultSet results = statement.executeQuery();
-			) {
-				while (results.next()) {
-					Long id = results.getLong("id");
-					String relation = results.getString("relation");
-					String uri = results.getString("url");
-					// add properties to existing objects
-					summaryMap.get(id).addLink(relation, new URI(uri));
+			while (results.next()) {
+				final int i = Arrays.binarySearch(ids, results.getLong(1));
+				if (i >= 0) {
+					// add links to existing objects
+					sorted[i].addLink(results.getString(2), new URI(results.getString(3)));
 				}
 			}
 		}
@@ -1092,30 +1167,46 @@ public class JDBCProductIndex extends JDBCConnection implements ProductIndex {
 		// load all properties in one query
 		final String propertySql = "SELECT productSummaryIndexId as id, name, value"
 				+ " FROM productSummaryProperty"
-				+ " WHERE productSummaryIndexId IN ("
-				+ StringUtils.join(
-						summaryMap.keySet().stream().collect(Collectors.toList()),
-						",")
-				+ ")";
+				+ " WHERE productSummaryIndexId IN (" + idList + ")";
 		try (
-			final PreparedStatement statement =
-					getConnection().prepareStatement(propertySql);
+			final PreparedStatement statement = prepareStreamingStatement(propertySql);
+			final ResultSet results = statement.executeQuery();
 		) {
-			statement.setQueryTimeout(60);
-			try (
-				final ResultSet results = statement.executeQuery();
-			) {
-				while (results.next()) {
-					Long id = results.getLong("id");
-					String name = results.getString("name");
-					String value = results.getString("value");
+			while (results.next()) {
+				final int i = Arrays.binarySearch(ids, results.getLong(1));
+				if (i >= 0) {
 					// add properties to existing objects
-					summaryMap.get(id).getProperties().put(name, value);
+					sorted[i].getProperties().put(results.getString(2), results.getString(3));
 				}
 			}
 		}
 	}
 
+	/**
+	 * Prepare a read only statement that streams results.
+	 *
+	 * Rows are fetched as the result set is read, instead of loading the whole
+	 * result into memory first. The result set must be closed before another
+	 * statement is executed on the same connection.
+	 *
+	 * @param sql query to prepare
+	 * @return prepared statement
+	 * @throws Exception if error occurs
+	 */
+	protected PreparedStatement prepareStreamingStatement(final String sql)
+			throws Exception {
+		final PreparedStatement statement = getConnection().prepareStatement(
+				sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		if (JDBCUtils.MYSQL_DRIVER_CLASSNAME.equals(getDriver())) {
+			// mysql driver only streams rows with this fetch size
+			statement.setFetchSize(Integer.MIN_VALUE);
+		} else {
+			statement.setFetchSize(STREAMING_FETCH_SIZE);
+		}
+		statement.setQueryTimeout(60);
+		return statement;
+	}
+
 	/**
 	 * Parse ProductSummary without loading links or properties.
 	 *
@@ -1235,27 +1326,18 @@ public class JDBCProductIndex extends JDBCConnection implements ProductIndex {
 	 */
 	protected synchronized void addProductProperties(final long productId,
 			final Map<String, String> properties) throws SQLException {
-		// Loop through the properties list and add them all to the database
-		final String sql = "INSERT INTO productSummaryProperty"
-				+ " (productSummaryIndexId, name, value) VALUES (?, ?, ?)";
-		try (
-			final PreparedStatement insertProperty = getConnection().prepareStatement(sql);
-		) {
-			insertProperty.setQueryTimeout(60);
-			for (String key : properties.keySet()) {
-				JDBCUtils.setParameter(insertProperty, 1, productId, Types.BIGINT);
-				JDBCUtils.setParameter(insertProperty, 2, key, Types.VARCHAR);
-				JDBCUtils.setParameter(insertProperty, 3, properties.get(key),
-						Types.VARCHAR);
-				insertProperty.addBatch();
-				if (LOGGER.isLoggable(Level.FINEST)) {
-					LOGGER.log(Level.FINEST, "[" + getName() + "] Added property "
-							+ key + ":" + properties.get(key) + " for product "
-							+ productId);
-				}
+		final List<Object[]> rows = new ArrayList<Object[]>(properties.size());
+		for (String key : properties.keySet()) {
+			rows.add(new Object[] {productId, key, properties.get(key)});
+			if (LOGGER.isLoggable(Level.FINEST)) {
+				LOGGER.log(Level.FINEST, "[" + getName() + "] Added property "
+						+ key + ":" + properties.get(key) + " for product "
+						+ productId);
 			}
-			insertProperty.executeBatch();
 		}
+		insertRows("INSERT INTO productSummaryProperty"
+				+ " (productSummaryIndexId, name, value) VALUES ",
+				CHILD_ROW_TYPES, rows);
 	}
 
 	/**
@@ -1269,25 +1351,78 @@ public class JDBCProductIndex extends JDBCConnection implements ProductIndex {
 	 */
 	protected synchronized void addProductLinks(long productId,
 			Map<String, List<URI>> links) throws SQLException {
-		// Loop through the properties list and add them all to the database
-		final String sql = "INSERT INTO productSummaryLink"
-				+ " (productSummaryIndexId, relation, url) VALUES (?, ?, ?)";
-		try (
-			final PreparedStatement insertLink = getConnection().prepareStatement(sql);
-		) {
-			insertLink.setQueryTimeout(60);
-			for (final String relation : links.keySet()) {
-				for (final URI uri : links.get(relation)) {
-					JDBCUtils.setParameter(insertLink, 1, productId, Types.BIGINT);
-					JDBCUtils.setParameter(insertLink, 2, relation, Types.VARCHAR);
-					JDBCUtils.setParameter(insertLink, 3, uri.toString(), Types.VARCHAR);
-					insertLink.addBatch();
+		final List<Object[]> rows = new ArrayList<Object[]>();
+		for (final String relation : links.keySet()) {
+			for (final URI uri : links.get(relation)) {
+				rows.add(new Object[] {productId, relation, uri.toString()});
+				if (LOGGER.isLoggable(Level.FINEST)) {
 					LOGGER.log(Level.FINEST, "[" + getName() + "] Added link "
 							+ relation + ":" + uri.toString() + " for product "
 							+ productId);
 				}
 			}
-			insertLink.executeBatch();
+		}
+		insertRows("INSERT INTO productSummaryLink"
+				+ " (productSummaryIndexId, relation, url) VALUES ",
+				CHILD_ROW_TYPES, rows);
+	}
+
+	/**
+	 * Insert rows using multi-row VALUES statements.
+	 *
+	 * JDBC batches are sent one row at a time by some drivers (MySQL without
+	 * rewriteBatchedStatements), so rows are inserted up to
+	 * MAX_ROWS_PER_INSERT per statement instead.
+	 *
+	 * @param insert
+	 *            INSERT statement up to and including "VALUES ".
+	 * @param types
+	 *            java.sql.Types of each column.
+	 * @param rows
+	 *            column values of each row.
+	 * @throws SQLException if sql error occurs
+	 */
+	protected void insertRows(final String insert, final int[] types,
+			final List<Object[]> rows) throws SQLException {
+		if (rows.size() == 0) {
+			return;
+		}
+		final StringBuffer tuple = new StringBuffer("(");
+		for (int i = 0; i < types.length; i++) {
+			tuple.append(i == 0 ? "?" : ", ?");
+		}
+		tuple.append(")");
+
+		PreparedStatement statement = null;
+		int statementRows = 0;
+		try {
+			for (int start = 0; start < rows.size(); start += MAX_ROWS_PER_INSERT) {
+				final int count = Math.min(MAX_ROWS_PER_INSERT, rows.size() - start);
+				if (count != statementRows) {
+					// full chunks reuse one statement, last chunk may be shorter
+					if (statement != null) {
+						statement.close();
+					}
+					final StringBuffer sql = new StringBuffer(insert);
+					for (int i = 0; i < count; i++) {
+						sql.append(i == 0 ? "" : ", ").append(tuple);
+					}
+					statement = getConnection().prepareStatement(sql.toString());
+					statement.setQueryTimeout(60);
+					statementRows = count;
+				}
+				int parameter = 1;
+				for (final Object[] row : rows.subList(start, start + count)) {
+					for (int i = 0; i < types.length; i++) {
+						JDBCUtils.setParameter(statement, parameter++, row[i], types[i]);
+					}
+				}
+				statement.executeUpdate();
+			}
+		} finally {
+			if (statement != null) {
+				statement.close();
+			}
 		}
 	}
 
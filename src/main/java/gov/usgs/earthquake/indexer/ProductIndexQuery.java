@@ -126,6 +126,9 @@ public class ProductIndexQuery implements Comparable<ProductIndexQuery> {
 	/** A list of product ids to search. */
 	private List<ProductId> productIds = new LinkedList<ProductId>();
 
+	/** A list of event index ids to search. */
+	private List<Long> eventIndexIds = new LinkedList<Long>();
+
 	/** Minimum product update time. */
 	private Date minProductUpdateTime;
 
@@ -314,6 +317,17 @@ public class ProductIndexQuery implements Comparable<ProductIndexQuery> {
 		this.productIds.addAll(productIds);
 	}
 
+	/** @return list of event index ids */
+	public List<Long> getEventIndexIds() {
+		return eventIndexIds;
+	}
+
+	/** @param eventIndexIds list to set */
+	public void setEventIndexIds(List<Long> eventIndexIds) {
+		this.eventIndexIds.clear();
+		this.eventIndexIds.addAll(eventIndexIds);
+	}
+
 	/** @return minProductUpdateTime */
 	public Date getMinProductUpdateTime() {
 		return minProductUpdateTime;
@@ -498,6 +512,19 @@ public class ProductIndexQuery implements Comparable<ProductIndexQuery> {
 			}
 		}
 
+		if ((r = (that.eventIndexIds.size() - this.eventIndexIds.size())) != 0) {
+			return r;
+		} else {
+			Iterator<Long> thisIter = this.eventIndexIds.iterator();
+			Iterator<Long> thatIter = that.eventIndexIds.iterator();
+			while (thisIter.hasNext() && thatIter.hasNext()) {
+				r = thisIter.next().compareTo(thatIter.next());
+				if (r != 0) {
+					return r;
+				}
+			}
+		}
+
 		return 0;
 	}
 
@@ -574,6 +601,13 @@ public class ProductIndexQuery implements Comparable<ProductIndexQuery> {
 				buf.append(iter.next().toString()).append(" ");
 			}
 		}
+		if (this.eventIndexIds.size() > 0) {
+			buf.append("\nevent index ids=");
+			Iterator<Long> iter = this.eventIndexIds.iterator();
+			while (iter.hasNext()) {
+				buf.append(iter.next()).append(" ");
+			}
+		}
 		if (this.minProductUpdateTime != null) {
 			buf.append("\nminProductUpdateTime=").append(
 					this.minProductUpdateTime);
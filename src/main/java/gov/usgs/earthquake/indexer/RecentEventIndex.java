@@ -0,0 +1,351 @@
+package gov.usgs.earthquake.indexer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Logger;
+
+/**
+ * In memory index of preferred event locations, used to find association
+ * candidates without searching the ProductIndex.
+ *
+ * Events are grouped into time buckets, and only events with a preferred time
+ * within maxAge of the current time are kept. Queries that only constrain
+ * preferred time and location, and whose minimum time is within the indexed
+ * window, are answered with a list of event index ids; other queries return
+ * null and should be run against the ProductIndex.
+ *
+ * The Indexer must update this index whenever an event is added, changes
+ * preferred location, or is removed.
+ */
+public class RecentEventIndex {
+
+	/** Logging object. */
+	private static final Logger LOGGER = Logger.getLogger(RecentEventIndex.class
+			.getName());
+
+	/** Default time bucket size in milliseconds. */
+	public static final long DEFAULT_BUCKET_SIZE = 60000L;
+
+	/** How old events may be, in milliseconds. */
+	private final long maxAge;
+
+	/** Size of time buckets in milliseconds. */
+	private final long bucketSize;
+
+	/** Entries by time bucket. */
+	private final TreeMap<Long, Map<Long, Entry>> buckets = new TreeMap<Long, Map<Long, Entry>>();
+
+	/** Entries by event index id. */
+	private final Map<Long, Entry> entries = new HashMap<Long, Entry>();
+
+	/** Whether existing events have been loaded. */
+	private boolean loaded = false;
+
+	/**
+	 * Create a new RecentEventIndex using the default bucket size.
+	 *
+	 * @param maxAge
+	 *            how old events may be, in milliseconds.
+	 */
+	public RecentEventIndex(final long maxAge) {
+		this(maxAge, DEFAULT_BUCKET_SIZE);
+	}
+
+	/**
+	 * Create a new RecentEventIndex.
+	 *
+	 * @param maxAge
+	 *            how old events may be, in milliseconds.
+	 * @param bucketSize
+	 *            size of time buckets in milliseconds.
+	 */
+	public RecentEventIndex(final long maxAge, final long bucketSize) {
+		if (maxAge <= 0 || bucketSize <= 0) {
+			throw new IllegalArgumentException(
+					"maxAge and bucketSize must be positive");
+		}
+		this.maxAge = maxAge;
+		this.bucketSize = bucketSize;
+	}
+
+	/**
+	 * Load recent events from a product index.
+	 *
+	 * Queries are not answered until this method completes.
+	 *
+	 * @param index
+	 *            index with existing events.
+	 * @throws Exception
+	 *             if unable to search index.
+	 */
+	public void load(final ProductIndex index) throws Exception {
+		ProductIndexQuery query = new ProductIndexQuery();
+		query.setEventSearchType(ProductIndexQuery.SEARCH_EVENT_PREFERRED);
+		query.setResultType(ProductIndexQuery.RESULT_TYPE_ALL);
+		query.setMinEventTime(new Date(getWindowStart()));
+
+		final int[] count = { 0 };
+		synchronized (this) {
+			if (index instanceof JDBCProductIndex) {
+				// add events as they are loaded, instead of building a list
+				((JDBCProductIndex) index).getEvents(query, (event) -> {
+					update(event);
+					count[0]++;
+				});
+			} else {
+				for (final Event event : index.getEvents(query)) {
+					update(event);
+					count[0]++;
+				}
+			}
+			loaded = true;
+		}
+		LOGGER.fine("Loaded " + count[0] + " recent events");
+	}
+
+	/**
+	 * @return whether existing events have been loaded.
+	 */
+	public synchronized boolean isLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * Add or update an event.
+	 *
+	 * Events without an index id, preferred time, or preferred location, or
+	 * older than maxAge, are removed.
+	 *
+	 * @param event
+	 *            event to add or update.
+	 */
+	public synchronized void update(final Event event) {
+		final Long indexId = event.getIndexId();
+		if (indexId == null) {
+			return;
+		}
+		remove(indexId);
+
+		final Date time = event.getTime();
+		final BigDecimal latitude = event.getLatitude();
+		final BigDecimal longitude = event.getLongitude();
+		if (time == null || latitude == null || longitude == null
+				|| time.getTime() < getWindowStart()) {
+			return;
+		}
+
+		final Entry entry = new Entry(indexId, time.getTime(),
+				latitude.doubleValue(), longitude.doubleValue());
+		Map<Long, Entry> bucket = buckets.get(entry.bucket);
+		if (bucket == null) {
+			bucket = new HashMap<Long, Entry>();
+			buckets.put(entry.bucket, bucket);
+		}
+		bucket.put(indexId, entry);
+		entries.put(indexId, entry);
+	}
+
+	/**
+	 * Remove an event.
+	 *
+	 * @param indexId
+	 *            event index id.
+	 */
+	public synchronized void remove(final Long indexId) {
+		final Entry entry = entries.remove(indexId);
+		if (entry != null) {
+			final Map<Long, Entry> bucket = buckets.get(entry.bucket);
+			bucket.remove(indexId);
+			if (bucket.isEmpty()) {
+				buckets.remove(entry.bucket);
+			}
+		}
+	}
+
+	/**
+	 * @return number of events in index.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Find events matching a query.
+	 *
+	 * @param query
+	 *            query to search.
+	 * @return event index ids of matching events, or null if this index cannot
+	 *         answer the query.
+	 */
+	public synchronized List<Long> getEventIndexIds(
+			final ProductIndexQuery query) {
+		prune();
+		if (!canSearch(query)) {
+			return null;
+		}
+
+		final long minTime = query.getMinEventTime().getTime();
+		final long maxTime = query.getMaxEventTime().getTime();
+		final List<Long> indexIds = new ArrayList<Long>();
+		for (final Map<Long, Entry> bucket : buckets.subMap(
+				getBucket(minTime), true, getBucket(maxTime), true).values()) {
+			for (final Entry entry : bucket.values()) {
+				if (entry.time >= minTime && entry.time <= maxTime
+						&& containsLocation(query, entry)) {
+					indexIds.add(entry.indexId);
+				}
+			}
+		}
+		return indexIds;
+	}
+
+	/**
+	 * Check whether a query only constrains preferred event time and location,
+	 * within the indexed window.
+	 *
+	 * @param query
+	 *            query to check.
+	 * @return true if this index can answer the query.
+	 */
+	protected boolean canSearch(final ProductIndexQuery query) {
+		return loaded
+				&& query.getEventSearchType() == ProductIndexQuery.SEARCH_EVENT_PREFERRED
+				&& query.getMinEventTime() != null
+				&& query.getMaxEventTime() != null
+				&& query.getMinEventTime().getTime() >= getWindowStart()
+				&& query.getEventSource() == null
+				&& query.getEventSourceCode() == null
+				&& query.getMinEventDepth() == null
+				&& query.getMaxEventDepth() == null
+				&& query.getMinEventMagnitude() == null
+				&& query.getMaxEventMagnitude() == null
+				&& query.getProductIds().isEmpty()
+				&& query.getEventIndexIds().isEmpty()
+				&& query.getMinProductUpdateTime() == null
+				&& query.getMaxProductUpdateTime() == null
+				&& query.getProductSource() == null
+				&& query.getProductType() == null
+				&& query.getProductCode() == null
+				&& query.getProductVersion() == null
+				&& query.getProductStatus() == null
+				&& query.getMinProductIndexId() == null
+				&& query.getLimit() == null;
+	}
+
+	/**
+	 * Check whether an entry is within query latitude and longitude range.
+	 *
+	 * Uses the same comparisons as JDBCProductIndex, including ranges that
+	 * cross the date line.
+	 *
+	 * @param query
+	 *            query with location range.
+	 * @param entry
+	 *            entry to check.
+	 * @return true if entry location is within query range.
+	 */
+	private boolean containsLocation(final ProductIndexQuery query,
+			final Entry entry) {
+		final BigDecimal minLat = query.getMinEventLatitude();
+		if (minLat != null && entry.latitude < minLat.doubleValue()) {
+			return false;
+		}
+		final BigDecimal maxLat = query.getMaxEventLatitude();
+		if (maxLat != null && entry.latitude > maxLat.doubleValue()) {
+			return false;
+		}
+
+		final Double minLon = normalizeLongitude(query.getMinEventLongitude());
+		final Double maxLon = normalizeLongitude(query.getMaxEventLongitude());
+		final double lon = entry.longitude;
+		if (minLon != null && maxLon != null && maxLon < minLon) {
+			// crosses date line
+			return (lon > minLon && lon <= 180) || (lon < maxLon && lon > -180);
+		}
+		if (minLon != null && lon < minLon) {
+			return false;
+		}
+		if (maxLon != null && lon > maxLon) {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Remove buckets that are entirely older than maxAge.
+	 */
+	private void prune() {
+		final Long oldest = getBucket(getWindowStart());
+		final Iterator<Map<Long, Entry>> iter = buckets.headMap(oldest, false)
+				.values().iterator();
+		while (iter.hasNext()) {
+			for (final Long indexId : iter.next().keySet()) {
+				entries.remove(indexId);
+			}
+			iter.remove();
+		}
+	}
+
+	/**
+	 * @return oldest event time kept in this index.
+	 */
+	protected long getWindowStart() {
+		return System.currentTimeMillis() - maxAge;
+	}
+
+	/**
+	 * @param time
+	 *            event time in milliseconds.
+	 * @return bucket containing time.
+	 */
+	private Long getBucket(final long time) {
+		return Math.floorDiv(time, bucketSize);
+	}
+
+	/**
+	 * Normalize a longitude between -180 and 180.
+	 *
+	 * @param lon
+	 *            longitude, or null.
+	 * @return normalized longitude, or null.
+	 */
+	private static Double normalizeLongitude(final BigDecimal lon) {
+		if (lon == null) {
+			return null;
+		}
+		double normalized = lon.doubleValue() % 360;
+		if (normalized > 180) {
+			normalized -= 360;
+		} else if (normalized <= -180) {
+			normalized += 360;
+		}
+		return normalized;
+	}
+
+	/**
+	 * Preferred location of one event.
+	 */
+	private class Entry {
+		private final Long indexId;
+		private final long time;
+		private final double latitude;
+		private final double longitude;
+		private final Long bucket;
+
+		public Entry(final Long indexId, final long time, final double latitude,
+				final double longitude) {
+			this.indexId = indexId;
+			this.time = time;
+			this.latitude = latitude;
+			this.longitude = longitude;
+			this.bucket = getBucket(time);
+		}
+	}
+
+}
@@ -3,7 +3,13 @@
  */
 package gov.usgs.earthquake.indexer;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -20,14 +26,34 @@ import gov.usgs.util.Config;
  * <li>onBeforeProcessThreadStart</li>
  * <li>onProcessException</li>
  * <li>getNextProducts</li>
- * <li>processProducts</li>
+ * <li>processProduct</li>
+ * <li>onProductsProcessed</li>
  * </ul>
  *
+ * Products are fetched in batches. When processThreads is greater than 1,
+ * products in a batch are processed concurrently, and the next batch is
+ * fetched once the whole batch finishes. lastIndexId is a low-water mark: it
+ * only advances past a product once it and every product before it in the
+ * batch are processed. Products after one that could not be processed are
+ * processed again with the next batch. When a batch does not finish, the next
+ * batch waits retryDelay milliseconds, doubling for each consecutive retry up
+ * to one minute.
+ *
  * This class accepts an index for querying in config:
  *
  * <dl>
  * <dt>index</dt>
  * <dd>(Required) The index to use for product querying.</dd>
+ *
+ * <dt>batchSize</dt>
+ * <dd>(Optional, default 10) Number of products to fetch at a time.</dd>
+ *
+ * <dt>processThreads</dt>
+ * <dd>(Optional, default 1) Number of threads used to process a batch.</dd>
+ *
+ * <dt>retryDelay</dt>
+ * <dd>(Optional, default 1000) Milliseconds to wait before retrying a batch
+ * that did not finish.</dd>
  * </dl>
  */
 
@@ -39,7 +65,29 @@ public class ReliableIndexerListener extends DefaultIndexerListener implements R
 
   private static final int PRODUCTS_PER_QUERY = 10;
 
-  private boolean stopThread = false;
+  /** Property for number of products fetched at a time */
+  public static final String BATCH_SIZE_PROPERTY = "batchSize";
+  /** Default batch size */
+  public static final String DEFAULT_BATCH_SIZE = Integer.toString(PRODUCTS_PER_QUERY);
+
+  /** Property for number of threads processing a batch */
+  public static final String PROCESS_THREADS_PROPERTY = "processThreads";
+  /** Default number of process threads */
+  public static final String DEFAULT_PROCESS_THREADS = "1";
+
+  /** Property for milliseconds to wait before retrying a batch */
+  public static final String RETRY_DELAY_PROPERTY = "retryDelay";
+  /** Default retry delay */
+  public static final String DEFAULT_RETRY_DELAY = "1000";
+  /** Maximum retry delay, in milliseconds */
+  public static final long MAX_RETRY_DELAY = 60000L;
+
+  private int batchSize = PRODUCTS_PER_QUERY;
+  private int processThreads = 1;
+  private long retryDelay = Long.parseLong(DEFAULT_RETRY_DELAY);
+  private ExecutorService processExecutor;
+
+  private volatile boolean stopThread = false;
   private long lastIndexId = -1;
   private final Object syncObject = new Object();
 
@@ -68,6 +116,16 @@ public class ReliableIndexerListener extends DefaultIndexerListener implements R
       throw new ConfigurationException("[" + getName()
           + "] ProductIndex is required");
     }
+
+    batchSize = Integer.parseInt(
+        config.getProperty(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE));
+    processThreads = Integer.parseInt(
+        config.getProperty(PROCESS_THREADS_PROPERTY, DEFAULT_PROCESS_THREADS));
+    retryDelay = Long.parseLong(
+        config.getProperty(RETRY_DELAY_PROPERTY, DEFAULT_RETRY_DELAY));
+    LOGGER.config("[" + getName() + "] batchSize = " + batchSize
+        + ", processThreads = " + processThreads
+        + ", retryDelay = " + retryDelay);
   }
 
   /**
@@ -90,6 +148,7 @@ public class ReliableIndexerListener extends DefaultIndexerListener implements R
    */
   @Override
   public void run() {
+    long nextRetryDelay = retryDelay;
     //Run until we're told not to
     while (!stopThread) {
 
@@ -120,32 +179,114 @@ public class ReliableIndexerListener extends DefaultIndexerListener implements R
       }
 
       //Process the products we have
-      for(ProductSummary summary : productList) {
-        LOGGER.log(Level.FINEST,"[" + getName() + "] preparing to process product " + summary.getIndexId());
-        //Check for shutdown every iteration so we don't hog shutdown time
-        if (stopThread) {
-          break;
-        }
+      List<ProductSummary> processed = processProducts(productList);
+      boolean complete = false;
+      if (processed.size() > 0) {
         try {
-          //Process the product types we're told to in configuration
-          LOGGER.log(Level.FINEST,"[" + getName() + "] determining if we can process product " + summary.getIndexId());
-          if (accept(summary.getId())) {
-            LOGGER.log(Level.FINEST,"[" + getName() + "] attempting to process product " + summary.getIndexId());
-            this.processProduct(summary);
-          }
+          this.onProductsProcessed(processed);
           //Update internal storage so we don't reprocess products
-          this.setLastIndexId(summary.getIndexId());
+          this.setLastIndexId(processed.get(processed.size() - 1).getIndexId());
+          complete = (processed.size() == productList.size());
         } catch (Exception e) {
-          try {
-            //Handle exception if we can
-            this.onProcessException(summary,e);
-          } catch(Exception e2) {
-            //Give up if we can't
-            break;
-          }
+          LOGGER.log(Level.WARNING, "[" + getName()
+              + "] Exception completing processed products, will retry", e);
+        }
+      }
+
+      if (complete) {
+        nextRetryDelay = retryDelay;
+      } else if (!stopThread && nextRetryDelay > 0) {
+        //Wait before retrying, so a failing product is not retried in a loop
+        LOGGER.log(Level.FINE, "[" + getName() + "] batch did not finish, retrying in "
+            + nextRetryDelay + " ms");
+        try {
+          Thread.sleep(nextRetryDelay);
+        } catch (InterruptedException ignore) {
+          //Most likely interrupted by shutdown
         }
+        nextRetryDelay = Math.min(nextRetryDelay * 2, MAX_RETRY_DELAY);
+      }
+
+    }
+  }
+
+  /**
+   * Process a batch of products, serially or using processThreads.
+   *
+   * @param productList products to process, in index id order
+   * @return products before the first product that could not be processed,
+   *     in index id order
+   */
+  protected List<ProductSummary> processProducts(final List<ProductSummary> productList) {
+    final List<ProductSummary> processed = new ArrayList<ProductSummary>();
+
+    if (processExecutor == null) {
+      for (ProductSummary summary : productList) {
+        //Check for shutdown every iteration so we don't hog shutdown time
+        if (stopThread || !processSummary(summary)) {
+          break;
+        }
+        processed.add(summary);
+      }
+      return processed;
+    }
+
+    final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+    for (final ProductSummary summary : productList) {
+      results.add(processExecutor.submit(() -> {
+        //Check for shutdown so we don't hog shutdown time
+        return !stopThread && processSummary(summary);
+      }));
+    }
+    //Wait for the whole batch, so batches do not overlap
+    boolean lowWaterMark = true;
+    for (int i = 0; i < results.size(); i++) {
+      boolean success = false;
+      try {
+        success = results.get(i).get();
+      } catch (InterruptedException e) {
+        //Most likely interrupted by shutdown
+        LOGGER.log(Level.FINE, "[" + getName() + "] interrupted while processing");
+        break;
+      } catch (ExecutionException e) {
+        LOGGER.log(Level.WARNING, "[" + getName() + "] Exception processing product "
+            + productList.get(i).getId(), e.getCause());
       }
+      if (success && lowWaterMark) {
+        processed.add(productList.get(i));
+      } else {
+        lowWaterMark = false;
+      }
+    }
+    return processed;
+  }
 
+  /**
+   * Process one product, if accepted.
+   *
+   * @param summary product to process
+   * @return true if product was processed, skipped, or its exception was
+   *     handled by onProcessException
+   */
+  private boolean processSummary(final ProductSummary summary) {
+    LOGGER.log(Level.FINEST,"[" + getName() + "] preparing to process product " + summary.getIndexId());
+    try {
+      //Process the product types we're told to in configuration
+      LOGGER.log(Level.FINEST,"[" + getName() + "] determining if we can process product " + summary.getIndexId());
+      if (accept(summary.getId())) {
+        LOGGER.log(Level.FINEST,"[" + getName() + "] attempting to process product " + summary.getIndexId());
+        this.processProduct(summary);
+      }
+      return true;
+    } catch (Exception e) {
+      try {
+        //Handle exception if we can
+        this.onProcessException(summary,e);
+        return true;
+      } catch(Exception e2) {
+        //Give up if we can't
+        return false;
+      }
     }
   }
 
@@ -161,6 +302,10 @@ public class ReliableIndexerListener extends DefaultIndexerListener implements R
   public void startup() throws Exception{
     super.startup();
     this.onBeforeProcessThreadStart();
+    stopThread = false;
+    if (processThreads > 1) {
+      processExecutor = Executors.newFixedThreadPool(processThreads);
+    }
     this.processThread = new Thread(this);
     this.processThread.start();
   }
@@ -180,6 +325,11 @@ public class ReliableIndexerListener extends DefaultIndexerListener implements R
         this.processThread.interrupt();
       }
       this.processThread.join();
+      if (processExecutor != null) {
+        processExecutor.shutdown();
+        processExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        processExecutor = null;
+      }
     } finally {
       super.shutdown();
     }
@@ -195,6 +345,36 @@ public class ReliableIndexerListener extends DefaultIndexerListener implements R
     this.productIndex = productIndex;
   }
 
+  /** @return number of products fetched at a time */
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  /** @param batchSize to set */
+  public void setBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /** @return number of threads used to process a batch */
+  public int getProcessThreads() {
+    return this.processThreads;
+  }
+
+  /** @param processThreads to set, takes effect at startup */
+  public void setProcessThreads(int processThreads) {
+    this.processThreads = processThreads;
+  }
+
+  /** @return milliseconds to wait before retrying a batch that did not finish */
+  public long getRetryDelay() {
+    return this.retryDelay;
+  }
+
+  /** @param retryDelay to set, takes effect at startup */
+  public void setRetryDelay(long retryDelay) {
+    this.retryDelay = retryDelay;
+  }
+
 
   ////////////////////////
   //Stubs for subclasses//
@@ -255,16 +435,33 @@ public class ReliableIndexerListener extends DefaultIndexerListener implements R
    */
   public List<ProductSummary> getNextProducts() throws Exception{
     ProductIndexQuery query = new ProductIndexQuery();
-    query.setLimit(PRODUCTS_PER_QUERY);
+    query.setLimit(batchSize);
     query.setOrderBy(JDBCProductIndex.SUMMARY_PRODUCT_INDEX_ID); //Currently the only public field; should maybe change
     query.setMinProductIndexId(this.getLastIndexId()+1);
 
     return productIndex.getProducts(query);
   }
 
+  /**
+   * Called after a batch of products is processed, before lastIndexId is
+   * advanced past them.
+   *
+   * Subclasses may use this to save results of a batch together.
+   * When an exception is thrown, lastIndexId is not advanced and the products
+   * are processed again.
+   *
+   * @param products processed products, in index id order
+   * @throws Exception available for subclasses
+   */
+  protected void onProductsProcessed(final List<ProductSummary> products) throws Exception {
+    //Do stuff
+  }
+
   /**
    * Does a task with each product
    *
+   * May be called concurrently when processThreads is greater than 1.
+   *
    * @param product ProductSummary  to process
    * @throws Exception available for subclasses
    */
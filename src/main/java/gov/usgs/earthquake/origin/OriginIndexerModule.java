@@ -1,7 +1,11 @@
 package gov.usgs.earthquake.origin;
 
+import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -10,6 +14,8 @@ import javax.json.JsonObject;
 
 import gov.usgs.earthquake.geoserve.GeoservePlacesService;
 import gov.usgs.earthquake.geoserve.GeoserveRegionsService;
+import gov.usgs.earthquake.geoserve.LocalGeoservePlacesService;
+import gov.usgs.earthquake.geoserve.LocalGeoserveRegionsService;
 import gov.usgs.earthquake.indexer.DefaultIndexerModule;
 import gov.usgs.earthquake.indexer.IndexerModule;
 import gov.usgs.earthquake.indexer.ProductSummary;
@@ -26,6 +32,14 @@ import gov.usgs.util.StringUtils;
  *
  * This module may be configured with the following properties: `endpointUrl`
  * `connectTimeout`, and `readTimeout`.
+ *
+ * When `placesFile` and/or `regionsFile` are configured, places and regions
+ * are looked up from memory using LocalGeoservePlacesService and
+ * LocalGeoserveRegionsService, and Geoserve is only used as a fallback when
+ * `geoserveFallback` is true (the default). Titles from nearby places are
+ * cached by location, rounded to three decimal places, for up to
+ * `titleCacheSize` locations (0 disables the cache). The cache is disabled by
+ * default, unless local places or regions are configured.
  */
 public class OriginIndexerModule extends DefaultIndexerModule {
   private static final Logger LOGGER = Logger.getLogger(OriginIndexerModule.class.getName());
@@ -52,8 +66,28 @@ public class OriginIndexerModule extends DefaultIndexerModule {
    */
   public static final int DEFAULT_GEOSERVE_DISTANCE_THRESHOLD = 300;
 
+  /** Property for local places file */
+  public static final String PLACES_FILE_PROPERTY = "placesFile";
+  /** Property for local regions file */
+  public static final String REGIONS_FILE_PROPERTY = "regionsFile";
+  /** Property for whether to use geoserve when local lookup fails */
+  public static final String GEOSERVE_FALLBACK_PROPERTY = "geoserveFallback";
+  /** Default geoserve fallback */
+  public static final String DEFAULT_GEOSERVE_FALLBACK = "true";
+  /** Property for number of cached titles */
+  public static final String TITLE_CACHE_SIZE_PROPERTY = "titleCacheSize";
+  /** Default number of cached titles */
+  public static final int DEFAULT_TITLE_CACHE_SIZE = 0;
+  /** Default number of cached titles when local places or regions are configured */
+  public static final int DEFAULT_LOCAL_TITLE_CACHE_SIZE = 10000;
+  /** Decimal places of latitude and longitude used as title cache key */
+  public static final int TITLE_CACHE_PRECISION = 3;
+
   private int distanceThreshold;
 
+  /** Cached titles, by rounded location. */
+  private Map<String, String> titleCache = null;
+
   /**
    * Empty constructor
    * Do nothing, must be configured through bootstrapping before use
@@ -107,7 +141,7 @@ public class OriginIndexerModule extends DefaultIndexerModule {
 
     if (title == null && latitude != null && longitude != null) {
       try {
-        title = this.getEventTitle(latitude, longitude);
+        title = this.getCachedEventTitle(latitude, longitude);
         summaryProperties.put("title", StringUtils.encodeAsUtf8(title));
       } catch (Exception ex) {
         LOGGER
@@ -161,6 +195,27 @@ public class OriginIndexerModule extends DefaultIndexerModule {
     this.distanceThreshold = threshold;
   }
 
+  /**
+   * Set the number of locations whose titles are cached.
+   *
+   * @param size maximum number of cached titles, or 0 to disable the cache
+   */
+  public void setTitleCacheSize(final int size) {
+    if (size <= 0) {
+      this.titleCache = null;
+      return;
+    }
+    this.titleCache = Collections.synchronizedMap(
+        new LinkedHashMap<String, String>(16, 0.75f, true) {
+          private static final long serialVersionUID = 1L;
+
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > size;
+          }
+        });
+  }
+
   @Override
   public void configure(Config config) throws Exception {
     // Distance threshold (in km)
@@ -236,6 +291,76 @@ public class OriginIndexerModule extends DefaultIndexerModule {
             regionsEndpointReadTimeout
         )
     );
+
+    // Local places and regions
+    boolean fallback = Boolean.valueOf(
+        config.getProperty(GEOSERVE_FALLBACK_PROPERTY, DEFAULT_GEOSERVE_FALLBACK));
+    String placesFile = config.getProperty(PLACES_FILE_PROPERTY);
+    if (placesFile != null) {
+      LocalGeoservePlacesService localPlaces = new LocalGeoservePlacesService(
+          placesEndpointUrl,
+          placesEndpointConnectTimeout,
+          placesEndpointReadTimeout);
+      localPlaces.setFallback(fallback);
+      localPlaces.setSearchDistance(this.distanceThreshold);
+      localPlaces.loadPlaces(new File(placesFile));
+      LOGGER.config(String.format("[%s] loaded %d places from %s, fallback=%s",
+          this.getName(), localPlaces.getPlaceCount(), placesFile, fallback));
+      this.setPlacesService(localPlaces);
+    }
+    String regionsFile = config.getProperty(REGIONS_FILE_PROPERTY);
+    if (regionsFile != null) {
+      LocalGeoserveRegionsService localRegions = new LocalGeoserveRegionsService(
+          regionsEndpointUrl,
+          regionsEndpointConnectTimeout,
+          regionsEndpointReadTimeout);
+      localRegions.setFallback(fallback);
+      localRegions.loadRegions(new File(regionsFile));
+      LOGGER.config(String.format("[%s] loaded %d region polygons from %s, fallback=%s",
+          this.getName(), localRegions.getPolygonCount(), regionsFile, fallback));
+      this.setRegionsService(localRegions);
+    }
+
+    int titleCacheSize = Integer.parseInt(
+        config.getProperty(
+            TITLE_CACHE_SIZE_PROPERTY,
+            Integer.toString(placesFile != null || regionsFile != null
+                ? DEFAULT_LOCAL_TITLE_CACHE_SIZE
+                : DEFAULT_TITLE_CACHE_SIZE)
+        )
+    );
+    LOGGER.config(String.format("[%s] titleCacheSize = %d", this.getName(), titleCacheSize));
+    this.setTitleCacheSize(titleCacheSize);
+  }
+
+  /**
+   * Get the event title, using the title cache when enabled.
+   *
+   * Locations are rounded to TITLE_CACHE_PRECISION decimal places, and only
+   * titles from nearby places are cached. When no place is found, or the
+   * places lookup fails, the fe region name is returned without caching.
+   *
+   * @param latitude event latitude in degrees
+   * @param longitude event longitude in degrees
+   * @return {String} event name
+   * @throws IOException if IO error occurs
+   */
+  protected String getCachedEventTitle(BigDecimal latitude, BigDecimal longitude) throws IOException {
+    final Map<String, String> cache = this.titleCache;
+    if (cache == null) {
+      return this.getEventTitle(latitude, longitude);
+    }
+    final String key = latitude.setScale(TITLE_CACHE_PRECISION, RoundingMode.HALF_UP).toPlainString()
+        + "," + longitude.setScale(TITLE_CACHE_PRECISION, RoundingMode.HALF_UP).toPlainString();
+    String title = cache.get(key);
+    if (title == null) {
+      title = this.getNearestPlaceTitle(latitude, longitude);
+      if (title == null) {
+        return this.geoserveRegions.getFeRegionName(latitude, longitude);
+      }
+      cache.put(key, title);
+    }
+    return title;
   }
 
   /**
@@ -251,18 +376,38 @@ public class OriginIndexerModule extends DefaultIndexerModule {
    * @throws IOException if IO error occurs
    */
   public String getEventTitle(BigDecimal latitude, BigDecimal longitude) throws IOException {
+    String title = this.getNearestPlaceTitle(latitude, longitude);
+    if (title != null) {
+      return title;
+    }
+
+    return this.geoserveRegions.getFeRegionName(latitude, longitude);
+  }
+
+  /**
+   * Get the event title based on the name and location of the nearest place.
+   *
+   * @param latitude event latitude in degrees
+   * @param longitude event longitude in degrees
+   *
+   * @return {String} event name, or null if the nearest place is outside of
+   *     the distance threshold or the places lookup fails
+   */
+  protected String getNearestPlaceTitle(BigDecimal latitude, BigDecimal longitude) {
     try {
       JsonObject feature = this.geoservePlaces.getNearestPlace(latitude, longitude);
-      double distance = feature.getJsonObject("properties").getJsonNumber("distance").doubleValue();
+      // null when no place is within search distance
+      if (feature != null) {
+        double distance = feature.getJsonObject("properties").getJsonNumber("distance").doubleValue();
 
-      if (distance <= (double) this.distanceThreshold) {
-        return this.formatEventTitle(feature);
+        if (distance <= (double) this.distanceThreshold) {
+          return this.formatEventTitle(feature);
+        }
       }
     } catch (Exception e) {
       LOGGER.log(Level.WARNING, "[" + this.getName() + "] failed to get nearest place from geoserve places service.");
     }
-
-    return this.geoserveRegions.getFeRegionName(latitude, longitude);
+    return null;
   }
 
   /**
@@ -10,6 +10,11 @@ import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URISyntaxException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Base64;
 
 import java.util.Date;
 import java.util.Map;
@@ -47,6 +52,9 @@ public class FileContent extends AbstractContent {
 		MIME_TYPES.put("zip", "application/zip");
 	}
 
+	/** Maximum number of bytes mapped at once when hashing files. */
+	public static final long MAX_MAP_SIZE = 64L * 1024L * 1024L;
+
 	/** The actual content. */
 	private File content;
 
@@ -145,6 +153,33 @@ public class FileContent extends AbstractContent {
 		return content;
 	}
 
+	/**
+	 * Get or generate the SHA-256 hash of content.
+	 *
+	 * Files are hashed using memory mapped regions of up to MAX_MAP_SIZE
+	 * bytes, instead of copying file content through a stream.
+	 *
+	 * @param computeIfMissing Read file to generate hash if missing.
+	 * @return sha256 string
+	 * @throws Exception if error occurs
+	 */
+	@Override
+	public String getSha256(final boolean computeIfMissing) throws Exception {
+		if (sha256 == null && computeIfMissing) {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			try (final FileChannel channel = FileChannel.open(content.toPath(),
+					StandardOpenOption.READ)) {
+				final long size = channel.size();
+				for (long position = 0; position < size; position += MAX_MAP_SIZE) {
+					digest.update(channel.map(MapMode.READ_ONLY, position,
+							Math.min(MAX_MAP_SIZE, size - position)));
+				}
+			}
+			setSha256(Base64.getEncoder().encodeToString(digest.digest()));
+		}
+		return sha256;
+	}
+
 	/**
 	 * Search a directory for files. This is equivalent to
 	 * getDirectoryContents(directory, directory).
@@ -411,7 +411,26 @@ public class Product {
 			return null;
 		}
 
-		byte[] digest = ProductDigest.digestProduct(this, version);
+		return verifySignatureKey(publicKeys, version,
+				ProductDigest.digestProduct(this, version));
+	}
+
+	/**
+	 * Try to verify using multiple candidate keys and an existing digest.
+	 *
+	 * @param publicKeys an array of publicKeys to test
+	 * @param version the signature version to use.
+	 * @param digest digest of this product, computed using version.
+	 * @return key that verified signature, or null if not verified.
+	 * @throws Exception if error occurs
+	 * @see ProductDigestCache
+	 */
+	public PublicKey verifySignatureKey(final PublicKey[] publicKeys,
+			final Version version, final byte[] digest) throws Exception {
+		if (signature == null) {
+			return null;
+		}
+
 		for (PublicKey key : publicKeys) {
 			try {
 				if (CryptoUtils.verify(key, digest, getSignature(), version)) {
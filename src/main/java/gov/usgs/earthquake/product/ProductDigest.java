@@ -12,6 +12,7 @@ import gov.usgs.util.XmlUtils;
 import gov.usgs.util.CryptoUtils.Version;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URI;
 import java.net.URL;
 import java.nio.charset.Charset;
@@ -66,7 +67,7 @@ public class ProductDigest implements ProductHandler {
 	 * @param version signature version
 	 * @throws NoSuchAlgorithmException if not SHA1 or SHA-256
 	 */
-	protected ProductDigest(final Version version) throws NoSuchAlgorithmException {
+	public ProductDigest(final Version version) throws NoSuchAlgorithmException {
 		final String algorithm = version == Version.SIGNATURE_V2
 				? MESSAGE_DIGEST_V2_ALGORITHM
 				: MESSAGE_DIGEST_ALGORITHM;
@@ -137,6 +138,29 @@ public class ProductDigest implements ProductHandler {
 	 */
 	public void onContent(ProductId id, String path, Content content)
 			throws Exception {
+		onContentAttributes(id, path, content);
+		if (this.version != Version.SIGNATURE_V2) {
+			StreamUtils.transferStream(content.getInputStream(),
+					new StreamUtils.UnclosableOutputStream(digestStream));
+		}
+	}
+
+	/**
+	 * Digest the path and content attributes.
+	 *
+	 * For signature v2 this is the same as onContent. For signature v1,
+	 * content bytes are not read, and must be passed to
+	 * {@link #onContentBytes(byte[], int, int)} before any other method is
+	 * called. This allows content to be digested while another handler reads
+	 * it.
+	 *
+	 * @param id product id.
+	 * @param path content path.
+	 * @param content content attributes.
+	 * @throws Exception if error occurs
+	 */
+	public void onContentAttributes(ProductId id, String path, Content content)
+			throws Exception {
 		digestStream.write(path.getBytes(CHARSET));
 		digestStream.write(content.getContentType().getBytes(CHARSET));
 		digestStream.write(XmlUtils.formatDate(content.getLastModified())
@@ -144,12 +168,22 @@ public class ProductDigest implements ProductHandler {
 		digestStream.write(content.getLength().toString().getBytes(CHARSET));
 		if (this.version == Version.SIGNATURE_V2) {
 			digestStream.write(content.getSha256().getBytes(CHARSET));
-		} else {
-			StreamUtils.transferStream(content.getInputStream(),
-					new StreamUtils.UnclosableOutputStream(digestStream));
 		}
 	}
 
+	/**
+	 * Digest content bytes, after calling onContentAttributes.
+	 *
+	 * @param bytes content bytes.
+	 * @param offset offset of first byte.
+	 * @param length number of bytes.
+	 * @throws IOException if error occurs
+	 */
+	public void onContentBytes(byte[] bytes, int offset, int length)
+			throws IOException {
+		digestStream.write(bytes, offset, length);
+	}
+
 	/**
 	 * Finish computing digest.
 	 */
@@ -0,0 +1,300 @@
+/*
+ * ProductDigestCache
+ */
+package gov.usgs.earthquake.product;
+
+import gov.usgs.util.CryptoUtils.Version;
+import gov.usgs.util.XmlUtils;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Bounded cache of verified product digests.
+ *
+ * Computing a product digest reads all product content, which is repeated
+ * each time a product is verified by storage, listeners, and the indexer.
+ * Digests are cached by ProductId, and only reused when the signature,
+ * signature version, and all product attributes match. Content is matched
+ * using path, type, last modified, and length; and using the content sha256
+ * when it is known.
+ *
+ * Only digests that verified a signature should be added to this cache.
+ */
+public class ProductDigestCache {
+
+	/** Default maximum number of cached digests. */
+	public static final int DEFAULT_MAX_SIZE = 1000;
+
+	/** Shared cache. */
+	private static final ProductDigestCache DEFAULT_CACHE = new ProductDigestCache();
+
+	/** Cached digests, least recently used first. */
+	private final LinkedHashMap<ProductId, Entry> entries;
+
+	/** Number of digests found in cache. */
+	private long hits = 0L;
+
+	/** Number of digests not found in cache. */
+	private long misses = 0L;
+
+	/**
+	 * @return shared cache.
+	 */
+	public static ProductDigestCache getDefault() {
+		return DEFAULT_CACHE;
+	}
+
+	/**
+	 * Create a new cache using DEFAULT_MAX_SIZE.
+	 */
+	public ProductDigestCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Create a new cache.
+	 *
+	 * @param maxSize
+	 *            maximum number of cached digests.
+	 */
+	public ProductDigestCache(final int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be at least 1");
+		}
+		entries = new LinkedHashMap<ProductId, Entry>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					final Map.Entry<ProductId, Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+
+	/**
+	 * Add a verified digest.
+	 *
+	 * Content sha256 values are saved when already known, and are not
+	 * computed.
+	 *
+	 * @param product
+	 *            signed product.
+	 * @param version
+	 *            signature version used to compute digest.
+	 * @param digest
+	 *            digest that verified product signature.
+	 */
+	public void put(final Product product, final Version version,
+			final byte[] digest) {
+		if (product.getSignature() == null) {
+			return;
+		}
+		final Map<String, String> sha256s = new HashMap<String, String>();
+		final Map<String, Content> contents = product.getContents();
+		for (final String path : contents.keySet()) {
+			final String sha256 = getKnownSha256(contents.get(path));
+			if (sha256 != null) {
+				sha256s.put(path, sha256);
+			}
+		}
+		final Entry entry = new Entry(version, product.getSignature(),
+				getFingerprint(product), sha256s, contents.size(),
+				digest.clone());
+		synchronized (this) {
+			entries.put(product.getId(), entry);
+		}
+	}
+
+	/**
+	 * Get a cached digest.
+	 *
+	 * When a digest is found, content without a known sha256 is assigned the
+	 * cached sha256, so it is not computed again.
+	 *
+	 * @param product
+	 *            signed product.
+	 * @param version
+	 *            signature version.
+	 * @param verifyContent
+	 *            when true, every content must have a known sha256 that matches
+	 *            the cached sha256. Use when content bytes have not already
+	 *            been verified.
+	 * @return cached digest, or null if not found or product does not match.
+	 */
+	public byte[] getDigest(final Product product, final Version version,
+			final boolean verifyContent) {
+		final Entry entry;
+		synchronized (this) {
+			entry = entries.get(product.getId());
+		}
+		if (entry == null || entry.version != version
+				|| !entry.signature.equals(product.getSignature())
+				|| !entry.fingerprint.equals(getFingerprint(product))) {
+			countLookup(false);
+			return null;
+		}
+		final Map<String, Content> contents = product.getContents();
+		for (final String path : contents.keySet()) {
+			final String cached = entry.sha256s.get(path);
+			final String sha256 = getKnownSha256(contents.get(path));
+			if (sha256 == null ? verifyContent : !sha256.equals(cached)) {
+				countLookup(false);
+				return null;
+			}
+		}
+		for (final String path : contents.keySet()) {
+			final Content content = contents.get(path);
+			final String cached = entry.sha256s.get(path);
+			if (cached != null && content instanceof AbstractContent
+					&& getKnownSha256(content) == null) {
+				((AbstractContent) content).setSha256(cached);
+			}
+		}
+		countLookup(true);
+		return entry.digest.clone();
+	}
+
+	/**
+	 * Check whether a digest is cached, with sha256 values for all content.
+	 *
+	 * Callers that compute content sha256 while reading content can use this
+	 * to skip computing the digest.
+	 *
+	 * @param id
+	 *            product id.
+	 * @return true if a digest with content sha256 values is cached for id.
+	 */
+	public synchronized boolean hasContentSha256(final ProductId id) {
+		final Entry entry = entries.get(id);
+		return entry != null && entry.contentCount == entry.sha256s.size();
+	}
+
+	/**
+	 * Remove all cached digests.
+	 */
+	public synchronized void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * @return number of cached digests.
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return number of digests found in cache.
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of digests not found in cache.
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Update hit and miss counts.
+	 *
+	 * @param hit
+	 *            whether digest was found.
+	 */
+	private synchronized void countLookup(final boolean hit) {
+		if (hit) {
+			hits++;
+		} else {
+			misses++;
+		}
+	}
+
+	/**
+	 * Get content sha256 without computing it.
+	 *
+	 * @param content
+	 *            content.
+	 * @return sha256, or null if not known.
+	 */
+	private static String getKnownSha256(final Content content) {
+		if (content instanceof AbstractContent) {
+			try {
+				return ((AbstractContent) content).getSha256(false);
+			} catch (Exception e) {
+				// not computed
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Describe all product attributes used in a digest, except content bytes
+	 * and signature.
+	 *
+	 * @param product
+	 *            product to describe.
+	 * @return string that is the same for products with the same attributes.
+	 */
+	private static String getFingerprint(final Product product) {
+		final StringBuilder buf = new StringBuilder();
+		buf.append(product.getStatus()).append('\n');
+		buf.append(product.getTrackerURL()).append('\n');
+		buf.append(new TreeMap<String, String>(product.getProperties()))
+				.append('\n');
+
+		final Map<String, List<URI>> links = product.getLinks();
+		final TreeMap<String, List<URI>> sortedLinks = new TreeMap<String, List<URI>>();
+		for (final String relation : links.keySet()) {
+			final List<URI> hrefs = new ArrayList<URI>(links.get(relation));
+			Collections.sort(hrefs);
+			sortedLinks.put(relation, hrefs);
+		}
+		buf.append(sortedLinks).append('\n');
+
+		final Map<String, Content> contents = new TreeMap<String, Content>(
+				product.getContents());
+		for (final String path : contents.keySet()) {
+			final Content content = contents.get(path);
+			buf.append(path).append('\t')
+					.append(content.getContentType()).append('\t')
+					.append(XmlUtils.formatDate(content.getLastModified()))
+					.append('\t')
+					.append(content.getLength()).append('\n');
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * A cached digest.
+	 */
+	private static class Entry {
+		private final Version version;
+		private final String signature;
+		private final String fingerprint;
+		private final Map<String, String> sha256s;
+		private final int contentCount;
+		private final byte[] digest;
+
+		public Entry(final Version version, final String signature,
+				final String fingerprint, final Map<String, String> sha256s,
+				final int contentCount, final byte[] digest) {
+			this.version = version;
+			this.signature = signature;
+			this.fingerprint = fingerprint;
+			this.sha256s = sha256s;
+			this.contentCount = contentCount;
+			this.digest = digest;
+		}
+	}
+
+}
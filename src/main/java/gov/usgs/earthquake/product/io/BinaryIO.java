@@ -1,11 +1,15 @@
 package gov.usgs.earthquake.product.io;
 
+import gov.usgs.earthquake.util.ChannelOutputStream;
+
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.InputStream;
 
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.util.Date;
 
@@ -89,6 +93,28 @@ public class BinaryIO {
 		}
 	}
 
+	/**
+	 * Writes length, then length bytes from a file.
+	 *
+	 * When out is a ChannelOutputStream, bytes are transferred directly from
+	 * the file channel, without copying through the java heap.
+	 *
+	 * @param length number of bytes to write
+	 * @param in file to read, from its start
+	 * @param out the OutputStream
+	 * @throws IOException if IO error occurs, or file is shorter than length
+	 */
+	public void writeStream(final long length, final FileChannel in,
+			final OutputStream out) throws IOException {
+		if (out instanceof ChannelOutputStream) {
+			writeLong(length, out);
+			((ChannelOutputStream) out).transferFrom(in, 0L, length);
+		} else {
+			in.position(0L);
+			writeStream(length, Channels.newInputStream(in), out);
+		}
+	}
+
 	/**
 	 * Reads 4 bytes from the InputStream
 	 * @param in InputStream
@@ -2,7 +2,9 @@ package gov.usgs.earthquake.product.io;
 
 import gov.usgs.earthquake.product.ByteContent;
 import gov.usgs.earthquake.product.Content;
+import gov.usgs.earthquake.product.FileContent;
 import gov.usgs.earthquake.product.ProductId;
+import gov.usgs.earthquake.util.ChannelOutputStream;
 import gov.usgs.util.StreamUtils;
 import gov.usgs.util.CryptoUtils.Version;
 
@@ -10,6 +12,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 /**
  * Generator of binary format for product data.
@@ -115,12 +119,12 @@ public class BinaryProductHandler implements ProductHandler {
 	private BinaryIO io;
 
 	/**
-	 * Constructor. Sets up a new BinaryIO
+	 * Constructor. Sets up a new BufferedBinaryIO
 	 * @param out an OutputStream
 	 */
 	public BinaryProductHandler(final OutputStream out) {
 		this.out = out;
-		this.io = new BinaryIO();
+		this.io = new BufferedBinaryIO();
 	}
 
 	@Override
@@ -167,6 +171,15 @@ public class BinaryProductHandler implements ProductHandler {
 
 		io.writeString(content.getContentType(), out);
 		io.writeDate(content.getLastModified(), out);
+		if (content instanceof FileContent && out instanceof ChannelOutputStream) {
+			// send file directly to channel
+			try (final FileChannel contentChannel = FileChannel.open(
+					((FileContent) content).getFile().toPath(),
+					StandardOpenOption.READ)) {
+				io.writeStream(content.getLength().longValue(), contentChannel, out);
+			}
+			return;
+		}
 		InputStream contentInputStream = content.getInputStream();
 		try {
 			io.writeStream(content.getLength().longValue(), contentInputStream, out);
@@ -25,12 +25,12 @@ public class BinaryProductSource implements ProductSource {
 	private BinaryIO io;
 
 	/**
-	 * Constructor. Sets up a new BinaryIO
+	 * Constructor. Sets up a new BufferedBinaryIO
 	 * @param in an InputStream
 	 */
 	public BinaryProductSource(final InputStream in) {
 		this.in = in;
-		this.io = new BinaryIO();
+		this.io = new BufferedBinaryIO();
 	}
 
 	@Override
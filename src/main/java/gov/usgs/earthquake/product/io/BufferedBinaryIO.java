@@ -0,0 +1,204 @@
+package gov.usgs.earthquake.product.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * BinaryIO that reuses buffers between calls.
+ *
+ * Numbers and strings are encoded into a reusable buffer and written with one
+ * call to the output stream, and strings are encoded as UTF-8 without
+ * creating intermediate byte arrays. Reads use one readFully into the same
+ * buffer. Buffers grow as needed, up to MAX_RETAINED_SIZE bytes, and larger
+ * values use a temporary buffer.
+ *
+ * The wire format is the same as BinaryIO. Instances are not thread safe,
+ * and should be used by one reader or writer at a time.
+ */
+public class BufferedBinaryIO extends BinaryIO {
+
+	/** Initial buffer size. */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/** Largest buffer kept between calls. */
+	public static final int MAX_RETAINED_SIZE = 1024 * 1024;
+
+	/** Reusable buffer. */
+	private ByteBuffer buffer;
+
+	/** Reusable UTF-8 encoder. */
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+			.onMalformedInput(CodingErrorAction.REPLACE)
+			.onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	/**
+	 * Create a BufferedBinaryIO with the default buffer size.
+	 */
+	public BufferedBinaryIO() {
+		this(DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a BufferedBinaryIO.
+	 *
+	 * @param bufferSize initial buffer size.
+	 */
+	public BufferedBinaryIO(final int bufferSize) {
+		buffer = ByteBuffer.allocate(Math.max(16, bufferSize));
+	}
+
+	/**
+	 * Get a cleared buffer with at least size bytes.
+	 *
+	 * @param size number of bytes needed.
+	 * @return reusable buffer, or a temporary buffer if size is larger than
+	 *         MAX_RETAINED_SIZE.
+	 */
+	protected ByteBuffer getBuffer(final int size) {
+		if (size > buffer.capacity()) {
+			final ByteBuffer larger = ByteBuffer.allocate(Math.max(size,
+					Math.min(buffer.capacity() * 2, MAX_RETAINED_SIZE)));
+			if (size > MAX_RETAINED_SIZE) {
+				return larger;
+			}
+			buffer = larger;
+		}
+		buffer.clear();
+		return buffer;
+	}
+
+	@Override
+	public void writeInt(final int in, final OutputStream out)
+			throws IOException {
+		final ByteBuffer bytes = getBuffer(4);
+		bytes.putInt(in);
+		out.write(bytes.array(), 0, 4);
+	}
+
+	@Override
+	public void writeLong(final long in, final OutputStream out)
+			throws IOException {
+		final ByteBuffer bytes = getBuffer(8);
+		bytes.putLong(in);
+		out.write(bytes.array(), 0, 8);
+	}
+
+	/**
+	 * Writes length and UTF-8 bytes of a string, using one write.
+	 */
+	@Override
+	public void writeString(final String toWrite, final OutputStream out)
+			throws IOException {
+		final ByteBuffer bytes = getBuffer(4 + (int) Math.ceil(
+				toWrite.length() * (double) encoder.maxBytesPerChar()));
+		// leave room for length
+		bytes.position(4);
+		encoder.reset();
+		CoderResult result = encoder.encode(CharBuffer.wrap(toWrite), bytes,
+				true);
+		if (!result.isUnderflow()) {
+			result.throwException();
+		}
+		result = encoder.flush(bytes);
+		if (!result.isUnderflow()) {
+			result.throwException();
+		}
+		bytes.putInt(0, bytes.position() - 4);
+		out.write(bytes.array(), 0, bytes.position());
+	}
+
+	/**
+	 * Writes length, then transfers bytes using the reusable buffer.
+	 */
+	@Override
+	public void writeStream(final long length, final InputStream in,
+			final OutputStream out) throws IOException {
+		writeLong(length, out);
+
+		final byte[] bytes = getBuffer(DEFAULT_BUFFER_SIZE).array();
+		int read = -1;
+		while ((read = in.read(bytes)) != -1) {
+			out.write(bytes, 0, read);
+		}
+	}
+
+	@Override
+	public int readInt(final InputStream in) throws IOException {
+		final ByteBuffer bytes = getBuffer(4);
+		readFully(bytes.array(), 4, in);
+		return bytes.getInt(0);
+	}
+
+	@Override
+	public long readLong(final InputStream in) throws IOException {
+		final ByteBuffer bytes = getBuffer(8);
+		readFully(bytes.array(), 8, in);
+		return bytes.getLong(0);
+	}
+
+	@Override
+	public String readString(final InputStream in, final int maxLength)
+			throws IOException {
+		final int length = readInt(in);
+		if (maxLength > 0 && length > maxLength) {
+			throw new IOException("request string length " + length
+					+ " greater than maxLength " + maxLength);
+		}
+		if (length < 0) {
+			throw new IOException("invalid string length " + length);
+		}
+		final byte[] bytes = getBuffer(length).array();
+		readFully(bytes, length, in);
+		return new String(bytes, 0, length, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Transfers length bytes using the reusable buffer.
+	 */
+	@Override
+	public void readStream(final long length, final InputStream in,
+			final OutputStream out) throws IOException {
+		final byte[] bytes = getBuffer(DEFAULT_BUFFER_SIZE).array();
+		long remaining = length;
+		while (remaining > 0) {
+			final int read = in.read(bytes, 0,
+					(int) Math.min(bytes.length, remaining));
+			if (read == -1) {
+				// shouldn't be at eof, since reading length specified in stream
+				throw new EOFException();
+			}
+			remaining -= read;
+			out.write(bytes, 0, read);
+		}
+	}
+
+	/**
+	 * Reads from input stream until length bytes are in buffer.
+	 *
+	 * @param buffer buffer to fill
+	 * @param length number of bytes to read
+	 * @param in input stream
+	 * @throws IOException if IO error occurs, or EOF before length bytes
+	 */
+	protected void readFully(final byte[] buffer, final int length,
+			final InputStream in) throws IOException {
+		int totalRead = 0;
+		while (totalRead < length) {
+			final int read = in.read(buffer, totalRead, length - totalRead);
+			if (read == -1) {
+				throw new IOException("EOF before buffer could be readFully, read="
+						+ totalRead + ", expected=" + length);
+			}
+			totalRead += read;
+		}
+	}
+
+}
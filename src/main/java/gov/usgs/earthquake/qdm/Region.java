@@ -47,23 +47,26 @@ public class Region {
     // and declare the point inside
     if (nvert == 0)
       return true;
-    Point p[] = (Point[]) this.points.toArray(new Point[0]);
     double x = xy.x;
     double y = xy.y;
+    Point pi;
+    Point pin = this.points.get(0);
     for (int i = 0; i < nvert; ++i) {
       in = i + 1;
       if (in >= nvert)
         in = 0;
-      if (p[in].y == p[i].y && p[in].x == p[i].x)
+      pi = pin;
+      pin = this.points.get(in);
+      if (pin.y == pi.y && pin.x == pi.x)
         continue;
-      sine = (x - p[i].x) * (p[in].y - p[i].y) - (y - p[i].y) * (p[in].x - p[i].x);
+      sine = (x - pi.x) * (pin.y - pi.y) - (y - pi.y) * (pin.x - pi.x);
       if (sine == 0) {
-        if (((x - p[i].x) * (p[in].x - p[i].x) + (y - p[i].y) * (p[in].y - p[i].y))
-            * ((x - p[in].x) * (p[in].x - p[i].x) + (y - p[in].y) * (p[in].y - p[i].y)) > 0)
+        if (((x - pi.x) * (pin.x - pi.x) + (y - pi.y) * (pin.y - pi.y))
+            * ((x - pin.x) * (pin.x - pi.x) + (y - pin.y) * (pin.y - pi.y)) > 0)
           continue;
         return true;
       }
-      if (y > p[in].y && y <= p[i].y && sine < 0 || y <= p[in].y && y > p[i].y && sine > 0) {
+      if (y > pin.y && y <= pi.y && sine < 0 || y <= pin.y && y > pi.y && sine > 0) {
         bool = !bool;
       }
     }
@@ -25,6 +25,9 @@ public class Regions {
     /** Array of regions */
     public ArrayList<Region> regions;
 
+    /** Spatial index used by isAuthor, built when first needed. */
+    private volatile RegionsIndex index;
+
     /**
      * Create a new set of regions.
      */
@@ -79,14 +82,52 @@ public class Regions {
     // network.
     //
 
+    /**
+     * Build the spatial index used by isAuthor.
+     *
+     * The index is built automatically the first time isAuthor is called, and
+     * must be rebuilt if regions are modified after that.
+     *
+     * @return the new index
+     */
+    public RegionsIndex buildIndex() {
+        final RegionsIndex newIndex = new RegionsIndex(this);
+        this.index = newIndex;
+        return newIndex;
+    }
+
+    /**
+     * Get the spatial index, building it if needed.
+     *
+     * @return the current index
+     */
+    public RegionsIndex getIndex() {
+        final RegionsIndex current = this.index;
+        return current != null ? current : buildIndex();
+    }
+
     /**
      * Determines if the event is from the authoritative network.
      *
+     * Uses the spatial index, see {@link #getIndex()}.
+     *
      * @param netid network ID
      * @param p     event point
      * @return true if event is authoritative
      */
     public boolean isAuthor(final String netid, final Point p) {
+        return this.getIndex().isAuthor(netid, p.x, p.y);
+    }
+
+    /**
+     * Determines if the event is from the authoritative network,
+     * testing every region without the spatial index.
+     *
+     * @param netid network ID
+     * @param p     event point
+     * @return true if event is authoritative
+     */
+    public boolean isAuthorLinear(final String netid, final Point p) {
         if (this.isDefaultNetID(netid)) {
             // if any non-default regions match, default is not authoritative
             for (Region region : this.regions) {
@@ -0,0 +1,217 @@
+package gov.usgs.earthquake.qdm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Precompiled spatial index for a set of regions.
+ *
+ * Each region is copied into primitive vertex arrays with a bounding box, and
+ * regions are indexed by the one degree grid cells their bounding box covers.
+ * Point lookups only test regions whose cell and bounding box contain the
+ * point, using the same crossing test as {@link Region#inpoly(Point)}.
+ *
+ * The index is a snapshot, and is not updated when the Regions it was built
+ * from are modified.
+ */
+public class RegionsIndex {
+
+    /** Regions whose bounding box covers more cells are always tested. */
+    public static final int MAX_CELLS_PER_REGION = 65160;
+
+    /** Default network. */
+    private final String defaultNetid;
+    /** Network id of each region. */
+    private final String[] netids;
+    /** Compiled regions. */
+    private final CompiledRegion[] regions;
+    /** Region indexes by grid cell. */
+    private final Map<Long, int[]> cells;
+    /** Indexes of regions tested for every point. */
+    private final int[] unbounded;
+
+    /**
+     * Build an index from the current contents of regions.
+     *
+     * @param regions regions to index
+     */
+    public RegionsIndex(final Regions regions) {
+        this.defaultNetid = regions.defaultNetid;
+        final int count = regions.regions.size();
+        this.netids = new String[count];
+        this.regions = new CompiledRegion[count];
+
+        final Map<Long, List<Integer>> cellLists = new HashMap<Long, List<Integer>>();
+        final List<Integer> unboundedList = new ArrayList<Integer>();
+        for (int i = 0; i < count; i++) {
+            final Region region = regions.regions.get(i);
+            final CompiledRegion compiled = new CompiledRegion(region);
+            this.netids[i] = region.netid;
+            this.regions[i] = compiled;
+
+            if (compiled.xs.length == 0) {
+                // default region contains all points
+                unboundedList.add(i);
+                continue;
+            }
+            final long minXCell = (long) Math.floor(compiled.minX);
+            final long maxXCell = (long) Math.floor(compiled.maxX);
+            final long minYCell = (long) Math.floor(compiled.minY);
+            final long maxYCell = (long) Math.floor(compiled.maxY);
+            if ((maxXCell - minXCell + 1) * (maxYCell - minYCell + 1) > MAX_CELLS_PER_REGION) {
+                unboundedList.add(i);
+                continue;
+            }
+            for (long y = minYCell; y <= maxYCell; y++) {
+                for (long x = minXCell; x <= maxXCell; x++) {
+                    final Long cell = getCell(x, y);
+                    List<Integer> list = cellLists.get(cell);
+                    if (list == null) {
+                        list = new ArrayList<Integer>();
+                        cellLists.put(cell, list);
+                    }
+                    list.add(i);
+                }
+            }
+        }
+
+        this.cells = new HashMap<Long, int[]>();
+        for (final Map.Entry<Long, List<Integer>> entry : cellLists.entrySet()) {
+            this.cells.put(entry.getKey(), toArray(entry.getValue()));
+        }
+        this.unbounded = toArray(unboundedList);
+    }
+
+    /**
+     * Determines if the event is from the authoritative network.
+     *
+     * Same result as {@link Regions#isAuthor(String, Point)} when this index
+     * was built from those regions.
+     *
+     * @param netid network ID
+     * @param x     event longitude
+     * @param y     event latitude
+     * @return true if event is authoritative
+     */
+    public boolean isAuthor(final String netid, final double x, final double y) {
+        final boolean isDefault = defaultNetid.equalsIgnoreCase(netid);
+        final int[] candidates = cells.get(getCell((long) Math.floor(x), (long) Math.floor(y)));
+        if (candidates != null
+                && matches(candidates, netid, isDefault, x, y)) {
+            return !isDefault;
+        }
+        if (matches(unbounded, netid, isDefault, x, y)) {
+            return !isDefault;
+        }
+        // default is authoritative unless another network matched
+        return isDefault;
+    }
+
+    /**
+     * Check whether any candidate region of interest contains a point.
+     *
+     * @param candidates region indexes to check
+     * @param netid network ID
+     * @param isDefault when true, check regions of other networks,
+     *        otherwise check regions of netid
+     * @param x longitude
+     * @param y latitude
+     * @return true if a region of interest contains the point
+     */
+    private boolean matches(final int[] candidates, final String netid,
+            final boolean isDefault, final double x, final double y) {
+        for (final int i : candidates) {
+            if (netids[i].equalsIgnoreCase(netid) == isDefault) {
+                continue;
+            }
+            if (regions[i].contains(x, y)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return number of indexed regions */
+    public int getRegionCount() {
+        return regions.length;
+    }
+
+    private static Long getCell(final long x, final long y) {
+        return (y << 32) ^ (x & 0xffffffffL);
+    }
+
+    private static int[] toArray(final List<Integer> list) {
+        final int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    /**
+     * A region copied into primitive arrays, with a bounding box.
+     */
+    private static class CompiledRegion {
+        final double[] xs;
+        final double[] ys;
+        double minX = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        CompiledRegion(final Region region) {
+            final int nvert = region.points.size();
+            xs = new double[nvert];
+            ys = new double[nvert];
+            for (int i = 0; i < nvert; i++) {
+                final Point p = region.points.get(i);
+                xs[i] = p.x;
+                ys[i] = p.y;
+                minX = Math.min(minX, p.x);
+                maxX = Math.max(maxX, p.x);
+                minY = Math.min(minY, p.y);
+                maxY = Math.max(maxY, p.y);
+            }
+        }
+
+        /**
+         * Same crossing test as {@link Region#inpoly(Point)}, points on the
+         * boundary are inside.
+         */
+        boolean contains(final double x, final double y) {
+            final int nvert = xs.length;
+            if (nvert == 0) {
+                return true;
+            }
+            if (x < minX || x > maxX || y < minY || y > maxY) {
+                return false;
+            }
+            boolean inside = false;
+            for (int i = 0; i < nvert; ++i) {
+                final int in = (i + 1 < nvert) ? i + 1 : 0;
+                final double xi = xs[i];
+                final double yi = ys[i];
+                final double xin = xs[in];
+                final double yin = ys[in];
+                if (yin == yi && xin == xi) {
+                    continue;
+                }
+                final double sine = (x - xi) * (yin - yi) - (y - yi) * (xin - xi);
+                if (sine == 0) {
+                    if (((x - xi) * (xin - xi) + (y - yi) * (yin - yi))
+                            * ((x - xin) * (xin - xi) + (y - yin) * (yin - yi)) > 0) {
+                        continue;
+                    }
+                    return true;
+                }
+                if (y > yin && y <= yi && sine < 0 || y <= yin && y > yi && sine > 0) {
+                    inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+
+}
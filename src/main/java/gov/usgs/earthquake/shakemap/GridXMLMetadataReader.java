@@ -0,0 +1,97 @@
+package gov.usgs.earthquake.shakemap;
+
+import java.io.InputStream;
+import java.util.HashMap;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pull parser for ShakeMap grid.xml metadata.
+ *
+ * Reads the same values as {@link GridXMLHandler}, using the same keys, but
+ * stops reading as soon as the grid_data element starts. Only the header of
+ * the document is read from the stream, instead of buffering through the grid.
+ */
+public class GridXMLMetadataReader {
+
+	/** Shared factory, configured to not load DTDs or external entities. */
+	private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+	static {
+		FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+				false);
+		FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+	}
+
+	/**
+	 * Read grid.xml metadata.
+	 *
+	 * The stream is not closed.
+	 *
+	 * @param in
+	 *            grid.xml stream.
+	 * @return metadata keyed by GridXMLHandler *_XML constants.
+	 * @throws XMLStreamException
+	 *             if the header is not valid xml.
+	 */
+	public HashMap<String, String> read(final InputStream in)
+			throws XMLStreamException {
+		final HashMap<String, String> grid = new HashMap<String, String>();
+		final XMLStreamReader reader;
+		synchronized (FACTORY) {
+			reader = FACTORY.createXMLStreamReader(in);
+		}
+		try {
+			while (reader.hasNext()) {
+				if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+					continue;
+				}
+				final String localName = reader.getLocalName();
+				if (GridXMLHandler.GRIDDATA_ELEMENT.equals(localName)) {
+					// don't read the whole grid
+					break;
+				}
+				if (GridXMLHandler.SHAKEMAPGRID_ELEMENT.equals(localName)) {
+					put(grid, reader, GridXMLHandler.SHAKEMAPGRID_ORIGINATOR_XML, GridXMLHandler.SHAKEMAPGRID_ORIGINATOR);
+					put(grid, reader, GridXMLHandler.SHAKEMAPGRID_ID_XML, GridXMLHandler.SHAKEMAPGRID_ID);
+					put(grid, reader, GridXMLHandler.SHAKEMAPGRID_TIMESTAMP_XML, GridXMLHandler.SHAKEMAPGRID_TIMESTAMP);
+					put(grid, reader, GridXMLHandler.SHAKEMAPGRID_VERSION_XML, GridXMLHandler.SHAKEMAPGRID_VERSION);
+					put(grid, reader, GridXMLHandler.SHAKEMAPGRID_EVENT_TYPE_XML, GridXMLHandler.SHAKEMAPGRID_EVENT_TYPE);
+					put(grid, reader, GridXMLHandler.SHAKEMAPGRID_EVENT_STATUS_XML, GridXMLHandler.SHAKEMAPGRID_EVENT_STATUS);
+				} else if (GridXMLHandler.EVENT_ELEMENT.equals(localName)) {
+					put(grid, reader, GridXMLHandler.EVENT_LATITUDE_XML, GridXMLHandler.EVENT_LATITUDE);
+					put(grid, reader, GridXMLHandler.EVENT_LONGITUDE_XML, GridXMLHandler.EVENT_LONGITUDE);
+					put(grid, reader, GridXMLHandler.EVENT_MAGNITUDE_XML, GridXMLHandler.EVENT_MAGNITUDE);
+					put(grid, reader, GridXMLHandler.EVENT_DEPTH_XML, GridXMLHandler.EVENT_DEPTH);
+					put(grid, reader, GridXMLHandler.EVENT_TIMESTAMP_XML, GridXMLHandler.EVENT_TIMESTAMP);
+					put(grid, reader, GridXMLHandler.EVENT_DESCRIPTION_XML, GridXMLHandler.EVENT_DESCRIPTION);
+					put(grid, reader, GridXMLHandler.EVENT_NETWORK_XML, GridXMLHandler.EVENT_NETWORK);
+					put(grid, reader, GridXMLHandler.EVENT_ID_XML, GridXMLHandler.EVENT_ID);
+				} else if (GridXMLHandler.GRIDSPEC_ELEMENT.equals(localName)) {
+					put(grid, reader, GridXMLHandler.GRIDSPEC_LONMIN_XML, GridXMLHandler.GRIDSPEC_LONMIN);
+					put(grid, reader, GridXMLHandler.GRIDSPEC_LATMIN_XML, GridXMLHandler.GRIDSPEC_LATMIN);
+					put(grid, reader, GridXMLHandler.GRIDSPEC_LONMAX_XML, GridXMLHandler.GRIDSPEC_LONMAX);
+					put(grid, reader, GridXMLHandler.GRIDSPEC_LATMAX_XML, GridXMLHandler.GRIDSPEC_LATMAX);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return grid;
+	}
+
+	/**
+	 * Copy an attribute of the current element into the map.
+	 *
+	 * Like GridXMLHandler, missing attributes are stored as null.
+	 */
+	private static void put(final HashMap<String, String> grid,
+			final XMLStreamReader reader, final String key,
+			final String attribute) {
+		grid.put(key, reader.getAttributeValue(null, attribute));
+	}
+
+}
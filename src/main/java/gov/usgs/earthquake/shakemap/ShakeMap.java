@@ -1,5 +1,6 @@
 package gov.usgs.earthquake.shakemap;
 
+import gov.usgs.earthquake.product.AbstractContent;
 import gov.usgs.earthquake.product.Content;
 import gov.usgs.earthquake.product.Product;
 import gov.usgs.util.StreamUtils;
@@ -71,46 +72,54 @@ public class ShakeMap extends Product {
 	/** Property for max MMI */
 	public static final String MAXIMUM_MMI_PROPERTY = "maxmmi";
 
+	/** Metadata cache type for grid.xml */
+	public static final String GRID_METADATA = "grid";
+	/** Metadata cache type for info.xml */
+	public static final String INFO_METADATA = "info";
+
+	/** Default cache of parsed grid.xml and info.xml metadata. */
+	private static volatile ShakeMapMetadataCache metadataCache =
+			new ShakeMapMetadataCache();
+
 	/**
 	 * @param product
 	 *            the base product to be converted to a ShakeMap product
 	 */
 	public ShakeMap(final Product product) {
+		this(product, null);
+	}
+
+	/**
+	 * @param product
+	 *            the base product to be converted to a ShakeMap product
+	 * @param cache
+	 *            cache for grid.xml and info.xml metadata, or null to use
+	 *            the default cache
+	 */
+	public ShakeMap(final Product product, final ShakeMapMetadataCache cache) {
 		super(product);
+		final ShakeMapMetadataCache metadata =
+				(cache == null ? metadataCache : cache);
 
 		// prefer grid attachment
 		Content gridxml = product.getContents().get(GRID_XML_ATTACHMENT);
 		if (gridxml != null) {
-			InputStream gridXmlIn = null;
 			try {
-				// parse grid.xml
-				GridXMLHandler gridxmlHandler = new GridXMLHandler();
-				gridXmlIn = gridxml.getInputStream();
-				HashMap<String, String> grid = gridxmlHandler.parse(gridXmlIn);
 				// parse through hash maps to set shakemap properties
-				this.setGridXMLProperties(grid);
+				this.setGridXMLProperties(getGridXML(metadata, gridxml));
 			} catch (Exception e) {
 				// error parsing grid
 				LOGGER.log(Level.WARNING, "error parsing grid.xml", e);
-			} finally {
-				StreamUtils.closeStream(gridXmlIn);
 			}
 		}
 
 		Content infoxml = product.getContents().get(INFO_XML_ATTACHMENT);
 		if (infoxml != null) {
-			InputStream infoXmlIn = null;
 			try {
-				// parse info.xml
-				InfoXMLHandler infoxmlHandler = new InfoXMLHandler();
-				infoXmlIn = infoxml.getInputStream();
-				HashMap<String, String> info = infoxmlHandler.parse(infoXmlIn);
 				// parse through hash maps to set shakemap properties
-				this.setInfoXMLProperties(info);
+				this.setInfoXMLProperties(getInfoXML(metadata, infoxml));
 			} catch (Exception e) {
 				LOGGER.log(Level.WARNING, "error parsing info.xml", e);
-			} finally {
-				StreamUtils.closeStream(infoXmlIn);
 			}
 		}
 
@@ -135,6 +144,99 @@ public class ShakeMap extends Product {
 		 */
 	}
 
+	/**
+	 * @return default cache used for grid.xml and info.xml metadata.
+	 */
+	public static ShakeMapMetadataCache getMetadataCache() {
+		return metadataCache;
+	}
+
+	/**
+	 * @param cache
+	 *            default cache to use for grid.xml and info.xml metadata.
+	 */
+	public static void setMetadataCache(final ShakeMapMetadataCache cache) {
+		metadataCache = cache;
+	}
+
+	/**
+	 * Read grid.xml metadata, using the metadata cache when the content
+	 * SHA-256 is known.
+	 *
+	 * @param cache
+	 *            metadata cache
+	 * @param gridxml
+	 *            grid.xml content
+	 * @return metadata keyed by GridXMLHandler *_XML constants
+	 * @throws Exception
+	 *             if unable to parse
+	 */
+	protected static HashMap<String, String> getGridXML(
+			final ShakeMapMetadataCache cache, final Content gridxml)
+			throws Exception {
+		final String sha256 = getKnownSha256(gridxml);
+		HashMap<String, String> grid = cache.get(GRID_METADATA, sha256);
+		if (grid == null) {
+			InputStream gridXmlIn = null;
+			try {
+				gridXmlIn = gridxml.getInputStream();
+				grid = new GridXMLMetadataReader().read(gridXmlIn);
+			} finally {
+				StreamUtils.closeStream(gridXmlIn);
+			}
+			cache.put(GRID_METADATA, sha256, grid);
+		}
+		return grid;
+	}
+
+	/**
+	 * Read info.xml metadata, using the metadata cache when the content
+	 * SHA-256 is known.
+	 *
+	 * @param cache
+	 *            metadata cache
+	 * @param infoxml
+	 *            info.xml content
+	 * @return values keyed by info.xml tag name
+	 * @throws Exception
+	 *             if unable to parse
+	 */
+	protected static HashMap<String, String> getInfoXML(
+			final ShakeMapMetadataCache cache, final Content infoxml)
+			throws Exception {
+		final String sha256 = getKnownSha256(infoxml);
+		HashMap<String, String> info = cache.get(INFO_METADATA, sha256);
+		if (info == null) {
+			InputStream infoXmlIn = null;
+			try {
+				infoXmlIn = infoxml.getInputStream();
+				info = new InfoXMLHandler().parse(infoXmlIn);
+			} finally {
+				StreamUtils.closeStream(infoXmlIn);
+			}
+			cache.put(INFO_METADATA, sha256, info);
+		}
+		return info;
+	}
+
+	/**
+	 * Get content SHA-256 without computing it, since hashing reads the whole
+	 * content.
+	 *
+	 * @param content
+	 *            content to check
+	 * @return sha256, or null if not known
+	 * @throws Exception
+	 *             if error occurs
+	 */
+	private static String getKnownSha256(final Content content)
+			throws Exception {
+		if (content instanceof AbstractContent) {
+			return ((AbstractContent) content).getSha256(false);
+		}
+		return null;
+	}
+
 	/**
 	 * @param gridXML
 	 *            shakemap properties hash keyed by grid.xml attribute name
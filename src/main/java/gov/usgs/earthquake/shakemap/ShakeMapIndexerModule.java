@@ -1,6 +1,7 @@
 package gov.usgs.earthquake.shakemap;
 
 import java.awt.image.BufferedImage;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.math.BigDecimal;
@@ -15,6 +16,7 @@ import gov.usgs.earthquake.indexer.IndexerModule;
 import gov.usgs.earthquake.indexer.ProductSummary;
 import gov.usgs.earthquake.product.Content;
 import gov.usgs.earthquake.product.Product;
+import gov.usgs.util.Config;
 import gov.usgs.util.StreamUtils;
 
 /**
@@ -24,6 +26,12 @@ import gov.usgs.util.StreamUtils;
  * including reading additional product information out of the ShakeMap content
  * files provided with the Product and placing it into the ProductSummary for
  * the Product itself.
+ *
+ * Parsed grid.xml and info.xml metadata is cached by content SHA-256. Set
+ * `metadataCacheDirectory` to store parsed metadata on disk, so re-indexing
+ * does not parse the same content again, and `metadataCacheSize` to change
+ * the number of entries kept in memory. Each configured module uses its own
+ * cache; unconfigured modules use the ShakeMap default cache.
  */
 public class ShakeMapIndexerModule extends DefaultIndexerModule {
 
@@ -52,6 +60,28 @@ public class ShakeMapIndexerModule extends DefaultIndexerModule {
 	/** Atlas weight */
 	public static final int SHAKEMAP_ATLAS_WEIGHT = 200;
 
+	/** Property for directory where parsed metadata is stored */
+	public static final String METADATA_CACHE_DIRECTORY_PROPERTY = "metadataCacheDirectory";
+	/** Property for number of parsed metadata entries kept in memory */
+	public static final String METADATA_CACHE_SIZE_PROPERTY = "metadataCacheSize";
+
+	/** Cache of parsed metadata, or null to use the ShakeMap default cache. */
+	private ShakeMapMetadataCache metadataCache = null;
+
+	@Override
+	public void configure(final Config config) throws Exception {
+		super.configure(config);
+
+		String directory = config.getProperty(METADATA_CACHE_DIRECTORY_PROPERTY);
+		int size = Integer.parseInt(config.getProperty(
+				METADATA_CACHE_SIZE_PROPERTY,
+				Integer.toString(ShakeMapMetadataCache.DEFAULT_MEMORY_SIZE)));
+		LOGGER.config("[" + getName() + "] metadata cache directory="
+				+ directory + ", size=" + size);
+		metadataCache = new ShakeMapMetadataCache(
+				directory == null ? null : new File(directory), size);
+	}
+
 	@Override
 	public int getSupportLevel(Product product) {
 		int supportLevel = IndexerModule.LEVEL_UNSUPPORTED;
@@ -67,7 +97,8 @@ public class ShakeMapIndexerModule extends DefaultIndexerModule {
 	public ProductSummary getProductSummary(Product product) throws Exception {
 		// Load additional properties into the ProductSummary by loading these
 		// properties specifically through a ShakeMap product
-		ProductSummary summary = super.getProductSummary(new ShakeMap(product));
+		ProductSummary summary = super.getProductSummary(
+				new ShakeMap(product, metadataCache));
 
 		Content overlayImage = product.getContents().get(OVERLAY_IMAGE_PATH);
 		if (overlayImage != null) {
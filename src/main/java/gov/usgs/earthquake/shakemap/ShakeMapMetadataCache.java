@@ -0,0 +1,185 @@
+package gov.usgs.earthquake.shakemap;
+
+import gov.usgs.util.FileUtils;
+import gov.usgs.util.StreamUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cache of metadata parsed from ShakeMap content, keyed by content SHA-256.
+ *
+ * Recently used entries are kept in memory. When a directory is configured,
+ * entries are also stored as properties files, so metadata parsed once is
+ * reused after restarts and when products are re-indexed.
+ *
+ * Content without a known SHA-256 is not cached.
+ */
+public class ShakeMapMetadataCache {
+
+	private static final Logger LOGGER = Logger
+			.getLogger(ShakeMapMetadataCache.class.getName());
+
+	/** Default number of entries kept in memory. */
+	public static final int DEFAULT_MEMORY_SIZE = 1000;
+
+	/** Directory for stored entries, or null. */
+	private final File directory;
+
+	/** Recently used entries. */
+	private final Map<String, HashMap<String, String>> memory;
+
+	/**
+	 * Create a memory only cache.
+	 */
+	public ShakeMapMetadataCache() {
+		this(null, DEFAULT_MEMORY_SIZE);
+	}
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param directory
+	 *            where entries are stored, or null to only use memory.
+	 * @param memorySize
+	 *            number of entries kept in memory.
+	 */
+	public ShakeMapMetadataCache(final File directory, final int memorySize) {
+		this.directory = directory;
+		this.memory = Collections.synchronizedMap(
+				new LinkedHashMap<String, HashMap<String, String>>(16, 0.75f,
+						true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(
+							final Map.Entry<String, HashMap<String, String>> eldest) {
+						return size() > memorySize;
+					}
+				});
+	}
+
+	/**
+	 * Get cached metadata.
+	 *
+	 * @param type
+	 *            kind of metadata, for example "grid" or "info".
+	 * @param sha256
+	 *            base64 encoded SHA-256 of parsed content, or null.
+	 * @return a copy of cached metadata, or null if not cached.
+	 */
+	public HashMap<String, String> get(final String type, final String sha256) {
+		if (sha256 == null) {
+			return null;
+		}
+		final String key = getKey(type, sha256);
+		HashMap<String, String> metadata = memory.get(key);
+		if (metadata == null && directory != null) {
+			metadata = load(getFile(key));
+			if (metadata != null) {
+				memory.put(key, metadata);
+			}
+		}
+		return metadata == null ? null : new HashMap<String, String>(metadata);
+	}
+
+	/**
+	 * Add metadata to the cache.
+	 *
+	 * Null values are not stored.
+	 *
+	 * @param type
+	 *            kind of metadata, for example "grid" or "info".
+	 * @param sha256
+	 *            base64 encoded SHA-256 of parsed content, or null.
+	 * @param metadata
+	 *            parsed metadata.
+	 */
+	public void put(final String type, final String sha256,
+			final Map<String, String> metadata) {
+		if (sha256 == null) {
+			return;
+		}
+		final String key = getKey(type, sha256);
+		final HashMap<String, String> copy = new HashMap<String, String>();
+		for (final Map.Entry<String, String> entry : metadata.entrySet()) {
+			if (entry.getValue() != null) {
+				copy.put(entry.getKey(), entry.getValue());
+			}
+		}
+		memory.put(key, copy);
+		if (directory != null) {
+			store(getFile(key), copy);
+		}
+	}
+
+	/** @return directory where entries are stored, or null. */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * @return key that is safe to use as a filename.
+	 */
+	private static String getKey(final String type, final String sha256) {
+		// base64 uses '/' and '+'
+		return sha256.replace('/', '_').replace('+', '-').replace("=", "")
+				+ "." + type;
+	}
+
+	/**
+	 * @return file for key, in a subdirectory to limit directory size.
+	 */
+	private File getFile(final String key) {
+		return new File(new File(directory, key.substring(0, 2)),
+				key + ".properties");
+	}
+
+	private HashMap<String, String> load(final File file) {
+		if (!file.exists()) {
+			return null;
+		}
+		InputStream in = null;
+		try {
+			in = StreamUtils.getInputStream(file);
+			final Properties properties = new Properties();
+			properties.load(in);
+			final HashMap<String, String> metadata = new HashMap<String, String>();
+			for (final String name : properties.stringPropertyNames()) {
+				metadata.put(name, properties.getProperty(name));
+			}
+			return metadata;
+		} catch (Exception e) {
+			LOGGER.log(Level.FINE, "Unable to load cached metadata " + file, e);
+			return null;
+		} finally {
+			StreamUtils.closeStream(in);
+		}
+	}
+
+	private void store(final File file, final Map<String, String> metadata) {
+		try {
+			final Properties properties = new Properties();
+			properties.putAll(metadata);
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			properties.store(out, null);
+			FileUtils.writeFileThenMove(
+					new File(file.toString() + "."
+							+ Thread.currentThread().getId() + ".temp"),
+					file, out.toByteArray());
+		} catch (IOException e) {
+			// caching is value added
+			LOGGER.log(Level.FINE, "Unable to store cached metadata " + file, e);
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+package gov.usgs.earthquake.util;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A buffered output stream that writes to a channel, and can transfer files
+ * directly to the channel.
+ *
+ * When the channel is a socket, transferFrom uses FileChannel.transferTo so
+ * file content is sent by the operating system instead of being copied
+ * through the java heap.
+ *
+ * Closing this stream flushes buffered output, but does not close the
+ * channel. The channel owner is responsible for closing it.
+ */
+public class ChannelOutputStream extends BufferedOutputStream {
+
+	/** default buffer size. */
+	public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	/** channel where output is written. */
+	private final WritableByteChannel channel;
+
+	/**
+	 * Create a ChannelOutputStream with the default buffer size.
+	 *
+	 * @param channel
+	 *            channel where output is written, in blocking mode.
+	 */
+	public ChannelOutputStream(final WritableByteChannel channel) {
+		this(channel, DEFAULT_BUFFER_SIZE);
+	}
+
+	/**
+	 * Create a ChannelOutputStream.
+	 *
+	 * @param channel
+	 *            channel where output is written, in blocking mode.
+	 * @param bufferSize
+	 *            size of buffer for small writes.
+	 */
+	public ChannelOutputStream(final WritableByteChannel channel,
+			final int bufferSize) {
+		super(Channels.newOutputStream(channel), bufferSize);
+		this.channel = channel;
+	}
+
+	/**
+	 * Flush buffered output, then transfer bytes from a file to the channel.
+	 *
+	 * @param file
+	 *            file channel to read.
+	 * @param position
+	 *            position in file where transfer starts.
+	 * @param length
+	 *            number of bytes to transfer.
+	 * @throws IOException
+	 *             if an IO error occurs, or file has fewer than length bytes
+	 *             after position.
+	 */
+	public void transferFrom(final FileChannel file, final long position,
+			final long length) throws IOException {
+		flush();
+		long transferred = 0L;
+		while (transferred < length) {
+			final long count = file.transferTo(position + transferred,
+					length - transferred, channel);
+			if (count <= 0 && position + transferred >= file.size()) {
+				throw new EOFException("file has fewer than " + length
+						+ " bytes");
+			}
+			transferred += count;
+		}
+	}
+
+	/**
+	 * Flush buffered output, without closing the channel.
+	 */
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+
+}
@@ -0,0 +1,511 @@
+package gov.usgs.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP client that reuses persistent (keep-alive) connections.
+ *
+ * HttpURLConnection keeps idle connections to each host in a cache, and reuses
+ * them for later requests once a response has been completely read and its
+ * stream closed. This class can limit how many connections are used for each
+ * host, optionally requests gzip transfer encoding, and tracks connect and
+ * download times.
+ *
+ * Most code should use the shared client returned by {@link #getDefault()}.
+ * Streams returned by {@link #getInputStream(URL)} MUST be closed, so the
+ * connection can be reused by another request. Requests that send a body,
+ * like POST or PUT, use {@link #execute(URL, int, int, Request)}.
+ */
+public class HttpClient {
+
+	/** Logging object. */
+	private static final Logger LOGGER = Logger.getLogger(HttpClient.class
+			.getName());
+
+	/** System property used by HttpURLConnection for idle connections per host. */
+	public static final String HTTP_MAX_CONNECTIONS_PROPERTY = "http.maxConnections";
+
+	/** Default connections per host, zero = unlimited. */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 0;
+
+	/** Shared client. */
+	private static final HttpClient DEFAULT_CLIENT = new HttpClient();
+
+	/**
+	 * Get the shared client.
+	 *
+	 * @return shared client.
+	 */
+	public static HttpClient getDefault() {
+		return DEFAULT_CLIENT;
+	}
+
+	/** Default connect timeout in milliseconds. */
+	private int connectTimeout = StreamUtils.DEFAULT_URL_CONNECT_TIMEOUT;
+	/** Default read timeout in milliseconds. */
+	private int readTimeout = StreamUtils.DEFAULT_URL_READ_TIMEOUT;
+	/** Whether to request gzip transfer encoding. */
+	private boolean gzip = true;
+	/** Maximum number of open streams per host, zero = unlimited. */
+	private int maxConnectionsPerHost = DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+	/** Permits for open streams, by host. */
+	private final ConcurrentHashMap<String, Semaphore> hostPermits =
+			new ConcurrentHashMap<String, Semaphore>();
+
+	/** Number of requests made by getInputStream and execute. */
+	private final AtomicLong requestCount = new AtomicLong(0L);
+	/** Total milliseconds until response headers were received. */
+	private final AtomicLong connectTime = new AtomicLong(0L);
+	/** Total milliseconds reading responses, or executing requests. */
+	private final AtomicLong downloadTime = new AtomicLong(0L);
+	/** Total bytes transferred (before gzip decoding). */
+	private final AtomicLong downloadBytes = new AtomicLong(0L);
+
+	/**
+	 * Create a new HttpClient.
+	 */
+	public HttpClient() {
+	}
+
+	/**
+	 * Open a connection using this client's timeouts.
+	 *
+	 * Callers should read the response (or error stream) completely and close
+	 * it, so the connection can be reused.
+	 *
+	 * @param url
+	 *            url to open.
+	 * @return connection, not yet connected.
+	 * @throws IOException
+	 *             if an error occurs.
+	 */
+	public URLConnection openConnection(final URL url) throws IOException {
+		return openConnection(url, connectTimeout, readTimeout);
+	}
+
+	/**
+	 * Open a connection.
+	 *
+	 * Callers should read the response (or error stream) completely and close
+	 * it, so the connection can be reused.
+	 *
+	 * @param url
+	 *            url to open.
+	 * @param connectTimeout
+	 *            allowed time in milliseconds before connection.
+	 * @param readTimeout
+	 *            allowed time in milliseconds before read.
+	 * @return connection, not yet connected.
+	 * @throws IOException
+	 *             if an error occurs.
+	 */
+	public URLConnection openConnection(final URL url,
+			final int connectTimeout, final int readTimeout)
+			throws IOException {
+		URLConnection conn = url.openConnection();
+		conn.setConnectTimeout(connectTimeout);
+		conn.setReadTimeout(readTimeout);
+		return conn;
+	}
+
+	/**
+	 * Get an InputStream from a URL, using this client's timeouts.
+	 *
+	 * @param url
+	 *            the url being accessed.
+	 * @return an InputStream to content at URL, which MUST be closed.
+	 * @throws IOException
+	 *             if an error occurs.
+	 */
+	public InputStream getInputStream(final URL url) throws IOException {
+		return getInputStream(url, connectTimeout, readTimeout);
+	}
+
+	/**
+	 * Get an InputStream from a URL.
+	 *
+	 * For HTTP urls, waits until fewer than maxConnectionsPerHost streams are
+	 * open to the same host. Content is decoded if the server used gzip.
+	 *
+	 * @param url
+	 *            the url being accessed.
+	 * @param connectTimeout
+	 *            allowed time in milliseconds before connection.
+	 * @param readTimeout
+	 *            allowed time in milliseconds before read.
+	 * @return an InputStream to content at URL, which MUST be closed.
+	 * @throws IOException
+	 *             if an error occurs.
+	 */
+	public InputStream getInputStream(final URL url, final int connectTimeout,
+			final int readTimeout) throws IOException {
+		final URLConnection conn = openConnection(url, connectTimeout,
+				readTimeout);
+		if (gzip) {
+			conn.setRequestProperty("Accept-Encoding", "gzip");
+		}
+		if (!(conn instanceof HttpURLConnection)) {
+			// file, data, etc; no connection to reuse
+			conn.connect();
+			return decode(conn, conn.getInputStream());
+		}
+
+		final HttpURLConnection http = (HttpURLConnection) conn;
+		final Semaphore permits = getHostPermits(url);
+		if (permits != null) {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("interrupted waiting for "
+						+ url.getHost() + " connection");
+			}
+		}
+
+		final long start = System.currentTimeMillis();
+		InputStream in = null;
+		try {
+			http.connect();
+			in = http.getInputStream();
+		} catch (IOException | RuntimeException e) {
+			// read error response so connection can be reused
+			try (final InputStream err = http.getErrorStream()) {
+				if (err != null) {
+					StreamUtils.readStream(err);
+				}
+			} catch (IOException e2) {
+				// ignore
+			}
+			if (permits != null) {
+				permits.release();
+			}
+			throw e;
+		}
+		final long connected = System.currentTimeMillis();
+		connectTime.addAndGet(connected - start);
+		requestCount.incrementAndGet();
+		return decode(conn, new HttpClientInputStream(in, permits, connected));
+	}
+
+	/**
+	 * Execute a request, using this client's timeouts.
+	 *
+	 * @param <T>
+	 *            type of result.
+	 * @param url
+	 *            url to open.
+	 * @param request
+	 *            request to execute.
+	 * @return result of request.
+	 * @throws Exception
+	 *             if an error occurs.
+	 */
+	public <T> T execute(final URL url, final Request<T> request)
+			throws Exception {
+		return execute(url, connectTimeout, readTimeout, request);
+	}
+
+	/**
+	 * Execute a request.
+	 *
+	 * For HTTP urls, waits until fewer than maxConnectionsPerHost streams are
+	 * open to the same host. The request must send any body and read the
+	 * response (or error stream) completely, so the connection can be reused.
+	 *
+	 * @param <T>
+	 *            type of result.
+	 * @param url
+	 *            url to open.
+	 * @param connectTimeout
+	 *            allowed time in milliseconds before connection.
+	 * @param readTimeout
+	 *            allowed time in milliseconds before read.
+	 * @param request
+	 *            request to execute.
+	 * @return result of request.
+	 * @throws Exception
+	 *             if an error occurs.
+	 */
+	public <T> T execute(final URL url, final int connectTimeout,
+			final int readTimeout, final Request<T> request) throws Exception {
+		final URLConnection conn = openConnection(url, connectTimeout,
+				readTimeout);
+		final Semaphore permits = (conn instanceof HttpURLConnection)
+				? getHostPermits(url)
+				: null;
+		if (permits != null) {
+			try {
+				permits.acquire();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("interrupted waiting for "
+						+ url.getHost() + " connection");
+			}
+		}
+
+		final long start = System.currentTimeMillis();
+		try {
+			return request.execute(conn);
+		} finally {
+			if (permits != null) {
+				permits.release();
+			}
+			downloadTime.addAndGet(System.currentTimeMillis() - start);
+			requestCount.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Wrap a stream with a GZIPInputStream, if the response is gzip encoded.
+	 *
+	 * @param conn
+	 *            connection with response headers.
+	 * @param in
+	 *            response stream.
+	 * @return decoded stream.
+	 * @throws IOException
+	 *             if an error occurs.
+	 */
+	private InputStream decode(final URLConnection conn, final InputStream in)
+			throws IOException {
+		if ("gzip".equals(conn.getContentEncoding())) {
+			try {
+				return new GZIPInputStream(in);
+			} catch (IOException e) {
+				StreamUtils.closeStream(in);
+				throw e;
+			}
+		}
+		return in;
+	}
+
+	/**
+	 * Get permits for a url host.
+	 *
+	 * @param url
+	 *            url being accessed.
+	 * @return permits shared by all urls for the same host and port,
+	 *         or null if connections per host are unlimited.
+	 */
+	private Semaphore getHostPermits(final URL url) {
+		if (maxConnectionsPerHost <= 0) {
+			return null;
+		}
+		final String host = url.getProtocol() + "://" + url.getHost() + ":"
+				+ (url.getPort() == -1 ? url.getDefaultPort() : url.getPort());
+		return hostPermits.computeIfAbsent(host,
+				(key) -> new Semaphore(maxConnectionsPerHost, true));
+	}
+
+	/**
+	 * @return default connect timeout in milliseconds.
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * @param connectTimeout
+	 *            default connect timeout in milliseconds.
+	 */
+	public void setConnectTimeout(final int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * @return default read timeout in milliseconds.
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	/**
+	 * @param readTimeout
+	 *            default read timeout in milliseconds.
+	 */
+	public void setReadTimeout(final int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * @return whether gzip transfer encoding is requested.
+	 */
+	public boolean isGzip() {
+		return gzip;
+	}
+
+	/**
+	 * @param gzip
+	 *            whether to request gzip transfer encoding.
+	 */
+	public void setGzip(final boolean gzip) {
+		this.gzip = gzip;
+	}
+
+	/**
+	 * @return maximum number of open streams per host, zero = unlimited.
+	 */
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	/**
+	 * Set the maximum number of open streams per host.
+	 *
+	 * Also sets the http.maxConnections system property, which controls how
+	 * many idle connections HttpURLConnection keeps for each host, unless it
+	 * was already set. That property is only read before the first HTTP
+	 * connection is made, so this should be called during startup.
+	 *
+	 * @param maxConnectionsPerHost
+	 *            maximum number of open streams per host, zero = unlimited.
+	 */
+	public void setMaxConnectionsPerHost(final int maxConnectionsPerHost) {
+		if (maxConnectionsPerHost < 0) {
+			throw new IllegalArgumentException(
+					"maxConnectionsPerHost must not be negative");
+		}
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+		// streams that are already open release their original permits
+		hostPermits.clear();
+		if (maxConnectionsPerHost > 0
+				&& System.getProperty(HTTP_MAX_CONNECTIONS_PROPERTY) == null) {
+			System.setProperty(HTTP_MAX_CONNECTIONS_PROPERTY,
+					Integer.toString(maxConnectionsPerHost));
+		}
+		LOGGER.config("HttpClient max connections per host = "
+				+ maxConnectionsPerHost);
+	}
+
+	/**
+	 * @return number of requests made by getInputStream and execute.
+	 */
+	public long getRequestCount() {
+		return requestCount.get();
+	}
+
+	/**
+	 * @return total milliseconds until response headers were received.
+	 */
+	public long getConnectTime() {
+		return connectTime.get();
+	}
+
+	/**
+	 * @return total milliseconds reading responses, until streams were closed,
+	 *         and executing requests.
+	 */
+	public long getDownloadTime() {
+		return downloadTime.get();
+	}
+
+	/**
+	 * @return total bytes transferred, before gzip decoding.
+	 */
+	public long getDownloadBytes() {
+		return downloadBytes.get();
+	}
+
+	/**
+	 * A request that sends any body and reads the response.
+	 *
+	 * @param <T>
+	 *            type of result.
+	 */
+	public interface Request<T> {
+
+		/**
+		 * Execute the request.
+		 *
+		 * @param connection
+		 *            connection, not yet connected.
+		 * @return result of request.
+		 * @throws Exception
+		 *             if an error occurs.
+		 */
+		public T execute(final URLConnection connection) throws Exception;
+
+	}
+
+	/**
+	 * Response stream that counts bytes, and releases its host permit when
+	 * closed.
+	 */
+	private class HttpClientInputStream extends FilterInputStream {
+
+		/** Permits to release on close, may be null. */
+		private final Semaphore permits;
+		/** Whether stream was closed. */
+		private boolean closed = false;
+		/** When response headers were received. */
+		private final long connected;
+		/** Number of bytes read. */
+		private long read = 0L;
+
+		/**
+		 * Construct a new HttpClientInputStream.
+		 *
+		 * @param in
+		 *            response stream.
+		 * @param permits
+		 *            permits to release on close, may be null.
+		 * @param connected
+		 *            when response headers were received.
+		 */
+		public HttpClientInputStream(final InputStream in,
+				final Semaphore permits, final long connected) {
+			super(in);
+			this.permits = permits;
+			this.connected = connected;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = in.read();
+			if (b != -1) {
+				read++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int total = in.read(b, off, len);
+			if (total != -1) {
+				read += total;
+			}
+			return total;
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				// returns connection to keep-alive cache
+				in.close();
+			} finally {
+				synchronized (this) {
+					if (!closed) {
+						closed = true;
+						if (permits != null) {
+							permits.release();
+						}
+						downloadTime.addAndGet(
+								System.currentTimeMillis() - connected);
+						downloadBytes.addAndGet(read);
+					}
+				}
+			}
+		}
+	}
+
+}
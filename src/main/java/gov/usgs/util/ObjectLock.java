@@ -6,7 +6,9 @@
  */
 package gov.usgs.util;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
@@ -15,6 +17,10 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * This is intended for use when multiple sections of code should allow
  * concurrent access, but only when operating on independent objects.
  *
+ * Locks are kept in a ConcurrentHashMap, so threads locking different objects
+ * do not contend with each other. Each lock tracks how many threads have, or
+ * are about to, use it, and is removed when that count reaches zero.
+ *
  * @param <T>
  *            The type of object used for locking. This object is used as a key
  *            in a HashMap. Objects that are equal, but not necessarily ==,
@@ -23,84 +29,97 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class ObjectLock<T> {
 
 	/** map object to corresponding lock for object. */
-	private HashMap<T, ReentrantReadWriteLock> locks = new HashMap<T, ReentrantReadWriteLock>();
+	private final ConcurrentHashMap<T, LockEntry> locks = new ConcurrentHashMap<T, LockEntry>();
+
+	/** whether locks use a fair ordering policy. */
+	private final boolean fair;
 
 	/**
-	 * keep track of how many threads have, or are about to, use the lock object
-	 * in the map 'locks'. When this count reaches zero, it is safe to remove
-	 * the lock object.
+	 * Construct a new ObjectLock object, using fair locks.
 	 */
-	private HashMap<T, Integer> lockThreadCounts = new HashMap<T, Integer>();
-
-	private final Object syncObject = new Object();
+	public ObjectLock() {
+		this(true);
+	}
 
 	/**
 	 * Construct a new ObjectLock object.
+	 *
+	 * @param fair
+	 *            whether locks use a fair ordering policy. Non-fair locks have
+	 *            higher throughput, but may starve waiting threads.
 	 */
-	public ObjectLock() {
+	public ObjectLock(final boolean fair) {
+		this.fair = fair;
 	}
 
 	/**
-	 * Get the lock for an object.
+	 * Get the lock for an object, and increment the thread count.
 	 *
-	 * This method must only be called by one thread at a time. synchronization
-	 * is handled by other methods in this class.
+	 * Callers MUST subsequently call release(object).
 	 *
 	 * @param object
 	 *            object to lock.
 	 * @return lock corresponding to object.
 	 */
-	private ReentrantReadWriteLock getLock(final T object) {
-		ReentrantReadWriteLock lock = locks.get(object);
-		if (lock == null) {
-			lock = new ReentrantReadWriteLock(true);
-			locks.put(object, lock);
-		}
-
-		return lock;
+	private ReentrantReadWriteLock reserve(final T object) {
+		return locks.compute(object, (key, entry) -> {
+			if (entry == null) {
+				entry = new LockEntry(fair);
+			}
+			entry.threadCount++;
+			return entry;
+		}).lock;
 	}
 
 	/**
-	 * Increment the thread count for an object.
-	 *
-	 * This method must only be called by one thread at a time. synchronization
-	 * is handled by other methods in this class.
+	 * Decrement the thread count for an object. Also, when the thread count
+	 * reaches zero, the lock corresponding to this object is removed from the
+	 * locks map.
 	 *
 	 * @param object
+	 *            object that was locked.
 	 */
-	private void incrementThreadCount(final T object) {
-		Integer threadCount = lockThreadCounts.get(object);
-		if (threadCount == null) {
-			threadCount = Integer.valueOf(0);
-		}
-		threadCount = threadCount + 1;
-		lockThreadCounts.put(object, threadCount);
+	private void release(final T object) {
+		locks.computeIfPresent(object, (key, entry) -> {
+			entry.threadCount--;
+			// no threads are using this lock anymore, cleanup
+			return entry.threadCount == 0 ? null : entry;
+		});
 	}
 
 	/**
-	 * Decrement the thread count for an object. Also, when the thread count
-	 * reaches zero, the lock corresponding to this object is removed from the
-	 * locks map.
-	 *
-	 * This method must only be called by one thread at a time. synchronization
-	 * is handled by other methods in this class.
+	 * Get the lock for an object and lock it.
 	 *
 	 * @param object
+	 *            object to lock.
+	 * @param write
+	 *            whether to lock for writing.
+	 * @param timeout
+	 *            how long to wait, or -1 to wait until locked.
+	 * @param unit
+	 *            unit for timeout.
+	 * @return true if locked, false if timeout elapsed.
+	 * @throws InterruptedException if thread is interrupted
 	 */
-	private void decrementThreadCount(final T object) {
-		Integer threadCount = lockThreadCounts.get(object);
-		if (threadCount == null) {
-			throw new IllegalStateException(
-					"Trying to decrement thread count that does not exist.");
-		}
-		threadCount = threadCount - 1;
-		lockThreadCounts.put(object, threadCount);
-
-		if (threadCount == 0) {
-			// no threads are using this lock anymore, cleanup
-			locks.remove(object);
-			lockThreadCounts.remove(object);
+	private boolean acquire(final T object, final boolean write,
+			final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+		final ReentrantReadWriteLock lock = reserve(object);
+		final Lock l = write ? lock.writeLock() : lock.readLock();
+		boolean locked = false;
+		try {
+			if (timeout < 0) {
+				l.lockInterruptibly();
+				locked = true;
+			} else {
+				locked = l.tryLock(timeout, unit);
+			}
+		} finally {
+			if (!locked) {
+				release(object);
+			}
 		}
+		return locked;
 	}
 
 	/**
@@ -113,13 +132,27 @@ public class ObjectLock<T> {
 	 * @throws InterruptedException if thread is interrupted
 	 */
 	public void acquireReadLock(final T object) throws InterruptedException {
-		ReentrantReadWriteLock lock = null;
-		synchronized (syncObject) {
-			lock = getLock(object);
-			incrementThreadCount(object);
-		}
-		// do this outside synchronized for concurrency
-		lock.readLock().lockInterruptibly();
+		acquire(object, false, -1L, null);
+	}
+
+	/**
+	 * Try to acquire a read lock for an object.
+	 *
+	 * Callers MUST subsequently call releaseReadLock, if this method returns
+	 * true.
+	 *
+	 * @param object
+	 *            the object to lock for reading.
+	 * @param timeout
+	 *            how long to wait for the lock.
+	 * @param unit
+	 *            unit for timeout.
+	 * @return true if the lock was acquired, false if timeout elapsed.
+	 * @throws InterruptedException if thread is interrupted
+	 */
+	public boolean tryAcquireReadLock(final T object, final long timeout,
+			final TimeUnit unit) throws InterruptedException {
+		return acquire(object, false, Math.max(0L, timeout), unit);
 	}
 
 	/**
@@ -131,11 +164,11 @@ public class ObjectLock<T> {
 	 *         otherwise.
 	 */
 	public boolean haveWriteLock(final T object) {
-		ReentrantReadWriteLock lock = locks.get(object);
-		if (lock == null) {
+		LockEntry entry = locks.get(object);
+		if (entry == null) {
 			return false;
 		}
-		return lock.isWriteLockedByCurrentThread();
+		return entry.lock.isWriteLockedByCurrentThread();
 	}
 
 	/**
@@ -147,11 +180,14 @@ public class ObjectLock<T> {
 	 *            the object to unlock for reading.
 	 */
 	public void releaseReadLock(final T object) {
-		synchronized (syncObject) {
-			ReentrantReadWriteLock lock = getLock(object);
-			decrementThreadCount(object);
-			lock.readLock().unlock();
+		LockEntry entry = locks.get(object);
+		if (entry == null) {
+			throw new IllegalStateException(
+					"Trying to release lock that does not exist.");
 		}
+		// unlock before release, so lock is not replaced while held
+		entry.lock.readLock().unlock();
+		release(object);
 	}
 
 	/**
@@ -164,13 +200,27 @@ public class ObjectLock<T> {
 	 * @throws InterruptedException if thread is interrupted
 	 */
 	public void acquireWriteLock(final T object) throws InterruptedException {
-		ReentrantReadWriteLock lock = null;
-		synchronized (syncObject) {
-			lock = getLock(object);
-			incrementThreadCount(object);
-		}
-		// do this outside synchronized for concurrency
-		lock.writeLock().lockInterruptibly();
+		acquire(object, true, -1L, null);
+	}
+
+	/**
+	 * Try to acquire a write lock for an object.
+	 *
+	 * Callers MUST subsequently call releaseWriteLock, if this method returns
+	 * true.
+	 *
+	 * @param object
+	 *            the object to lock for writing.
+	 * @param timeout
+	 *            how long to wait for the lock.
+	 * @param unit
+	 *            unit for timeout.
+	 * @return true if the lock was acquired, false if timeout elapsed.
+	 * @throws InterruptedException if thread is interrupted
+	 */
+	public boolean tryAcquireWriteLock(final T object, final long timeout,
+			final TimeUnit unit) throws InterruptedException {
+		return acquire(object, true, Math.max(0L, timeout), unit);
 	}
 
 	/**
@@ -182,11 +232,14 @@ public class ObjectLock<T> {
 	 *            the object to unlock for writing.
 	 */
 	public void releaseWriteLock(final T object) {
-		synchronized (syncObject) {
-			ReentrantReadWriteLock lock = getLock(object);
-			decrementThreadCount(object);
-			lock.writeLock().unlock();
+		LockEntry entry = locks.get(object);
+		if (entry == null) {
+			throw new IllegalStateException(
+					"Trying to release lock that does not exist.");
 		}
+		// unlock before release, so lock is not replaced while held
+		entry.lock.writeLock().unlock();
+		release(object);
 	}
 
 	/**
@@ -201,6 +254,24 @@ public class ObjectLock<T> {
 		acquireWriteLock(object);
 	}
 
+	/**
+	 * This is a synonym for tryAcquireWriteLock, which is an exclusive lock
+	 * for this object.
+	 *
+	 * @param object
+	 *            the object to lock.
+	 * @param timeout
+	 *            how long to wait for the lock.
+	 * @param unit
+	 *            unit for timeout.
+	 * @return true if the lock was acquired, false if timeout elapsed.
+	 * @throws InterruptedException if thread is interrupted
+	 */
+	public boolean tryAcquireLock(final T object, final long timeout,
+			final TimeUnit unit) throws InterruptedException {
+		return tryAcquireWriteLock(object, timeout, unit);
+	}
+
 	/**
 	 * This is a synonym for releaseWriteLock, which is an exclusive lock for
 	 * this object.
@@ -212,4 +283,18 @@ public class ObjectLock<T> {
 		releaseWriteLock(object);
 	}
 
+	/**
+	 * Lock for an object, and how many threads are using it.
+	 *
+	 * threadCount is only modified inside ConcurrentHashMap compute methods.
+	 */
+	private static class LockEntry {
+		private final ReentrantReadWriteLock lock;
+		private int threadCount = 0;
+
+		public LockEntry(final boolean fair) {
+			lock = new ReentrantReadWriteLock(fair);
+		}
+	}
+
 }
@@ -0,0 +1,330 @@
+/*
+ * ProcessRunner
+ */
+package gov.usgs.util;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs external commands using TimeoutProcessBuilder.
+ *
+ * Output is drained while commands run into bounded buffers, and the number of
+ * commands running at once can be limited. Run time and exit values are
+ * tracked for status reporting, and run time is also tracked separately for
+ * each command, by executable.
+ *
+ * Each listener that runs commands should use its own ProcessRunner. Threads
+ * used to schedule timeouts and drain output are shared.
+ */
+public class ProcessRunner {
+
+	/** Default maximum bytes of output kept from each stream. */
+	public static final int DEFAULT_MAX_OUTPUT = 65536;
+
+	/** Limits concurrent commands, or null for no limit. */
+	private final Semaphore permits;
+
+	/** Maximum bytes of output kept from each stream. */
+	private final int maxOutput;
+
+	/** Number of commands that completed. */
+	private long commandCount = 0L;
+	/** Number of commands that timed out. */
+	private long timeoutCount = 0L;
+	/** Total run time of completed commands, in milliseconds. */
+	private long totalTime = 0L;
+	/** Longest run time of a completed command, in milliseconds. */
+	private long maxTime = 0L;
+	/** Number of commands that completed with each exit value. */
+	private final Map<Integer, Long> exitValueCounts = new TreeMap<Integer, Long>();
+	/** Run times of completed commands, by executable. */
+	private final Map<String, CommandTimes> commandTimes =
+			new TreeMap<String, CommandTimes>();
+
+	/**
+	 * Create a ProcessRunner without a concurrency limit.
+	 */
+	public ProcessRunner() {
+		this(0, DEFAULT_MAX_OUTPUT);
+	}
+
+	/**
+	 * Create a ProcessRunner.
+	 *
+	 * @param maxConcurrent
+	 *            maximum number of commands to run at once, or &lt;= 0 for no
+	 *            limit.
+	 * @param maxOutput
+	 *            maximum bytes of standard output and error to keep.
+	 */
+	public ProcessRunner(final int maxConcurrent, final int maxOutput) {
+		this.permits = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true)
+				: null;
+		this.maxOutput = maxOutput;
+	}
+
+	/**
+	 * Run a command.
+	 *
+	 * The command is split on whitespace, the same as Runtime.exec(String).
+	 *
+	 * @param command
+	 *            command and arguments.
+	 * @param stdin
+	 *            stream sent to command standard input, or null. Closed after
+	 *            it is sent.
+	 * @param timeout
+	 *            timeout in milliseconds, or &lt;= 0 for no timeout.
+	 * @return result of command.
+	 * @throws Exception
+	 *             ProcessTimeoutException if command times out,
+	 *             InterruptedException if interrupted while waiting, or other
+	 *             exceptions if unable to run command.
+	 */
+	public Result run(final String command, final InputStream stdin,
+			final long timeout) throws Exception {
+		return run(splitCommand(command), stdin, timeout);
+	}
+
+	/**
+	 * Run a command.
+	 *
+	 * @param command
+	 *            command and arguments.
+	 * @param stdin
+	 *            stream sent to command standard input, or null. Closed after
+	 *            it is sent.
+	 * @param timeout
+	 *            timeout in milliseconds, or &lt;= 0 for no timeout.
+	 * @return result of command.
+	 * @throws Exception
+	 *             ProcessTimeoutException if command times out,
+	 *             InterruptedException if interrupted while waiting, or other
+	 *             exceptions if unable to run command.
+	 */
+	public Result run(final List<String> command, final InputStream stdin,
+			final long timeout) throws Exception {
+		if (permits != null) {
+			permits.acquire();
+		}
+		TimeoutProcess process = null;
+		boolean exited = false;
+		try {
+			final long start = System.currentTimeMillis();
+			process = new TimeoutProcessBuilder(timeout, command)
+					.drainOutput(maxOutput)
+					.start();
+			if (stdin != null) {
+				StreamUtils.transferStream(stdin, process.getOutputStream());
+			} else {
+				StreamUtils.closeStream(process.getOutputStream());
+			}
+
+			final int exitValue;
+			try {
+				exitValue = process.waitFor();
+			} catch (ProcessTimeoutException e) {
+				exited = true;
+				synchronized (this) {
+					timeoutCount++;
+				}
+				throw e;
+			}
+			exited = true;
+
+			final long elapsed = System.currentTimeMillis() - start;
+			synchronized (this) {
+				commandCount++;
+				totalTime += elapsed;
+				maxTime = Math.max(maxTime, elapsed);
+				final Long count = exitValueCounts.get(exitValue);
+				exitValueCounts.put(exitValue, count == null ? 1L : count + 1);
+				if (!command.isEmpty()) {
+					commandTimes.computeIfAbsent(command.get(0),
+							k -> new CommandTimes()).add(elapsed);
+				}
+			}
+			return new Result(exitValue, elapsed, process.output(),
+					process.errorOutput());
+		} finally {
+			if (process != null && !exited) {
+				// interrupted or unable to send stdin
+				process.destroy();
+			}
+			StreamUtils.closeStream(stdin);
+			if (permits != null) {
+				permits.release();
+			}
+		}
+	}
+
+	/**
+	 * Split a command on whitespace, the same as Runtime.exec(String).
+	 *
+	 * @param command
+	 *            command and arguments.
+	 * @return list of command and arguments.
+	 */
+	public static List<String> splitCommand(final String command) {
+		final List<String> arguments = new ArrayList<String>();
+		final StringTokenizer tokens = new StringTokenizer(command);
+		while (tokens.hasMoreTokens()) {
+			arguments.add(tokens.nextToken());
+		}
+		return arguments;
+	}
+
+	/** @return number of commands that may start now, or -1 if no limit. */
+	public int getAvailablePermits() {
+		return permits == null ? -1 : permits.availablePermits();
+	}
+
+	/** @return number of commands that completed. */
+	public synchronized long getCommandCount() {
+		return commandCount;
+	}
+
+	/** @return number of commands that timed out. */
+	public synchronized long getTimeoutCount() {
+		return timeoutCount;
+	}
+
+	/** @return average run time of completed commands, in milliseconds. */
+	public synchronized long getAverageTime() {
+		return commandCount == 0 ? 0L : totalTime / commandCount;
+	}
+
+	/** @return total run time of completed commands, in milliseconds. */
+	public synchronized long getTotalTime() {
+		return totalTime;
+	}
+
+	/** @return longest run time of a completed command, in milliseconds. */
+	public synchronized long getMaxTime() {
+		return maxTime;
+	}
+
+	/** @return number of commands that completed with each exit value. */
+	public synchronized Map<Integer, Long> getExitValueCounts() {
+		return new TreeMap<Integer, Long>(exitValueCounts);
+	}
+
+	/** @return copy of run times of completed commands, by executable. */
+	public synchronized Map<String, CommandTimes> getCommandTimes() {
+		final Map<String, CommandTimes> copy = new TreeMap<String, CommandTimes>();
+		for (final Map.Entry<String, CommandTimes> entry : commandTimes.entrySet()) {
+			copy.put(entry.getKey(), new CommandTimes(entry.getValue()));
+		}
+		return copy;
+	}
+
+	/**
+	 * Run times of completed commands for one executable.
+	 */
+	public static class CommandTimes {
+		private long count = 0L;
+		private long totalTime = 0L;
+		private long maxTime = 0L;
+
+		/** Create empty run times. */
+		public CommandTimes() {
+		}
+
+		/**
+		 * @param other
+		 *            run times to copy.
+		 */
+		public CommandTimes(final CommandTimes other) {
+			this.count = other.count;
+			this.totalTime = other.totalTime;
+			this.maxTime = other.maxTime;
+		}
+
+		/**
+		 * Add the run time of a completed command.
+		 *
+		 * @param elapsed
+		 *            run time in milliseconds.
+		 */
+		public void add(final long elapsed) {
+			count++;
+			totalTime += elapsed;
+			maxTime = Math.max(maxTime, elapsed);
+		}
+
+		/** @return number of commands that completed. */
+		public long getCount() {
+			return count;
+		}
+
+		/** @return total run time, in milliseconds. */
+		public long getTotalTime() {
+			return totalTime;
+		}
+
+		/** @return average run time, in milliseconds. */
+		public long getAverageTime() {
+			return count == 0 ? 0L : totalTime / count;
+		}
+
+		/** @return longest run time, in milliseconds. */
+		public long getMaxTime() {
+			return maxTime;
+		}
+	}
+
+	/**
+	 * Result of a command that exited.
+	 */
+	public static class Result {
+		private final int exitValue;
+		private final long elapsed;
+		private final byte[] output;
+		private final byte[] errorOutput;
+
+		/**
+		 * @param exitValue
+		 *            process exit value.
+		 * @param elapsed
+		 *            run time in milliseconds.
+		 * @param output
+		 *            standard output.
+		 * @param errorOutput
+		 *            standard error.
+		 */
+		public Result(final int exitValue, final long elapsed,
+				final byte[] output, final byte[] errorOutput) {
+			this.exitValue = exitValue;
+			this.elapsed = elapsed;
+			this.output = output;
+			this.errorOutput = errorOutput;
+		}
+
+		/** @return process exit value. */
+		public int getExitValue() {
+			return exitValue;
+		}
+
+		/** @return run time in milliseconds. */
+		public long getElapsed() {
+			return elapsed;
+		}
+
+		/** @return standard output, up to maximum output bytes. */
+		public byte[] getOutput() {
+			return output;
+		}
+
+		/** @return standard error, up to maximum output bytes. */
+		public byte[] getErrorOutput() {
+			return errorOutput;
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ import java.util.LinkedList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -40,6 +41,9 @@ public class SocketAcceptor implements Runnable {
     /** Whether to keep accepting connections. */
     private boolean listening = true;
 
+    /** Number of connections closed because executor rejected them. */
+    private volatile long rejectedCount = 0L;
+
     /**
      * Create a new SocketAcceptor object that uses a single thread executor.
      * 
@@ -94,6 +98,13 @@ public class SocketAcceptor implements Runnable {
         socketExecutor.shutdown();
     }
 
+    /**
+     * @return number of connections closed because executor rejected them.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
     /**
      * Accept connections until the shutdown method is called.
      */
@@ -118,18 +129,29 @@ public class SocketAcceptor implements Runnable {
                 final SocketListenerInterface threadCallback = callback;
 
                 // schedule processing
-                Future<?> socketThread = socketExecutor.submit(new Runnable() {
-                    public void run() {
-                        try {
-                            threadCallback.onSocket(threadSocket);
-                        } catch (Exception e) {
-                            System.err.println("SocketListener callback threw exception:");
-                            e.printStackTrace();
+                try {
+                    Future<?> socketThread = socketExecutor.submit(new Runnable() {
+                        public void run() {
+                            try {
+                                threadCallback.onSocket(threadSocket);
+                            } catch (Exception e) {
+                                System.err.println("SocketListener callback threw exception:");
+                                e.printStackTrace();
+                            }
                         }
+                    });
+                    //track this to see if a socket is blocking...
+                    activeSockets.add(socketThread);
+                } catch (RejectedExecutionException e) {
+                    // executor queue is full, or shutting down
+                    rejectedCount++;
+                    System.err.println("Closing rejected connection " + threadSocket);
+                    try {
+                        threadSocket.close();
+                    } catch (Exception ce) {
+                        // ignore
                     }
-                });
-                //track this to see if a socket is blocking...
-                activeSockets.add(socketThread);
+                }
             } else {
                 System.err.println("Socket is null while accepting connection.");
             }
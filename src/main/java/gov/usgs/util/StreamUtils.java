@@ -327,6 +327,16 @@ public class StreamUtils {
 			super(out);
 		}
 
+		/**
+		 * Write bytes to wrapped stream as one array, instead of one byte at
+		 * a time.
+		 */
+		@Override
+		public void write(final byte[] b, final int off, final int len)
+				throws IOException {
+			out.write(b, off, len);
+		}
+
 		/**
 		 * Flush written content, but does not close stream.
 		 */
@@ -0,0 +1,149 @@
+package gov.usgs.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ExecutorService that runs tasks on a fixed number of single threaded
+ * stripes.
+ *
+ * Tasks submitted with the same key always run on the same stripe, in the
+ * order they were submitted, while tasks with different keys may run
+ * concurrently on other stripes.
+ *
+ * Tasks submitted without a key use the task as the key, and are not ordered
+ * relative to other tasks.
+ */
+public class StripedExecutorService extends AbstractExecutorService {
+
+	/** Single threaded executors. */
+	private final ThreadPoolExecutor[] stripes;
+
+	/**
+	 * Create a new StripedExecutorService.
+	 *
+	 * @param numStripes
+	 *            number of stripes (threads).
+	 */
+	public StripedExecutorService(final int numStripes) {
+		if (numStripes < 1) {
+			throw new IllegalArgumentException("numStripes must be at least 1");
+		}
+		stripes = new ThreadPoolExecutor[numStripes];
+		for (int i = 0; i < numStripes; i++) {
+			stripes[i] = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+					new LinkedBlockingQueue<Runnable>());
+		}
+	}
+
+	/**
+	 * @return number of stripes.
+	 */
+	public int getNumStripes() {
+		return stripes.length;
+	}
+
+	/**
+	 * Get the stripe used for a key.
+	 *
+	 * @param key
+	 *            key with a stable hashCode.
+	 * @return executor for key.
+	 */
+	public ThreadPoolExecutor getStripe(final Object key) {
+		return stripes[Math.floorMod(key.hashCode(), stripes.length)];
+	}
+
+	/**
+	 * Run a task on the stripe for a key.
+	 *
+	 * @param key
+	 *            key with a stable hashCode.
+	 * @param command
+	 *            task to run.
+	 */
+	public void execute(final Object key, final Runnable command) {
+		getStripe(key).execute(command);
+	}
+
+	@Override
+	public void execute(final Runnable command) {
+		execute(command, command);
+	}
+
+	/**
+	 * @return number of queued tasks for each stripe.
+	 */
+	public int[] getQueueSizes() {
+		final int[] sizes = new int[stripes.length];
+		for (int i = 0; i < stripes.length; i++) {
+			sizes[i] = stripes[i].getQueue().size();
+		}
+		return sizes;
+	}
+
+	/**
+	 * @return total number of queued tasks.
+	 */
+	public int getQueueSize() {
+		int size = 0;
+		for (final ThreadPoolExecutor stripe : stripes) {
+			size += stripe.getQueue().size();
+		}
+		return size;
+	}
+
+	@Override
+	public void shutdown() {
+		for (final ThreadPoolExecutor stripe : stripes) {
+			stripe.shutdown();
+		}
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		final List<Runnable> pending = new ArrayList<Runnable>();
+		for (final ThreadPoolExecutor stripe : stripes) {
+			pending.addAll(stripe.shutdownNow());
+		}
+		return pending;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		for (final ThreadPoolExecutor stripe : stripes) {
+			if (!stripe.isShutdown()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		for (final ThreadPoolExecutor stripe : stripes) {
+			if (!stripe.isTerminated()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean awaitTermination(final long timeout, final TimeUnit unit)
+			throws InterruptedException {
+		final long end = System.nanoTime() + unit.toNanos(timeout);
+		for (final ThreadPoolExecutor stripe : stripes) {
+			final long remaining = end - System.nanoTime();
+			if (!stripe.awaitTermination(remaining, TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
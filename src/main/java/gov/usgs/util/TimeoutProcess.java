@@ -10,6 +10,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Timer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * TimeoutProcess wraps a Process object.
@@ -32,9 +34,21 @@ public class TimeoutProcess {
 	/** Timer object that will destroy this process. */
 	private Timer timer = null;
 
+	/** Scheduled task that will destroy this process. */
+	private Future<?> timeoutFuture = null;
+
+	/** Standard output, when drained. */
+	private byte[] output;
+
 	/** Standard error output. */
 	private byte[] errorOutput;
 
+	/** Standard output being drained, or null. */
+	private Future<byte[]> outputDrain = null;
+
+	/** Standard error being drained, or null. */
+	private Future<byte[]> errorDrain = null;
+
 	/**
 	 * Construct a new TimeoutProcess.
 	 *
@@ -50,6 +64,14 @@ public class TimeoutProcess {
 		process.destroy();
 	}
 
+	/**
+	 * @return standard output byte array, when drained by
+	 *         TimeoutProcessBuilder, otherwise null.
+	 */
+	public byte[] output() {
+		return output;
+	}
+
 	/** @return errorOutput byte array */
 	public byte[] errorOutput() {
 		return errorOutput;
@@ -100,10 +122,18 @@ public class TimeoutProcess {
 				// the timer hasn't destroyed this process already, cancel it.
 				timer.cancel();
 			}
+			if (timeoutFuture != null) {
+				timeoutFuture.cancel(false);
+			}
 		}
 
 		try {
-			errorOutput = StreamUtils.readStream(getErrorStream());
+			if (errorDrain != null) {
+				output = getDrained(outputDrain);
+				errorOutput = getDrained(errorDrain);
+			} else {
+				errorOutput = StreamUtils.readStream(getErrorStream());
+			}
 		} finally {
 			// close streams
 			StreamUtils.closeStream(getErrorStream());
@@ -129,4 +159,43 @@ public class TimeoutProcess {
 		this.timer = timer;
 	}
 
+	/** @param timeoutFuture scheduled task that destroys process */
+	protected void setTimeoutFuture(final Future<?> timeoutFuture) {
+		this.timeoutFuture = timeoutFuture;
+	}
+
+	/**
+	 * Set tasks that are reading standard output and error.
+	 *
+	 * @param outputDrain
+	 *            reads standard output.
+	 * @param errorDrain
+	 *            reads standard error.
+	 */
+	protected void setDrains(final Future<byte[]> outputDrain,
+			final Future<byte[]> errorDrain) {
+		this.outputDrain = outputDrain;
+		this.errorDrain = errorDrain;
+	}
+
+	/**
+	 * Wait for a drain task to finish reading.
+	 *
+	 * @param drain
+	 *            drain task.
+	 * @return bytes read by task.
+	 * @throws InterruptedException
+	 *             if thread interruption occurs
+	 * @throws IOException
+	 *             if drain task failed
+	 */
+	private static byte[] getDrained(final Future<byte[]> drain)
+			throws InterruptedException, IOException {
+		try {
+			return drain.get();
+		} catch (ExecutionException e) {
+			throw new IOException(e.getCause());
+		}
+	}
+
 }
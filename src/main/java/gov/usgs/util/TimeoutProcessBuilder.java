@@ -6,12 +6,19 @@
  */
 package gov.usgs.util;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The TimeoutProcessBuilder wraps a ProcessBuilder, adding support for a
@@ -20,15 +27,34 @@ import java.util.TimerTask;
  * This class does not support a full command String complete with arguments.
  * You can use the StringUtils.split method to get around this.
  *
+ * Timeouts for all processes are scheduled using one shared thread. Standard
+ * output and error can optionally be drained by shared threads while the
+ * process runs, so processes do not block writing to a full pipe.
+ *
  * @see java.lang.ProcessBuilder
  * @see TimeoutProcess
  */
 public class TimeoutProcessBuilder {
 
+	/** Shared thread that destroys processes after their timeout. */
+	private static final ScheduledThreadPoolExecutor TIMEOUT_SERVICE;
+	/** Shared threads that drain process output. */
+	private static final ExecutorService DRAIN_SERVICE;
+	static {
+		TIMEOUT_SERVICE = new ScheduledThreadPoolExecutor(1,
+				new DaemonThreadFactory("TimeoutProcess-timeout"));
+		// most processes exit before their timeout
+		TIMEOUT_SERVICE.setRemoveOnCancelPolicy(true);
+		DRAIN_SERVICE = Executors.newCachedThreadPool(
+				new DaemonThreadFactory("TimeoutProcess-drain"));
+	}
+
 	/** The wrapped process builder. */
 	private ProcessBuilder builder = null;
 	/** The timeout for this process. */
 	private long timeout = -1;
+	/** Maximum bytes of output to keep when draining, or -1 to not drain. */
+	private int drainOutput = -1;
 
 	/**
 	 * Create a new TimeoutProcessBuilder with a timeout and an array of
@@ -129,6 +155,28 @@ public class TimeoutProcessBuilder {
 		return this;
 	}
 
+	/** @return maximum bytes of output kept when draining, or -1 */
+	public int drainOutput() {
+		return drainOutput;
+	}
+
+	/**
+	 * Drain standard output and error while the process runs.
+	 *
+	 * Output is available from TimeoutProcess output() and errorOutput()
+	 * after waitFor returns, and should not be read using the process
+	 * streams.
+	 *
+	 * @param maxBytes
+	 *            maximum bytes of each stream to keep, additional output is
+	 *            read and discarded. -1 to not drain output.
+	 * @return TimeoutProcessBuilder
+	 */
+	public TimeoutProcessBuilder drainOutput(final int maxBytes) {
+		this.drainOutput = maxBytes;
+		return this;
+	}
+
 	/**
 	 * @return a TimeoutProcess
 	 * @throws IOException if IO error occurs
@@ -136,17 +184,20 @@ public class TimeoutProcessBuilder {
 	public TimeoutProcess start() throws IOException {
 		final TimeoutProcess process = new TimeoutProcess(builder.start());
 
+		if (drainOutput >= 0) {
+			process.setDrains(
+					DRAIN_SERVICE.submit(new Drain(process.getInputStream(),
+							drainOutput)),
+					DRAIN_SERVICE.submit(new Drain(process.getErrorStream(),
+							drainOutput)));
+		}
+
 		if (timeout > 0) {
 			// set up the timeout for this process
-			final Timer timer = new Timer();
-			timer.schedule(new TimerTask() {
-				@Override
-				public void run() {
-					process.setTimeoutElapsed(true);
-					process.destroy();
-				}
-			}, timeout);
-			process.setTimer(timer);
+			process.setTimeoutFuture(TIMEOUT_SERVICE.schedule(() -> {
+				process.setTimeoutElapsed(true);
+				process.destroy();
+			}, timeout, TimeUnit.MILLISECONDS));
 		}
 
 		return process;
@@ -162,4 +213,56 @@ public class TimeoutProcessBuilder {
 		this.timeout = timeout;
 	}
 
+	/**
+	 * Read a stream until it is closed, keeping up to a maximum number of
+	 * bytes.
+	 */
+	private static class Drain implements Callable<byte[]> {
+		private final InputStream in;
+		private final int maxBytes;
+
+		public Drain(final InputStream in, final int maxBytes) {
+			this.in = in;
+			this.maxBytes = maxBytes;
+		}
+
+		@Override
+		public byte[] call() throws IOException {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[4096];
+			try {
+				int read;
+				while ((read = in.read(buffer)) != -1) {
+					final int keep = Math.min(read, maxBytes - out.size());
+					if (keep > 0) {
+						out.write(buffer, 0, keep);
+					}
+				}
+			} finally {
+				StreamUtils.closeStream(in);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Creates named daemon threads, so shared threads do not prevent exit.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+		private final String name;
+		private final AtomicInteger count = new AtomicInteger(0);
+
+		public DaemonThreadFactory(final String name) {
+			this.name = name;
+		}
+
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			final Thread thread = new Thread(runnable, name + "-"
+					+ count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+
 }
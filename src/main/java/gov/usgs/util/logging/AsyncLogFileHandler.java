@@ -0,0 +1,274 @@
+package gov.usgs.util.logging;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A SimpleLogFileHandler that writes log files from a background thread.
+ *
+ * Records are added to a bounded queue. When the queue is full, records below
+ * WARNING are dropped and counted, and the number of dropped records is logged
+ * once the queue has room. WARNING and SEVERE records are never dropped,
+ * publish blocks until the writer thread makes room for them. The writer
+ * thread formats and
+ * writes records in batches, and flushes when the queue is empty or at least
+ * every flushInterval milliseconds.
+ *
+ * Records are formatted on the writer thread. Unless the formatter is a
+ * SimpleLogFormatter, the caller's source class and method are inferred
+ * before records are queued.
+ */
+public class AsyncLogFileHandler extends SimpleLogFileHandler {
+
+	/** Default number of records queued before dropping. */
+	public static final int DEFAULT_QUEUE_SIZE = 10000;
+
+	/** Default maximum milliseconds between flushes. */
+	public static final long DEFAULT_FLUSH_INTERVAL = 1000L;
+
+	/** Maximum number of records written between flushes. */
+	public static final int MAX_BATCH_SIZE = 1000;
+
+	/** Queued by close to wake the writer thread. */
+	private static final LogRecord CLOSE_RECORD = new LogRecord(Level.OFF, "");
+
+	/** Queued records. */
+	private final ArrayBlockingQueue<LogRecord> queue;
+
+	/** Maximum milliseconds between flushes. */
+	private final long flushInterval;
+
+	/** Number of records dropped because the queue was full. */
+	private final AtomicLong droppedCount = new AtomicLong(0L);
+
+	/** Number of dropped records not yet reported in the log file. */
+	private final AtomicLong unreportedDropped = new AtomicLong(0L);
+
+	/** Number of records written. */
+	private final AtomicLong writtenCount = new AtomicLong(0L);
+
+	/** Set by flush to request a flush from the writer thread. */
+	private volatile boolean flushRequested = false;
+
+	/** Set by close. */
+	private volatile boolean closed = false;
+
+	/** Thread that writes queued records. */
+	private final Thread writerThread;
+
+	/**
+	 * Create an AsyncLogFileHandler with default settings.
+	 *
+	 * @param logDirectory
+	 *            the directory to write log files.
+	 */
+	public AsyncLogFileHandler(final File logDirectory) {
+		this(logDirectory, new SimpleDateFormat(DEFAULT_FILENAME_FORMAT),
+				DEFAULT_QUEUE_SIZE, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Create an AsyncLogFileHandler.
+	 *
+	 * @param logDirectory
+	 *            the directory to write log files.
+	 * @param filenameFormat
+	 *            the format for log files.
+	 * @param queueSize
+	 *            number of records queued before records are dropped.
+	 * @param flushInterval
+	 *            maximum milliseconds between flushes.
+	 */
+	public AsyncLogFileHandler(final File logDirectory,
+			final SimpleDateFormat filenameFormat, final int queueSize,
+			final long flushInterval) {
+		super(logDirectory, filenameFormat);
+		this.queue = new ArrayBlockingQueue<LogRecord>(queueSize);
+		this.flushInterval = flushInterval;
+		this.writerThread = new Thread(this::writeRecords,
+				"AsyncLogFileHandler");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	/**
+	 * Queue a LogRecord to be written.
+	 *
+	 * When the queue is full, records below WARNING are dropped, and other
+	 * records wait for room in the queue.
+	 */
+	@Override
+	public void publish(final LogRecord record) {
+		if (record == null || closed || !isLoggable(record)) {
+			return;
+		}
+		if (!(getFormatter() instanceof SimpleLogFormatter)) {
+			// infer caller before record leaves this thread
+			record.getSourceMethodName();
+		}
+		if (queue.offer(record)) {
+			return;
+		}
+		if (record.getLevel().intValue() < Level.WARNING.intValue()) {
+			droppedCount.incrementAndGet();
+			unreportedDropped.incrementAndGet();
+			return;
+		}
+		queueRecord(record);
+	}
+
+	/**
+	 * Wait for room in the queue, instead of dropping a record.
+	 *
+	 * If the writer thread is no longer running, the record is written from
+	 * the calling thread.
+	 *
+	 * @param record
+	 *            the record to queue.
+	 */
+	private void queueRecord(final LogRecord record) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					if (queue.offer(record, flushInterval, TimeUnit.MILLISECONDS)) {
+						return;
+					}
+				} catch (InterruptedException e) {
+					// keep waiting, record must not be lost
+					interrupted = true;
+				}
+				if (!writerThread.isAlive()) {
+					synchronized (this) {
+						writeRecord(record);
+					}
+					return;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Request a flush from the writer thread, without waiting.
+	 */
+	@Override
+	public void flush() {
+		flushRequested = true;
+	}
+
+	/**
+	 * Write queued records, then close the current log file.
+	 */
+	@Override
+	public void close() throws SecurityException {
+		closed = true;
+		// wake writer thread, if queue is full it is already awake
+		queue.offer(CLOSE_RECORD);
+		try {
+			writerThread.join(flushInterval + 5000L);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		super.close();
+	}
+
+	/**
+	 * Writer thread loop.
+	 */
+	private void writeRecords() {
+		final List<LogRecord> batch = new ArrayList<LogRecord>(MAX_BATCH_SIZE);
+		long lastFlush = System.currentTimeMillis();
+		boolean unflushed = false;
+		while (true) {
+			try {
+				final LogRecord first = queue.poll(flushInterval,
+						TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+					queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+				}
+			} catch (InterruptedException e) {
+				// keep writing until closed
+			}
+
+			reportDropped();
+			for (final LogRecord record : batch) {
+				if (record != CLOSE_RECORD) {
+					writeRecord(record);
+				}
+			}
+			unflushed = unflushed || !batch.isEmpty();
+			batch.clear();
+
+			final long now = System.currentTimeMillis();
+			if (unflushed && (flushRequested || queue.isEmpty()
+					|| now - lastFlush >= flushInterval)) {
+				super.flush();
+				flushRequested = false;
+				unflushed = false;
+				lastFlush = now;
+			}
+
+			if (closed && queue.isEmpty()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Write one record, closing the log file if an error occurs.
+	 *
+	 * @param record
+	 *            the record to write.
+	 */
+	private void writeRecord(final LogRecord record) {
+		try {
+			write(record);
+			writtenCount.incrementAndGet();
+		} catch (Exception e) {
+			// close if any exceptions occur, next write reopens
+			closeStream();
+		}
+	}
+
+	/**
+	 * Log how many records were dropped since the last report.
+	 */
+	private void reportDropped() {
+		final long dropped = unreportedDropped.getAndSet(0L);
+		if (dropped > 0) {
+			final LogRecord record = new LogRecord(Level.WARNING,
+					"[AsyncLogFileHandler] dropped " + dropped
+							+ " log records, queue full");
+			record.setLoggerName(AsyncLogFileHandler.class.getName());
+			writeRecord(record);
+		}
+	}
+
+	/** @return number of records dropped because the queue was full. */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/** @return number of records currently queued. */
+	public int getQueuedCount() {
+		return queue.size();
+	}
+
+	/** @return number of records written. */
+	public long getWrittenCount() {
+		return writtenCount.get();
+	}
+
+}
@@ -31,6 +31,12 @@ public class SimpleLogFileHandler extends Handler {
 	/** Handle to the current log file. */
 	private OutputStream currentStream;
 
+	/** Second of the last date formatted by filenameFormat. */
+	private long filenameSecond = Long.MIN_VALUE;
+
+	/** Filename for filenameSecond. */
+	private String filename;
+
 	/**
 	 * Create a default SimpleLogHandler.
 	 *
@@ -65,6 +71,16 @@ public class SimpleLogFileHandler extends Handler {
 	 * Closes the current log file.
 	 */
 	public void close() throws SecurityException {
+		closeStream();
+	}
+
+	/**
+	 * Closes the current log file, if open.
+	 *
+	 * Used when rolling log files and after errors, so subclasses can
+	 * override close without affecting those.
+	 */
+	protected synchronized void closeStream() {
 		if (currentStream != null) {
 			try {
 				// log when the file was closed, if possible
@@ -83,12 +99,12 @@ public class SimpleLogFileHandler extends Handler {
 	 * Attempts to flush any buffered content. If exceptions occur, the stream
 	 * is closed.
 	 */
-	public void flush() {
+	public synchronized void flush() {
 		if (currentStream != null) {
 			try {
 				currentStream.flush();
 			} catch (IOException e) {
-				close();
+				closeStream();
 				currentStream = null;
 			}
 		}
@@ -97,18 +113,26 @@ public class SimpleLogFileHandler extends Handler {
 	/**
 	 * Retrieve the outputstream for the current log file.
 	 *
+	 * The filename is only formatted when the second changes, so filename
+	 * formats should not use units smaller than a second.
+	 *
 	 * @param date
 	 *            the date of the message about to be logged.
 	 * @return and OutputStream where the log message may be written.
 	 * @throws IOException
 	 *             if errors occur.
 	 */
-	protected OutputStream getOutputStream(final Date date) throws IOException {
-		String filename = filenameFormat.format(date);
+	protected synchronized OutputStream getOutputStream(final Date date)
+			throws IOException {
+		final long second = Math.floorDiv(date.getTime(), 1000L);
+		if (second != filenameSecond || filename == null) {
+			filename = filenameFormat.format(date);
+			filenameSecond = second;
+		}
 		if (currentStream == null || currentFilename == null
 				|| !filename.equals(currentFilename)) {
 			// close any existing stream
-			close();
+			closeStream();
 
 			// filename is what is being opened
 			currentFilename = filename;
@@ -127,22 +151,35 @@ public class SimpleLogFileHandler extends Handler {
 	/**
 	 * Add a LogRecord to the log file.
 	 */
-	public void publish(LogRecord record) {
+	public synchronized void publish(LogRecord record) {
 		if (record == null) {
 			return;
 		}
 
-		String message = getFormatter().format(record);
 		try {
-			OutputStream stream = getOutputStream(new Date(record.getMillis()));
-			stream.write(message.getBytes());
+			write(record);
 			flush();
 		} catch (Exception e) {
 			// close if any exceptions occur
-			close();
+			closeStream();
 		}
 	}
 
+	/**
+	 * Format and write a LogRecord to the log file, without flushing.
+	 *
+	 * @param record
+	 *            the record to write.
+	 * @throws IOException
+	 *             if errors occur.
+	 */
+	protected synchronized void write(final LogRecord record)
+			throws IOException {
+		String message = getFormatter().format(record);
+		OutputStream stream = getOutputStream(new Date(record.getMillis()));
+		stream.write(message.getBytes());
+	}
+
 	private static final Logger LOGGER = Logger
 			.getLogger(SimpleLogFileHandler.class.getName());
 
@@ -178,6 +178,55 @@ public class AwsProductReceiverTest {
         .build();
   }
 
+  @Test
+  public void testBatchedTrackingWrites() throws Exception {
+    receiver.setTrackingWriteCount(3);
+    TestSession testSession = new TestSession();
+    // connect
+    receiver.onOpen(testSession);
+
+    // receive response to products_created_after
+    Instant created = Instant.now();
+    for (int i = 1; i <= 4; i++) {
+      receiver.onMessage(getNotification("product", i, created.plusSeconds(i)).toString());
+    }
+    Assert.assertEquals("wrote tracking data once", 1, receiver.trackingWrites);
+
+    // receive end of products_created_after response
+    receiver.onMessage(getProductsCreatedAfter(created, 4).toString());
+    Assert.assertEquals("wrote remaining tracking data", 2, receiver.trackingWrites);
+    Assert.assertEquals("no pending tracking data", 0, receiver.unwrittenTrackingCount.get());
+
+    // nothing else to write
+    receiver.flushTrackingData();
+    Assert.assertEquals("did not write again", 2, receiver.trackingWrites);
+  }
+
+  @Test
+  public void testTimedTrackingWrites() throws Exception {
+    receiver.setTrackingWriteCount(100);
+    receiver.setTrackingWriteInterval(50L);
+    receiver.startTrackingWriteTimer();
+    try {
+      TestSession testSession = new TestSession();
+      // connect
+      receiver.onOpen(testSession);
+
+      // single notification, below count and before interval
+      receiver.onMessage(getNotification("product", 1, Instant.now()).toString());
+      Assert.assertEquals("not written yet", 0, receiver.trackingWrites);
+
+      // no more messages arrive, timer writes tracking data
+      for (int i = 0; i < 50 && receiver.trackingWrites == 0; i++) {
+        Thread.sleep(20L);
+      }
+      Assert.assertEquals("timer wrote tracking data", 1, receiver.trackingWrites);
+      Assert.assertEquals("no pending tracking data", 0, receiver.unwrittenTrackingCount.get());
+    } finally {
+      receiver.stopTrackingWriteTimer();
+    }
+  }
+
   /**
    * Stub socket connections to test message handling behavior.
    */
@@ -197,9 +246,12 @@ public class AwsProductReceiverTest {
       // skip actual processing
     }
 
+    public volatile int trackingWrites = 0;
+
     @Override
     public void writeTrackingData() {
       // skip tracking
+      trackingWrites++;
     }
 
     // getter/setter to control state for testing
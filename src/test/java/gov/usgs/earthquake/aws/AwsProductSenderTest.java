@@ -0,0 +1,83 @@
+package gov.usgs.earthquake.aws;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.earthquake.product.ByteContent;
+import gov.usgs.earthquake.product.Content;
+import gov.usgs.earthquake.product.Product;
+import gov.usgs.earthquake.product.ProductId;
+import gov.usgs.earthquake.product.URLContent;
+
+public class AwsProductSenderTest {
+
+  TestAwsProductSender sender;
+
+  @BeforeEach
+  public void before() throws Exception {
+    sender = new TestAwsProductSender();
+    sender.setUploadThreads(3);
+  }
+
+  @AfterEach
+  public void after() throws Exception {
+    sender.shutdown();
+  }
+
+  @Test
+  public void testUploadContentsConcurrency() throws Exception {
+    final Product product = new Product(new ProductId("source", "type", "code"));
+    final Product uploadProduct = new Product(product.getId());
+    for (int i = 0; i < 12; i++) {
+      final String path = "content" + i + ".txt";
+      product.getContents().put(path, new ByteContent(("content " + i).getBytes()));
+      uploadProduct.getContents().put(path,
+          new URLContent(new URL("https://example.com/" + path)));
+    }
+
+    final Map<String, HttpResponse> results = sender.uploadContents(product, uploadProduct);
+    Assert.assertEquals("all contents uploaded", 12, sender.uploadCount.get());
+    Assert.assertEquals("results for all contents", 12, results.size());
+    Assert.assertTrue("uploads run in parallel", sender.maxConcurrent.get() > 1);
+    Assert.assertTrue("uploads limited by uploadThreads", sender.maxConcurrent.get() <= 3);
+  }
+
+  @Test
+  public void testRetryDelay() throws Exception {
+    sender.setRetryDelay(1000L);
+    sender.setMaxRetryDelay(5000L);
+    for (int attempt = 0; attempt < 5; attempt++) {
+      final long expected = Math.min(5000L, 1000L << attempt);
+      final long delay = sender.getRetryDelay(attempt);
+      Assert.assertTrue("delay at least half of backoff", delay >= expected / 2);
+      Assert.assertTrue("delay at most backoff", delay <= expected);
+    }
+  }
+
+  static class TestAwsProductSender extends AwsProductSender {
+    final AtomicInteger concurrent = new AtomicInteger(0);
+    final AtomicInteger maxConcurrent = new AtomicInteger(0);
+    final AtomicInteger uploadCount = new AtomicInteger(0);
+
+    @Override
+    protected HttpResponse uploadContent(final String path, final Content content,
+        final URL signedUrl) throws Exception {
+      final int current = concurrent.incrementAndGet();
+      maxConcurrent.accumulateAndGet(current, Math::max);
+      try {
+        Thread.sleep(50);
+      } finally {
+        concurrent.decrementAndGet();
+      }
+      uploadCount.incrementAndGet();
+      return null;
+    }
+  }
+
+}
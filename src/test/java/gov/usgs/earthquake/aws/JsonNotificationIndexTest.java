@@ -437,6 +437,35 @@ public class JsonNotificationIndexTest {
         + EXPIRED_NOTIFICATIONS.size() + 4, getIndexSize());
   }
 
+  /**
+   * Tests iterating over notifications in pages.
+   */
+  @Test
+  public void testIterateNotifications() throws Exception {
+    List<Notification> all = index
+        .getNotifications(_query_allNotifications);
+
+    // page size that does not evenly divide number of notifications
+    List<Notification> found = new ArrayList<Notification>();
+    Iterator<Notification> iter = index.iterateNotifications(2);
+    while (iter.hasNext()) {
+      found.add(iter.next());
+    }
+    Assert.assertEquals(all.size(), found.size());
+    for (int i = 0; i < all.size(); ++i) {
+      Assert.assertEquals(all.get(i).getProductId(),
+          found.get(i).getProductId());
+    }
+
+    // page size larger than number of notifications
+    found.clear();
+    iter = index.iterateNotifications(1000);
+    while (iter.hasNext()) {
+      found.add(iter.next());
+    }
+    Assert.assertEquals(all.size(), found.size());
+  }
+
   // ------------------------------------------------------------------------
   // Helper/Utility Methods
   // ------------------------------------------------------------------------
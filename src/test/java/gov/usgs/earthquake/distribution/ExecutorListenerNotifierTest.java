@@ -0,0 +1,96 @@
+package gov.usgs.earthquake.distribution;
+
+import gov.usgs.earthquake.product.ProductId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExecutorListenerNotifierTest {
+
+	/**
+	 * An exception while requeueing fails startup, and notifications are
+	 * requeued again on the next startup.
+	 */
+	@Test
+	public void testRequeueFailure() throws Exception {
+		final Date expiration = new Date(new Date().getTime() + 60000L);
+		final List<Notification> notifications = new ArrayList<Notification>();
+		for (int i = 0; i < 3; i++) {
+			notifications.add(new DefaultNotification(
+					new ProductId("source", "type", "code" + i, new Date(i)),
+					expiration, null));
+		}
+		final AtomicBoolean fail = new AtomicBoolean(true);
+		JDBCNotificationIndex index = new JDBCNotificationIndex() {
+			@Override
+			public Iterator<Notification> iterateNotifications(final int pageSize) {
+				final Iterator<Notification> iterator = notifications.iterator();
+				return new Iterator<Notification>() {
+					private int count = 0;
+
+					@Override
+					public boolean hasNext() {
+						if (fail.get() && count == 2) {
+							throw new RuntimeException("page failed");
+						}
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Notification next() {
+						count++;
+						return iterator.next();
+					}
+				};
+			}
+		};
+		index.setName("requeueIndex");
+		DefaultNotificationReceiver receiver = new DefaultNotificationReceiver();
+		receiver.setName("requeueReceiver");
+		receiver.setNotificationIndex(index);
+
+		final AtomicInteger received = new AtomicInteger(0);
+		DefaultNotificationListener listener = new DefaultNotificationListener() {
+			@Override
+			public void onNotification(final NotificationEvent event)
+					throws Exception {
+				received.incrementAndGet();
+			}
+		};
+		listener.setName("requeueListener");
+		listener.setNotificationIndex(new JDBCNotificationIndex());
+
+		ExecutorListenerNotifier notifier = new ExecutorListenerNotifier(receiver);
+		notifier.addNotificationListener(listener);
+		try {
+			notifier.startup();
+			Assert.fail("expected requeue exception");
+		} catch (RuntimeException e) {
+			// expected
+		}
+		ExecutorService executor = notifier.getExecutors().get(listener);
+		notifier.shutdown();
+		Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		Assert.assertEquals("requeued before failure", 2, received.get());
+
+		// index was not marked as requeued
+		fail.set(false);
+		notifier = new ExecutorListenerNotifier(receiver);
+		notifier.addNotificationListener(listener);
+		notifier.startup();
+		executor = notifier.getExecutors().get(listener);
+		notifier.shutdown();
+		Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+		Assert.assertEquals("requeued again", 5, received.get());
+	}
+
+}
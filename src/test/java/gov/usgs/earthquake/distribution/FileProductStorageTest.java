@@ -6,9 +6,13 @@ package gov.usgs.earthquake.distribution;
 import gov.usgs.earthquake.product.Content;
 import gov.usgs.earthquake.product.FileContent;
 import gov.usgs.earthquake.product.Product;
+import gov.usgs.earthquake.product.ProductDigestCache;
 import gov.usgs.earthquake.product.ProductId;
 import gov.usgs.earthquake.product.ProductTest;
+import gov.usgs.earthquake.product.io.ObjectProductHandler;
+import gov.usgs.earthquake.product.io.ObjectProductSource;
 import gov.usgs.util.Config;
+import gov.usgs.util.CryptoUtils.Version;
 import gov.usgs.util.FileUtils;
 
 import java.io.File;
@@ -230,6 +234,151 @@ public class FileProductStorageTest {
 
 	}
 
+	/**
+	 * Signatures should be verified while streaming a product, so storage
+	 * does not need to read contents again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void verifySignatureWhileStoring() throws Exception {
+		ProductKeyChain chain = new ProductKeyChain();
+		ProductKey key = new ProductKey(
+				ProductTest.SIGNATURE_KEY_PAIR.getPublic(), null, null);
+		key.setName("testKey");
+		chain.getKeychain().add(key);
+		SignatureVerifier verifier = new SignatureVerifier();
+		verifier.setKeychain(chain);
+		verifier.setRejectInvalidSignatures(true);
+
+		for (Version version : Version.values()) {
+			Product product = productTest.getProduct();
+			product.sign(ProductTest.SIGNATURE_KEY_PAIR.getPrivate(), version);
+			SignatureVerifierProductHandler handler =
+					new SignatureVerifierProductHandler(verifier,
+							new ObjectProductHandler());
+			new ObjectProductSource(product).streamTo(handler);
+			Assert.assertTrue("verified " + version,
+					handler.isSignatureVerified());
+		}
+
+		// modified product is rejected before wrapped handler finishes
+		Product product = productTest.getProduct();
+		product.sign(ProductTest.SIGNATURE_KEY_PAIR.getPrivate());
+		product.getProperties().put("modified", "true");
+		final boolean[] finished = new boolean[] {false, false};
+		SignatureVerifierProductHandler handler =
+				new SignatureVerifierProductHandler(verifier,
+						new ObjectProductHandler() {
+							@Override
+							public void onEndProduct(ProductId id) throws Exception {
+								finished[0] = true;
+								super.onEndProduct(id);
+							}
+
+							@Override
+							public void close() {
+								finished[1] = true;
+								super.close();
+							}
+						});
+		try {
+			new ObjectProductSource(product).streamTo(handler);
+			Assert.fail("expected InvalidSignatureException");
+		} catch (InvalidSignatureException e) {
+			// expected
+		}
+		Assert.assertTrue("modified checked", handler.isSignatureChecked());
+		Assert.assertFalse("modified not verified",
+				handler.isSignatureVerified());
+		Assert.assertFalse("output not finished", finished[0]);
+		Assert.assertFalse("output not closed", finished[1]);
+	}
+
+	/**
+	 * Invalid signatures are rejected while storing, without reading the
+	 * stored product again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void rejectInvalidSignatureWhileStoring() throws Exception {
+		ProductKeyChain chain = new ProductKeyChain();
+		ProductKey key = new ProductKey(
+				ProductTest.SIGNATURE_KEY_PAIR.getPublic(), null, null);
+		key.setName("testKey");
+		chain.getKeychain().add(key);
+		final int[] reads = new int[] {0};
+		FileProductStorage storage = new FileProductStorage(TESTING_DIRECTORY) {
+			@Override
+			public Product getProduct(ProductId id) throws Exception {
+				reads[0]++;
+				return super.getProduct(id);
+			}
+		};
+		storage.setKeychain(chain);
+		storage.setRejectInvalidSignatures(true);
+
+		Product product = productTest.getProduct();
+		product.sign(ProductTest.SIGNATURE_KEY_PAIR.getPrivate());
+		product.getProperties().put("modified", "true");
+		try {
+			storage.storeProduct(product);
+			Assert.fail("expected InvalidSignatureException");
+		} catch (InvalidSignatureException e) {
+			// expected
+		}
+		Assert.assertFalse("invalid product removed",
+				storage.hasProduct(product.getId()));
+
+		product = productTest.getProduct();
+		product.sign(ProductTest.SIGNATURE_KEY_PAIR.getPrivate());
+		storage.storeProduct(product);
+		Assert.assertTrue("valid product stored",
+				storage.hasProduct(product.getId()));
+		Assert.assertEquals("stored products not read again", 0, reads[0]);
+	}
+
+	/**
+	 * Digests verified while storing should be reused when the same product
+	 * is stored or verified again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void reuseVerifiedDigest() throws Exception {
+		ProductKeyChain chain = new ProductKeyChain();
+		ProductKey key = new ProductKey(
+				ProductTest.SIGNATURE_KEY_PAIR.getPublic(), null, null);
+		key.setName("testKey");
+		chain.getKeychain().add(key);
+		SignatureVerifier verifier = new SignatureVerifier();
+		verifier.setKeychain(chain);
+		verifier.setRejectInvalidSignatures(true);
+		ProductDigestCache cache = new ProductDigestCache();
+		verifier.setDigestCache(cache);
+
+		Product product = productTest.getProduct();
+		product.sign(ProductTest.SIGNATURE_KEY_PAIR.getPrivate());
+		for (int i = 0; i < 2; i++) {
+			SignatureVerifierProductHandler handler =
+					new SignatureVerifierProductHandler(verifier,
+							new ObjectProductHandler());
+			new ObjectProductSource(product).streamTo(handler);
+			Assert.assertTrue("verified " + i, handler.isSignatureVerified());
+		}
+		Assert.assertEquals(1, cache.size());
+		Assert.assertEquals("second store uses cached digest", 1L,
+				cache.getHits());
+
+		// content bytes without known sha256 are hashed by default
+		Assert.assertTrue(verifier.verifySignature(product));
+		Assert.assertEquals(1L, cache.getHits());
+		// callers with verified content may use attributes only
+		Assert.assertTrue(verifier.verifySignature(product, true));
+		Assert.assertEquals(2L, cache.getHits());
+	}
+
 	@Test
 	public void notifyListeners() {
 		Assert.assertTrue("TODO :: Implement notifyListener test.", true);
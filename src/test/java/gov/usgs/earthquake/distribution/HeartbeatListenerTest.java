@@ -1,11 +1,26 @@
 package gov.usgs.earthquake.distribution;
 
 import gov.usgs.util.Config;
+import gov.usgs.util.ProcessRunner;
+
+import java.io.File;
+import java.util.Arrays;
+
 import org.junit.Assert;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 public class HeartbeatListenerTest {
 
+	/**
+	 * Heartbeats are static, and counters are not purged by cleanup, so start
+	 * each test without heartbeats from other tests.
+	 */
+	@BeforeEach
+	public void clearHeartbeats() {
+		HeartbeatListener.getHeartbeats().clear();
+	}
+
 	/**
 	 * JSON Heartbeat Listener test should pass
 	 *
@@ -183,4 +198,73 @@ public class HeartbeatListenerTest {
 		}
 	}
 
+	/**
+	 * Heartbeat file is written by a timer when heartbeatInterval is set.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public synchronized void testHeartbeatInterval() throws Exception {
+		File heartbeatFile = File.createTempFile("heartbeat", ".dat");
+		heartbeatFile.delete();
+
+		Config config = new Config();
+		config.setProperty("heartbeatFilename", heartbeatFile.getPath());
+		config.setProperty("heartbeatInterval", "100");
+		config.setProperty("cleanupInterval", "0");
+
+		HeartbeatListener objListener = new HeartbeatListener();
+		objListener.configure(config);
+		Assert.assertEquals(100L, objListener.getHeartbeatInterval());
+		try {
+			objListener.startup();
+			HeartbeatListener.incrementHeartbeatCounter("TestComponent5",
+					"counter");
+			HeartbeatListener.setHeartbeatGauge("TestComponent5", "gauge", 5L);
+
+			long end = System.currentTimeMillis() + 5000L;
+			while (!heartbeatFile.exists() && System.currentTimeMillis() < end) {
+				Thread.sleep(10L);
+			}
+			Assert.assertTrue("Heartbeat file written", heartbeatFile.exists());
+		} finally {
+			objListener.shutdown();
+			heartbeatFile.delete();
+		}
+	}
+
+	/**
+	 * ProcessRunner totals are copied into counters and gauges, by listener
+	 * name, exit value and executable.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public synchronized void testProcessRunnerStatus() throws Exception {
+		new HeartbeatListener();
+		ProcessRunner runner = new ProcessRunner();
+		runner.run(Arrays.asList("sh", "-c", "exit 0"), null, 10000L);
+		runner.run(Arrays.asList("sh", "-c", "exit 0"), null, 10000L);
+		runner.run(Arrays.asList("sh", "-c", "exit 2"), null, 10000L);
+		HeartbeatListener.updateProcessRunnerStatus("TestListener", runner);
+
+		HeartbeatStatus status = HeartbeatListener.getHeartbeats()
+				.get("TestListener");
+		Assert.assertEquals(Long.valueOf(3L), status.getValue("commands"));
+		Assert.assertEquals(Long.valueOf(0L), status.getValue("timeouts"));
+		Assert.assertEquals(Long.valueOf(2L), status.getValue("exit value 0"));
+		Assert.assertEquals(Long.valueOf(1L), status.getValue("exit value 2"));
+		Assert.assertEquals(Long.valueOf(3L), status.getValue("commands sh"));
+		Assert.assertEquals(Long.valueOf(runner.getMaxTime()),
+				status.getValue("max command time sh"));
+
+		// only the change since the last update is added
+		runner.run(Arrays.asList("sh", "-c", "exit 2"), null, 10000L);
+		HeartbeatListener.updateProcessRunnerStatus("TestListener", runner);
+		Assert.assertEquals(Long.valueOf(4L), status.getValue("commands"));
+		Assert.assertEquals(Long.valueOf(2L), status.getValue("exit value 2"));
+		Assert.assertEquals(Long.valueOf(runner.getTotalTime()),
+				status.getValue("total command time"));
+	}
+
 }
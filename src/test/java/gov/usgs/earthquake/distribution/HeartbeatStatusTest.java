@@ -178,4 +178,38 @@ public class HeartbeatStatusTest {
 		}
 	}
 
+	/**
+	 * Counters and gauges are output with statuses, and gauges are purged by
+	 * date while counters keep their totals.
+	 */
+	@Test
+	public void testCountersAndGauges() throws Exception {
+		HeartbeatStatus obj = new HeartbeatStatus();
+		obj.updateStatus("key1", "value1");
+		obj.incrementCounter("counter", 1L);
+		obj.incrementCounter("counter", 2L);
+		obj.setGauge("gauge", 5L);
+		obj.setGauge("gauge", 4L);
+
+		Assert.assertEquals(Long.valueOf(3L), obj.getValue("counter"));
+		Assert.assertEquals(Long.valueOf(4L), obj.getValue("gauge"));
+		Assert.assertNull(obj.getValue("key1"));
+		Assert.assertEquals("3", obj.toJsonObject().getJsonObject("counter")
+				.getString("message"));
+		Assert.assertEquals("4", obj.toJsonObject().getJsonObject("gauge")
+				.getString("message"));
+
+		// updating a status reuses the existing entry
+		HeartbeatInfo info = obj.getStatuses().get("key1");
+		obj.updateStatus("key1", "value2");
+		Assert.assertSame(info, obj.getStatuses().get("key1"));
+		Assert.assertEquals("value2", info.getMessage());
+
+		obj.clearDataOlderThanDate(new Date(new Date().getTime() + 1000L));
+		Assert.assertNull(obj.getValue("gauge"));
+		Assert.assertNull(obj.getStatuses().get("key1"));
+		Assert.assertEquals(Long.valueOf(3L), obj.getValue("counter"));
+		Assert.assertFalse(obj.isEmpty());
+	}
+
 }
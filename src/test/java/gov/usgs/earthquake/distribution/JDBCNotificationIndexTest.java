@@ -461,6 +461,32 @@ public class JDBCNotificationIndexTest {
 				+ EXPIRED_NOTIFICATIONS.size() + 4, getIndexSize());
 	}
 
+	/**
+	 * Tests paging through notifications, which should not return duplicates.
+	 */
+	@Test
+	public void testIterateNotifications() throws Exception {
+		// duplicate notification for an existing product
+		index.addNotification(SOME_NOTIFICATIONS.get(0));
+		Assert.assertEquals(SOME_NOTIFICATIONS.size()
+				+ EXPIRED_NOTIFICATIONS.size() + 1, getIndexSize());
+
+		List<Notification> all = index.findNotifications(
+				(List<String>) null, (List<String>) null, (List<String>) null);
+		List<Notification> paged = new ArrayList<Notification>();
+		Iterator<Notification> iter = index.iterateNotifications(2);
+		while (iter.hasNext()) {
+			paged.add(iter.next());
+		}
+
+		Assert.assertEquals(SOME_NOTIFICATIONS.size()
+				+ EXPIRED_NOTIFICATIONS.size(), paged.size());
+		Assert.assertEquals(all.size(), paged.size());
+		for (Notification notification : all) {
+			Assert.assertTrue(contains(paged, notification));
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	// Helper/Utility Methods
 	// ------------------------------------------------------------------------
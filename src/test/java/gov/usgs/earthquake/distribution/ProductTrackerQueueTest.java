@@ -0,0 +1,98 @@
+/*
+ * ProductTrackerQueueTest
+ */
+package gov.usgs.earthquake.distribution;
+
+import gov.usgs.earthquake.product.ProductId;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test the ProductTrackerQueue class.
+ */
+public class ProductTrackerQueueTest {
+
+	/**
+	 * Updates are queued without blocking, and dropped when queue is full.
+	 */
+	@Test
+	public void overflow() throws Exception {
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<ProductTrackerUpdate> sent = new ArrayList<ProductTrackerUpdate>();
+		ProductTrackerQueue queue = new ProductTrackerQueue(2, 10) {
+			@Override
+			protected void send(final ProductTrackerUpdate update)
+					throws Exception {
+				blocked.countDown();
+				release.await();
+				sent.add(update);
+			}
+		};
+
+		URL trackerURL = new URL("http://localhost/tracker");
+		Assert.assertTrue(queue.offer(getUpdate(trackerURL, "first")));
+		// wait until first update is being sent
+		blocked.await();
+		Assert.assertTrue(queue.offer(getUpdate(trackerURL, "second")));
+		Assert.assertTrue(queue.offer(getUpdate(trackerURL, "third")));
+		Assert.assertFalse("queue full",
+				queue.offer(getUpdate(trackerURL, "fourth")));
+		Assert.assertEquals(1L, queue.getDroppedCount());
+
+		release.countDown();
+		Assert.assertTrue(queue.flush(5000L));
+		Assert.assertEquals(3, sent.size());
+		Assert.assertEquals(3L, queue.getSentCount());
+		queue.shutdown(1000L);
+		Assert.assertFalse("stopped", queue.offer(getUpdate(trackerURL, "fifth")));
+	}
+
+	/**
+	 * A failed tracker drops the rest of its updates, but not other trackers.
+	 */
+	@Test
+	public void failedTracker() throws Exception {
+		final URL failURL = new URL("http://localhost/fail");
+		final URL okURL = new URL("http://localhost/ok");
+		final List<ProductTrackerUpdate> sent = new ArrayList<ProductTrackerUpdate>();
+		final List<ProductTrackerUpdate> batch = new ArrayList<ProductTrackerUpdate>();
+		ProductTrackerQueue queue = new ProductTrackerQueue(10, 10) {
+			@Override
+			protected void send(final ProductTrackerUpdate update)
+					throws Exception {
+				if (update.getTrackerURL() == failURL) {
+					throw new Exception("tracker unavailable");
+				}
+				sent.add(update);
+			}
+		};
+		batch.add(getUpdate(failURL, "first"));
+		batch.add(getUpdate(okURL, "second"));
+		batch.add(getUpdate(failURL, "third"));
+		batch.add(getUpdate(okURL, "fourth"));
+		queue.sendBatch(batch);
+
+		Assert.assertEquals(2, sent.size());
+		Assert.assertEquals("second", sent.get(0).getMessage());
+		Assert.assertEquals("fourth", sent.get(1).getMessage());
+		Assert.assertEquals(1L, queue.getFailedCount());
+		Assert.assertEquals(1L, queue.getDroppedCount());
+		queue.shutdown(1000L);
+	}
+
+	private ProductTrackerUpdate getUpdate(final URL trackerURL,
+			final String message) {
+		return new ProductTrackerUpdate(trackerURL,
+				new ProductId("test", "test", "test", new Date()),
+				"ProductTrackerQueueTest", message);
+	}
+
+}
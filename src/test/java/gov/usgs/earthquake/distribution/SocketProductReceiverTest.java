@@ -3,6 +3,12 @@ package gov.usgs.earthquake.distribution;
 import java.io.File;
 import java.io.OutputStream;
 import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.DeflaterOutputStream;
 
 import gov.usgs.earthquake.product.Product;
@@ -12,6 +18,7 @@ import gov.usgs.earthquake.product.io.ObjectProductSource;
 import gov.usgs.earthquake.product.io.XmlProductHandler;
 import gov.usgs.util.Config;
 import gov.usgs.util.DefaultConfigurable;
+import gov.usgs.util.FileUtils;
 import gov.usgs.util.StreamUtils.UnclosableOutputStream;
 
 import org.junit.After;
@@ -39,6 +46,8 @@ public class SocketProductReceiverTest {
 		Config config = new Config();
 		config.setProperty("port", "1984");
 		config.setProperty("storageage", "50000");
+		config.setProperty("replicationEnabled", "true");
+		config.setProperty("replicationKey", "testkey");
 
 		config.setProperty("index", "myindex");
 		config.setSectionProperty("myindex",
@@ -111,6 +120,39 @@ public class SocketProductReceiverTest {
 		productTest.compareProducts(this.product, p2);
 	}
 
+	/**
+	 * The active connections gauge returns to zero when connections close.
+	 */
+	@Test
+	public void testActiveConnectionsGauge() throws Exception {
+		// heartbeats are only recorded once a listener exists
+		new HeartbeatListener();
+		receiver.setName("gaugeReceiver");
+		ProductStorage ps = receiver.getProductStorage();
+		ps.removeProduct(product.getId());
+
+		TestNotificationListener listener = new TestNotificationListener();
+		receiver.addNotificationListener(listener);
+
+		ObjectProductSource source = new ObjectProductSource(this.product);
+		Socket socket = new Socket("localhost", 1984);
+		OutputStream out = socket.getOutputStream();
+		XmlProductHandler handler = new XmlProductHandler(
+				new UnclosableOutputStream(out));
+		source.streamTo(handler);
+		socket.close();
+		listener.getProduct();
+
+		long start = System.currentTimeMillis();
+		while (receiver.getActiveConnections() > 0
+				&& System.currentTimeMillis() - start < 5000) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(0, receiver.getActiveConnections());
+		Assert.assertEquals(Long.valueOf(0L), HeartbeatListener.getHeartbeats()
+				.get(receiver.getName()).getValue("active connections"));
+	}
+
 	@Test
 	public void testReceiveBinaryWithDeflate() throws Exception {
 		// make sure the product isn't already in storage
@@ -177,6 +219,214 @@ public class SocketProductReceiverTest {
 		}
 	}
 
+	/**
+	 * Busy receiver refuses products, and sender reports an error.
+	 */
+	@Test
+	public void testReceiverBusy() throws Exception {
+		ProductStorage ps = receiver.getProductStorage();
+		ps.removeProduct(product.getId());
+
+		Config config = Config.getConfig();
+		config.setProperty("port", "1985");
+		SocketProductReceiver busyReceiver = new SocketProductReceiver() {
+			@Override
+			public boolean isBusy() {
+				return true;
+			}
+		};
+		busyReceiver.configure(config);
+		busyReceiver.startup();
+		try {
+			SocketProductSender sps = new SocketProductSender("localhost", 1985);
+			try {
+				sps.sendProduct(product);
+				Assert.fail("expected busy exception");
+			} catch (Exception e) {
+				Assert.assertTrue(e.getCause().getMessage().contains("busy"));
+			}
+			Assert.assertEquals(1L, busyReceiver.getBusyCount());
+			Assert.assertFalse(ps.hasProduct(product.getId()));
+		} finally {
+			busyReceiver.shutdown();
+		}
+	}
+
+	/**
+	 * Replicate stored and removed products from another storage.
+	 */
+	@Test
+	public void testReceiveReplication() throws Exception {
+		ProductStorage ps = receiver.getProductStorage();
+		NotificationIndex index = receiver.getNotificationIndex();
+		Product other = productTest.getOtherProduct();
+		ps.removeProduct(product.getId());
+		ps.removeProduct(other.getId());
+
+		File localDirectory = new File("/tmp/socketproductreceivertestreplication");
+		FileProductStorage local = new FileProductStorage(localDirectory);
+		TestReplicationSender sender = new TestReplicationSender("testkey");
+		try {
+			local.storeProduct(product);
+			local.storeProduct(other);
+			sender.expect(2);
+			sender.replicate(local, product.getId(), false);
+			sender.replicate(local, other.getId(), false);
+			sender.await();
+			Assert.assertEquals(2, sender.replicated.get());
+			Assert.assertTrue(ps.hasProduct(product.getId()));
+			productTest.compareProducts(other, ps.getProduct(other.getId()));
+			Assert.assertEquals(1, index.findNotifications(other.getId()).size());
+
+			// already have first product
+			sender.expect(2);
+			sender.replicate(local, product.getId(), false);
+			sender.replicate(local, other.getId(), true);
+			sender.await();
+			Assert.assertEquals(4, sender.replicated.get());
+			Assert.assertTrue(ps.hasProduct(product.getId()));
+			Assert.assertFalse(ps.hasProduct(other.getId()));
+			Assert.assertEquals(0, index.findNotifications(other.getId()).size());
+		} finally {
+			sender.stop();
+			FileUtils.deleteTree(localDirectory);
+		}
+	}
+
+	/**
+	 * A product stored then removed in the same batch stays removed.
+	 */
+	@Test
+	public void testReplicationAppliesChangesInOrder() throws Exception {
+		ProductStorage ps = receiver.getProductStorage();
+		ps.removeProduct(product.getId());
+
+		File localDirectory = new File("/tmp/socketproductreceivertestreplication");
+		FileProductStorage local = new FileProductStorage(localDirectory);
+		TestReplicationSender sender = new TestReplicationSender("testkey");
+		try {
+			local.storeProduct(product);
+			Assert.assertTrue(sender.sendBatch(Arrays.asList(
+					new SocketReplicationSender.Change(local, product.getId(), false),
+					new SocketReplicationSender.Change(local, product.getId(), true))));
+			Assert.assertFalse(ps.hasProduct(product.getId()));
+
+			Assert.assertTrue(sender.sendBatch(Arrays.asList(
+					new SocketReplicationSender.Change(local, product.getId(), true),
+					new SocketReplicationSender.Change(local, product.getId(), false))));
+			Assert.assertTrue(ps.hasProduct(product.getId()));
+		} finally {
+			sender.stop();
+			FileUtils.deleteTree(localDirectory);
+		}
+	}
+
+	/**
+	 * Changes are refused without the replication key, and failed changes
+	 * are retried before later changes.
+	 */
+	@Test
+	public void testReplicationRequiresKey() throws Exception {
+		ProductStorage ps = receiver.getProductStorage();
+		Product other = productTest.getOtherProduct();
+		ps.removeProduct(product.getId());
+		ps.removeProduct(other.getId());
+
+		File localDirectory = new File("/tmp/socketproductreceivertestreplication");
+		FileProductStorage local = new FileProductStorage(localDirectory);
+		TestReplicationSender sender = new TestReplicationSender("wrongkey");
+		try {
+			local.storeProduct(product);
+			local.storeProduct(other);
+			sender.expect(4);
+			// hold sender thread in its first batch
+			sender.gate = new CountDownLatch(1);
+			sender.replicate(local, other.getId(), false);
+			Assert.assertTrue(sender.blocked.await(10, TimeUnit.SECONDS));
+			sender.replicate(local, other.getId(), true);
+
+			// failed changes return to front of queue
+			Assert.assertFalse(sender.sendBatch(Arrays.asList(
+					new SocketReplicationSender.Change(local, product.getId(), false),
+					new SocketReplicationSender.Change(local, product.getId(), true))));
+			sender.gate.countDown();
+			sender.await();
+
+			Assert.assertEquals(0, sender.replicated.get());
+			Assert.assertFalse(ps.hasProduct(product.getId()));
+			Assert.assertFalse(ps.hasProduct(other.getId()));
+			String productId = product.getId().toString();
+			String otherId = other.getId().toString();
+			Assert.assertEquals(Arrays.asList(
+					// blocked batch, then retried at front of queue
+					"store " + otherId,
+					"store " + otherId,
+					// failed batch, ahead of later change
+					"store " + productId,
+					"remove " + productId,
+					"remove " + otherId,
+					"remove " + otherId), sender.sent);
+		} finally {
+			sender.stop();
+			FileUtils.deleteTree(localDirectory);
+		}
+	}
+
+	/**
+	 * Sender that counts down a latch as changes complete.
+	 */
+	private static class TestReplicationSender extends SocketReplicationSender {
+		final AtomicInteger replicated = new AtomicInteger();
+		final List<String> sent = new CopyOnWriteArrayList<String>();
+		final CountDownLatch blocked = new CountDownLatch(1);
+		volatile CountDownLatch gate = null;
+		volatile CountDownLatch latch = new CountDownLatch(0);
+
+		TestReplicationSender(final String key) {
+			super("localhost", 1984, 5000, 2, 10, key);
+		}
+
+		void expect(final int changes) {
+			latch = new CountDownLatch(changes);
+		}
+
+		void await() throws InterruptedException {
+			Assert.assertTrue("changes completed",
+					latch.await(10, TimeUnit.SECONDS));
+		}
+
+		@Override
+		protected boolean sendBatch(final List<Change> batch) {
+			final boolean senderThread = Thread.currentThread().getName()
+					.startsWith("SocketReplicationSender");
+			if (senderThread) {
+				for (final Change change : batch) {
+					sent.add((change.isDeleting() ? "remove " : "store ")
+							+ change.getId());
+				}
+				if (gate != null) {
+					blocked.countDown();
+					try {
+						gate.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					gate = null;
+				}
+			}
+			return super.sendBatch(batch);
+		}
+
+		@Override
+		protected void onChangeComplete(final Change change,
+				final boolean replicated) {
+			if (replicated) {
+				this.replicated.incrementAndGet();
+			}
+			latch.countDown();
+		}
+	}
+
 	private class TestNotificationListener extends DefaultConfigurable
 			implements NotificationListener {
 
@@ -0,0 +1,87 @@
+package gov.usgs.earthquake.distribution;
+
+import gov.usgs.earthquake.product.ProductId;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StripedListenerNotifierTest {
+
+	@Test
+	public void testProductOrder() throws Exception {
+		DefaultNotificationReceiver receiver = new DefaultNotificationReceiver();
+		receiver.setName("receiver");
+		StripedListenerNotifier notifier = new StripedListenerNotifier(receiver);
+
+		final AtomicInteger concurrent = new AtomicInteger(0);
+		final AtomicInteger maxConcurrent = new AtomicInteger(0);
+		final Map<String, List<Date>> processed = new HashMap<String, List<Date>>();
+		DefaultNotificationListener listener = new DefaultNotificationListener() {
+			@Override
+			public void onNotification(final NotificationEvent event)
+					throws Exception {
+				final int current = concurrent.incrementAndGet();
+				maxConcurrent.accumulateAndGet(current, Math::max);
+				try {
+					Thread.sleep(5);
+				} finally {
+					concurrent.decrementAndGet();
+				}
+				ProductId id = event.getNotification().getProductId();
+				synchronized (processed) {
+					List<Date> updates = processed.get(id.getCode());
+					if (updates == null) {
+						updates = new ArrayList<Date>();
+						processed.put(id.getCode(), updates);
+					}
+					updates.add(id.getUpdateTime());
+				}
+			}
+		};
+		listener.setName("listener");
+		listener.setConcurrentProducts(4);
+		notifier.addNotificationListener(listener);
+
+		Date expiration = new Date(new Date().getTime() + 60000L);
+		for (int update = 0; update < 10; update++) {
+			for (int code = 0; code < 8; code++) {
+				ProductId id = new ProductId("source", "type", "code" + code,
+						new Date(update));
+				notifier.notifyListeners(new NotificationEvent(receiver,
+						new DefaultNotification(id, expiration, null)));
+			}
+		}
+
+		Map<String, Integer> status = notifier.getStatus();
+		Assert.assertTrue("listener status", status.containsKey(
+				"receiver - listener"));
+		Assert.assertTrue("stripe status", status.containsKey(
+				"receiver - listener - stripe 3"));
+
+		ExecutorService executor = notifier.getExecutors().get(listener);
+		notifier.shutdown();
+		Assert.assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+		Assert.assertEquals(8, processed.size());
+		for (List<Date> updates : processed.values()) {
+			Assert.assertEquals(10, updates.size());
+			for (int update = 0; update < 10; update++) {
+				Assert.assertEquals("updates in order", update,
+						updates.get(update).getTime());
+			}
+		}
+		Assert.assertTrue("products processed concurrently",
+				maxConcurrent.get() > 1);
+		Assert.assertTrue("limited by stripes", maxConcurrent.get() <= 4);
+	}
+
+}
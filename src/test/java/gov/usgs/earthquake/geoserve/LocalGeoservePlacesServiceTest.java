@@ -0,0 +1,77 @@
+package gov.usgs.earthquake.geoserve;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalGeoservePlacesServiceTest {
+
+  private LocalGeoservePlacesService service = null;
+
+  @Before
+  public void setUpTestEnvironment() {
+    this.service = new LocalGeoservePlacesService();
+    this.service.setFallback(false);
+    this.service.loadPlaces(Json.createObjectBuilder().add("features",
+        Json.createArrayBuilder()
+          .add(place("Golden", "us", 39.7555, -105.2211))
+          .add(place("Denver", "us", 39.7392, -104.9903))
+          .add(place("Suva", "fj", -18.1416, 178.4419))
+      ).build());
+  }
+
+  @Test
+  public void getNearestPlace() throws Exception {
+    JsonObject feature = this.service.getNearestPlace(
+        new BigDecimal("39.9"), new BigDecimal("-105.2"));
+    JsonObject properties = feature.getJsonObject("properties");
+    Assert.assertEquals("Golden", properties.getString("name"));
+    Assert.assertEquals("us", properties.getString("country_code"));
+    double distance = properties.getJsonNumber("distance").doubleValue();
+    Assert.assertEquals(16.2, distance, 0.1);
+    // place is south of event
+    double azimuth = properties.getJsonNumber("azimuth").doubleValue();
+    Assert.assertTrue("azimuth " + azimuth, azimuth > 180 && azimuth < 190);
+  }
+
+  @Test
+  public void getNearestPlaceAcrossDateline() throws Exception {
+    JsonObject feature = this.service.getNearestPlace(
+        new BigDecimal("-18.0"), new BigDecimal("-179.5"));
+    Assert.assertEquals("Suva", feature.getJsonObject("properties").getString("name"));
+  }
+
+  @Test
+  public void getNearestPlaceOutsideSearchDistance() throws Exception {
+    this.service.setSearchDistance(10);
+    Assert.assertNull(this.service.getNearestPlace(
+        new BigDecimal("39.9"), new BigDecimal("-105.2")));
+  }
+
+  @Test(expected = IOException.class)
+  public void noPlacesLoaded() throws Exception {
+    LocalGeoservePlacesService empty = new LocalGeoservePlacesService();
+    empty.setFallback(false);
+    empty.getNearestPlace(BigDecimal.ZERO, BigDecimal.ZERO);
+  }
+
+  private JsonObject place(String name, String countryCode, double latitude, double longitude) {
+    return Json.createObjectBuilder()
+        .add("type", "Feature")
+        .add("geometry", Json.createObjectBuilder()
+          .add("type", "Point")
+          .add("coordinates", Json.createArrayBuilder().add(longitude).add(latitude)))
+        .add("properties", Json.createObjectBuilder()
+          .add("name", name)
+          .add("country_code", countryCode)
+          .add("country_name", "country")
+          .add("admin1_name", "admin"))
+        .build();
+  }
+}
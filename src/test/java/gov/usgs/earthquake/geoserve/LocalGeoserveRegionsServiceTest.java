@@ -0,0 +1,73 @@
+package gov.usgs.earthquake.geoserve;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocalGeoserveRegionsServiceTest {
+
+  private LocalGeoserveRegionsService service = null;
+
+  @Before
+  public void setUpTestEnvironment() {
+    this.service = new LocalGeoserveRegionsService();
+    this.service.setFallback(false);
+    // outer square with a hole, and a small region inside the hole
+    this.service.loadRegions(Json.createObjectBuilder().add("features",
+        Json.createArrayBuilder()
+          .add(region("outer", "Polygon", Json.createArrayBuilder()
+            .add(ring(0, 0, 10, 10))
+            .add(ring(4, 4, 6, 6))))
+          .add(region("inner", "MultiPolygon", Json.createArrayBuilder()
+            .add(Json.createArrayBuilder().add(ring(4.5, 4.5, 5.5, 5.5)))))
+      ).build());
+  }
+
+  @Test
+  public void getFeRegionName() throws Exception {
+    Assert.assertEquals(2, this.service.getPolygonCount());
+    Assert.assertEquals("outer", getName("1.5", "1.5"));
+    Assert.assertEquals("outer", getName("9.5", "4.5"));
+    Assert.assertEquals("inner", getName("5.0", "5.0"));
+  }
+
+  @Test(expected = IOException.class)
+  public void insideHole() throws Exception {
+    getName("4.2", "4.2");
+  }
+
+  @Test(expected = IOException.class)
+  public void outsideRegions() throws Exception {
+    getName("-1.0", "5.0");
+  }
+
+  private String getName(String latitude, String longitude) throws Exception {
+    return this.service.getFeRegionName(new BigDecimal(latitude), new BigDecimal(longitude));
+  }
+
+  private JsonObject region(String name, String type, JsonArrayBuilder coordinates) {
+    return Json.createObjectBuilder()
+        .add("type", "Feature")
+        .add("geometry", Json.createObjectBuilder()
+          .add("type", type)
+          .add("coordinates", coordinates))
+        .add("properties", Json.createObjectBuilder().add("name", name))
+        .build();
+  }
+
+  private JsonArrayBuilder ring(double minX, double minY, double maxX, double maxY) {
+    return Json.createArrayBuilder()
+        .add(Json.createArrayBuilder().add(minX).add(minY))
+        .add(Json.createArrayBuilder().add(maxX).add(minY))
+        .add(Json.createArrayBuilder().add(maxX).add(maxY))
+        .add(Json.createArrayBuilder().add(minX).add(maxY))
+        .add(Json.createArrayBuilder().add(minX).add(minY));
+  }
+}
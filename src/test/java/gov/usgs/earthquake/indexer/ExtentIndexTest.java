@@ -12,6 +12,8 @@ import gov.usgs.util.Config;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
 
 
 public class ExtentIndexTest {
@@ -43,4 +45,31 @@ public class ExtentIndexTest {
 
     index.close();
   }
-}
\ No newline at end of file
+
+  @Test
+  public void addBatchTest() throws Exception {
+    ExtentIndex index = new ExtentIndex();
+    index.configure(new Config());
+    index.startup();
+
+    //create products
+    List<ExtentSummary> products = new ArrayList<ExtentSummary>();
+    for (long testIndex = 10; testIndex <= 12; testIndex++) {
+      ExtentSummary product = new ExtentSummary();
+      product.setIndexId(testIndex);
+      product.setMaxLatitude(BigDecimal.ONE);
+      products.add(product);
+    }
+
+    //add products in one transaction
+    index.addExtentSummaries(products);
+    Assert.assertEquals(12L, index.getLastExtentIndexId());
+
+    //clean up products
+    Connection conn = index.connect();
+    PreparedStatement stmnt = conn.prepareStatement("DELETE FROM " + ExtentIndex.EXTENT_TABLE + " WHERE " + ExtentIndex.EXTENT_INDEX_ID + " BETWEEN 10 AND 12");
+    stmnt.executeUpdate();
+
+    index.close();
+  }
+}
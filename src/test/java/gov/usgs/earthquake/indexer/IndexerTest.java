@@ -3,6 +3,7 @@
  */
 package gov.usgs.earthquake.indexer;
 
+import gov.usgs.earthquake.distribution.DefaultNotificationListener;
 import gov.usgs.earthquake.distribution.FileProductStorage;
 import gov.usgs.earthquake.distribution.ProductTracker;
 import gov.usgs.earthquake.indexer.IndexerChange.IndexerChangeType;
@@ -26,10 +27,13 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Level;
 import java.util.logging.LogManager;
@@ -1868,4 +1872,129 @@ public class IndexerTest extends DefaultConfigurable implements IndexerListener
 				latestEvent.getProducts("testproduct").get(1).getPreferredWeight(), originalPreferredWeight);
 
 	}
+
+	/**
+	 * Products that may associate share concurrent indexing lock keys,
+	 * products far apart in time do not, and products that may affect other
+	 * events lock the entire index.
+	 */
+	@Test
+	public void indexLockKeysTest() throws Exception {
+		Date eventTime = new Date();
+		BigDecimal latitude = BigDecimal.valueOf(35.0);
+		BigDecimal longitude = BigDecimal.valueOf(-118.0);
+
+		ProductSummary summary = new ProductSummary();
+		summary.setId(new ProductId("us", "origin", "one"));
+		summary.setEventSource("us");
+		summary.setEventSourceCode("one");
+		summary.setEventTime(eventTime);
+		summary.setEventLatitude(latitude);
+		summary.setEventLongitude(longitude);
+
+		ProductSummary nearby = new ProductSummary();
+		nearby.setId(new ProductId("ci", "origin", "uno"));
+		nearby.setEventTime(new Date(eventTime.getTime() + 5000L));
+		nearby.setEventLatitude(latitude.add(BigDecimal.valueOf(0.5)));
+		nearby.setEventLongitude(longitude);
+
+		ProductSummary later = new ProductSummary();
+		later.setId(new ProductId("ci", "origin", "dos"));
+		later.setEventTime(new Date(eventTime.getTime() + 3600000L));
+		later.setEventLatitude(latitude);
+		later.setEventLongitude(longitude);
+
+		Set<String> summaryKeys = indexer.getIndexLockKeys(summary);
+		Set<String> nearbyKeys = indexer.getIndexLockKeys(nearby);
+		Set<String> laterKeys = indexer.getIndexLockKeys(later);
+		Assert.assertTrue("event id is locked",
+				summaryKeys.contains("event:usone"));
+
+		Set<String> shared = new HashSet<String>(summaryKeys);
+		shared.retainAll(nearbyKeys);
+		Assert.assertFalse("nearby products share a cell", shared.isEmpty());
+		shared = new HashSet<String>(summaryKeys);
+		shared.retainAll(laterKeys);
+		Assert.assertTrue("later product uses other cells", shared.isEmpty());
+
+		ProductSummary trump = new ProductSummary();
+		trump.setId(new ProductId("admin", "trump-origin", "us-origin-one"));
+		trump.setEventTime(eventTime);
+		trump.setEventLatitude(latitude);
+		trump.setEventLongitude(longitude);
+		Assert.assertNull("trump locks entire index",
+				indexer.getIndexLockKeys(trump));
+
+		ProductSummary noLocation = new ProductSummary();
+		noLocation.setId(new ProductId("us", "dyfi", "one"));
+		noLocation.setEventSource("us");
+		noLocation.setEventSourceCode("one");
+		Assert.assertNull("product without location locks entire index",
+				indexer.getIndexLockKeys(noLocation));
+	}
+
+	/**
+	 * Nearby products indexed concurrently associate to one event.
+	 */
+	@Test
+	public void concurrentIndexingTest() throws Exception {
+		// every indexing thread shares one connection,
+		// which is only safe when nearby products lock the same cells
+		Indexer concurrentIndexer = new Indexer() {
+			@Override
+			protected ProductIndex createConcurrentProductIndex() {
+				return getProductIndex();
+			}
+		};
+		Config config = new Config();
+		config.setProperty(Indexer.INDEXFILE_CONFIG_PROPERTY,
+				testDir.resolve("concurrentIndex.db").toString());
+		config.setProperty(Indexer.STORAGE_DIRECTORY_CONFIG_PROPERTY,
+				testDir.resolve("concurrentStorage").toString());
+		config.setProperty(Indexer.CONCURRENT_INDEXING_PROPERTY, "true");
+		config.setProperty(Indexer.INDEX_LOCK_TIME_BUCKET_PROPERTY, "5000");
+		config.setProperty(DefaultNotificationListener.CONCURRENT_PRODUCTS_PROPERTY, "4");
+		concurrentIndexer.configure(config);
+		concurrentIndexer.setDisableArchive(true);
+		concurrentIndexer.startup();
+
+		try {
+			final Date eventTime = new Date();
+			final CountDownLatch start = new CountDownLatch(1);
+			final List<Exception> exceptions = new Vector<Exception>();
+			final List<Thread> threads = new ArrayList<Thread>();
+			for (int i = 0; i < 8; i++) {
+				final Product product = createUnassociatableProduct();
+				product.setId(new ProductId("source" + i, "origin", "code" + i));
+				product.setEventSource("source" + i);
+				product.setEventSourceCode("code" + i);
+				product.setEventTime(new Date(eventTime.getTime() + i * 1000L));
+				product.setLatitude(BigDecimal.valueOf(35.0 + i * 0.05));
+				product.setLongitude(BigDecimal.valueOf(-118.0));
+				Thread thread = new Thread(() -> {
+					try {
+						start.await();
+						concurrentIndexer.onProduct(product);
+					} catch (Exception e) {
+						exceptions.add(e);
+					}
+				});
+				thread.start();
+				threads.add(thread);
+			}
+			start.countDown();
+			for (Thread thread : threads) {
+				thread.join();
+			}
+			Assert.assertTrue("no exceptions indexing", exceptions.isEmpty());
+
+			List<Event> events = concurrentIndexer.getProductIndex().getEvents(
+					new ProductIndexQuery());
+			Assert.assertEquals("products associate to one event", 1, events.size());
+			Assert.assertEquals("event has all products", 8,
+					events.get(0).getProductList().size());
+		} finally {
+			concurrentIndexer.shutdown();
+		}
+	}
 }
@@ -8,6 +8,8 @@ import gov.usgs.earthquake.product.ProductTest;
 
 import java.io.File;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -258,6 +260,88 @@ public class JDBCProductIndexTest {
 		Assert.assertNotNull(event.getIndexId());
 	}
 
+	/**
+	 * Associates products with an event and checks that getEvents loads
+	 * all products with their links and properties.
+	 */
+	@Test
+	public void getEventsLoadsDetailsTest() throws Exception {
+		event = index.addEvent(new Event());
+		summary = index.addProductSummary(
+				new ProductSummary(productFactory.getProduct()));
+		ProductSummary summary2 = index.addProductSummary(
+				new ProductSummary(productFactory.getOtherProduct()));
+		index.addAssociation(event, summary);
+		index.addAssociation(event, summary2);
+
+		// match event using only one of its products
+		query = new ProductIndexQuery();
+		query.getProductIds().add(summary.getId());
+		List<Event> events = index.getEvents(query);
+		Assert.assertEquals(1, events.size());
+		Event loaded = events.get(0);
+		Assert.assertEquals(event.getIndexId(), loaded.getIndexId());
+		List<ProductSummary> products = loaded.getAllProductList();
+		Assert.assertEquals(2, products.size());
+		for (ProductSummary loadedSummary : products) {
+			ProductSummary expected = loadedSummary.getId().equals(summary.getId())
+					? summary : summary2;
+			Assert.assertTrue("properties loaded", loadedSummary.getProperties()
+					.entrySet().containsAll(expected.getProperties().entrySet()));
+			Assert.assertEquals(expected.getLinks(), loadedSummary.getLinks());
+		}
+	}
+
+	/**
+	 * Streams events to a callback in index id order, with details loaded.
+	 */
+	@Test
+	public void getEventsCallbackTest() throws Exception {
+		Event event1 = index.addEvent(new Event());
+		Event event2 = index.addEvent(new Event());
+		summary = index.addProductSummary(
+				new ProductSummary(productFactory.getProduct()));
+		ProductSummary summary2 = index.addProductSummary(
+				new ProductSummary(productFactory.getOtherProduct()));
+		index.addAssociation(event2, summary2);
+		index.addAssociation(event1, summary);
+
+		query = new ProductIndexQuery();
+		query.getProductIds().add(summary.getId());
+		query.getProductIds().add(summary2.getId());
+		final List<Event> events = new ArrayList<Event>();
+		index.getEvents(query, events::add);
+		Assert.assertEquals(2, events.size());
+		Assert.assertEquals(event1.getIndexId(), events.get(0).getIndexId());
+		Assert.assertEquals(event2.getIndexId(), events.get(1).getIndexId());
+		ProductSummary loaded = events.get(1).getAllProductList().get(0);
+		Assert.assertEquals(summary2.getId(), loaded.getId());
+		Assert.assertEquals(summary2.getLinks(), loaded.getLinks());
+	}
+
+	/**
+	 * Adds a product with more properties and links than fit in one insert
+	 * statement, and checks they are all loaded.
+	 */
+	@Test
+	public void addManyPropertiesTest() throws Exception {
+		summary = new ProductSummary(productFactory.getProduct());
+		for (int i = 0; i < 250; i++) {
+			summary.getProperties().put("property" + i, "value" + i);
+			summary.addLink("relation" + (i % 3),
+					new URI("http://localhost/" + i));
+		}
+		summary = index.addProductSummary(summary);
+
+		query = new ProductIndexQuery();
+		query.getProductIds().add(summary.getId());
+		List<ProductSummary> products = index.getProducts(query);
+		Assert.assertEquals(1, products.size());
+		Assert.assertTrue("properties loaded", products.get(0).getProperties()
+				.entrySet().containsAll(summary.getProperties().entrySet()));
+		Assert.assertEquals(summary.getLinks(), products.get(0).getLinks());
+	}
+
 	/**
 	 * Open a connection to a mysql database called productIndex on localhost
 	 * with the user: "test" and the password: "test". This test will
@@ -0,0 +1,172 @@
+package gov.usgs.earthquake.indexer;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import gov.usgs.earthquake.product.ProductId;
+import gov.usgs.util.FileUtils;
+
+public class RecentEventIndexTest {
+
+	/** One day in milliseconds. */
+	public static final long ONE_DAY = 86400000L;
+
+	private Path testDir;
+	private JDBCProductIndex productIndex;
+	private RecentEventIndex recentEvents;
+	private DefaultAssociator associator = new DefaultAssociator();
+
+	@BeforeEach
+	public void setup() throws Exception {
+		testDir = Files.createTempDirectory("recent-event-index-test");
+		productIndex = new JDBCProductIndex(
+				testDir.resolve("productIndex.db").toString());
+		productIndex.startup();
+		recentEvents = new RecentEventIndex(ONE_DAY);
+	}
+
+	@AfterEach
+	public void teardown() throws Exception {
+		productIndex.shutdown();
+		FileUtils.deleteTree(testDir.toFile());
+	}
+
+	@Test
+	public void notLoaded() throws Exception {
+		Assert.assertNull("not loaded",
+				recentEvents.getEventIndexIds(getQuery(new Date(), "0", "0")));
+		recentEvents.load(productIndex);
+		Assert.assertEquals("loaded, no events", 0,
+				recentEvents.getEventIndexIds(getQuery(new Date(), "0", "0"))
+						.size());
+	}
+
+	@Test
+	public void loadFromIndex() throws Exception {
+		Date time = new Date();
+		Event event = addEvent("us", time, "35", "-118");
+		addEvent("old", new Date(time.getTime() - 2 * ONE_DAY), "35", "-118");
+
+		recentEvents.load(productIndex);
+		Assert.assertEquals("only recent event loaded", 1, recentEvents.size());
+		List<Long> ids = recentEvents.getEventIndexIds(
+				getQuery(time, "35.1", "-118.1"));
+		Assert.assertEquals(1, ids.size());
+		Assert.assertEquals(event.getIndexId(), ids.get(0));
+	}
+
+	@Test
+	public void updateAndRemove() throws Exception {
+		recentEvents.load(productIndex);
+		Date time = new Date();
+		Event event = createEvent(1L, "us", time, "35", "-118");
+		recentEvents.update(event);
+		Assert.assertEquals(1,
+				recentEvents.getEventIndexIds(getQuery(time, "35", "-118")).size());
+		Assert.assertEquals("far away", 0,
+				recentEvents.getEventIndexIds(getQuery(time, "-35", "118")).size());
+		Assert.assertEquals("different time", 0,
+				recentEvents.getEventIndexIds(
+						getQuery(new Date(time.getTime() - 60000L), "35", "-118"))
+						.size());
+
+		// moved event only found at new location
+		recentEvents.update(createEvent(1L, "us", time, "-35", "118"));
+		Assert.assertEquals(1, recentEvents.size());
+		Assert.assertEquals(0,
+				recentEvents.getEventIndexIds(getQuery(time, "35", "-118")).size());
+		Assert.assertEquals(1,
+				recentEvents.getEventIndexIds(getQuery(time, "-35", "118")).size());
+
+		recentEvents.remove(1L);
+		Assert.assertEquals(0, recentEvents.size());
+		Assert.assertEquals(0,
+				recentEvents.getEventIndexIds(getQuery(time, "-35", "118")).size());
+	}
+
+	@Test
+	public void crossesDateLine() throws Exception {
+		recentEvents.load(productIndex);
+		Date time = new Date();
+		recentEvents.update(createEvent(1L, "us", time, "0", "179.9"));
+		recentEvents.update(createEvent(2L, "us", time, "0", "-179.9"));
+		Assert.assertEquals(2,
+				recentEvents.getEventIndexIds(getQuery(time, "0", "180")).size());
+	}
+
+	@Test
+	public void unsupportedQueries() throws Exception {
+		recentEvents.load(productIndex);
+		Date time = new Date();
+		Assert.assertNull("older than window", recentEvents.getEventIndexIds(
+				getQuery(new Date(time.getTime() - 2 * ONE_DAY), "0", "0")));
+
+		ProductIndexQuery query = getQuery(time, "0", "0");
+		query.setMinEventMagnitude(new BigDecimal("5"));
+		Assert.assertNull("magnitude", recentEvents.getEventIndexIds(query));
+
+		Assert.assertNull("event id query", recentEvents.getEventIndexIds(
+				associator.getEventIdQuery("us", "abcd")));
+	}
+
+	@Test
+	public void searchEventIndexIds() throws Exception {
+		Date time = new Date();
+		Event event = addEvent("us", time, "35", "-118");
+		addEvent("nc", time, "35", "-118");
+
+		ProductIndexQuery query = new ProductIndexQuery();
+		query.setEventSearchType(ProductIndexQuery.SEARCH_EVENT_PREFERRED);
+		query.setResultType(ProductIndexQuery.RESULT_TYPE_ALL);
+		query.getEventIndexIds().add(event.getIndexId());
+		List<Event> events = productIndex.getEvents(query);
+		Assert.assertEquals(1, events.size());
+		Assert.assertEquals(event.getIndexId(), events.get(0).getIndexId());
+	}
+
+	private ProductIndexQuery getQuery(final Date time, final String latitude,
+			final String longitude) {
+		return associator.getLocationQuery(time, new BigDecimal(latitude),
+				new BigDecimal(longitude));
+	}
+
+	private ProductSummary createSummary(final String source, final Date time,
+			final String latitude, final String longitude) {
+		ProductSummary summary = new ProductSummary();
+		summary.setId(new ProductId(source, "origin", source + "1234",
+				new Date()));
+		summary.setEventSource(source);
+		summary.setEventSourceCode("1234");
+		summary.setEventTime(time);
+		summary.setEventLatitude(new BigDecimal(latitude));
+		summary.setEventLongitude(new BigDecimal(longitude));
+		return summary;
+	}
+
+	private Event createEvent(final Long indexId, final String source,
+			final Date time, final String latitude, final String longitude) {
+		Event event = new Event(indexId);
+		event.addProduct(createSummary(source, time, latitude, longitude));
+		return event;
+	}
+
+	private Event addEvent(final String source, final Date time,
+			final String latitude, final String longitude) throws Exception {
+		ProductSummary summary = productIndex.addProductSummary(
+				createSummary(source, time, latitude, longitude));
+		Event event = productIndex.addAssociation(
+				productIndex.addEvent(new Event()), summary);
+		productIndex.eventsUpdated(Arrays.asList(event));
+		return event;
+	}
+
+}
@@ -4,7 +4,9 @@
 package gov.usgs.earthquake.indexer;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 
 import org.junit.Assert;
@@ -149,6 +151,93 @@ public class ReliableIndexerListenerTest {
     listener.shutdown();
   }
 
+  @Test
+  public void lowWaterMarkTest() throws Exception {
+    for (long i = 1; i <= 5; i++) {
+      ProductSummary product = new ProductSummary();
+      product.setIndexId(i);
+      product.setId(new ProductId("test", "test", "code" + i));
+      products.add(product);
+    }
+    final List<Long> lastIndexIds = Collections.synchronizedList(new ArrayList<Long>());
+    final List<Long> processedIds = Collections.synchronizedList(new ArrayList<Long>());
+    final AtomicInteger failures = new AtomicInteger(0);
+
+    //product 3 fails once, while later products in the batch succeed
+    ReliableIndexerListener listener = new ReliableIndexerListener() {
+      @Override
+      public void processProduct(ProductSummary product) throws Exception {
+        if (product.getIndexId() == 3 && failures.getAndIncrement() == 0) {
+          throw new Exception("test failure");
+        }
+        processedIds.add(product.getIndexId());
+      }
+
+      @Override
+      protected void onProcessException(ProductSummary product, Exception e) throws Exception {
+        throw e;
+      }
+
+      @Override
+      public void setLastIndexId(long lastIndexId) {
+        super.setLastIndexId(lastIndexId);
+        lastIndexIds.add(lastIndexId);
+      }
+    };
+    listener.setProductIndex(new RangeIndex());
+    listener.setBatchSize(5);
+    listener.setProcessThreads(4);
+    listener.setRetryDelay(10L);
+    listener.startup();
+    try {
+      for (int i = 0; i < 100 && listener.getLastIndexId() != 5; i++) {
+        Thread.sleep(20L);
+      }
+    } finally {
+      listener.shutdown();
+    }
+
+    //lastIndexId stops before the failed product, then advances past the retry
+    Assert.assertEquals(Long.valueOf(2L), lastIndexIds.get(0));
+    Assert.assertEquals(5L, listener.getLastIndexId());
+    //products after the failure are processed again
+    Assert.assertEquals(2, Collections.frequency(processedIds, 4L));
+    Assert.assertEquals(2, Collections.frequency(processedIds, 5L));
+  }
+
+  @Test
+  public void retryDelayTest() throws Exception {
+    ProductSummary product = new ProductSummary();
+    product.setIndexId(1L);
+    product.setId(new ProductId("test", "test", "test"));
+    products.add(product);
+    final AtomicInteger attempts = new AtomicInteger(0);
+
+    //first product always fails
+    ReliableIndexerListener listener = new ReliableIndexerListener() {
+      @Override
+      public void processProduct(ProductSummary product) throws Exception {
+        attempts.incrementAndGet();
+        throw new Exception("test failure");
+      }
+
+      @Override
+      protected void onProcessException(ProductSummary product, Exception e) throws Exception {
+        throw e;
+      }
+    };
+    listener.setProductIndex(new RangeIndex());
+    listener.setRetryDelay(50L);
+    listener.startup();
+    Thread.sleep(300L);
+    listener.shutdown();
+
+    //50 + 100 + 200 ms delays allow about 3 attempts, not a busy loop
+    Assert.assertTrue("retried after delay", attempts.get() >= 2);
+    Assert.assertTrue("did not retry in a loop", attempts.get() <= 6);
+    Assert.assertEquals(-1L, listener.getLastIndexId());
+  }
+
   public class TestIndexerListener extends ReliableIndexerListener {
 
     @Override
@@ -209,4 +298,27 @@ public class ReliableIndexerListenerTest {
     }
     
   }
+
+  /**
+   * Returns products at or after the minimum index id, without removing them.
+   */
+  public class RangeIndex extends JDBCProductIndex {
+
+    public RangeIndex() throws Exception {
+      super();
+    }
+
+    @Override
+    public List<ProductSummary> getProducts(ProductIndexQuery query) {
+      List<ProductSummary> ret = new ArrayList<>();
+      for (ProductSummary product : products) {
+        if (product.getIndexId() >= query.getMinProductIndexId()
+            && ret.size() < query.getLimit()) {
+          ret.add(product);
+        }
+      }
+      return ret;
+    }
+
+  }
 }
\ No newline at end of file
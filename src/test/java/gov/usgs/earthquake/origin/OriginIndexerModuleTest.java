@@ -156,6 +156,25 @@ public class OriginIndexerModuleTest {
     Assert.assertEquals(feRegionName, title);
   }
 
+  @Test
+  public void getCachedEventTitleTest() throws IOException {
+    BigDecimal latitude = new BigDecimal("0.0");
+    BigDecimal longitude = new BigDecimal("0.0");
+    module.setTitleCacheSize(10);
+
+    // FE Region Title is not cached
+    this.distance = 301.0;
+    Assert.assertEquals(feRegionName, module.getCachedEventTitle(latitude, longitude));
+    this.distance = 299.0;
+    Assert.assertEquals("299 km WSW of name, country_name",
+        module.getCachedEventTitle(latitude, longitude));
+
+    // Nearby Places Title is cached
+    this.distance = 301.0;
+    Assert.assertEquals("299 km WSW of name, country_name",
+        module.getCachedEventTitle(latitude, longitude));
+  }
+
   @Test
   public void azimuthToDirectionTest() {
     Assert.assertEquals("S", module.azimuthToDirection(0));
@@ -20,4 +20,12 @@ public class FileContentTest {
 				.defaultGetMimeType(new File("path/test.tar.gz")),
 						"application/gzip");
 	}
+
+	@Test
+	public void getSha256() throws Exception {
+		File file = new File("etc/test_products/usa00040xz/us_shakemap_usa00040xz_1287260900624.bin");
+		// mapped file hash matches streamed hash
+		Assert.assertEquals(new URLContent(new FileContent(file)).getSha256(),
+				new FileContent(file).getSha256());
+	}
 }
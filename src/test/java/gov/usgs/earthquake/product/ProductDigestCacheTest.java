@@ -0,0 +1,110 @@
+/*
+ * ProductDigestCacheTest
+ */
+package gov.usgs.earthquake.product;
+
+import gov.usgs.util.CryptoUtils.Version;
+
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for ProductDigestCache.
+ */
+public class ProductDigestCacheTest {
+
+	private final Date lastModified = new Date();
+
+	/**
+	 * Cached digest is used when product attributes match.
+	 */
+	@Test
+	public void getDigest() throws Exception {
+		ProductDigestCache cache = new ProductDigestCache();
+		Product product = getProduct("content");
+		byte[] digest = ProductDigest.digestProduct(product, Version.SIGNATURE_V2);
+		cache.put(product, Version.SIGNATURE_V2, digest);
+
+		Product copy = getProduct("content");
+		copy.setSignature(product.getSignature());
+		Assert.assertArrayEquals(digest,
+				cache.getDigest(copy, Version.SIGNATURE_V2, false));
+		Assert.assertEquals("sha256 from cache",
+				product.getContents().get("test.txt").getSha256(),
+				((AbstractContent) copy.getContents().get("test.txt"))
+						.getSha256(false));
+		Assert.assertNull("different version",
+				cache.getDigest(copy, Version.SIGNATURE_V1, false));
+
+		copy.getProperties().put("modified", "true");
+		Assert.assertNull("different properties",
+				cache.getDigest(copy, Version.SIGNATURE_V2, false));
+
+		copy = getProduct("content");
+		copy.setSignature("other signature");
+		Assert.assertNull("different signature",
+				cache.getDigest(copy, Version.SIGNATURE_V2, false));
+
+		Assert.assertEquals(1L, cache.getHits());
+		Assert.assertEquals(3L, cache.getMisses());
+	}
+
+	/**
+	 * When verifying content, content sha256 must match.
+	 */
+	@Test
+	public void verifyContent() throws Exception {
+		ProductDigestCache cache = new ProductDigestCache();
+		Product product = getProduct("content");
+		// computes content sha256
+		byte[] digest = ProductDigest.digestProduct(product, Version.SIGNATURE_V2);
+		cache.put(product, Version.SIGNATURE_V2, digest);
+		Assert.assertTrue(cache.hasContentSha256(product.getId()));
+
+		Product copy = getProduct("content");
+		copy.setSignature(product.getSignature());
+		Assert.assertNull("sha256 not known",
+				cache.getDigest(copy, Version.SIGNATURE_V2, true));
+		copy.getContents().get("test.txt").getSha256();
+		Assert.assertArrayEquals(digest,
+				cache.getDigest(copy, Version.SIGNATURE_V2, true));
+
+		// same length, different bytes
+		Product modified = getProduct("CONTENT");
+		modified.setSignature(product.getSignature());
+		modified.getContents().get("test.txt").getSha256();
+		Assert.assertNull("different content",
+				cache.getDigest(modified, Version.SIGNATURE_V2, false));
+	}
+
+	/**
+	 * Least recently used digests are removed.
+	 */
+	@Test
+	public void maxSize() throws Exception {
+		ProductDigestCache cache = new ProductDigestCache(1);
+		Product first = getProduct("content");
+		Product second = getProduct("content");
+		second.setId(new ProductId("test", "test", "second"));
+		cache.put(first, Version.SIGNATURE_V1, new byte[] {1});
+		cache.put(second, Version.SIGNATURE_V1, new byte[] {2});
+		Assert.assertEquals(1, cache.size());
+		Assert.assertNull(cache.getDigest(first, Version.SIGNATURE_V1, false));
+		Assert.assertArrayEquals(new byte[] {2},
+				cache.getDigest(second, Version.SIGNATURE_V1, false));
+	}
+
+	private Product getProduct(final String content) {
+		Product product = new Product(new ProductId("test", "test", "test",
+				lastModified));
+		product.getProperties().put("testprop", "testvalue");
+		ByteContent byteContent = new ByteContent(content.getBytes());
+		byteContent.setLastModified(lastModified);
+		product.getContents().put("test.txt", byteContent);
+		product.setSignature("signature");
+		return product;
+	}
+
+}
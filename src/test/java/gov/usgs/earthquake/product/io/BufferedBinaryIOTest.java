@@ -0,0 +1,71 @@
+package gov.usgs.earthquake.product.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BufferedBinaryIOTest {
+
+	private static final String[] STRINGS = {
+		"",
+		"ascii",
+		"multi byte é中🌎",
+		"unpaired surrogate \ud83c",
+		new String(new char[100000]).replace('\0', 'é')
+	};
+
+	/**
+	 * Output matches BinaryIO, and reads back the same values.
+	 */
+	@Test
+	public void sameFormatAsBinaryIO() throws Exception {
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		writeValues(new BinaryIO(), expected);
+		writeValues(new BufferedBinaryIO(16), actual);
+		Assert.assertTrue("same bytes",
+				Arrays.equals(expected.toByteArray(), actual.toByteArray()));
+
+		BinaryIO io = new BufferedBinaryIO(16);
+		ByteArrayInputStream in = new ByteArrayInputStream(actual.toByteArray());
+		Assert.assertEquals(Integer.MIN_VALUE, io.readInt(in));
+		Assert.assertEquals(Long.MAX_VALUE, io.readLong(in));
+		Assert.assertEquals(new Date(1234567890L), io.readDate(in));
+		for (int i = 0; i < STRINGS.length - 1; i++) {
+			Assert.assertEquals(new String(STRINGS[i].getBytes("UTF-8"), "UTF-8"),
+					io.readString(in));
+		}
+		Assert.assertEquals(STRINGS[STRINGS.length - 1], io.readString(in));
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		io.readStream(in, content);
+		Assert.assertEquals(20000, content.size());
+		Assert.assertEquals(-1, in.read());
+	}
+
+	/**
+	 * Strings longer than maxLength are rejected.
+	 */
+	@Test(expected = java.io.IOException.class)
+	public void readStringMaxLength() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryIO io = new BufferedBinaryIO();
+		io.writeString("too long", out);
+		io.readString(new ByteArrayInputStream(out.toByteArray()), 4);
+	}
+
+	private void writeValues(final BinaryIO io, final ByteArrayOutputStream out)
+			throws Exception {
+		io.writeInt(Integer.MIN_VALUE, out);
+		io.writeLong(Long.MAX_VALUE, out);
+		io.writeDate(new Date(1234567890L), out);
+		for (String string : STRINGS) {
+			io.writeString(string, out);
+		}
+		io.writeStream(20000, new ByteArrayInputStream(new byte[20000]), out);
+	}
+
+}
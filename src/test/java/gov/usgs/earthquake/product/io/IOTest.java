@@ -6,12 +6,15 @@ package gov.usgs.earthquake.product.io;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import gov.usgs.util.FileUtils;
 import gov.usgs.util.StreamUtils;
 
 import gov.usgs.earthquake.product.Product;
 import gov.usgs.earthquake.product.ProductTest;
+import gov.usgs.earthquake.util.ChannelOutputStream;
 
 import org.junit.Test;
 
@@ -60,6 +63,34 @@ public class IOTest {
 		productTest.compareProducts(product, loadedProduct);
 	}
 
+	/**
+	 * Write a product to a channel, transferring file content directly, and
+	 * then read it.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void binaryChannelWriteThenRead() throws Exception {
+		Product product = getProduct();
+		File file = File.createTempFile("binaryChannel", ".bin");
+		try {
+			try (FileChannel channel = FileChannel.open(file.toPath(),
+					StandardOpenOption.WRITE)) {
+				ChannelOutputStream out = new ChannelOutputStream(channel);
+				new ObjectProductSource(product)
+						.streamTo(new BinaryProductHandler(out));
+				out.flush();
+			}
+
+			BinaryProductSource binaryInput = new BinaryProductSource(
+					StreamUtils.getInputStream(file));
+			Product loadedProduct = ObjectProductHandler.getProduct(binaryInput);
+			productTest.compareProducts(product, loadedProduct);
+		} finally {
+			file.delete();
+		}
+	}
+
 	/**
 	 * Write and then read a product xml file.
 	 * 
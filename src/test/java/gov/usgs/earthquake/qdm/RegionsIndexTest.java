@@ -0,0 +1,80 @@
+package gov.usgs.earthquake.qdm;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.Json;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.usgs.earthquake.geoserve.RegionsJSON;
+import gov.usgs.util.StreamUtils;
+
+public class RegionsIndexTest {
+
+    private Regions regions;
+    private List<String> netids;
+
+    @Before
+    public void before() throws Exception {
+        try (InputStream in = StreamUtils.getInputStream(new File("etc/config/example_regions.json"))) {
+            regions = new RegionsJSON().parseRegions(Json.createReader(in).readObject());
+        }
+        netids = new ArrayList<String>(regions.netids);
+        netids.add("us");
+        netids.add("xx");
+    }
+
+    /**
+     * Index gives the same result as testing every region, on a global grid.
+     */
+    @Test
+    public void sameAsLinearOnGrid() {
+        for (double y = -90.0; y <= 90.0; y += 0.75) {
+            for (double x = -180.0; x <= 180.0; x += 0.75) {
+                assertSame(new Point(x, y));
+            }
+        }
+    }
+
+    /**
+     * Index gives the same result as testing every region, on and near vertices.
+     */
+    @Test
+    public void sameAsLinearOnBoundaries() {
+        for (Region region : regions.regions) {
+            for (int i = 0; i < region.points.size(); i++) {
+                Point p = region.points.get(i);
+                Point next = region.points.get((i + 1) % region.points.size());
+                assertSame(p);
+                assertSame(new Point((p.x + next.x) / 2, (p.y + next.y) / 2));
+                assertSame(new Point(p.x + 1e-9, p.y - 1e-9));
+            }
+        }
+    }
+
+    /**
+     * A region without points contains everything.
+     */
+    @Test
+    public void defaultRegion() {
+        Regions world = new Regions();
+        world.defaultNetid = "us";
+        world.regions.add(new Region("ak", "world"));
+        Assert.assertTrue(world.isAuthor("ak", new Point(10, 10)));
+        Assert.assertFalse(world.isAuthor("us", new Point(10, 10)));
+    }
+
+    private void assertSame(final Point p) {
+        for (String netid : netids) {
+            Assert.assertEquals(netid + " at " + p.x + ", " + p.y,
+                    regions.isAuthorLinear(netid, p),
+                    regions.isAuthor(netid, p));
+        }
+    }
+
+}
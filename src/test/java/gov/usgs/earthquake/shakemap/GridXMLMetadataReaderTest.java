@@ -0,0 +1,54 @@
+package gov.usgs.earthquake.shakemap;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gov.usgs.earthquake.product.Content;
+import gov.usgs.earthquake.product.Product;
+import gov.usgs.earthquake.product.io.BinaryProductSource;
+import gov.usgs.earthquake.product.io.ObjectProductHandler;
+import gov.usgs.util.StreamUtils;
+
+public class GridXMLMetadataReaderTest {
+
+  /*
+   * Reader returns the same values as GridXMLHandler.
+   */
+  @Test
+  public void sameAsHandler() throws Exception {
+    Product product = ObjectProductHandler.getProduct(new BinaryProductSource(
+        StreamUtils.getInputStream(new File(
+            "etc/test_products/usa00040xz/us_shakemap_usa00040xz_1287260900624.bin"))));
+    Content gridxml = product.getContents().get(ShakeMap.GRID_XML_ATTACHMENT);
+
+    HashMap<String, String> expected = new GridXMLHandler().parse(
+        gridxml.getInputStream());
+    HashMap<String, String> actual;
+    try (InputStream in = gridxml.getInputStream()) {
+      actual = new GridXMLMetadataReader().read(in);
+    }
+    Assert.assertEquals(expected, actual);
+    Assert.assertNotNull(actual.get(GridXMLHandler.EVENT_DESCRIPTION_XML));
+  }
+
+  /*
+   * Reader stops before grid data, so invalid grid data is never read.
+   */
+  @Test
+  public void stopsAtGridData() throws Exception {
+    String xml = "<?xml version=\"1.0\"?>"
+        + "<shakemap_grid xmlns=\"http://earthquake.usgs.gov/eqcenter/shakemap\""
+        + " shakemap_id=\"abc\">"
+        + "<event lat=\"1.5\" lon=\"2.5\"/>"
+        + "<grid_data>not closed <<<";
+    HashMap<String, String> grid = new GridXMLMetadataReader().read(
+        StreamUtils.getInputStream(xml.getBytes("UTF-8")));
+    Assert.assertEquals("abc", grid.get(GridXMLHandler.SHAKEMAPGRID_ID_XML));
+    Assert.assertEquals("1.5", grid.get(GridXMLHandler.EVENT_LATITUDE_XML));
+    Assert.assertNull(grid.get(GridXMLHandler.EVENT_DEPTH_XML));
+  }
+}
@@ -6,9 +6,12 @@ import java.util.HashMap;
 import org.junit.Assert;
 import org.junit.Test;
 
+import gov.usgs.earthquake.product.AbstractContent;
+import gov.usgs.earthquake.product.ByteContent;
 import gov.usgs.earthquake.product.Product;
 import gov.usgs.earthquake.product.io.BinaryProductSource;
 import gov.usgs.earthquake.product.io.ObjectProductHandler;
+import gov.usgs.util.FileUtils;
 import gov.usgs.util.StreamUtils;
 
 public class ShakeMapTest {
@@ -61,4 +64,36 @@ public class ShakeMapTest {
 		Assert.assertEquals("Should be null", null, info.get("bogus_element"));
 	}
 
+	/**
+	 * Metadata is read from the cache directory, keyed by content sha256.
+	 */
+	@Test
+	public void metadataCache() throws Exception {
+		File directory = new File("shakemapMetadataCache");
+		FileUtils.deleteTree(directory);
+		try {
+			Product product = ObjectProductHandler.getProduct(new BinaryProductSource(
+					StreamUtils.getInputStream(new File(
+							"etc/test_products/usa00040xz/us_shakemap_usa00040xz_1287260900624.bin"))));
+			AbstractContent gridxml = (AbstractContent) product.getContents()
+					.get(ShakeMap.GRID_XML_ATTACHMENT);
+			String sha256 = gridxml.getSha256(true);
+			ShakeMap shakemap = new ShakeMap(product,
+					new ShakeMapMetadataCache(directory, 10));
+			String description = shakemap.getEventDescription();
+			Assert.assertNotNull(description);
+
+			// new cache using same directory, content that no longer parses
+			ByteContent invalid = new ByteContent("not xml".getBytes());
+			invalid.setSha256(sha256);
+			product.getContents().put(ShakeMap.GRID_XML_ATTACHMENT, invalid);
+			product.getProperties().remove(ShakeMap.EVENT_DESCRIPTION_PROPERTY);
+			shakemap = new ShakeMap(product,
+					new ShakeMapMetadataCache(directory, 10));
+			Assert.assertEquals(description, shakemap.getEventDescription());
+		} finally {
+			FileUtils.deleteTree(directory);
+		}
+	}
+
 }
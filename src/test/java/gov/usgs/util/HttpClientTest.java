@@ -0,0 +1,141 @@
+package gov.usgs.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+public class HttpClientTest {
+
+	public static final String TEST_CONTENT = String.join("\n",
+			Collections.nCopies(20, "This is test content,"
+					+ " sent many times using the same connection."));
+
+	private HttpServer server;
+	private URL url;
+	/** client ports used for requests, one per connection. */
+	private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+	@Before
+	public void before() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", (exchange) -> {
+			clientPorts.add(exchange.getRemoteAddress().getPort());
+			byte[] body = TEST_CONTENT.getBytes();
+			String encoding = exchange.getRequestHeaders().getFirst(
+					"Accept-Encoding");
+			if ("gzip".equals(encoding)) {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+					gzip.write(body);
+				}
+				body = bytes.toByteArray();
+				exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			}
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		});
+		server.start();
+		url = new URL("http://127.0.0.1:" + server.getAddress().getPort()
+				+ "/product");
+	}
+
+	@After
+	public void after() {
+		server.stop(0);
+	}
+
+	/**
+	 * Sequential requests should reuse one keep-alive connection.
+	 */
+	@Test
+	public void testConnectionReuse() throws Exception {
+		HttpClient client = new HttpClient();
+		for (int i = 0; i < 5; i++) {
+			try (InputStream in = client.getInputStream(url)) {
+				Assert.assertEquals(TEST_CONTENT,
+						new String(StreamUtils.readStream(in)));
+			}
+		}
+		Assert.assertEquals("one connection used", 1, clientPorts.size());
+		Assert.assertEquals(5, client.getRequestCount());
+		Assert.assertTrue(client.getDownloadBytes() > 0);
+	}
+
+	/**
+	 * Gzip responses are decoded, and gzip can be disabled.
+	 */
+	@Test
+	public void testGzip() throws Exception {
+		HttpClient client = new HttpClient();
+		try (InputStream in = client.getInputStream(url)) {
+			Assert.assertEquals(TEST_CONTENT,
+					new String(StreamUtils.readStream(in)));
+		}
+		long gzipBytes = client.getDownloadBytes();
+		Assert.assertTrue("gzip transfer smaller than content",
+				gzipBytes < TEST_CONTENT.length());
+
+		client.setGzip(false);
+		try (InputStream in = client.getInputStream(url)) {
+			Assert.assertEquals(TEST_CONTENT,
+					new String(StreamUtils.readStream(in)));
+		}
+		Assert.assertEquals(gzipBytes + TEST_CONTENT.length(),
+				client.getDownloadBytes());
+	}
+
+	/**
+	 * Connections are unlimited by default, and executed requests share the
+	 * per host limit when one is set.
+	 */
+	@Test
+	public void testExecuteLimit() throws Exception {
+		final HttpClient client = new HttpClient();
+		Assert.assertEquals("unlimited by default", 0,
+				client.getMaxConnectionsPerHost());
+		client.setMaxConnectionsPerHost(1);
+
+		final InputStream open = client.getInputStream(url);
+		final CountDownLatch done = new CountDownLatch(1);
+		final Thread thread = new Thread(() -> {
+			try {
+				String response = client.execute(url, (connection) -> {
+					try (InputStream in = connection.getInputStream()) {
+						return new String(StreamUtils.readStream(in));
+					}
+				});
+				if (TEST_CONTENT.equals(response)) {
+					done.countDown();
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		});
+		thread.start();
+		Assert.assertFalse("waits for open stream",
+				done.await(200, TimeUnit.MILLISECONDS));
+		open.close();
+		Assert.assertTrue("runs after stream closed",
+				done.await(5, TimeUnit.SECONDS));
+		thread.join();
+		Assert.assertEquals(2, client.getRequestCount());
+	}
+
+}
@@ -6,6 +6,9 @@
  */
 package gov.usgs.util;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -299,6 +302,46 @@ public class ObjectLockTest {
 
 	}
 
+	/**
+	 * tryAcquire should time out while another thread holds the write lock,
+	 * and succeed after it is released.
+	 */
+	@Test
+	public void tryAcquireTimesOut() throws Exception {
+		final ObjectLock<Integer> lock = new ObjectLock<Integer>(false);
+		final CountDownLatch locked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		Thread writer = new Thread(() -> {
+			try {
+				lock.acquireWriteLock(testObject1);
+				locked.countDown();
+				release.await();
+				lock.releaseWriteLock(testObject1);
+			} catch (InterruptedException e) {
+				errors.append(e.getMessage());
+			}
+		});
+		writer.start();
+		locked.await();
+
+		Assert.assertFalse("write lock held by other thread",
+				lock.haveWriteLock(testObject1));
+		Assert.assertFalse("read lock times out",
+				lock.tryAcquireReadLock(testObject2, 10L, TimeUnit.MILLISECONDS));
+		Assert.assertFalse("write lock times out",
+				lock.tryAcquireLock(testObject2, 10L, TimeUnit.MILLISECONDS));
+
+		release.countDown();
+		writer.join();
+		Assert.assertTrue("write lock acquired after release",
+				lock.tryAcquireLock(testObject2, 1L, TimeUnit.SECONDS));
+		Assert.assertTrue("have write lock", lock.haveWriteLock(testObject1));
+		lock.releaseLock(testObject2);
+		Assert.assertFalse("lock removed after release",
+				lock.haveWriteLock(testObject1));
+		Assert.assertEquals("", errors.toString());
+	}
+
 	/**
 	 * Simple lock object. Behaves like an Integer object wrapper, but allows
 	 * you to change the underlying value without re-assigning the object
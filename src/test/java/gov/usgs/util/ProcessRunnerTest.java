@@ -0,0 +1,59 @@
+package gov.usgs.util;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ProcessRunnerTest {
+
+	private static List<String> shell(final String script) {
+		return Arrays.asList("sh", "-c", script);
+	}
+
+	@Test
+	public void drainsOutput() throws Exception {
+		ProcessRunner runner = new ProcessRunner(1, 1024);
+		// writes more than a pipe buffer to stderr before exiting
+		ProcessRunner.Result result = runner.run(
+				shell("head -c 200000 /dev/zero >&2; echo done; exit 3"),
+				null, 10000L);
+		Assert.assertEquals(3, result.getExitValue());
+		Assert.assertEquals("done\n", new String(result.getOutput()));
+		Assert.assertEquals("bounded error output", 1024,
+				result.getErrorOutput().length);
+		Assert.assertEquals(1L, runner.getCommandCount());
+		Assert.assertEquals(Long.valueOf(1L),
+				runner.getExitValueCounts().get(3));
+		Assert.assertEquals(1, runner.getAvailablePermits());
+		ProcessRunner.CommandTimes times = runner.getCommandTimes().get("sh");
+		Assert.assertEquals(1L, times.getCount());
+		Assert.assertEquals(result.getElapsed(), times.getTotalTime());
+		Assert.assertEquals(result.getElapsed(), times.getMaxTime());
+	}
+
+	@Test
+	public void sendsStdin() throws Exception {
+		ProcessRunner runner = new ProcessRunner();
+		ProcessRunner.Result result = runner.run("cat",
+				new ByteArrayInputStream("test input".getBytes()), 0L);
+		Assert.assertEquals(0, result.getExitValue());
+		Assert.assertEquals("test input", new String(result.getOutput()));
+	}
+
+	@Test
+	public void timeout() throws Exception {
+		ProcessRunner runner = new ProcessRunner();
+		try {
+			runner.run(shell("sleep 10"), null, 100L);
+			Assert.fail("expected timeout");
+		} catch (ProcessTimeoutException e) {
+			// expected
+		}
+		Assert.assertEquals(1L, runner.getTimeoutCount());
+		Assert.assertEquals(0L, runner.getCommandCount());
+	}
+
+}
@@ -0,0 +1,145 @@
+package gov.usgs.util.logging;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Formatter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.usgs.util.FileUtils;
+
+public class AsyncLogFileHandlerTest {
+
+	private static final File LOG_DIRECTORY = new File("asyncLogTest");
+
+	@Before
+	public void before() {
+		FileUtils.deleteTree(LOG_DIRECTORY);
+	}
+
+	@After
+	public void after() {
+		FileUtils.deleteTree(LOG_DIRECTORY);
+	}
+
+	/**
+	 * All queued records are written before close returns.
+	 */
+	@Test
+	public void writesOnClose() throws Exception {
+		AsyncLogFileHandler handler = new AsyncLogFileHandler(LOG_DIRECTORY,
+				new SimpleDateFormat("'test.log'"), 1000, 60000L);
+		handler.setFormatter(new MessageFormatter(null));
+		for (int i = 0; i < 100; i++) {
+			handler.publish(new LogRecord(Level.INFO, "message " + i));
+		}
+		handler.close();
+
+		Assert.assertEquals(100, handler.getWrittenCount());
+		Assert.assertEquals(0, handler.getDroppedCount());
+		String log = new String(FileUtils.readFile(
+				new File(LOG_DIRECTORY, "test.log")));
+		Assert.assertTrue(log.contains("message 0\nmessage 1\n"));
+		Assert.assertTrue(log.contains("message 99\n"));
+	}
+
+	/**
+	 * Info records are dropped, not blocked, when the queue is full.
+	 */
+	@Test
+	public void dropsWhenFull() throws Exception {
+		CountDownLatch block = new CountDownLatch(1);
+		AsyncLogFileHandler handler = new AsyncLogFileHandler(LOG_DIRECTORY,
+				new SimpleDateFormat("'test.log'"), 2, 60000L);
+		handler.setFormatter(new MessageFormatter(block));
+		// writer thread blocks formatting first record
+		handler.publish(new LogRecord(Level.INFO, "first"));
+		long start = System.currentTimeMillis();
+		while (handler.getQueuedCount() > 0
+				&& System.currentTimeMillis() - start < 5000) {
+			Thread.sleep(10);
+		}
+		for (int i = 0; i < 10; i++) {
+			handler.publish(new LogRecord(Level.INFO, "message " + i));
+		}
+		Assert.assertEquals(2, handler.getQueuedCount());
+		Assert.assertEquals(8, handler.getDroppedCount());
+		block.countDown();
+		handler.close();
+
+		Assert.assertEquals(4, handler.getWrittenCount());
+		String log = new String(FileUtils.readFile(
+				new File(LOG_DIRECTORY, "test.log")));
+		Assert.assertTrue(log.contains("dropped 8 log records"));
+	}
+
+	/**
+	 * Warning records wait for room in the queue instead of being dropped.
+	 */
+	@Test
+	public void blocksWarningWhenFull() throws Exception {
+		CountDownLatch block = new CountDownLatch(1);
+		final AsyncLogFileHandler handler = new AsyncLogFileHandler(
+				LOG_DIRECTORY, new SimpleDateFormat("'test.log'"), 2, 100L);
+		handler.setFormatter(new MessageFormatter(block));
+		// writer thread blocks formatting first record
+		handler.publish(new LogRecord(Level.INFO, "first"));
+		long start = System.currentTimeMillis();
+		while (handler.getQueuedCount() > 0
+				&& System.currentTimeMillis() - start < 5000) {
+			Thread.sleep(10);
+		}
+		for (int i = 0; i < 3; i++) {
+			handler.publish(new LogRecord(Level.INFO, "message " + i));
+		}
+		Assert.assertEquals(1, handler.getDroppedCount());
+		Thread publisher = new Thread(() -> {
+			handler.publish(new LogRecord(Level.WARNING, "warning"));
+			handler.publish(new LogRecord(Level.SEVERE, "severe"));
+		});
+		publisher.start();
+		publisher.join(500L);
+		Assert.assertTrue("publish waits for room", publisher.isAlive());
+		block.countDown();
+		publisher.join(5000L);
+		Assert.assertFalse(publisher.isAlive());
+		handler.close();
+
+		Assert.assertEquals(1, handler.getDroppedCount());
+		String log = new String(FileUtils.readFile(
+				new File(LOG_DIRECTORY, "test.log")));
+		Assert.assertTrue(log.contains("warning\nsevere\n"));
+		Assert.assertTrue(log.contains("dropped 1 log records"));
+	}
+
+	/**
+	 * Formats only the message, optionally waiting on a latch first.
+	 */
+	private static class MessageFormatter extends Formatter {
+		private final CountDownLatch latch;
+
+		public MessageFormatter(final CountDownLatch latch) {
+			this.latch = latch;
+		}
+
+		@Override
+		public String format(final LogRecord record) {
+			if (latch != null) {
+				try {
+					latch.await(5, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			return record.getMessage() + "\n";
+		}
+	}
+
+}